@@ -0,0 +1,57 @@
+package com.jinitamy.benchmark;
+
+import com.jinitamy.core.Context;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求上下文基准测试
+ *
+ * 测量每个请求创建Context、写入路由参数再由处理器读取参数与属性的开销：
+ * <pre>
+ * java -jar target/benchmarks.jar ContextBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ContextBenchmark {
+    private FullHttpRequest request;
+    private FullHttpResponse response;
+
+    @Setup
+    public void setUp() {
+        request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET,
+                "/users/12345/posts/678", Unpooled.EMPTY_BUFFER);
+        response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.EMPTY_BUFFER);
+    }
+
+    @Benchmark
+    public Context create() {
+        return new Context(request, response);
+    }
+
+    @Benchmark
+    public void paramsAndAttributes(Blackhole bh) {
+        Context ctx = new Context(request, response);
+        ctx.setParam("id", "12345");
+        ctx.setParam("postId", "678");
+        ctx.setAttribute("user", this);
+        bh.consume(ctx.getParam("id"));
+        bh.consume(ctx.getParam("postId"));
+        bh.consume(ctx.getAttribute("user"));
+    }
+}
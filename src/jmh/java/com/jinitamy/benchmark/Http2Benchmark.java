@@ -0,0 +1,85 @@
+package com.jinitamy.benchmark;
+
+import com.jinitamy.core.Engine;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单连接并发请求基准测试：HTTP/2多路复用 vs HTTP/1.1流水线
+ *
+ * 每次操作在同一个连接上同时发出 concurrency 个小请求并等待全部响应：
+ * 1. HTTP_1_1：请求以流水线方式连续写出，响应按顺序返回（队头阻塞）
+ * 2. H2C：每个请求一个流（prior knowledge），响应可以乱序返回
+ * 结果以每秒操作数给出，乘以 concurrency 即为每秒请求数：
+ * <pre>
+ * java -jar target/benchmarks.jar Http2Benchmark
+ * java -jar target/benchmarks.jar Http2Benchmark -p concurrency=100
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Http2Benchmark {
+    private static final byte[] BODY = "Hello, Jinitamy!".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] REQUEST = RawHttpClient.get("/plaintext");
+
+    /** 协议 */
+    public enum Protocol { HTTP_1_1, H2C }
+
+    @Param({"HTTP_1_1", "H2C"})
+    public Protocol protocol;
+
+    @Param({"1", "10", "100"})
+    public int concurrency;
+
+    private Engine engine;
+    private RawHttpClient http1;
+    private Http2Client http2;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        engine = new Engine();
+        engine.setPort(0);
+        engine.setHttp2(true);
+        engine.get("/plaintext", ctx -> {
+            ctx.getResponse().headers()
+                    .set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.TEXT_PLAIN)
+                    .set(HttpHeaderNames.CONTENT_LENGTH, BODY.length);
+            ctx.getResponse().content().writeBytes(BODY);
+        });
+        engine.start();
+        if (protocol == Protocol.H2C) {
+            http2 = new Http2Client("127.0.0.1", engine.getPort());
+        } else {
+            http1 = new RawHttpClient("127.0.0.1", engine.getPort());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (http1 != null) {
+            http1.close();
+        }
+        if (http2 != null) {
+            http2.close();
+        }
+        if (engine != null && engine.isRunning()) {
+            engine.stop();
+        }
+    }
+
+    @Benchmark
+    public int concurrentRequests() throws Exception {
+        if (protocol == Protocol.H2C) {
+            return http2.execute("/plaintext", concurrency);
+        }
+        return http1.pipeline(REQUEST, concurrency);
+    }
+}
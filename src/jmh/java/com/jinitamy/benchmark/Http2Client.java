@@ -0,0 +1,127 @@
+package com.jinitamy.benchmark;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultiThreadIoEventLoopGroup;
+import io.netty.channel.nio.NioIoHandler;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2StreamChannelBootstrap;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.util.ReferenceCountUtil;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 极简的h2c客户端（prior knowledge）
+ *
+ * 在一个连接上为每个请求打开一个新的流，同时发出多个请求并等待全部响应，
+ * 用于对比HTTP/2多路复用与HTTP/1.1流水线在单个连接上的表现。
+ */
+public class Http2Client implements AutoCloseable {
+    private static final Http2StreamFrameToHttpObjectCodec CODEC = new Http2StreamFrameToHttpObjectCodec(false);
+
+    private final EventLoopGroup group;
+    private final Channel connection;
+
+    public Http2Client(String host, int port) throws InterruptedException {
+        this.group = new MultiThreadIoEventLoopGroup(1, NioIoHandler.newFactory());
+        this.connection = new Bootstrap()
+                .group(group)
+                .channel(NioSocketChannel.class)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(Http2FrameCodecBuilder.forClient().build(),
+                                new Http2MultiplexHandler(new ChannelInboundHandlerAdapter()));
+                    }
+                })
+                .connect(host, port).sync().channel();
+    }
+
+    /**
+     * 在同一连接上并发发送多个GET请求并等待全部响应
+     *
+     * 所有流在连接的事件循环上一次性打开并发出，全部响应到达后才唤醒调用线程，
+     * 避免每个请求一次线程切换的开销掩盖服务端的表现。
+     *
+     * @param path 请求路径
+     * @param count 并发的流数量
+     * @return 最后一个响应的HTTP状态码
+     * @throws Exception 连接异常时抛出
+     */
+    public int execute(String path, int count) throws Exception {
+        Batch batch = new Batch(count);
+        connection.eventLoop().execute(() -> {
+            for (int i = 0; i < count; i++) {
+                new Http2StreamChannelBootstrap(connection).handler(batch).open().addListener(f -> {
+                    if (!f.isSuccess()) {
+                        batch.done.completeExceptionally(f.cause());
+                        return;
+                    }
+                    FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, path);
+                    request.headers().set(HttpHeaderNames.HOST, "localhost");
+                    ((Channel) f.getNow()).writeAndFlush(request);
+                });
+            }
+        });
+        return batch.done.get();
+    }
+
+    @Override
+    public void close() {
+        connection.close().syncUninterruptibly();
+        group.shutdownGracefully();
+    }
+
+    /**
+     * 一批请求共享的流处理器：丢弃响应体，所有流都收到最后一块时完成
+     *
+     * 只在连接的事件循环上访问，不需要同步。
+     */
+    @ChannelHandler.Sharable
+    private static final class Batch extends ChannelInboundHandlerAdapter {
+        private final CompletableFuture<Integer> done = new CompletableFuture<>();
+        private int remaining;
+        private int status;
+
+        Batch(int count) {
+            this.remaining = count;
+        }
+
+        @Override
+        public void handlerAdded(ChannelHandlerContext ctx) {
+            ctx.pipeline().addBefore(ctx.name(), null, CODEC);
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            if (msg instanceof HttpResponse) {
+                status = ((HttpResponse) msg).status().code();
+            }
+            boolean last = msg instanceof LastHttpContent;
+            ReferenceCountUtil.release(msg);
+            if (last && --remaining == 0) {
+                done.complete(status);
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            done.completeExceptionally(cause);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.jinitamy.benchmark;
+
+import com.jinitamy.core.Context;
+import com.jinitamy.core.Handler;
+import io.netty.handler.codec.http.HttpMethod;
+
+import java.util.*;
+
+/**
+ * 旧版路由器（基准对照组）
+ *
+ * 保留重构前基于 String.split + 递归搜索的实现，仅用于基准测试对比，不要在业务代码中使用。
+ */
+public class LegacyRouter {
+    private static class Node {
+        String part;
+        String param;
+        boolean isWild;
+        Map<String, Node> children;
+        Handler handler;
+
+        Node(String part) {
+            this.part = part;
+            this.isWild = part.startsWith(":") || part.equals("*");
+            this.param = isWild ? part.substring(1) : "";
+            this.children = new HashMap<>();
+        }
+    }
+
+    private final Map<HttpMethod, Node> roots = new HashMap<>();
+
+    public void addRoute(HttpMethod method, String pattern, Handler handler) {
+        String[] parts = parsePath(pattern);
+        Node node = roots.computeIfAbsent(method, k -> new Node(""));
+        for (String part : parts) {
+            node = node.children.computeIfAbsent(part, Node::new);
+        }
+        node.handler = handler;
+    }
+
+    public Handler getRoute(HttpMethod method, String path, Context ctx) {
+        String[] parts = parsePath(path);
+        Node root = roots.get(method);
+        if (root == null) {
+            return null;
+        }
+        return searchNode(root, parts, 0, ctx);
+    }
+
+    private Handler searchNode(Node node, String[] parts, int index, Context ctx) {
+        if (index == parts.length) {
+            return node.handler;
+        }
+        String part = parts[index];
+
+        Node staticChild = node.children.get(part);
+        if (staticChild != null && !staticChild.isWild) {
+            Handler result = searchNode(staticChild, parts, index + 1, ctx);
+            if (result != null) {
+                return result;
+            }
+        }
+
+        for (Node child : node.children.values()) {
+            if (child.isWild && child.part.startsWith(":")) {
+                ctx.setParam(child.param, part);
+                Handler result = searchNode(child, parts, index + 1, ctx);
+                if (result != null) {
+                    return result;
+                }
+                ctx.removeParam(child.param);
+            }
+        }
+
+        for (Node child : node.children.values()) {
+            if (child.isWild && "*".equals(child.part)) {
+                StringBuilder wildcardValue = new StringBuilder();
+                for (int i = index; i < parts.length; i++) {
+                    if (i > index) {
+                        wildcardValue.append("/");
+                    }
+                    wildcardValue.append(parts[i]);
+                }
+                if (!child.param.isEmpty()) {
+                    ctx.setParam(child.param, wildcardValue.toString());
+                }
+                return child.handler;
+            }
+        }
+        return null;
+    }
+
+    private String[] parsePath(String path) {
+        if (path == null || path.isEmpty() || "/".equals(path)) {
+            return new String[0];
+        }
+        return Arrays.stream(path.split("/"))
+                .filter(p -> !p.isEmpty())
+                .toArray(String[]::new);
+    }
+}
@@ -0,0 +1,472 @@
+package com.jinitamy.benchmark;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultiThreadIoEventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioIoHandler;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseDecoder;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.HdrHistogram.Histogram;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于Netty的HTTP/1.1负载生成器
+ *
+ * 在若干keep-alive连接上发送预先编码的GET请求，支持两种模式：
+ * 1. 闭环（CLOSED）：每个连接始终保持pipelineDepth个未完成的请求，收到响应后立即发送下一个，
+ *    测量服务器的最大吞吐量
+ * 2. 开环（OPEN）：按固定的总速率发送请求，与服务器的响应速度无关；
+ *    流水线已满时请求在客户端排队，排队时间同样计入延迟
+ *
+ * 延迟从请求的计划发送时间开始计算，记录到微秒精度的HdrHistogram中：
+ * 开环模式按计划时间测量，本身就不受协调遗漏（coordinated omission）影响；
+ * 闭环模式的计划时间即实际发送时间，报告中的校正直方图按平均延迟作为期望间隔补齐被遗漏的样本。
+ *
+ * 每个连接只在自己的事件循环线程上访问自己的直方图，结束后再合并，记录时没有同步开销。
+ *
+ * 单独使用：
+ * <pre>
+ * java -cp target/benchmarks.jar com.jinitamy.benchmark.LoadGenerator \
+ *     --url=http://127.0.0.1:8080/hello --connections=64 --depth=1 --duration=10
+ * java -cp target/benchmarks.jar com.jinitamy.benchmark.LoadGenerator \
+ *     --url=http://127.0.0.1:8080/hello --connections=64 --rate=50000 --duration=10
+ * </pre>
+ */
+public class LoadGenerator {
+    /** 开环模式下检查发送计划的间隔 */
+    private static final long TICK_MICROS = 200;
+
+    /**
+     * 负载模式
+     */
+    public enum Mode {
+        /** 闭环：固定并发，收到响应后发送下一个请求 */
+        CLOSED,
+        /** 开环：固定速率，与响应速度无关 */
+        OPEN
+    }
+
+    /**
+     * 负载参数
+     */
+    public static final class Options {
+        String host = "127.0.0.1";
+        int port = 8080;
+        String[] paths = {"/"};
+        int connections = 16;
+        int pipelineDepth = 1;
+        Mode mode = Mode.CLOSED;
+        long rate;
+        Duration warmup = Duration.ofSeconds(2);
+        Duration duration = Duration.ofSeconds(10);
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        public static Options create() {
+            return new Options();
+        }
+
+        public Options target(String host, int port) {
+            this.host = host;
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * 设置请求路径，各连接依次轮流使用
+         */
+        public Options paths(String... paths) {
+            this.paths = paths.clone();
+            return this;
+        }
+
+        public Options connections(int connections) {
+            this.connections = connections;
+            return this;
+        }
+
+        /**
+         * 设置每个连接上未完成请求的最大数量（1表示不使用流水线）
+         */
+        public Options pipelineDepth(int pipelineDepth) {
+            this.pipelineDepth = pipelineDepth;
+            return this;
+        }
+
+        /**
+         * 使用闭环模式
+         */
+        public Options closedLoop() {
+            this.mode = Mode.CLOSED;
+            this.rate = 0;
+            return this;
+        }
+
+        /**
+         * 使用开环模式
+         *
+         * @param requestsPerSecond 所有连接合计的发送速率
+         */
+        public Options openLoop(long requestsPerSecond) {
+            if (requestsPerSecond <= 0) {
+                throw new IllegalArgumentException("Rate must be positive");
+            }
+            this.mode = Mode.OPEN;
+            this.rate = requestsPerSecond;
+            return this;
+        }
+
+        public Options warmup(Duration warmup) {
+            this.warmup = warmup;
+            return this;
+        }
+
+        public Options duration(Duration duration) {
+            this.duration = duration;
+            return this;
+        }
+
+        /**
+         * 设置客户端事件循环的线程数
+         */
+        public Options threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+    }
+
+    /**
+     * 负载结果
+     */
+    public static final class Result {
+        /** 测量窗口内完成的请求数 */
+        public final long requests;
+        /** 错误数（非2xx/3xx响应及连接中断时未完成的请求） */
+        public final long errors;
+        /** 测量窗口长度（纳秒） */
+        public final long elapsedNanos;
+        /** 开环模式结束时尚未发出的计划请求数 */
+        public final long backlog;
+        /** 从实际发送时间测量的延迟（微秒） */
+        public final Histogram raw;
+        /** 经过协调遗漏校正的延迟（微秒） */
+        public final Histogram corrected;
+
+        Result(long requests, long errors, long elapsedNanos, long backlog, Histogram raw, Histogram corrected) {
+            this.requests = requests;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+            this.backlog = backlog;
+            this.raw = raw;
+            this.corrected = corrected;
+        }
+
+        /**
+         * 每秒完成的请求数
+         */
+        public double throughput() {
+            return requests * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * 校正后的延迟分位数
+         *
+         * @param percentile 百分位（如 99.0）
+         * @return 延迟（微秒）
+         */
+        public long latency(double percentile) {
+            return corrected.getValueAtPercentile(percentile);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,.0f req/s  p50=%dus p90=%dus p99=%dus p99.9=%dus max=%dus  requests=%d errors=%d backlog=%d",
+                    throughput(), latency(50), latency(90), latency(99), latency(99.9), corrected.getMaxValue(),
+                    requests, errors, backlog);
+        }
+    }
+
+    /**
+     * 按参数施加负载并等待结束
+     *
+     * @param options 负载参数
+     * @return 测量窗口内的结果
+     * @throws InterruptedException 等待时被中断
+     */
+    public static Result run(Options options) throws InterruptedException {
+        ByteBuf[] requests = new ByteBuf[options.paths.length];
+        for (int i = 0; i < requests.length; i++) {
+            byte[] bytes = ("GET " + options.paths[i] + " HTTP/1.1\r\nHost: " + options.host + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            requests[i] = Unpooled.unreleasableBuffer(Unpooled.directBuffer(bytes.length).writeBytes(bytes));
+        }
+
+        EventLoopGroup group = new MultiThreadIoEventLoopGroup(options.threads, NioIoHandler.newFactory());
+        try {
+            long start = System.nanoTime();
+            long measureStart = start + options.warmup.toNanos();
+            long measureEnd = measureStart + options.duration.toNanos();
+            long intervalNanos = options.mode == Mode.OPEN
+                    ? Math.max(1, options.connections * 1_000_000_000L / options.rate) : 0;
+
+            List<Connection> connections = new ArrayList<>();
+            List<ChannelFuture> connects = new ArrayList<>();
+            for (int i = 0; i < options.connections; i++) {
+                // 错开各连接的首个计划时间，使总体发送速率均匀
+                long firstIntended = start + (intervalNanos * i) / options.connections;
+                Connection connection = new Connection(options, requests, i, firstIntended, intervalNanos,
+                        measureStart, measureEnd);
+                connections.add(connection);
+                connects.add(new Bootstrap()
+                        .group(group)
+                        .channel(NioSocketChannel.class)
+                        .option(ChannelOption.TCP_NODELAY, true)
+                        .handler(new ChannelInitializer<Channel>() {
+                            @Override
+                            protected void initChannel(Channel ch) {
+                                ch.pipeline().addLast(new HttpResponseDecoder(), connection);
+                            }
+                        })
+                        .connect(options.host, options.port));
+            }
+            for (ChannelFuture connect : connects) {
+                connect.sync();
+            }
+
+            long remaining = measureEnd - System.nanoTime();
+            if (remaining > 0) {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            }
+            for (ChannelFuture connect : connects) {
+                connect.channel().close().sync();
+            }
+
+            Histogram raw = new Histogram(3);
+            long completed = 0;
+            long errors = 0;
+            long backlog = 0;
+            for (Connection connection : connections) {
+                raw.add(connection.histogram);
+                completed += connection.completed;
+                errors += connection.errors;
+                backlog += connection.backlog(measureEnd);
+            }
+            Histogram corrected = options.mode == Mode.OPEN || raw.getTotalCount() == 0
+                    ? raw.copy()
+                    : raw.copyCorrectedForCoordinatedOmission((long) raw.getMean());
+            return new Result(completed, errors, measureEnd - measureStart, backlog, raw, corrected);
+        } finally {
+            group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    /**
+     * 单个连接的发送与接收状态，只在连接的事件循环线程上访问
+     */
+    private static final class Connection extends SimpleChannelInboundHandler<HttpObject> {
+        private final Options options;
+        private final ByteBuf[] requests;
+        private final long intervalNanos;
+        private final long measureStart;
+        private final long measureEnd;
+        /** 未完成请求的计划发送时间（环形队列） */
+        private final long[] pending;
+        private int head;
+        private int size;
+        private int nextRequest;
+        /** 开环模式下一个请求的计划发送时间 */
+        private long nextIntended;
+        private ScheduledFuture<?> ticker;
+        private boolean errorResponse;
+
+        final Histogram histogram = new Histogram(3);
+        long completed;
+        long errors;
+
+        Connection(Options options, ByteBuf[] requests, int index, long firstIntended, long intervalNanos,
+                   long measureStart, long measureEnd) {
+            this.options = options;
+            this.requests = requests;
+            this.nextRequest = index % requests.length;
+            this.nextIntended = firstIntended;
+            this.intervalNanos = intervalNanos;
+            this.measureStart = measureStart;
+            this.measureEnd = measureEnd;
+            this.pending = new long[options.pipelineDepth];
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            if (options.mode == Mode.OPEN) {
+                ticker = ctx.executor().scheduleAtFixedRate(() -> sendScheduled(ctx, System.nanoTime()),
+                        0, TICK_MICROS, TimeUnit.MICROSECONDS);
+            } else {
+                fill(ctx, System.nanoTime());
+            }
+        }
+
+        /**
+         * 闭环模式：补满流水线
+         */
+        private void fill(ChannelHandlerContext ctx, long now) {
+            if (now >= measureEnd) {
+                return;
+            }
+            boolean sent = false;
+            while (size < pending.length) {
+                send(ctx, now);
+                sent = true;
+            }
+            if (sent) {
+                ctx.flush();
+            }
+        }
+
+        /**
+         * 开环模式：发送所有已到计划时间的请求（流水线已满时留待后续发送）
+         */
+        private void sendScheduled(ChannelHandlerContext ctx, long now) {
+            boolean sent = false;
+            while (nextIntended <= now && nextIntended < measureEnd && size < pending.length) {
+                send(ctx, nextIntended);
+                nextIntended += intervalNanos;
+                sent = true;
+            }
+            if (sent) {
+                ctx.flush();
+            }
+        }
+
+        private void send(ChannelHandlerContext ctx, long intended) {
+            ctx.write(requests[nextRequest].duplicate(), ctx.voidPromise());
+            nextRequest = (nextRequest + 1) % requests.length;
+            pending[(head + size) % pending.length] = intended;
+            size++;
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, HttpObject msg) {
+            if (msg instanceof HttpResponse) {
+                errorResponse = ((HttpResponse) msg).status().code() >= 400;
+            }
+            if (!(msg instanceof LastHttpContent) || size == 0) {
+                return;
+            }
+            long intended = pending[head];
+            head = (head + 1) % pending.length;
+            size--;
+            long now = System.nanoTime();
+            if (intended >= measureStart && now < measureEnd) {
+                if (errorResponse) {
+                    errors++;
+                } else {
+                    completed++;
+                    histogram.recordValue((now - intended) / 1_000);
+                }
+            }
+            if (options.mode == Mode.OPEN) {
+                sendScheduled(ctx, now);
+            } else {
+                fill(ctx, now);
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            if (ticker != null) {
+                ticker.cancel(false);
+            }
+            // 测量窗口内被中断的请求计为错误
+            for (int i = 0; i < size; i++) {
+                long intended = pending[(head + i) % pending.length];
+                if (intended >= measureStart && intended < measureEnd && System.nanoTime() < measureEnd) {
+                    errors++;
+                }
+            }
+            size = 0;
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            ctx.close();
+        }
+
+        /**
+         * 开环模式结束时仍未发出的计划请求数
+         */
+        long backlog(long end) {
+            if (options.mode != Mode.OPEN || nextIntended >= end) {
+                return 0;
+            }
+            return (end - nextIntended) / intervalNanos;
+        }
+    }
+
+    /**
+     * 命令行入口
+     *
+     * 参数：--url --connections --depth --rate（大于0时使用开环模式）--warmup --duration（秒）--threads
+     */
+    public static void main(String[] args) throws Exception {
+        Options options = Options.create();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            String name = arg.substring(2, eq);
+            String value = arg.substring(eq + 1);
+            switch (name) {
+                case "url":
+                    URI uri = URI.create(value);
+                    options.target(uri.getHost(), uri.getPort() > 0 ? uri.getPort() : 80);
+                    String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+                    options.paths(uri.getRawQuery() != null ? path + "?" + uri.getRawQuery() : path);
+                    break;
+                case "connections":
+                    options.connections(Integer.parseInt(value));
+                    break;
+                case "depth":
+                    options.pipelineDepth(Integer.parseInt(value));
+                    break;
+                case "rate":
+                    long rate = Long.parseLong(value);
+                    if (rate > 0) {
+                        options.openLoop(rate);
+                    }
+                    break;
+                case "warmup":
+                    options.warmup(Duration.ofSeconds(Long.parseLong(value)));
+                    break;
+                case "duration":
+                    options.duration(Duration.ofSeconds(Long.parseLong(value)));
+                    break;
+                case "threads":
+                    options.threads(Integer.parseInt(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option --" + name);
+            }
+        }
+        Result result = run(options);
+        System.out.println(result);
+        result.corrected.outputPercentileDistribution(System.out, 1.0);
+    }
+}
@@ -0,0 +1,206 @@
+package com.jinitamy.benchmark;
+
+import com.jinitamy.core.Engine;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 端到端吞吐量回归测试套件
+ *
+ * 在本机启动一个带有典型路由和中间件的Engine，依次运行固定的负载场景，
+ * 输出每个场景的吞吐量和校正后的p99延迟，可以保存为基线并与之后的版本对比：
+ * <pre>
+ * mvn -Pbenchmark package -DskipTests
+ * java -cp target/benchmarks.jar com.jinitamy.benchmark.LoadSuite --out=baseline.tsv
+ * # 升级后
+ * java -cp target/benchmarks.jar com.jinitamy.benchmark.LoadSuite --baseline=baseline.tsv --tolerance=10
+ * </pre>
+ * 与基线相比吞吐量下降或p99上升超过容差（百分比）的场景标记为REGRESSION，此时进程以状态码1退出。
+ *
+ * 客户端与服务端运行在同一台机器上，只有在相同机器、相同参数下得到的结果才有可比性。
+ *
+ * 参数：--warmup --duration（秒，默认3和10）--rate（开环场景的速率，默认20000）--threads（客户端线程数）
+ * --out（保存结果）--baseline（对比的基线文件）--tolerance（默认10）
+ */
+public class LoadSuite {
+    /**
+     * 负载场景
+     */
+    private static final class Scenario {
+        final String name;
+        final LoadGenerator.Options options;
+
+        Scenario(String name, LoadGenerator.Options options) {
+            this.name = name;
+            this.options = options;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> params = parseArgs(args);
+        Duration warmup = Duration.ofSeconds(Long.parseLong(params.getOrDefault("warmup", "3")));
+        Duration duration = Duration.ofSeconds(Long.parseLong(params.getOrDefault("duration", "10")));
+        long rate = Long.parseLong(params.getOrDefault("rate", "20000"));
+        double tolerance = Double.parseDouble(params.getOrDefault("tolerance", "10"));
+
+        Engine engine = createEngine();
+        engine.start();
+        Map<String, LoadGenerator.Result> results = new LinkedHashMap<>();
+        try {
+            for (Scenario scenario : scenarios(engine.getPort(), rate)) {
+                scenario.options.warmup(warmup).duration(duration);
+                if (params.containsKey("threads")) {
+                    scenario.options.threads(Integer.parseInt(params.get("threads")));
+                }
+                System.out.printf("running %s ...%n", scenario.name);
+                LoadGenerator.Result result = LoadGenerator.run(scenario.options);
+                System.out.printf("  %s%n", result);
+                results.put(scenario.name, result);
+            }
+        } finally {
+            engine.stop();
+        }
+
+        boolean regressed = report(results, params.containsKey("baseline")
+                ? readReport(Paths.get(params.get("baseline"))) : null, tolerance);
+        if (params.containsKey("out")) {
+            writeReport(Paths.get(params.get("out")), results);
+        }
+        if (regressed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 创建测试用的引擎：典型的静态路由、参数路由和模板渲染路由，以及三个全局中间件
+     */
+    static Engine createEngine() {
+        Engine engine = new Engine();
+        engine.setPort(0);
+        // 请求ID、耗时记录和异常兜底是最常见的三类全局中间件
+        engine.use((ctx, next) -> {
+            ctx.getResponse().headers().set("X-Request-Id", Long.toHexString(System.nanoTime()));
+            next.handle(ctx);
+        });
+        engine.use((ctx, next) -> {
+            ctx.setAttribute("start", System.nanoTime());
+            next.handle(ctx);
+        });
+        engine.use((ctx, next) -> {
+            try {
+                next.handle(ctx);
+            } catch (Exception e) {
+                ctx.status(500).text("error");
+            }
+        });
+        engine.get("/plaintext", ctx -> ctx.text("Hello, World!"));
+        engine.get("/users/:id", ctx -> ctx.text("user " + ctx.getParam("id")));
+        engine.get("/api/v1/orders/:id/items/:itemId", ctx -> {
+            ctx.getResponse().headers().set("Content-Type", "application/json");
+            ctx.write("{\"order\":\"" + ctx.getParam("id") + "\",\"item\":\"" + ctx.getParam("itemId") + "\"}",
+                    StandardCharsets.UTF_8);
+        });
+        engine.get("/hello/:name", ctx -> {
+            Map<String, Object> model = new HashMap<>();
+            model.put("title", "Hello");
+            model.put("content", "Hello, " + ctx.getParam("name") + " !");
+            ctx.render("index.ftl", model);
+        });
+        return engine;
+    }
+
+    /**
+     * 固定的负载场景，名称作为报告中的键，修改已有场景的参数会使旧基线失去可比性
+     */
+    private static List<Scenario> scenarios(int port, long rate) {
+        List<Scenario> scenarios = new ArrayList<>();
+        scenarios.add(new Scenario("plaintext-c64", LoadGenerator.Options.create()
+                .target("127.0.0.1", port).paths("/plaintext").connections(64)));
+        scenarios.add(new Scenario("plaintext-c16-pipeline16", LoadGenerator.Options.create()
+                .target("127.0.0.1", port).paths("/plaintext").connections(16).pipelineDepth(16)));
+        scenarios.add(new Scenario("params-c64", LoadGenerator.Options.create()
+                .target("127.0.0.1", port).connections(64)
+                .paths("/users/1", "/users/42", "/api/v1/orders/987/items/3", "/api/v1/orders/12/items/7")));
+        scenarios.add(new Scenario("template-c32", LoadGenerator.Options.create()
+                .target("127.0.0.1", port).paths("/hello/world", "/hello/jinitamy").connections(32)));
+        scenarios.add(new Scenario("plaintext-open-" + rate, LoadGenerator.Options.create()
+                .target("127.0.0.1", port).paths("/plaintext").connections(64).openLoop(rate)));
+        return scenarios;
+    }
+
+    /**
+     * 打印结果表格，有基线时同时打印变化并判断是否退化
+     *
+     * @return 存在退化的场景时返回true
+     */
+    private static boolean report(Map<String, LoadGenerator.Result> results, Map<String, double[]> baseline,
+                                  double tolerance) {
+        boolean regressed = false;
+        System.out.println();
+        System.out.printf("%-28s %12s %10s %10s %8s%s%n", "scenario", "req/s", "p50(us)", "p99(us)", "errors",
+                baseline != null ? String.format(" %10s %10s", "req/s %", "p99 %") : "");
+        for (Map.Entry<String, LoadGenerator.Result> entry : results.entrySet()) {
+            LoadGenerator.Result r = entry.getValue();
+            System.out.printf("%-28s %12.0f %10d %10d %8d", entry.getKey(), r.throughput(), r.latency(50),
+                    r.latency(99), r.errors);
+            double[] base = baseline != null ? baseline.get(entry.getKey()) : null;
+            if (base != null) {
+                double throughputDelta = (r.throughput() - base[0]) * 100 / base[0];
+                double p99Delta = (r.latency(99) - base[1]) * 100 / Math.max(1, base[1]);
+                boolean worse = throughputDelta < -tolerance || p99Delta > tolerance;
+                regressed |= worse;
+                System.out.printf(" %+10.1f %+10.1f%s", throughputDelta, p99Delta, worse ? "  REGRESSION" : "");
+            }
+            System.out.println();
+        }
+        return regressed;
+    }
+
+    /**
+     * 以制表符分隔的格式保存结果：场景、每秒请求数、p99（微秒）
+     */
+    private static void writeReport(Path file, Map<String, LoadGenerator.Result> results) throws IOException {
+        StringBuilder sb = new StringBuilder("scenario\trps\tp99_us\n");
+        for (Map.Entry<String, LoadGenerator.Result> entry : results.entrySet()) {
+            sb.append(entry.getKey()).append('\t')
+                    .append(String.format("%.0f", entry.getValue().throughput())).append('\t')
+                    .append(entry.getValue().latency(99)).append('\n');
+        }
+        Files.writeString(file, sb.toString(), StandardCharsets.UTF_8);
+        System.out.println("report written to " + file);
+    }
+
+    private static Map<String, double[]> readReport(Path file) throws IOException {
+        Map<String, double[]> report = new HashMap<>();
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        for (String line : lines.subList(1, lines.size())) {
+            String[] columns = line.split("\t");
+            if (columns.length == 3) {
+                report.put(columns[0], new double[]{Double.parseDouble(columns[1]), Double.parseDouble(columns[2])});
+            }
+        }
+        return report;
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> params = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            params.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return params;
+    }
+}
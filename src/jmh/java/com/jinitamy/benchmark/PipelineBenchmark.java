@@ -0,0 +1,105 @@
+package com.jinitamy.benchmark;
+
+import com.jinitamy.core.Engine;
+import com.jinitamy.core.HttpHandler;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求处理管道基准测试
+ *
+ * 不经过网络，在EmbeddedChannel上测量单个请求在框架内的开销：
+ * 1. dispatch：HttpHandler收到解码后的请求，执行路由匹配、中间件链和处理器，返回响应对象
+ * 2. endToEnd：从原始请求字节经HttpServerCodec解码、处理，到编码后的响应字节
+ *
+ * middlewares参数控制全局中间件的数量，用于观察处理链长度对开销的影响；
+ * recycle参数控制是否回收请求上下文，对比 gc.alloc.rate.norm 可以看到每个请求少分配的字节数：
+ * <pre>
+ * java -jar target/benchmarks.jar PipelineBenchmark -prof gc
+ * java -jar target/benchmarks.jar PipelineBenchmark.dispatch -p middlewares=0 -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PipelineBenchmark {
+    private static final byte[] RAW_REQUEST = ("GET /users/12345 HTTP/1.1\r\n"
+            + "Host: localhost\r\n"
+            + "User-Agent: jmh\r\n"
+            + "Accept: */*\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+    /** 全局中间件数量 */
+    @Param({"0", "5", "10"})
+    public int middlewares;
+
+    /** 是否回收请求上下文 */
+    @Param({"true", "false"})
+    public boolean recycle;
+
+    private EmbeddedChannel handlerChannel;
+    private EmbeddedChannel codecChannel;
+    private FullHttpRequest request;
+    private ByteBuf rawRequest;
+
+    @Setup
+    public void setUp() {
+        Engine engine = new Engine();
+        engine.setContextRecycling(recycle);
+        for (int i = 0; i < middlewares; i++) {
+            engine.use((ctx, next) -> next.handle(ctx));
+        }
+        engine.get("/users/:id", ctx -> ctx.text(ctx.getParam("id")));
+        engine.getRouter().compile();
+
+        handlerChannel = new EmbeddedChannel(new HttpHandler(engine));
+        codecChannel = new EmbeddedChannel(new HttpServerCodec(), new HttpHandler(engine));
+        // 空请求体的请求释放后仍可重复使用
+        request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/users/12345", Unpooled.EMPTY_BUFFER);
+        rawRequest = Unpooled.unreleasableBuffer(Unpooled.directBuffer(RAW_REQUEST.length).writeBytes(RAW_REQUEST));
+    }
+
+    @TearDown
+    public void tearDown() {
+        handlerChannel.finishAndReleaseAll();
+        codecChannel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int dispatch() {
+        handlerChannel.writeInbound(request);
+        return drain(handlerChannel);
+    }
+
+    @Benchmark
+    public int endToEnd() {
+        codecChannel.writeInbound(rawRequest.duplicate());
+        return drain(codecChannel);
+    }
+
+    /**
+     * 读取并释放所有出站消息
+     */
+    private static int drain(EmbeddedChannel channel) {
+        int count = 0;
+        Object msg;
+        while ((msg = channel.readOutbound()) != null) {
+            ReferenceCountUtil.release(msg);
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,121 @@
+package com.jinitamy.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 极简的阻塞式HTTP/1.1客户端
+ *
+ * 复用一个keep-alive连接顺序发送GET请求，只解析状态行和Content-Length，
+ * 用于端到端基准测试，避免客户端自身的开销干扰服务端测量结果。
+ */
+public class RawHttpClient implements AutoCloseable {
+    private final Socket socket;
+    private final OutputStream out;
+    private final InputStream in;
+    private final byte[] body = new byte[64 * 1024];
+
+    public RawHttpClient(String host, int port) throws IOException {
+        this.socket = new Socket(host, port);
+        this.socket.setTcpNoDelay(true);
+        this.out = socket.getOutputStream();
+        this.in = new BufferedInputStream(socket.getInputStream());
+    }
+
+    /**
+     * 预先编码GET请求
+     *
+     * @param path 请求路径
+     * @return 请求字节
+     */
+    public static byte[] get(String path) {
+        return ("GET " + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 发送请求并读取完整响应
+     *
+     * @param request 预先编码的请求
+     * @return HTTP状态码
+     * @throws IOException 连接异常或响应缺少Content-Length时抛出
+     */
+    public int execute(byte[] request) throws IOException {
+        out.write(request);
+        out.flush();
+        return readResponse();
+    }
+
+    /**
+     * 以流水线方式连续发送多个请求，再依次读取全部响应
+     *
+     * 这是HTTP/1.1在单个连接上并发的极限：响应必须按请求顺序返回。
+     *
+     * @param request 预先编码的请求
+     * @param count 请求数量
+     * @return 最后一个响应的HTTP状态码
+     * @throws IOException 连接异常或响应缺少Content-Length时抛出
+     */
+    public int pipeline(byte[] request, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.write(request);
+        }
+        out.flush();
+        int status = -1;
+        for (int i = 0; i < count; i++) {
+            status = readResponse();
+        }
+        return status;
+    }
+
+    private int readResponse() throws IOException {
+        int status = -1;
+        int contentLength = -1;
+        StringBuilder line = new StringBuilder(64);
+        while (true) {
+            readLine(line);
+            if (line.length() == 0) {
+                break;
+            }
+            if (status < 0) {
+                // HTTP/1.1 200 OK
+                status = Integer.parseInt(line.substring(9, 12));
+            } else if (line.length() > 15 && line.substring(0, 15).equalsIgnoreCase("content-length:")) {
+                contentLength = Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        if (contentLength < 0) {
+            throw new IOException("Response without Content-Length");
+        }
+        int remaining = contentLength;
+        while (remaining > 0) {
+            int n = in.read(body, 0, Math.min(remaining, body.length));
+            if (n < 0) {
+                throw new IOException("Connection closed");
+            }
+            remaining -= n;
+        }
+        return status;
+    }
+
+    private void readLine(StringBuilder line) throws IOException {
+        line.setLength(0);
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) {
+                throw new IOException("Connection closed");
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
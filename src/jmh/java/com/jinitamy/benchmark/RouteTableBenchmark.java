@@ -0,0 +1,98 @@
+package com.jinitamy.benchmark;
+
+import com.jinitamy.core.Context;
+import com.jinitamy.core.Handler;
+import com.jinitamy.core.Router;
+import io.netty.handler.codec.http.HttpMethod;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 不同规模路由表的注册和查找基准测试
+ *
+ * 路由表由若干资源组成，每个资源包含静态、单参数、多参数和通配符四种模式，例如：
+ * /api/r7、/api/r7/:id、/api/r7/:id/items/:itemId、/files/r7/*filepath。
+ * 查找路径按相同比例覆盖四种模式并包含未命中的路径：
+ * <pre>
+ * java -jar target/benchmarks.jar RouteTableBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RouteTableBenchmark {
+    private static final Handler HANDLER = c -> c.status(200);
+
+    /** 路由总数 */
+    @Param({"10", "100", "1000"})
+    public int routes;
+
+    private List<String> patterns;
+    private String[] paths;
+    private Router router;
+    private Context ctx;
+
+    @Setup
+    public void setUp() {
+        patterns = new ArrayList<>();
+        List<String> lookups = new ArrayList<>();
+        for (int i = 0; patterns.size() < routes; i++) {
+            String resource = "r" + i;
+            patterns.add("/api/" + resource);
+            patterns.add("/api/" + resource + "/:id");
+            patterns.add("/api/" + resource + "/:id/items/:itemId");
+            patterns.add("/files/" + resource + "/*filepath");
+            lookups.add("/api/" + resource);
+            lookups.add("/api/" + resource + "/12345");
+            lookups.add("/api/" + resource + "/12345/items/678");
+            lookups.add("/files/" + resource + "/css/site/main.css");
+            lookups.add("/api/" + resource + "/12345/unknown");
+        }
+        patterns = patterns.subList(0, routes);
+        // 最多取64条查找路径，均匀分布在整个路由表上
+        int step = Math.max(1, lookups.size() / 64);
+        List<String> sampled = new ArrayList<>();
+        for (int i = 0; i < lookups.size(); i += step) {
+            sampled.add(lookups.get(i));
+        }
+        paths = sampled.toArray(new String[0]);
+        router = build();
+        ctx = new Context(null, null);
+    }
+
+    private Router build() {
+        Router r = new Router();
+        for (String pattern : patterns) {
+            r.addRoute(HttpMethod.GET, pattern, HANDLER);
+        }
+        r.compile();
+        return r;
+    }
+
+    /**
+     * 注册全部路由并编译（每次操作构建一个完整的路由表）
+     */
+    @Benchmark
+    public Router addRoutes() {
+        return build();
+    }
+
+    /**
+     * 每次操作查找一条路径，结果为单次查找的平均耗时
+     */
+    @Benchmark
+    @OperationsPerInvocation(64)
+    public void getRoute(Blackhole bh) {
+        String[] p = paths;
+        for (int i = 0; i < 64; i++) {
+            bh.consume(router.getRoute(HttpMethod.GET, p[i % p.length], ctx));
+        }
+    }
+}
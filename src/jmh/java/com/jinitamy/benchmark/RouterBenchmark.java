@@ -0,0 +1,82 @@
+package com.jinitamy.benchmark;
+
+import com.jinitamy.core.Context;
+import com.jinitamy.core.Handler;
+import com.jinitamy.core.Router;
+import io.netty.handler.codec.http.HttpMethod;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 路由查找基准测试
+ *
+ * 对比编译后的压缩前缀树与旧版 String.split 实现在同一路由表上的查找开销。
+ * 使用 -prof gc 查看每次查找分配的字节数（gc.alloc.rate.norm）：
+ * <pre>
+ * java -jar target/benchmarks.jar RouterBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RouterBenchmark {
+    /** 请求路径：静态、单参数、多参数、通配符及未命中 */
+    private static final String[] PATHS = {
+            "/",
+            "/api/v1/health",
+            "/users/12345",
+            "/users/12345/posts/678",
+            "/static/css/site/main.css",
+            "/api/v1/orders/987/items",
+            "/not/registered/path"
+    };
+
+    private Router router;
+    private LegacyRouter legacyRouter;
+    private Context ctx;
+
+    @Setup
+    public void setUp() {
+        router = new Router();
+        legacyRouter = new LegacyRouter();
+        register("/");
+        register("/api/v1/health");
+        register("/api/v1/status");
+        register("/api/v1/orders");
+        register("/api/v1/orders/:id");
+        register("/api/v1/orders/:id/items");
+        register("/users/:id");
+        register("/users/:id/posts");
+        register("/users/:id/posts/:postId");
+        register("/static/*");
+        router.compile();
+        ctx = new Context(null, null);
+    }
+
+    private void register(String pattern) {
+        Handler handler = c -> c.status(200);
+        router.addRoute(HttpMethod.GET, pattern, handler);
+        legacyRouter.addRoute(HttpMethod.GET, pattern, handler);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(7)
+    public void compiled(Blackhole bh) {
+        for (String path : PATHS) {
+            bh.consume(router.getRoute(HttpMethod.GET, path, ctx));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(7)
+    public void legacy(Blackhole bh) {
+        for (String path : PATHS) {
+            bh.consume(legacyRouter.getRoute(HttpMethod.GET, path, ctx));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.jinitamy.benchmark;
+
+import com.jinitamy.core.template.TemplateEngine;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模板渲染基准测试
+ *
+ * 使用示例应用的 index.ftl，对比渲染为String与直接渲染到池化缓冲区的开销：
+ * <pre>
+ * java -jar target/benchmarks.jar TemplateBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TemplateBenchmark {
+    private TemplateEngine engine;
+    private Map<String, Object> model;
+
+    @Setup
+    public void setUp() throws IOException {
+        engine = new TemplateEngine();
+        engine.precompileAll();
+        model = new HashMap<>();
+        model.put("title", "Hello");
+        model.put("content", "Hello, Jinitamy !");
+    }
+
+    @Benchmark
+    public String renderToString() {
+        return engine.render("index.ftl", model);
+    }
+
+    @Benchmark
+    public int renderToBuffer() {
+        ByteBuf out = PooledByteBufAllocator.DEFAULT.ioBuffer();
+        try {
+            return engine.render("index.ftl", model, out);
+        } finally {
+            out.release();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.jinitamy.benchmark;
+
+import com.jinitamy.core.Engine;
+import com.jinitamy.core.Transport;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 传输层端到端基准测试
+ *
+ * 在同一组路由上分别使用不同传输层启动Engine，每个JMH线程持有一个keep-alive连接顺序发送请求。
+ * Throughput模式给出每秒请求数，SampleTime模式给出 p50/p99/p99.9 延迟：
+ * <pre>
+ * java -jar target/benchmarks.jar TransportBenchmark -t 8
+ * java -jar target/benchmarks.jar TransportBenchmark -t 8 -p transport=EPOLL,IO_URING
+ * </pre>
+ * 当前平台不可用的传输层会在Setup阶段报错并被跳过。
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransportBenchmark {
+    private static final byte[] BODY = "Hello, Jinitamy!".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"NIO", "EPOLL", "IO_URING"})
+    public Transport transport;
+
+    private Engine engine;
+
+    @Setup(Level.Trial)
+    public void startServer() throws Exception {
+        if (!transport.isAvailable()) {
+            throw new IllegalStateException(transport + " is not available on this platform");
+        }
+        engine = new Engine();
+        engine.setPort(0);
+        engine.setTransport(transport);
+        engine.get("/plaintext", ctx -> {
+            ctx.getResponse().headers()
+                    .set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.TEXT_PLAIN)
+                    .set(HttpHeaderNames.CONTENT_LENGTH, BODY.length);
+            ctx.getResponse().content().writeBytes(BODY);
+        });
+        engine.get("/users/:id", ctx -> {
+            byte[] body = ctx.getParam("id").getBytes(StandardCharsets.UTF_8);
+            ctx.getResponse().headers()
+                    .set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.TEXT_PLAIN)
+                    .set(HttpHeaderNames.CONTENT_LENGTH, body.length);
+            ctx.getResponse().content().writeBytes(body);
+        });
+        engine.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() {
+        if (engine != null && engine.isRunning()) {
+            engine.stop();
+        }
+    }
+
+    /**
+     * 每个线程一个keep-alive连接
+     */
+    @State(Scope.Thread)
+    public static class Connection {
+        private static final byte[] PLAINTEXT = RawHttpClient.get("/plaintext");
+        private static final byte[] PARAM = RawHttpClient.get("/users/12345");
+
+        RawHttpClient client;
+
+        @Setup(Level.Trial)
+        public void connect(TransportBenchmark server) throws IOException {
+            client = new RawHttpClient("127.0.0.1", server.engine.getPort());
+        }
+
+        @TearDown(Level.Trial)
+        public void disconnect() throws IOException {
+            client.close();
+        }
+    }
+
+    @Benchmark
+    public int plaintext(Connection connection) throws IOException {
+        return connection.client.execute(Connection.PLAINTEXT);
+    }
+
+    @Benchmark
+    public int paramRoute(Connection connection) throws IOException {
+        return connection.client.execute(Connection.PARAM);
+    }
+}
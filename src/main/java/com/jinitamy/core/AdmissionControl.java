@@ -0,0 +1,251 @@
+package com.jinitamy.core;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 准入控制（过载保护）
+ *
+ * 通过 {@link Engine#setAdmissionControl(AdmissionControl)} 启用后，HttpHandler在匹配到路由后、
+ * 接收请求体和执行处理链之前申请许可，正在处理的请求数达到上限时立即返回503和Retry-After，
+ * 而不是让请求在事件循环和阻塞任务队列中排队，拖慢所有请求。
+ *
+ * 三层保护：
+ * 1. 全局上限：所有路由正在处理的请求总数，请求结束（包括流式响应结束）时归还许可
+ * 2. 路由上限：通过 {@link RouteOptions#maxInFlight(int)} 单独限制某个路由，不需要启用全局准入控制
+ * 3. 排队期限：阻塞模式的请求在执行器队列中等待超过 {@link #queueTimeout(Duration)} 时不再执行处理器，
+ *    直接返回503（客户端多半已经超时放弃）
+ *
+ * 自适应模式（{@link #adaptive(int, Duration)}）按AIMD调整全局上限：
+ * 1. 请求延迟（从准入到响应）超过阈值时乘以0.9，每个阈值周期最多下调一次
+ * 2. 延迟正常且使用了一半以上的许可时，每完成与当前上限相同数量的请求加1（约每轮许可加1），
+ *    直到配置的上限；上调速度与请求速率无关，持续超过阈值时上限不会在下调后立即恢复
+ *
+ * 使用示例：
+ * <pre>
+ * engine.setAdmissionControl(new AdmissionControl(512)
+ *         .adaptive(32, Duration.ofMillis(200))
+ *         .queueTimeout(Duration.ofSeconds(2)));
+ * engine.post("/report", handler, RouteOptions.create().maxInFlight(8));
+ * </pre>
+ *
+ * 该类是线程安全的，由所有连接共享。
+ */
+public class AdmissionControl {
+    /** 自适应模式下调上限的比例 */
+    private static final double BACKOFF_RATIO = 0.9;
+
+    /** 全局上限的最大值 */
+    private final int maxLimit;
+    /** 当前的全局上限 */
+    private final AtomicInteger limit;
+    /** 正在处理的请求数 */
+    private final AtomicInteger inFlight = new AtomicInteger();
+    /** 上次下调上限的时间（纳秒） */
+    private final AtomicLong lastBackoff = new AtomicLong(System.nanoTime());
+    /** 上次调整以来延迟正常的请求数，达到当前上限时上调 */
+    private final AtomicInteger successes = new AtomicInteger();
+    /** 被拒绝的请求数 */
+    private final LongAdder shed = new LongAdder();
+    /** 排队超过期限被丢弃的请求数 */
+    private final LongAdder expired = new LongAdder();
+    /** 自适应模式下全局上限的最小值，为0时不自适应 */
+    private volatile int minLimit;
+    /** 自适应模式的延迟阈值（纳秒） */
+    private volatile long latencyThresholdNanos;
+    /** 排队期限（纳秒），为0时不限制 */
+    private volatile long queueTimeoutNanos;
+    /** Retry-After响应头的值（秒） */
+    private volatile String retryAfter = "1";
+
+    /**
+     * 创建准入控制
+     *
+     * @param maxInFlight 全局允许同时处理的最大请求数
+     */
+    public AdmissionControl(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Max in-flight requests must be positive");
+        }
+        this.maxLimit = maxInFlight;
+        this.limit = new AtomicInteger(maxInFlight);
+    }
+
+    /**
+     * 启用自适应上限
+     *
+     * 上限从构造时的最大值开始，按观察到的延迟在 [minLimit, maxInFlight] 之间调整。
+     *
+     * @param minLimit 上限的最小值
+     * @param latencyThreshold 延迟阈值，超过时下调上限
+     * @return 当前准入控制实例（支持链式调用）
+     */
+    public AdmissionControl adaptive(int minLimit, Duration latencyThreshold) {
+        if (minLimit < 1 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("Min limit must be between 1 and max in-flight requests");
+        }
+        if (latencyThreshold.isNegative() || latencyThreshold.isZero()) {
+            throw new IllegalArgumentException("Latency threshold must be positive");
+        }
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.minLimit = minLimit;
+        return this;
+    }
+
+    /**
+     * 设置阻塞模式请求的排队期限
+     *
+     * @param timeout 在阻塞任务执行器中等待超过该时间的请求直接返回503，为0时不限制（默认）
+     * @return 当前准入控制实例（支持链式调用）
+     */
+    public AdmissionControl queueTimeout(Duration timeout) {
+        if (timeout.isNegative()) {
+            throw new IllegalArgumentException("Queue timeout cannot be negative");
+        }
+        this.queueTimeoutNanos = timeout.toNanos();
+        return this;
+    }
+
+    /**
+     * 设置拒绝请求时建议客户端等待的时间
+     *
+     * @param retryAfter 写入Retry-After响应头，按秒向上取整（默认1秒）
+     * @return 当前准入控制实例（支持链式调用）
+     */
+    public AdmissionControl retryAfter(Duration retryAfter) {
+        if (retryAfter.isNegative()) {
+            throw new IllegalArgumentException("Retry-After cannot be negative");
+        }
+        long seconds = retryAfter.getSeconds() + (retryAfter.getNano() > 0 ? 1 : 0);
+        this.retryAfter = Long.toString(seconds);
+        return this;
+    }
+
+    /**
+     * 申请一个许可
+     *
+     * @return 申请成功时返回true，达到上限时返回false
+     */
+    boolean tryAcquire() {
+        int max = limit.get();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= max) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 归还许可，自适应模式下按请求延迟调整上限
+     *
+     * @param admittedNanos 准入的时间（纳秒）
+     * @param completed 请求是否正常完成，被中止的请求不参与调整
+     */
+    void release(long admittedNanos, boolean completed) {
+        int current = inFlight.getAndDecrement();
+        if (completed && minLimit > 0) {
+            long now = System.nanoTime();
+            adjust(now, now - admittedNanos, current);
+        }
+    }
+
+    /**
+     * 记录一个因达到全局或路由上限被拒绝的请求
+     */
+    void recordShed() {
+        shed.increment();
+    }
+
+    /**
+     * 按一次请求的延迟调整上限
+     *
+     * @param now 当前时间（纳秒）
+     * @param latency 请求延迟（纳秒）
+     * @param inFlight 请求结束前正在处理的请求数
+     */
+    void adjust(long now, long latency, int inFlight) {
+        long threshold = latencyThresholdNanos;
+        if (latency > threshold) {
+            long last = lastBackoff.get();
+            if (now - last >= threshold && lastBackoff.compareAndSet(last, now)) {
+                limit.updateAndGet(l -> Math.max(minLimit, (int) (l * BACKOFF_RATIO)));
+                successes.set(0);
+            }
+        } else {
+            int current = limit.get();
+            if (inFlight * 2 >= current) {
+                // 计数达到上限的线程负责上调，并发递增的其他线程CAS失败后不重复上调
+                int n = successes.incrementAndGet();
+                if (n >= current && successes.compareAndSet(n, 0)) {
+                    limit.updateAndGet(l -> Math.min(maxLimit, l + 1));
+                }
+            }
+        }
+    }
+
+    /**
+     * 判断排队的请求是否已经超过期限，超过时计入丢弃数
+     *
+     * @param queuedNanos 进入队列的时间（纳秒）
+     * @return 超过期限时返回true
+     */
+    boolean isExpired(long queuedNanos) {
+        long timeout = queueTimeoutNanos;
+        if (timeout > 0 && System.nanoTime() - queuedNanos > timeout) {
+            expired.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 获取Retry-After响应头的值
+     *
+     * @return 秒数
+     */
+    String getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * 获取当前的全局上限
+     *
+     * @return 允许同时处理的请求数（自适应模式下随负载变化）
+     */
+    public int getLimit() {
+        return limit.get();
+    }
+
+    /**
+     * 获取正在处理的请求数
+     *
+     * @return 已准入且尚未结束的请求数
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 获取被拒绝的请求数
+     *
+     * @return 因达到全局或路由上限返回503的请求数
+     */
+    public long getShedCount() {
+        return shed.sum();
+    }
+
+    /**
+     * 获取排队超过期限被丢弃的请求数
+     *
+     * @return 未执行处理器就返回503的请求数
+     */
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+}
@@ -0,0 +1,68 @@
+package com.jinitamy.core;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 异步路由处理器接口
+ *
+ * 处理器返回一个CompletionStage，框架在其完成后才发送上下文中的响应，
+ * 等待期间不占用事件循环或阻塞任务线程，适合调用下游服务的非阻塞客户端。
+ * 该接口继承 {@link Handler}，可以直接通过 {@link Engine#get(String, Handler)} 等方法注册。
+ *
+ * 完成约定：
+ * 1. 正常完成：发送处理器在上下文中设置的响应，完成值被忽略
+ * 2. 异常完成：返回500，已开始流式发送时中止响应
+ * 3. 超时：返回503并取消该Stage，超时时间由 {@link RouteOptions#asyncTimeout(java.time.Duration)}
+ *    或 {@link Engine#setAsyncTimeout(java.time.Duration)} 指定
+ * 4. 连接关闭：取消该Stage并释放响应
+ *
+ * 完成回调可能在下游客户端的线程上执行，框架会切换回通道的事件循环再发送响应。
+ * 超时或取消后处理器不应再写入响应。等待期间该连接上流水线发送的后续请求进入队列，
+ * 完成后再依次处理，因此响应顺序与请求顺序一致。
+ *
+ * 使用示例：
+ * <pre>
+ * engine.get("/profile/:id", AsyncHandler.of(ctx ->
+ *         client.fetchProfile(ctx.getParam("id"))
+ *                 .thenAccept(profile -> ctx.text(profile.toJson()))));
+ * </pre>
+ *
+ * 中间件可以通过 {@link Context#whenComplete} 在异步处理完成后执行逻辑。
+ */
+@FunctionalInterface
+public interface AsyncHandler extends Handler {
+    /**
+     * 异步处理HTTP请求
+     *
+     * @param ctx 请求上下文
+     * @return 处理完成时完成的Stage，返回null时与同步处理器相同
+     * @throws Exception 开始处理时抛出的异常（与同步处理器相同，返回500）
+     */
+    CompletionStage<?> handleAsync(Context ctx) throws Exception;
+
+    /**
+     * 开始异步处理，并将返回的Stage交给上下文
+     *
+     * @param ctx 请求上下文
+     * @throws Exception 开始处理时抛出的异常
+     */
+    @Override
+    default void handle(Context ctx) throws Exception {
+        CompletionStage<?> stage = handleAsync(ctx);
+        if (stage != null) {
+            ctx.defer(stage);
+        }
+    }
+
+    /**
+     * 将Lambda表达式声明为异步处理器
+     *
+     * 注册方法的参数类型为 {@link Handler}，直接传入的Lambda表达式会被推断为同步处理器。
+     *
+     * @param handler 异步处理器
+     * @return 同一个处理器
+     */
+    static AsyncHandler of(AsyncHandler handler) {
+        return handler;
+    }
+}
@@ -0,0 +1,62 @@
+package com.jinitamy.core;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * 请求体监听器
+ *
+ * 流式路由（{@link RouteOptions#streaming(boolean)}）的处理器通过
+ * {@link Context#onBody(BodyListener)} 注册该监听器，按到达顺序逐块接收请求体，
+ * 无需把整个请求体缓存在内存中。
+ *
+ * 回调约定：
+ * 1. 所有回调都在通道的事件循环上执行，不能在回调中阻塞
+ * 2. 数据块在 {@link #onData} 返回后即被释放，需要异步使用时调用 {@code retain()}
+ * 3. 需要背压时调用 {@link Context#pauseBody()} 暂停读取，处理完积压数据后调用 {@link Context#resumeBody()}
+ * 4. {@link #onComplete} 返回后发送上下文中的响应
+ *
+ * 使用示例：
+ * <pre>
+ * engine.post("/upload", ctx -> {
+ *     FileChannel file = FileChannel.open(path, CREATE, WRITE);
+ *     ctx.onBody(new BodyListener() {
+ *         public void onData(Context ctx, ByteBuf chunk) throws Exception {
+ *             chunk.readBytes(file, chunk.readableBytes());
+ *         }
+ *
+ *         public void onComplete(Context ctx) throws Exception {
+ *             file.close();
+ *             ctx.status(201);
+ *         }
+ *     });
+ * }, RouteOptions.create().streaming(true));
+ * </pre>
+ */
+public interface BodyListener {
+    /**
+     * 接收一块请求体数据
+     *
+     * @param ctx 请求上下文
+     * @param chunk 数据块，回调返回后释放
+     * @throws Exception 处理过程中可能抛出的异常，将返回500并丢弃剩余的请求体
+     */
+    void onData(Context ctx, ByteBuf chunk) throws Exception;
+
+    /**
+     * 请求体接收完毕
+     *
+     * @param ctx 请求上下文
+     * @throws Exception 处理过程中可能抛出的异常，将返回500
+     */
+    default void onComplete(Context ctx) throws Exception {
+    }
+
+    /**
+     * 请求体接收失败（如连接在请求体结束前关闭）
+     *
+     * @param ctx 请求上下文
+     * @param cause 失败原因
+     */
+    default void onError(Context ctx, Throwable cause) {
+    }
+}
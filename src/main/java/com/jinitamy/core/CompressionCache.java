@@ -0,0 +1,176 @@
+package com.jinitamy.core;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.IllegalReferenceCountException;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 压缩结果缓存
+ *
+ * 缓存带有ETag的响应压缩后的内容，键由请求URI、ETag和编码组成，
+ * 内容变化时ETag随之变化，旧条目不会再被命中并最终被淘汰。
+ *
+ * 该类是线程安全的，由所有连接共享：
+ * 1. 总字节数超过上限时，抽样若干条目淘汰最久未访问的一个
+ * 2. 单个条目超过上限的1/8时不缓存，避免少数大文件挤掉所有条目
+ * 3. 命中时返回共享缓冲区的retainedDuplicate，条目被淘汰后正在发送的副本仍然有效
+ */
+final class CompressionCache {
+    /** 每次淘汰时抽样的条目数 */
+    private static final int EVICTION_SAMPLES = 8;
+
+    /** 缓存条目 */
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    /** 缓存的总字节数上限 */
+    private final long maxBytes;
+    /** 当前缓存的总字节数 */
+    private final AtomicLong bytes = new AtomicLong();
+    /** 命中次数 */
+    private final LongAdder hits = new LongAdder();
+    /** 未命中次数 */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * 创建缓存
+     *
+     * @param maxBytes 缓存的总字节数上限
+     */
+    CompressionCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 生成缓存键
+     *
+     * @param uri 请求URI
+     * @param etag 响应的ETag
+     * @param encoding 内容编码
+     * @return 缓存键
+     */
+    static String key(String uri, String etag, String encoding) {
+        return encoding + ' ' + etag + ' ' + uri;
+    }
+
+    /**
+     * 查找压缩结果
+     *
+     * @param key 缓存键
+     * @return 压缩内容的副本（由调用方释放），未命中时返回null
+     */
+    ByteBuf get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            try {
+                ByteBuf content = entry.content.retainedDuplicate();
+                entry.lastAccess = System.nanoTime();
+                hits.increment();
+                return content;
+            } catch (IllegalReferenceCountException e) {
+                // 条目刚被其他线程淘汰并释放
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * 放入压缩结果
+     *
+     * @param key 缓存键
+     * @param content 压缩内容，缓存保存大小恰好的副本，不持有池化缓冲区；调用方仍需释放传入的内容
+     */
+    void put(String key, ByteBuf content) {
+        int size = content.readableBytes();
+        if (size > maxBytes >>> 3) {
+            return;
+        }
+        ByteBuf copy = Unpooled.directBuffer(size, size).writeBytes(content, content.readerIndex(), size);
+        Entry entry = new Entry(copy, size);
+        Entry previous = entries.put(key, entry);
+        bytes.addAndGet(size);
+        if (previous != null) {
+            release(previous);
+        }
+        while (bytes.get() > maxBytes && !entries.isEmpty()) {
+            evictOne();
+        }
+    }
+
+    /**
+     * 抽样淘汰最久未访问的条目
+     */
+    private void evictOne() {
+        Map.Entry<String, Entry> oldest = null;
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        for (int i = 0; i < EVICTION_SAMPLES && it.hasNext(); i++) {
+            Map.Entry<String, Entry> candidate = it.next();
+            if (oldest == null || candidate.getValue().lastAccess < oldest.getValue().lastAccess) {
+                oldest = candidate;
+            }
+        }
+        if (oldest != null && entries.remove(oldest.getKey(), oldest.getValue())) {
+            release(oldest.getValue());
+        }
+    }
+
+    private void release(Entry entry) {
+        bytes.addAndGet(-entry.size);
+        entry.content.release();
+    }
+
+    /**
+     * 清空缓存
+     */
+    void clear() {
+        for (String key : entries.keySet()) {
+            Entry entry = entries.remove(key);
+            if (entry != null) {
+                release(entry);
+            }
+        }
+    }
+
+    /**
+     * 获取当前缓存的总字节数
+     */
+    long size() {
+        return bytes.get();
+    }
+
+    /**
+     * 获取命中次数
+     */
+    long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * 获取未命中次数
+     */
+    long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * 缓存条目
+     */
+    private static final class Entry {
+        /** 压缩内容 */
+        final ByteBuf content;
+        /** 内容字节数 */
+        final int size;
+        /** 最近访问时间 */
+        volatile long lastAccess = System.nanoTime();
+
+        Entry(ByteBuf content, int size) {
+            this.content = content;
+            this.size = size;
+        }
+    }
+}
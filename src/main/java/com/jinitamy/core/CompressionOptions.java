@@ -0,0 +1,171 @@
+package com.jinitamy.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 响应压缩选项
+ *
+ * 通过 {@link Engine#setCompression(CompressionOptions)} 启用后，服务器根据请求的 Accept-Encoding
+ * 使用 gzip 或 deflate 压缩响应体。所有设置方法都返回当前实例，支持链式调用。
+ *
+ * 带有 ETag 的响应（如静态文件）压缩后的结果会放入有界缓存，
+ * 相同内容的后续请求直接复用，不再重复压缩。
+ *
+ * 使用示例：
+ * <pre>
+ * engine.setCompression(CompressionOptions.create()
+ *         .level(6)
+ *         .minSize(1024)
+ *         .contentTypes("text/", "application/json")
+ *         .cacheSize(32 * 1024 * 1024));
+ * </pre>
+ */
+public class CompressionOptions {
+    /** 默认压缩级别 */
+    public static final int DEFAULT_LEVEL = 6;
+    /** 默认的最小压缩字节数 */
+    public static final int DEFAULT_MIN_SIZE = 1024;
+    /** 默认的压缩结果缓存大小（字节） */
+    public static final long DEFAULT_CACHE_SIZE = 16 * 1024 * 1024;
+    /** 默认压缩的Content-Type前缀 */
+    private static final String[] DEFAULT_CONTENT_TYPES = {
+            "text/", "application/json", "application/javascript", "application/xml", "image/svg+xml"
+    };
+
+    /** 压缩级别（1-9） */
+    private int level = DEFAULT_LEVEL;
+    /** 小于该字节数的响应不压缩 */
+    private int minSize = DEFAULT_MIN_SIZE;
+    /** 允许压缩的Content-Type前缀（小写） */
+    private String[] contentTypes = DEFAULT_CONTENT_TYPES;
+    /** 压缩结果缓存大小（字节），为0时不缓存 */
+    private long cacheSize = DEFAULT_CACHE_SIZE;
+
+    /**
+     * 创建默认的压缩选项
+     *
+     * @return 新的压缩选项实例
+     */
+    public static CompressionOptions create() {
+        return new CompressionOptions();
+    }
+
+    /**
+     * 设置压缩级别
+     *
+     * @param level 1（最快）到 9（压缩率最高）
+     * @return 当前压缩选项实例（支持链式调用）
+     */
+    public CompressionOptions level(int level) {
+        if (level < 1 || level > 9) {
+            throw new IllegalArgumentException("Compression level must be between 1 and 9");
+        }
+        this.level = level;
+        return this;
+    }
+
+    /**
+     * 设置最小压缩字节数
+     *
+     * 小响应压缩后节省的字节有限，却同样需要CPU时间。
+     *
+     * @param minSize 小于该字节数的响应不压缩
+     * @return 当前压缩选项实例（支持链式调用）
+     */
+    public CompressionOptions minSize(int minSize) {
+        if (minSize < 0) {
+            throw new IllegalArgumentException("Min size cannot be negative");
+        }
+        this.minSize = minSize;
+        return this;
+    }
+
+    /**
+     * 设置允许压缩的Content-Type
+     *
+     * 按前缀匹配（忽略大小写和参数），例如 "text/" 匹配 text/html; charset=UTF-8。
+     * 图片、视频等已压缩的格式不应加入列表。
+     *
+     * @param prefixes Content-Type前缀
+     * @return 当前压缩选项实例（支持链式调用）
+     */
+    public CompressionOptions contentTypes(String... prefixes) {
+        List<String> normalized = new ArrayList<>(prefixes.length);
+        for (String prefix : prefixes) {
+            normalized.add(prefix.trim().toLowerCase(Locale.ROOT));
+        }
+        this.contentTypes = normalized.toArray(new String[0]);
+        return this;
+    }
+
+    /**
+     * 设置压缩结果缓存的大小
+     *
+     * @param bytes 缓存的压缩结果总字节数上限，为0时不缓存
+     * @return 当前压缩选项实例（支持链式调用）
+     */
+    public CompressionOptions cacheSize(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("Cache size cannot be negative");
+        }
+        this.cacheSize = bytes;
+        return this;
+    }
+
+    /**
+     * 获取压缩级别
+     *
+     * @return 压缩级别
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * 获取最小压缩字节数
+     *
+     * @return 最小压缩字节数
+     */
+    public int getMinSize() {
+        return minSize;
+    }
+
+    /**
+     * 获取允许压缩的Content-Type前缀
+     *
+     * @return Content-Type前缀列表
+     */
+    public List<String> getContentTypes() {
+        return Arrays.asList(contentTypes.clone());
+    }
+
+    /**
+     * 获取压缩结果缓存的大小
+     *
+     * @return 缓存总字节数上限
+     */
+    public long getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * 判断Content-Type是否允许压缩
+     *
+     * @param contentType 响应的Content-Type，可以为null
+     * @return 匹配任一前缀时返回true
+     */
+    boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        for (String prefix : contentTypes) {
+            if (contentType.regionMatches(true, 0, prefix, 0, prefix.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
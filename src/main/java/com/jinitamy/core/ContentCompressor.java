@@ -0,0 +1,191 @@
+package com.jinitamy.core;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.concurrent.FastThreadLocal;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * gzip/deflate 编码器
+ *
+ * 直接使用JDK的Deflater在ByteBuf的NIO视图上压缩，不经过中间的byte[]：
+ * 1. 一次性压缩（{@link #compress}）复用线程本地的Deflater，每次只需reset
+ * 2. 流式压缩（{@link #streaming}）为单个响应创建独立的Deflater，
+ *    每个数据块以SYNC_FLUSH结束，客户端可以立即解压已收到的部分
+ *
+ * gzip格式在原始deflate流外加上10字节的头部和CRC32/长度尾部；
+ * HTTP中的 "deflate" 指zlib格式，由Deflater直接生成。
+ *
+ * 流式实例不是线程安全的，使用完毕后必须调用 {@link #finish} 或 {@link #end} 释放本地内存。
+ */
+final class ContentCompressor {
+    /** gzip头部：魔数、deflate算法、无标志、无时间戳、未知操作系统 */
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    /** gzip尾部长度（CRC32 + 原始长度） */
+    private static final int GZIP_TRAILER_LENGTH = 8;
+
+    /** 线程本地的gzip Deflater（原始deflate流） */
+    private static final FastThreadLocal<Deflater> GZIP_DEFLATER = new FastThreadLocal<>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        }
+
+        @Override
+        protected void onRemoval(Deflater deflater) {
+            deflater.end();
+        }
+    };
+    /** 线程本地的zlib Deflater */
+    private static final FastThreadLocal<Deflater> ZLIB_DEFLATER = new FastThreadLocal<>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(Deflater.DEFAULT_COMPRESSION, false);
+        }
+
+        @Override
+        protected void onRemoval(Deflater deflater) {
+            deflater.end();
+        }
+    };
+
+    /** 压缩器 */
+    private final Deflater deflater;
+    /** 是否为gzip格式 */
+    private final boolean gzip;
+    /** gzip的CRC32校验 */
+    private final CRC32 crc;
+    /** 是否已写出gzip头部 */
+    private boolean headerWritten;
+
+    private ContentCompressor(Deflater deflater, boolean gzip) {
+        this.deflater = deflater;
+        this.gzip = gzip;
+        this.crc = gzip ? new CRC32() : null;
+    }
+
+    /**
+     * 一次性压缩整个响应体
+     *
+     * @param alloc 输出缓冲区的分配器
+     * @param in 原始内容，不会被修改或释放
+     * @param encoding "gzip" 或 "deflate"
+     * @param level 压缩级别
+     * @return 压缩后的内容，由调用方负责释放
+     */
+    static ByteBuf compress(ByteBufAllocator alloc, ByteBuf in, String encoding, int level) {
+        boolean gzip = HttpCompressionHandler.GZIP.equals(encoding);
+        Deflater deflater = gzip ? GZIP_DEFLATER.get() : ZLIB_DEFLATER.get();
+        deflater.reset();
+        deflater.setLevel(level);
+        ContentCompressor compressor = new ContentCompressor(deflater, gzip);
+        try {
+            return compressor.encode(alloc, in, true);
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    /**
+     * 创建流式压缩器
+     *
+     * @param encoding "gzip" 或 "deflate"
+     * @param level 压缩级别
+     * @return 新的流式压缩器
+     */
+    static ContentCompressor streaming(String encoding, int level) {
+        boolean gzip = HttpCompressionHandler.GZIP.equals(encoding);
+        return new ContentCompressor(new Deflater(level, gzip), gzip);
+    }
+
+    /**
+     * 压缩一个数据块
+     *
+     * @param alloc 输出缓冲区的分配器
+     * @param in 原始内容，不会被修改或释放
+     * @return 压缩后的数据块，可能为空，由调用方负责释放
+     */
+    ByteBuf encode(ByteBufAllocator alloc, ByteBuf in) {
+        return encode(alloc, in, false);
+    }
+
+    /**
+     * 压缩最后一个数据块并结束压缩流，随后释放Deflater
+     *
+     * @param alloc 输出缓冲区的分配器
+     * @param in 最后的原始内容，不会被修改或释放
+     * @return 压缩流的剩余部分，由调用方负责释放
+     */
+    ByteBuf finish(ByteBufAllocator alloc, ByteBuf in) {
+        try {
+            return encode(alloc, in, true);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * 放弃压缩流并释放Deflater
+     */
+    void end() {
+        deflater.end();
+    }
+
+    private ByteBuf encode(ByteBufAllocator alloc, ByteBuf in, boolean last) {
+        int length = in.readableBytes();
+        // 文本通常压缩到原来的1/4以下，不足时再扩容
+        ByteBuf out = alloc.ioBuffer(Math.max(64, (length >> 2) + 32));
+        try {
+            if (gzip && !headerWritten) {
+                out.writeBytes(GZIP_HEADER);
+                headerWritten = true;
+            }
+            if (length > 0) {
+                ByteBuffer input = in.nioBuffer(in.readerIndex(), length);
+                if (gzip) {
+                    crc.update(input.duplicate());
+                }
+                deflater.setInput(input);
+            }
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    deflate(out, Deflater.NO_FLUSH);
+                }
+                if (gzip) {
+                    out.ensureWritable(GZIP_TRAILER_LENGTH);
+                    out.writeIntLE((int) crc.getValue());
+                    out.writeIntLE((int) deflater.getBytesRead());
+                }
+            } else if (length > 0) {
+                // SYNC_FLUSH在输出缓冲区未被填满时表示该块已全部输出
+                while (deflate(out, Deflater.SYNC_FLUSH)) {
+                    // 继续输出
+                }
+            }
+            return out;
+        } catch (RuntimeException e) {
+            out.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 执行一次deflate，输出写入缓冲区末尾
+     *
+     * @return 输出空间被填满时返回true（可能还有待输出的数据）
+     */
+    private boolean deflate(ByteBuf out, int flush) {
+        if (out.writableBytes() < 64) {
+            out.ensureWritable(Math.max(64, out.writerIndex()));
+        }
+        int writable = out.writableBytes();
+        ByteBuffer output = out.nioBuffer(out.writerIndex(), writable);
+        int written = deflater.deflate(output, flush);
+        out.writerIndex(out.writerIndex() + written);
+        return written == writable;
+    }
+}
@@ -1,13 +1,41 @@
 package com.jinitamy.core;
 
+import com.jinitamy.core.template.TemplateEngine;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.DecoderException;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.handler.codec.http.multipart.Attribute;
+import io.netty.handler.codec.http.multipart.DefaultHttpDataFactory;
+import io.netty.handler.codec.http.multipart.HttpDataFactory;
+import io.netty.handler.codec.http.multipart.HttpPostRequestDecoder;
+import io.netty.handler.codec.http.multipart.InterfaceHttpData;
+import io.netty.util.AsciiString;
+import io.netty.util.Recycler;
 
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiConsumer;
 
 /**
  * HTTP请求上下文类
@@ -17,6 +45,8 @@ import java.util.Map;
  * 2. 响应信息（状态码、响应体等）
  * 3. 路由参数（动态路由参数）
  * 4. 自定义属性（用于在中间件和处理器之间传递数据）
+ * 5. 响应体写入（直接编码到池化的响应缓冲区，或通过 {@link #stream()} 分块发送）
+ * 6. 查询参数和表单参数（第一次访问时解析并缓存，不访问的路由没有解析开销）
  * 
  * 使用示例：
  * <pre>
@@ -28,19 +58,76 @@ import java.util.Map;
  * 
  * // 在中间件中设置属性
  * ctx.setAttribute("user", user);
+ * 
+ * // 写入响应体
+ * ctx.text("Hello World");
  * </pre>
+ * 
+ * HttpHandler创建的上下文来自按线程（事件循环）划分的对象池，以同步方式完成的请求在响应交出后
+ * 重置并归还对象池，因此处理器和中间件不应在请求结束后继续持有上下文。
+ * 开始了流式响应或交出了异步处理的上下文不会被回收。
  */
 public class Context {
-    /** HTTP请求对象 */
-    private final FullHttpRequest request;
+    /** 没有路由参数时共享的空数组 */
+    private static final String[] NO_PARAMS = new String[0];
+    /** 没有路由参数时共享的空偏移数组 */
+    private static final int[] NO_OFFSETS = new int[0];
+
+    /** 解析表单使用的数据工厂，请求体已经在内存中，表单字段同样保存在内存中 */
+    private static final HttpDataFactory FORM_DATA_FACTORY = new DefaultHttpDataFactory(false);
+
+    /** 上下文对象池，每个线程（事件循环）各自缓存 */
+    private static final Recycler<Context> RECYCLER = new Recycler<Context>() {
+        @Override
+        protected Context newObject(Handle<Context> handle) {
+            return new Context(handle);
+        }
+    };
+
+    /** HTTP请求对象（流式路由在请求体到达前只包含请求头） */
+    private FullHttpRequest request;
     /** HTTP响应对象 */
-    private final FullHttpResponse response;
-    /** 路由参数映射 */
-    private final Map<String, String> params;
-    /** 自定义属性映射 */
-    private final Map<String, Object> attributes;
-    /** 请求路径 */
+    private FullHttpResponse response;
+    /** 对象池句柄，直接构造的上下文为null */
+    private final Recycler.Handle<Context> handle;
+    /** 路由参数名，与参数值按下标对应 */
+    private String[] paramNames = NO_PARAMS;
+    /** 路由参数值，路由匹配写入的参数在第一次读取时才创建 */
+    private String[] paramValues = NO_PARAMS;
+    /** 路由参数在参数来源中的起始偏移，为-1时值已保存在paramValues中 */
+    private int[] paramStarts = NO_OFFSETS;
+    /** 路由参数在参数来源中的结束偏移（不含） */
+    private int[] paramEnds = NO_OFFSETS;
+    /** 路由匹配时的请求路径（路由参数的来源） */
+    private String paramSource;
+    /** 路由参数个数 */
+    private int paramCount;
+    /** 自定义属性映射，第一次设置属性时创建 */
+    private Map<String, Object> attributes;
+    /** 请求路径（不含查询字符串） */
     private String path;
+    /** 解析后的查询参数，第一次访问时创建 */
+    private Map<String, List<String>> queryParams;
+    /** 解析后的表单参数，第一次访问时创建 */
+    private Map<String, List<String>> formParams;
+    /** 所属通道的上下文，由HttpHandler绑定 */
+    private ChannelHandlerContext channelContext;
+    /** 流式路由的请求体监听器 */
+    private BodyListener bodyListener;
+    /** 渲染模板使用的模板引擎，由HttpHandler绑定 */
+    private TemplateEngine templateEngine;
+    /** 流式响应，未开始流式发送时为null */
+    private ResponseStream responseStream;
+    /** 匹配的路由，由HttpHandler绑定 */
+    private Route route;
+    /** 开始处理请求的时间（纳秒），未启用指标或已记录结束时为0 */
+    private long startNanos;
+    /** 通过准入控制的时间（纳秒），未占用准入许可或已归还时为0 */
+    private long admittedNanos;
+    /** 发送响应前需要等待的异步处理，为null时处理链返回后立即发送 */
+    private CompletionStage<?> deferred;
+    /** 第一次交给上下文的异步处理（中间件包装前），超时或连接关闭时一并取消 */
+    private CompletionStage<?> deferredOrigin;
 
     /**
      * 创建请求上下文
@@ -49,16 +136,101 @@ public class Context {
      * @param response HTTP响应对象
      */
     public Context(FullHttpRequest request, FullHttpResponse response) {
+        this.handle = null;
+        init(request, response);
+    }
+
+    /**
+     * 创建属于对象池的上下文
+     *
+     * @param handle 对象池句柄
+     */
+    private Context(Recycler.Handle<Context> handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * 从当前线程的对象池获取上下文
+     *
+     * 请求结束后由HttpHandler调用 {@link #recycle()} 归还。
+     *
+     * @param request HTTP请求对象
+     * @param response HTTP响应对象
+     * @return 已初始化的上下文
+     */
+    static Context newInstance(FullHttpRequest request, FullHttpResponse response) {
+        Context context = RECYCLER.get();
+        context.init(request, response);
+        return context;
+    }
+
+    /**
+     * 绑定请求和响应
+     *
+     * @param request HTTP请求对象
+     * @param response HTTP响应对象
+     */
+    private void init(FullHttpRequest request, FullHttpResponse response) {
         this.request = request;
         this.response = response;
-        this.params = new HashMap<>();
-        this.attributes = new HashMap<>();
-        this.path = request != null ? request.uri() : "";
+        this.path = request != null ? pathOf(request.uri()) : "";
+    }
+
+    /**
+     * 去掉URI中的查询字符串和片段，并规范化路径（见 {@link Router#normalizePath}）
+     *
+     * @param uri 请求URI
+     * @return 请求路径
+     */
+    static String pathOf(String uri) {
+        for (int i = 0; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            if (c == '?' || c == '#') {
+                return Router.normalizePath(uri.substring(0, i));
+            }
+        }
+        return Router.normalizePath(uri);
+    }
+
+    /**
+     * 重置上下文并归还对象池
+     *
+     * 只能在请求结束、且没有其他对象（流式响应、异步处理的回调）引用该上下文时调用。
+     * 参数数组和属性映射保留容量供下一个请求使用。
+     */
+    void recycle() {
+        request = null;
+        response = null;
+        path = null;
+        queryParams = null;
+        formParams = null;
+        Arrays.fill(paramValues, 0, paramCount, null);
+        Arrays.fill(paramNames, 0, paramCount, null);
+        paramSource = null;
+        paramCount = 0;
+        if (attributes != null) {
+            attributes.clear();
+        }
+        channelContext = null;
+        bodyListener = null;
+        templateEngine = null;
+        responseStream = null;
+        route = null;
+        startNanos = 0;
+        admittedNanos = 0;
+        deferred = null;
+        deferredOrigin = null;
+        if (handle != null) {
+            handle.recycle(this);
+        }
     }
 
     /**
      * 获取请求路径
      * 
+     * 不包含查询字符串，已合并连续的斜杠并去掉 . 和 .. 片段，
+     * 不解码百分号编码（路由参数的值在匹配时已解码）。
+     * 
      * @return 当前请求路径
      */
     public String getPath() {
@@ -92,6 +264,18 @@ public class Context {
         return request.headers();
     }
 
+    /**
+     * 获取客户端地址
+     * 
+     * HTTP/2的请求返回所属连接的地址。经过反向代理时为代理的地址，
+     * 真实地址需要从 X-Forwarded-For 等请求头中读取。
+     * 
+     * @return 客户端地址，上下文未绑定到通道时返回null
+     */
+    public SocketAddress getRemoteAddress() {
+        return channelContext != null ? channelContext.channel().remoteAddress() : null;
+    }
+
     /**
      * 设置路由参数
      * 
@@ -104,7 +288,63 @@ public class Context {
      * @param value 参数值
      */
     public void setParam(String key, String value) {
-        params.put(key, value);
+        int index = slotOfParam(key);
+        paramValues[index] = value;
+        paramStarts[index] = -1;
+    }
+
+    /**
+     * 以请求路径中的位置设置路由参数
+     * 
+     * 路由匹配成功后调用，只记录偏移：{@link #getParam} 第一次读取时才创建并解码字符串，
+     * {@link #getIntParam}/{@link #getLongParam} 直接解析路径中的字符。
+     * 
+     * @param key 参数名
+     * @param source 请求路径，同一请求的所有参数必须来自同一个路径
+     * @param start 参数值的起始偏移
+     * @param end 参数值的结束偏移（不含）
+     */
+    void setParamRange(String key, String source, int start, int end) {
+        int index = slotOfParam(key);
+        paramSource = source;
+        paramValues[index] = null;
+        paramStarts[index] = start;
+        paramEnds[index] = end;
+    }
+
+    /**
+     * 获取参数的下标，不存在时追加一个
+     * 
+     * @param key 参数名
+     * @return 参数下标
+     */
+    private int slotOfParam(String key) {
+        int index = indexOfParam(key);
+        if (index < 0) {
+            if (paramCount == paramNames.length) {
+                reserveParams(paramCount + 1);
+            }
+            index = paramCount++;
+            paramNames[index] = key;
+        }
+        return index;
+    }
+
+    /**
+     * 预留路由参数的容量
+     * 
+     * 路由匹配成功后按路由的参数个数调用，参数数组只在容量不足时扩容。
+     * 
+     * @param count 需要容纳的参数个数
+     */
+    void reserveParams(int count) {
+        if (count > paramNames.length) {
+            int capacity = Math.max(count, paramNames.length * 2);
+            paramNames = Arrays.copyOf(paramNames, capacity);
+            paramValues = Arrays.copyOf(paramValues, capacity);
+            paramStarts = Arrays.copyOf(paramStarts, capacity);
+            paramEnds = Arrays.copyOf(paramEnds, capacity);
+        }
     }
 
     /**
@@ -114,7 +354,99 @@ public class Context {
      * @return 参数值，如果不存在则返回null
      */
     public String getParam(String key) {
-        return params.get(key);
+        int index = indexOfParam(key);
+        return index >= 0 ? paramValue(index) : null;
+    }
+
+    /**
+     * 获取int类型的路由参数
+     * 
+     * 直接解析请求路径中的字符，不创建中间的String，也不装箱。
+     * 路由模式使用 :name&lt;int&gt; 约束时，匹配到的参数一定可以解析。
+     * 
+     * @param key 参数名
+     * @return 参数值
+     * @throws NumberFormatException 参数不存在、不是十进制整数或超出int范围时抛出
+     */
+    public int getIntParam(String key) {
+        return (int) parseParam(key, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 获取long类型的路由参数
+     * 
+     * 与 {@link #getIntParam} 相同，对应 :name&lt;long&gt; 约束。
+     * 
+     * @param key 参数名
+     * @return 参数值
+     * @throws NumberFormatException 参数不存在、不是十进制整数或超出long范围时抛出
+     */
+    public long getLongParam(String key) {
+        return parseParam(key, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * 解析整数类型的路由参数
+     */
+    private long parseParam(String key, long min, long max) {
+        int index = indexOfParam(key);
+        if (index < 0) {
+            throw new NumberFormatException("Missing route parameter: " + key);
+        }
+        String value = paramValues[index];
+        int start = paramStarts[index];
+        if (value == null && start >= 0 && !containsEscape(paramSource, start, paramEnds[index])) {
+            return ParamConstraint.parseLong(paramSource, start, paramEnds[index], min, max);
+        }
+        value = paramValue(index);
+        return ParamConstraint.parseLong(value, 0, value.length(), min, max);
+    }
+
+    /**
+     * 获取参数值，路由匹配写入的参数在第一次读取时创建并解码
+     * 
+     * @param index 参数下标
+     * @return 参数值
+     */
+    private String paramValue(int index) {
+        String value = paramValues[index];
+        if (value == null && paramStarts[index] >= 0) {
+            value = decodeParam(paramSource.substring(paramStarts[index], paramEnds[index]));
+            paramValues[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * 字符区间中是否包含百分号编码
+     */
+    private static boolean containsEscape(String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) == '%') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解码参数值中的百分号编码
+     * 
+     * 按路径的规则解码：+保持不变（只有查询字符串中的+表示空格）。
+     * 编码不合法时保留原值，由处理器自行判断。
+     * 
+     * @param value 路径中的参数值
+     * @return 解码后的参数值
+     */
+    private static String decodeParam(String value) {
+        if (value.indexOf('%') < 0) {
+            return value;
+        }
+        try {
+            return QueryStringDecoder.decodeComponent(value.replace("+", "%2B"));
+        } catch (IllegalArgumentException e) {
+            return value;
+        }
     }
 
     /**
@@ -126,7 +458,155 @@ public class Context {
      * @return 被移除的参数值，如果不存在则返回null
      */
     public String removeParam(String key) {
-        return params.remove(key);
+        int index = indexOfParam(key);
+        if (index < 0) {
+            return null;
+        }
+        String value = paramValue(index);
+        int tail = paramCount - index - 1;
+        System.arraycopy(paramNames, index + 1, paramNames, index, tail);
+        System.arraycopy(paramValues, index + 1, paramValues, index, tail);
+        System.arraycopy(paramStarts, index + 1, paramStarts, index, tail);
+        System.arraycopy(paramEnds, index + 1, paramEnds, index, tail);
+        paramCount--;
+        paramNames[paramCount] = null;
+        paramValues[paramCount] = null;
+        return value;
+    }
+
+    /**
+     * 查找路由参数的下标
+     * 
+     * 路由参数通常只有几个，顺序比较比哈希查找更快。
+     * 
+     * @param key 参数名
+     * @return 参数下标，不存在时返回-1
+     */
+    private int indexOfParam(String key) {
+        for (int i = 0; i < paramCount; i++) {
+            if (paramNames[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 获取查询参数
+     * 
+     * 第一次访问时用 {@link QueryStringDecoder} 解析整个查询字符串（解码百分号编码，+表示空格）并缓存结果。
+     * 
+     * @param name 参数名
+     * @return 第一个值，不存在时返回null
+     * @throws IllegalArgumentException 查询字符串的编码不合法时抛出
+     */
+    public String query(String name) {
+        List<String> values = queryParams().get(name);
+        return values != null && !values.isEmpty() ? values.get(0) : null;
+    }
+
+    /**
+     * 获取查询参数的所有值
+     * 
+     * @param name 参数名
+     * @return 按出现顺序排列的值（只读），不存在时返回空列表
+     * @throws IllegalArgumentException 查询字符串的编码不合法时抛出
+     */
+    public List<String> queryAll(String name) {
+        List<String> values = queryParams().get(name);
+        return values != null ? Collections.unmodifiableList(values) : Collections.emptyList();
+    }
+
+    /**
+     * 获取表单参数
+     * 
+     * 支持 application/x-www-form-urlencoded 和 multipart/form-data 的请求体，
+     * 第一次访问时用 {@link HttpPostRequestDecoder} 解析并缓存结果，multipart中的文件字段会被忽略。
+     * 其他Content-Type的请求，以及流式路由（请求体不在请求对象中）没有表单参数。
+     * 
+     * @param name 参数名
+     * @return 第一个值，不存在时返回null
+     * @throws IllegalArgumentException 请求体的格式不合法时抛出
+     */
+    public String form(String name) {
+        List<String> values = formParams().get(name);
+        return values != null && !values.isEmpty() ? values.get(0) : null;
+    }
+
+    /**
+     * 获取表单参数的所有值
+     * 
+     * @param name 参数名
+     * @return 按出现顺序排列的值（只读），不存在时返回空列表
+     * @throws IllegalArgumentException 请求体的格式不合法时抛出
+     */
+    public List<String> formAll(String name) {
+        List<String> values = formParams().get(name);
+        return values != null ? Collections.unmodifiableList(values) : Collections.emptyList();
+    }
+
+    /**
+     * 获取解析后的查询参数，第一次调用时解析
+     */
+    private Map<String, List<String>> queryParams() {
+        Map<String, List<String>> params = queryParams;
+        if (params == null) {
+            String uri = request != null ? request.uri() : null;
+            params = uri != null && uri.indexOf('?') >= 0
+                    ? new QueryStringDecoder(uri).parameters()
+                    : Collections.emptyMap();
+            queryParams = params;
+        }
+        return params;
+    }
+
+    /**
+     * 获取解析后的表单参数，第一次调用时解析
+     */
+    private Map<String, List<String>> formParams() {
+        Map<String, List<String>> params = formParams;
+        if (params == null) {
+            params = isForm(request) ? decodeForm(request) : Collections.emptyMap();
+            formParams = params;
+        }
+        return params;
+    }
+
+    /**
+     * 判断请求体是否为表单
+     */
+    private static boolean isForm(FullHttpRequest request) {
+        if (request == null || !request.content().isReadable()) {
+            return false;
+        }
+        CharSequence mimeType = HttpUtil.getMimeType(request);
+        return mimeType != null
+                && (AsciiString.contentEqualsIgnoreCase(mimeType, HttpHeaderValues.APPLICATION_X_WWW_FORM_URLENCODED)
+                || AsciiString.contentEqualsIgnoreCase(mimeType, HttpHeaderValues.MULTIPART_FORM_DATA));
+    }
+
+    /**
+     * 解析表单请求体中的字段
+     */
+    private static Map<String, List<String>> decodeForm(FullHttpRequest request) {
+        HttpPostRequestDecoder decoder = null;
+        try {
+            // 解码器会移动请求体的读索引，使用副本以免影响处理器读取原始请求体
+            decoder = new HttpPostRequestDecoder(FORM_DATA_FACTORY, request.duplicate(), StandardCharsets.UTF_8);
+            Map<String, List<String>> params = new LinkedHashMap<>();
+            for (InterfaceHttpData data : decoder.getBodyHttpDatas()) {
+                if (data.getHttpDataType() == InterfaceHttpData.HttpDataType.Attribute) {
+                    params.computeIfAbsent(data.getName(), k -> new ArrayList<>(1)).add(((Attribute) data).getValue());
+                }
+            }
+            return params;
+        } catch (DecoderException | IOException e) {
+            throw new IllegalArgumentException("Malformed form data", e);
+        } finally {
+            if (decoder != null) {
+                decoder.destroy();
+            }
+        }
     }
 
     /**
@@ -141,6 +621,9 @@ public class Context {
      * @param value 属性值
      */
     public void setAttribute(String key, Object value) {
+        if (attributes == null) {
+            attributes = new HashMap<>();
+        }
         attributes.put(key, value);
     }
 
@@ -151,7 +634,7 @@ public class Context {
      * @return 属性值，如果不存在则返回null
      */
     public Object getAttribute(String key) {
-        return attributes.get(key);
+        return attributes != null ? attributes.get(key) : null;
     }
 
     /**
@@ -163,6 +646,149 @@ public class Context {
         return request;
     }
 
+    /**
+     * 替换HTTP请求对象
+     * 
+     * 聚合模式下请求体接收完毕后由HttpHandler调用。
+     * 
+     * @param request 完整的HTTP请求对象
+     */
+    void setRequest(FullHttpRequest request) {
+        this.request = request;
+    }
+
+    /**
+     * 替换HTTP响应对象
+     * 
+     * 响应缓存命中时由 {@link ResponseCache} 调用，原响应被释放。
+     * 
+     * @param response 新的响应对象
+     */
+    void setResponse(FullHttpResponse response) {
+        checkNotStreaming();
+        FullHttpResponse previous = this.response;
+        this.response = response;
+        if (previous != null && previous.refCnt() > 0) {
+            previous.release();
+        }
+    }
+
+    /**
+     * 绑定所属通道的上下文
+     * 
+     * @param channelContext Netty通道上下文
+     */
+    void attach(ChannelHandlerContext channelContext) {
+        this.channelContext = channelContext;
+    }
+
+    /**
+     * 获取匹配的路由
+     * 
+     * @return 匹配的路由，未经过路由匹配时返回null
+     */
+    public Route getRoute() {
+        return route;
+    }
+
+    /**
+     * 绑定匹配的路由
+     * 
+     * @param route 匹配的路由
+     */
+    void setRoute(Route route) {
+        this.route = route;
+    }
+
+    /**
+     * 获取开始处理请求的时间
+     * 
+     * @return 开始时间（纳秒），未启用指标或已记录结束时为0
+     */
+    long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * 设置开始处理请求的时间
+     * 
+     * @param startNanos 开始时间（纳秒），为0表示已记录结束
+     */
+    void setStartNanos(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * 获取通过准入控制的时间
+     * 
+     * @return 准入时间（纳秒），未占用准入许可或已归还时为0
+     */
+    long getAdmittedNanos() {
+        return admittedNanos;
+    }
+
+    /**
+     * 设置通过准入控制的时间
+     * 
+     * @param admittedNanos 准入时间（纳秒），为0表示已归还许可
+     */
+    void setAdmittedNanos(long admittedNanos) {
+        this.admittedNanos = admittedNanos;
+    }
+
+    /**
+     * 绑定渲染模板使用的模板引擎
+     * 
+     * @param templateEngine 模板引擎
+     */
+    void setTemplateEngine(TemplateEngine templateEngine) {
+        this.templateEngine = templateEngine;
+    }
+
+    /**
+     * 注册请求体监听器
+     * 
+     * 仅对流式路由（{@link RouteOptions#streaming(boolean)}）有效。
+     * 处理链执行完毕时未注册监听器的请求会立即发送响应并丢弃请求体，
+     * 可用于在读取请求体前拒绝请求（如认证失败）。
+     * 
+     * @param listener 请求体监听器
+     * @return 当前上下文实例（支持链式调用）
+     */
+    public Context onBody(BodyListener listener) {
+        this.bodyListener = listener;
+        return this;
+    }
+
+    /**
+     * 获取请求体监听器
+     * 
+     * @return 请求体监听器，未注册时返回null
+     */
+    BodyListener getBodyListener() {
+        return bodyListener;
+    }
+
+    /**
+     * 暂停读取请求体
+     * 
+     * 关闭通道的自动读取，已解码的数据仍可能继续到达监听器。
+     */
+    public void pauseBody() {
+        if (channelContext != null) {
+            channelContext.channel().config().setAutoRead(false);
+        }
+    }
+
+    /**
+     * 恢复读取请求体
+     */
+    public void resumeBody() {
+        if (channelContext != null) {
+            channelContext.channel().config().setAutoRead(true);
+        }
+    }
+
     /**
      * 获取HTTP响应对象
      * 
@@ -189,4 +815,265 @@ public class Context {
         }
         return this;
     }
+
+    /**
+     * 开始流式发送响应
+     * 
+     * 以当前设置的状态码和响应头立即发送响应头，已写入的响应体作为第一个分块发送，
+     * 之后通过返回的 {@link ResponseStream} 写入内容并调用 {@link ResponseStream#close()} 结束响应。
+     * 开始流式发送后不能再修改状态码和响应头，也不能再调用其他响应体写入方法。
+     * 
+     * 处理器返回时未结束的流式响应可以在其他线程上继续写入，
+     * 结束前该连接上流水线发送的后续请求进入队列，结束后再依次处理。
+     * 
+     * @return 流式响应，重复调用返回同一实例
+     * @throws IllegalStateException 上下文未绑定到通道时抛出
+     */
+    public ResponseStream stream() {
+        return stream(-1);
+    }
+
+    /**
+     * 以已知的响应体长度开始流式发送响应
+     * 
+     * 使用 Content-Length 代替分块传输，适用于文件等长度已知的内容。
+     * 长度包括调用前已写入的响应体，实际写入的字节数必须与声明的长度一致。
+     * 
+     * @param contentLength 响应体总长度，为负数时与 {@link #stream()} 相同
+     * @return 流式响应，重复调用返回同一实例
+     * @throws IllegalStateException 上下文未绑定到通道时抛出
+     */
+    public ResponseStream stream(long contentLength) {
+        if (responseStream == null) {
+            if (channelContext == null) {
+                throw new IllegalStateException("Context is not attached to a channel");
+            }
+            responseStream = new ResponseStream(channelContext, request, response, contentLength);
+            // 响应体已交给流式响应，保留状态码和响应头供中间件读取
+            response = response.replace(Unpooled.EMPTY_BUFFER);
+        }
+        return responseStream;
+    }
+
+    /**
+     * 获取流式响应
+     * 
+     * @return 流式响应，未开始流式发送时返回null
+     */
+    ResponseStream getResponseStream() {
+        return responseStream;
+    }
+
+    /**
+     * 推迟发送响应，直到异步处理完成
+     * 
+     * 通常由 {@link AsyncHandler} 调用。再次调用时替换之前的Stage，
+     * 中间件可以用包装后的Stage替换处理器的Stage，在其完成后修改响应。
+     * 
+     * @param stage 异步处理，完成后发送响应
+     * @return 当前上下文实例（支持链式调用）
+     */
+    public Context defer(CompletionStage<?> stage) {
+        if (stage == null) {
+            throw new IllegalArgumentException("Stage cannot be null");
+        }
+        if (deferredOrigin == null) {
+            deferredOrigin = stage;
+        }
+        this.deferred = stage;
+        return this;
+    }
+
+    /**
+     * 获取发送响应前需要等待的异步处理
+     * 
+     * @return 异步处理，处理器是同步的时返回null
+     */
+    public CompletionStage<?> getDeferred() {
+        return deferred;
+    }
+
+    /**
+     * 在处理器完成后执行操作
+     * 
+     * 供中间件在 next.handle(ctx) 之后调用：同步处理器已经完成，立即执行；
+     * 异步处理器在其Stage完成（包括异常、超时和取消）后、框架发送响应前执行，
+     * 此时可能位于下游客户端的线程上。
+     * 
+     * <pre>
+     * engine.use((ctx, next) -> {
+     *     long start = System.nanoTime();
+     *     next.handle(ctx);
+     *     ctx.whenComplete((c, error) -> log(c.getPath(), System.nanoTime() - start, error));
+     * });
+     * </pre>
+     * 
+     * @param action 接收上下文和异常（正常完成时为null）的操作
+     * @return 当前上下文实例（支持链式调用）
+     */
+    public Context whenComplete(BiConsumer<? super Context, ? super Throwable> action) {
+        CompletionStage<?> stage = deferred;
+        if (stage == null) {
+            action.accept(this, null);
+        } else {
+            this.deferred = stage.whenComplete((result, error) -> action.accept(this, error));
+        }
+        return this;
+    }
+
+    /**
+     * 取出需要等待的异步处理，由HttpHandler在处理链返回后调用
+     * 
+     * @return 异步处理，没有时返回null
+     */
+    CompletionStage<?> takeDeferred() {
+        CompletionStage<?> stage = deferred;
+        deferred = null;
+        return stage;
+    }
+
+    /**
+     * 获取第一次交给上下文的异步处理
+     * 
+     * @return 中间件包装前的Stage，没有时返回null
+     */
+    CompletionStage<?> getDeferredOrigin() {
+        return deferredOrigin;
+    }
+
+    /**
+     * 写入纯文本响应
+     * 
+     * 以UTF-8编码追加到响应体，未设置Content-Type时使用 text/plain; charset=UTF-8。
+     * 
+     * @param text 文本内容
+     * @return 当前上下文实例（支持链式调用）
+     */
+    public Context text(CharSequence text) {
+        return write(text, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 写入二进制响应
+     * 
+     * 追加到响应体，未设置Content-Type时使用 application/octet-stream。
+     * 
+     * @param bytes 字节内容
+     * @return 当前上下文实例（支持链式调用）
+     */
+    public Context bytes(byte[] bytes) {
+        checkNotStreaming();
+        HttpHeaders headers = response.headers();
+        if (!headers.contains(HttpHeaderNames.CONTENT_TYPE)) {
+            headers.set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_OCTET_STREAM);
+        }
+        response.content().writeBytes(bytes);
+        return updateContentLength();
+    }
+
+    /**
+     * 按指定字符集写入文本
+     * 
+     * 直接编码到响应缓冲区，不创建中间的byte[]。
+     * 未设置Content-Type时使用 text/plain 并带上字符集。
+     * 
+     * @param text 文本内容
+     * @param charset 字符集
+     * @return 当前上下文实例（支持链式调用）
+     */
+    public Context write(CharSequence text, Charset charset) {
+        checkNotStreaming();
+        HttpHeaders headers = response.headers();
+        if (!headers.contains(HttpHeaderNames.CONTENT_TYPE)) {
+            headers.set(HttpHeaderNames.CONTENT_TYPE, "text/plain; charset=" + charset.name());
+        }
+        ByteBuf content = response.content();
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            ByteBufUtil.reserveAndWriteUtf8(content, text, ByteBufUtil.utf8MaxBytes(text));
+        } else if (StandardCharsets.US_ASCII.equals(charset)) {
+            ByteBufUtil.writeAscii(content, text);
+        } else {
+            content.writeCharSequence(text, charset);
+        }
+        return updateContentLength();
+    }
+
+    /**
+     * 渲染模板作为响应体
+     * 
+     * 使用所属Engine的模板引擎，模板输出直接以UTF-8编码写入池化的响应缓冲区，不创建中间的String和byte[]。
+     * 未设置Content-Type时使用 text/html; charset=UTF-8。
+     * 
+     * @param templateName 模板文件名（例如："index.ftl"）
+     * @param model 数据模型
+     * @return 当前上下文实例（支持链式调用）
+     * @throws IllegalStateException 上下文未绑定模板引擎时抛出
+     * @throws RuntimeException 当模板不存在或渲染失败时抛出
+     */
+    public Context render(String templateName, Map<String, Object> model) {
+        checkNotStreaming();
+        if (templateEngine == null) {
+            throw new IllegalStateException("Context is not bound to a template engine");
+        }
+        HttpHeaders headers = response.headers();
+        if (!headers.contains(HttpHeaderNames.CONTENT_TYPE)) {
+            headers.set(HttpHeaderNames.CONTENT_TYPE, "text/html; charset=UTF-8");
+        }
+        templateEngine.render(templateName, model, response.content());
+        return updateContentLength();
+    }
+
+    /**
+     * 写入已有的缓冲区
+     * 
+     * 该方法会接管缓冲区的所有权（调用方不应再释放它）：
+     * 响应体为空时直接替换为该缓冲区（零拷贝，此后 {@link #getResponse()} 返回新的响应对象），
+     * 否则追加到响应体后释放该缓冲区。未设置Content-Type时使用 application/octet-stream。
+     * 
+     * @param buf 要写入的缓冲区
+     * @return 当前上下文实例（支持链式调用）
+     */
+    public Context write(ByteBuf buf) {
+        if (responseStream != null) {
+            buf.release();
+            checkNotStreaming();
+        }
+        HttpHeaders headers = response.headers();
+        if (!headers.contains(HttpHeaderNames.CONTENT_TYPE)) {
+            headers.set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_OCTET_STREAM);
+        }
+        if (!response.content().isReadable()) {
+            FullHttpResponse replaced = response.replace(buf);
+            response.release();
+            response = replaced;
+        } else {
+            try {
+                response.content().writeBytes(buf);
+            } finally {
+                buf.release();
+            }
+        }
+        return updateContentLength();
+    }
+
+    /**
+     * 检查是否已经开始流式发送
+     * 
+     * @throws IllegalStateException 已开始流式发送时抛出
+     */
+    private void checkNotStreaming() {
+        if (responseStream != null) {
+            throw new IllegalStateException("Response is streaming, write to ctx.stream() instead");
+        }
+    }
+
+    /**
+     * 根据当前响应体更新Content-Length
+     * 
+     * @return 当前上下文实例
+     */
+    private Context updateContentLength() {
+        HttpUtil.setContentLength(response, response.content().readableBytes());
+        return this;
+    }
 }
\ No newline at end of file
@@ -1,20 +1,33 @@
 package com.jinitamy.core;
 
+import com.jinitamy.core.template.TemplateEngine;
 import io.netty.bootstrap.ServerBootstrap;
-import io.netty.channel.ChannelInitializer;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.unix.UnixChannelOption;
 import io.netty.handler.codec.http.HttpMethod;
-import io.netty.handler.codec.http.HttpObjectAggregator;
-import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.ssl.SslContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Web引擎核心类
@@ -24,41 +37,83 @@ import java.util.List;
  * 2. 处理路由注册
  * 3. 管理中间件
  * 4. 配置服务器参数
+ * 5. 创建路由组（{@link #group(String, Middleware...)}）
  * 
  * 使用示例：
  * <pre>
  * Engine engine = new Engine();
  * engine.setPort(8080);
- * engine.get("/", ctx -> {
- *     ctx.getResponse().content().writeBytes("Hello World".getBytes());
- * });
+ * engine.get("/", ctx -> ctx.text("Hello World"));
  * engine.start();
  * </pre>
  */
 public class Engine {
     /** 日志记录器 */
     private static final Logger logger = LoggerFactory.getLogger(Engine.class);
+    /** {@link #any} 注册的方法 */
+    static final HttpMethod[] ANY_METHODS = {
+            HttpMethod.GET, HttpMethod.HEAD, HttpMethod.POST, HttpMethod.PUT,
+            HttpMethod.DELETE, HttpMethod.PATCH, HttpMethod.OPTIONS
+    };
     
     /** 路由管理器 */
     private final Router router;
     /** 中间件列表 */
     private final List<Middleware> middlewares;
-    /** 服务器端口号，默认为8080 */
+    /** 服务器端口号，默认为8080；设置为0时绑定随机端口，启动后更新为实际端口 */
     private int port = 8080;
+    /** 传输层实现，为null时自动选择 */
+    private Transport transport;
+    /** 是否启用 SO_REUSEPORT（仅原生传输层） */
+    private boolean reusePort = false;
+    /** TCP_FASTOPEN 队列长度，0表示不启用（仅原生传输层） */
+    private int tcpFastOpen = 0;
+    /** 连接使用的缓冲区分配器，默认为池化分配器（优先使用直接内存） */
+    private ByteBufAllocator allocator = PooledByteBufAllocator.DEFAULT;
+    /** 模板引擎 */
+    private final TemplateEngine templateEngine = new TemplateEngine();
+    /** 是否在启动时预编译全部模板 */
+    private boolean precompileTemplates = false;
+    /** 聚合模式下请求体的默认最大字节数 */
+    private volatile long maxContentLength = 65536;
+    /** TLS上下文，为null时使用明文连接 */
+    private SslContext sslContext;
+    /** 是否启用HTTP/2 */
+    private boolean http2 = false;
+    /** 响应压缩选项，为null时不压缩 */
+    private CompressionOptions compression;
+    /** 压缩结果缓存，启动时根据压缩选项创建 */
+    private CompressionCache compressionCache;
+    /** 通过use注册的响应缓存（全局或路由组），在路由匹配后按其在处理链中的位置查找，只对设置了有效期的路由生效 */
+    private volatile ResponseCache responseCache;
+    /** 运行指标，为null时不统计 */
+    private volatile Metrics metrics;
+    /** 准入控制，为null时只检查路由单独设置的并发上限 */
+    private volatile AdmissionControl admissionControl;
+    /** 异步处理的默认超时时间 */
+    private volatile Duration asyncTimeout = Duration.ofSeconds(30);
+    /** 是否回收请求上下文 */
+    private volatile boolean contextRecycling = true;
     /** 主事件循环组（用于接收连接） */
     private EventLoopGroup bossGroup;
     /** 工作事件循环组（用于处理连接） */
     private EventLoopGroup workerGroup;
     /** 服务器是否正在运行 */
     private volatile boolean running = false;
+    /** 全局执行模式，默认在事件循环线程上执行 */
+    private volatile ExecutionMode executionMode = ExecutionMode.EVENT_LOOP;
+    /** 阻塞任务执行器 */
+    private volatile Executor blockingExecutor;
+    /** 阻塞任务执行器是否由引擎创建（停止时需要关闭） */
+    private boolean ownsBlockingExecutor;
 
     /**
      * 构造函数
      * 初始化路由管理器和中间件列表
      */
     public Engine() {
-        this.router = new Router();
         this.middlewares = new ArrayList<>();
+        this.router = new Router(middlewares);
     }
 
     /**
@@ -79,6 +134,330 @@ public class Engine {
         return port;
     }
 
+    /**
+     * 设置传输层实现
+     * 
+     * 默认根据平台自动选择（epoll > io_uring > kqueue > NIO）。
+     * 指定的传输层不可用时，启动时会回退到自动选择的结果。
+     * 
+     * @param transport 传输层实现，为null时自动选择
+     */
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * 获取传输层实现
+     * 
+     * @return 指定或自动选择的传输层实现
+     */
+    public Transport getTransport() {
+        Transport t = transport;
+        if (t != null && t.isAvailable()) {
+            return t;
+        }
+        return Transport.detect();
+    }
+
+    /**
+     * 设置是否启用 SO_REUSEPORT
+     * 
+     * 启用后多个进程可以绑定同一端口，由内核负载均衡（仅原生传输层支持）。
+     * 
+     * @param reusePort 是否启用
+     */
+    public void setReusePort(boolean reusePort) {
+        this.reusePort = reusePort;
+    }
+
+    /**
+     * 设置 TCP_FASTOPEN 队列长度
+     * 
+     * 允许客户端在握手的SYN包中携带数据（仅原生传输层支持）。
+     * 
+     * @param queueLength 队列长度，0表示不启用
+     */
+    public void setTcpFastOpen(int queueLength) {
+        if (queueLength < 0) {
+            throw new IllegalArgumentException("TCP fast open queue length cannot be negative");
+        }
+        this.tcpFastOpen = queueLength;
+    }
+
+    /**
+     * 设置缓冲区分配器
+     * 
+     * 请求和响应的缓冲区都从该分配器分配，默认为 {@link PooledByteBufAllocator#DEFAULT}。
+     * 
+     * @param allocator 缓冲区分配器
+     */
+    public void setAllocator(ByteBufAllocator allocator) {
+        if (allocator == null) {
+            throw new IllegalArgumentException("Allocator cannot be null");
+        }
+        this.allocator = allocator;
+    }
+
+    /**
+     * 设置聚合模式下请求体的默认最大字节数
+     * 
+     * 未在路由选项中单独指定限制的路由都使用该值，超出限制的请求返回413。
+     * 流式路由不受该限制。
+     * 
+     * @param maxContentLength 最大字节数，默认为64KB
+     */
+    public void setMaxContentLength(long maxContentLength) {
+        if (maxContentLength < 0) {
+            throw new IllegalArgumentException("Max content length cannot be negative");
+        }
+        this.maxContentLength = maxContentLength;
+    }
+
+    /**
+     * 获取聚合模式下请求体的默认最大字节数
+     * 
+     * @return 最大字节数
+     */
+    public long getMaxContentLength() {
+        return maxContentLength;
+    }
+
+    /**
+     * 设置TLS上下文
+     * 
+     * 设置后所有连接都使用TLS。启用HTTP/2时通过ALPN协商协议，
+     * 上下文需要声明支持的协议（见 {@link #setHttp2(boolean)}），否则始终使用HTTP/1.1。
+     * 
+     * @param sslContext 服务端TLS上下文，为null时使用明文连接（默认）
+     */
+    public void setSslContext(SslContext sslContext) {
+        if (sslContext != null && !sslContext.isServer()) {
+            throw new IllegalArgumentException("SSL context must be a server context");
+        }
+        this.sslContext = sslContext;
+    }
+
+    /**
+     * 获取TLS上下文
+     * 
+     * @return TLS上下文，未启用TLS时返回null
+     */
+    public SslContext getSslContext() {
+        return sslContext;
+    }
+
+    /**
+     * 设置是否启用HTTP/2
+     * 
+     * 启用后：
+     * 1. 明文连接支持直接发送连接前言的h2c（prior knowledge）和 Upgrade: h2c 升级，其他请求仍按HTTP/1.1处理
+     * 2. TLS连接通过ALPN协商h2或http/1.1，TLS上下文需要配置：
+     * <pre>
+     * SslContextBuilder.forServer(cert, key)
+     *         .applicationProtocolConfig(new ApplicationProtocolConfig(
+     *                 Protocol.ALPN, SelectorFailureBehavior.NO_ADVERTISE,
+     *                 SelectedListenerFailureBehavior.ACCEPT,
+     *                 ApplicationProtocolNames.HTTP_2, ApplicationProtocolNames.HTTP_1_1))
+     *         .build();
+     * </pre>
+     * 每个HTTP/2流对应一个独立的 {@link Context}，路由、中间件和处理器无需修改。需要在启动前设置。
+     * 
+     * @param http2 是否启用，默认为false
+     */
+    public void setHttp2(boolean http2) {
+        this.http2 = http2;
+    }
+
+    /**
+     * 是否启用了HTTP/2
+     * 
+     * @return 启用时返回true
+     */
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    /**
+     * 设置响应压缩选项
+     * 
+     * 启用后 {@link #start()} 在管道中加入压缩处理器，根据 Accept-Encoding 使用 gzip 或 deflate
+     * 压缩可压缩类型的响应，带有ETag的响应压缩结果会被缓存。需要在启动前设置。
+     * 
+     * @param compression 压缩选项，为null时不压缩（默认）
+     */
+    public void setCompression(CompressionOptions compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * 获取响应压缩选项
+     * 
+     * @return 压缩选项，未启用压缩时返回null
+     */
+    public CompressionOptions getCompression() {
+        return compression;
+    }
+
+    /**
+     * 设置准入控制
+     * 
+     * 正在处理的请求数达到上限时，新的请求在匹配路由后立即返回503，
+     * 不接收请求体也不执行处理链。需要在启动前设置，运行中的连接继续使用原来的设置。
+     * 
+     * @param admissionControl 准入控制，为null时不限制全局并发（默认）
+     */
+    public void setAdmissionControl(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    /**
+     * 获取准入控制
+     * 
+     * @return 准入控制，未启用时返回null
+     */
+    public AdmissionControl getAdmissionControl() {
+        return admissionControl;
+    }
+
+    /**
+     * 设置异步处理的默认超时时间
+     * 
+     * 未在路由选项中单独指定超时时间的 {@link AsyncHandler} 都使用该值，
+     * 超时后返回503并取消处理器返回的Stage。
+     * 
+     * @param asyncTimeout 超时时间，为0时不限制（默认30秒）
+     */
+    public void setAsyncTimeout(Duration asyncTimeout) {
+        if (asyncTimeout == null || asyncTimeout.isNegative()) {
+            throw new IllegalArgumentException("Async timeout cannot be null or negative");
+        }
+        this.asyncTimeout = asyncTimeout;
+    }
+
+    /**
+     * 获取异步处理的默认超时时间
+     * 
+     * @return 超时时间
+     */
+    public Duration getAsyncTimeout() {
+        return asyncTimeout;
+    }
+
+    /**
+     * 设置是否回收请求上下文
+     * 
+     * 启用时（默认）HttpHandler从事件循环的对象池获取 {@link Context}，
+     * 同步完成的请求在响应交出后重置并归还。处理器需要在请求结束后继续使用上下文时
+     * （例如在自行启动的线程中读取参数），可以关闭该选项。需要在启动前调用。
+     * 
+     * @param contextRecycling 是否回收
+     */
+    public void setContextRecycling(boolean contextRecycling) {
+        this.contextRecycling = contextRecycling;
+    }
+
+    /**
+     * 是否回收请求上下文
+     * 
+     * @return 回收时返回true
+     */
+    public boolean isContextRecycling() {
+        return contextRecycling;
+    }
+
+    /**
+     * 设置全局执行模式
+     * 
+     * 未在路由选项中单独指定执行模式的路由都使用该模式。
+     * 
+     * @param executionMode 执行模式
+     */
+    public void setExecutionMode(ExecutionMode executionMode) {
+        if (executionMode == null) {
+            throw new IllegalArgumentException("Execution mode cannot be null");
+        }
+        this.executionMode = executionMode;
+    }
+
+    /**
+     * 获取全局执行模式
+     * 
+     * @return 全局执行模式
+     */
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * 设置阻塞任务执行器
+     * 
+     * 用于执行 {@link ExecutionMode#BLOCKING} 模式的处理链。
+     * 自定义的执行器由调用方负责关闭。
+     * 
+     * @param executor 阻塞任务执行器
+     */
+    public synchronized void setBlockingExecutor(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Blocking executor cannot be null");
+        }
+        this.blockingExecutor = executor;
+        this.ownsBlockingExecutor = false;
+    }
+
+    /**
+     * 获取阻塞任务执行器
+     * 
+     * 未设置时在首次使用时创建默认执行器：
+     * Java 21+ 使用虚拟线程，否则使用有界的平台线程池。
+     * 
+     * @return 阻塞任务执行器
+     */
+    public Executor getBlockingExecutor() {
+        Executor executor = blockingExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = blockingExecutor;
+                if (executor == null) {
+                    executor = createBlockingExecutor();
+                    this.blockingExecutor = executor;
+                    this.ownsBlockingExecutor = true;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * 创建默认的阻塞任务执行器
+     * 
+     * 通过反射调用 Executors.newVirtualThreadPerTaskExecutor()，
+     * 以便在Java 17上编译的同时在Java 21+上使用虚拟线程。
+     * 
+     * @return 阻塞任务执行器
+     */
+    private static ExecutorService createBlockingExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ExecutorService executor = (ExecutorService) factory.invoke(null);
+            logger.info("Blocking handlers run on virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            // Java 21以下回退到有界线程池，队列满时拒绝任务（由HttpHandler返回503）
+            int threads = Math.max(16, Runtime.getRuntime().availableProcessors() * 8);
+            AtomicInteger counter = new AtomicInteger();
+            ThreadFactory threadFactory = r -> {
+                Thread t = new Thread(r, "jinitamy-blocking-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            };
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(threads * 64), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+            executor.allowCoreThreadTimeOut(true);
+            logger.info("Blocking handlers run on a bounded pool of {} platform threads", threads);
+            return executor;
+        }
+    }
+
     /**
      * 添加中间件
      * 
@@ -88,10 +467,49 @@ public class Engine {
      * 3. 权限验证
      * 4. 响应后处理
      * 
+     * 中间件会在路由表编译时组合进每个路由的处理链，请求处理时不再重复构建。
+     * 注册的 {@link ResponseCache} 在处理链中它所在的位置查找缓存，
+     * 命中时不再执行之后的中间件和处理器；一个引擎只能注册一个响应缓存。
+     * 
      * @param middleware 要添加的中间件
+     * @throws IllegalStateException 已经注册了其他响应缓存时抛出
      */
     public void use(Middleware middleware) {
+        registerResponseCache(middleware);
         middlewares.add(middleware);
+        router.invalidate();
+    }
+
+    /**
+     * 创建路由组
+     * 
+     * 组内的路由在全局中间件之后依次执行组的中间件，组外的路由不执行这些中间件。
+     * 组的中间件在注册路由时确定，并在路由表编译时组合进该路由的处理链。
+     * 
+     * @param prefix 路径前缀（如：/api）
+     * @param middlewares 组的中间件（按执行顺序）
+     * @return 新的路由组
+     */
+    public RouteGroup group(String prefix, Middleware... middlewares) {
+        return new RouteGroup(this, "", Collections.emptyList()).group(prefix, middlewares);
+    }
+
+    /**
+     * 登记响应缓存
+     * 
+     * 全局和路由组注册的 {@link ResponseCache} 都需要登记，保证一个引擎只有一个响应缓存，
+     * 并可以通过 {@link #getResponseCache()} 取得它使缓存失效。
+     * 
+     * @param middleware 要注册的中间件，不是响应缓存时忽略
+     * @throws IllegalStateException 已经注册了其他响应缓存时抛出
+     */
+    void registerResponseCache(Middleware middleware) {
+        if (middleware instanceof ResponseCache) {
+            if (responseCache != null && responseCache != middleware) {
+                throw new IllegalStateException("A response cache is already registered");
+            }
+            responseCache = (ResponseCache) middleware;
+        }
     }
 
     /**
@@ -104,6 +522,17 @@ public class Engine {
         router.addRoute(HttpMethod.GET, pattern, handler);
     }
 
+    /**
+     * 注册带选项的GET请求路由
+     * 
+     * @param pattern URL匹配模式，支持动态参数（如：/user/:id）
+     * @param handler 请求处理器
+     * @param options 路由选项（如执行模式）
+     */
+    public void get(String pattern, Handler handler, RouteOptions options) {
+        router.addRoute(HttpMethod.GET, pattern, handler, options);
+    }
+
     /**
      * 注册POST请求路由
      * 
@@ -114,14 +543,229 @@ public class Engine {
         router.addRoute(HttpMethod.POST, pattern, handler);
     }
 
+    /**
+     * 注册带选项的POST请求路由
+     * 
+     * @param pattern URL匹配模式，支持动态参数（如：/user/:id）
+     * @param handler 请求处理器
+     * @param options 路由选项（如执行模式）
+     */
+    public void post(String pattern, Handler handler, RouteOptions options) {
+        router.addRoute(HttpMethod.POST, pattern, handler, options);
+    }
+
+    /**
+     * 注册PUT请求路由
+     * 
+     * @param pattern URL匹配模式，支持动态参数（如：/user/:id）
+     * @param handler 请求处理器
+     */
+    public void put(String pattern, Handler handler) {
+        router.addRoute(HttpMethod.PUT, pattern, handler);
+    }
+
+    /**
+     * 注册带选项的PUT请求路由
+     * 
+     * @param pattern URL匹配模式，支持动态参数（如：/user/:id）
+     * @param handler 请求处理器
+     * @param options 路由选项（如执行模式）
+     */
+    public void put(String pattern, Handler handler, RouteOptions options) {
+        router.addRoute(HttpMethod.PUT, pattern, handler, options);
+    }
+
+    /**
+     * 注册DELETE请求路由
+     * 
+     * @param pattern URL匹配模式，支持动态参数（如：/user/:id）
+     * @param handler 请求处理器
+     */
+    public void delete(String pattern, Handler handler) {
+        router.addRoute(HttpMethod.DELETE, pattern, handler);
+    }
+
+    /**
+     * 注册带选项的DELETE请求路由
+     * 
+     * @param pattern URL匹配模式，支持动态参数（如：/user/:id）
+     * @param handler 请求处理器
+     * @param options 路由选项（如执行模式）
+     */
+    public void delete(String pattern, Handler handler, RouteOptions options) {
+        router.addRoute(HttpMethod.DELETE, pattern, handler, options);
+    }
+
+    /**
+     * 注册PATCH请求路由
+     * 
+     * @param pattern URL匹配模式，支持动态参数（如：/user/:id）
+     * @param handler 请求处理器
+     */
+    public void patch(String pattern, Handler handler) {
+        router.addRoute(HttpMethod.PATCH, pattern, handler);
+    }
+
+    /**
+     * 注册带选项的PATCH请求路由
+     * 
+     * @param pattern URL匹配模式，支持动态参数（如：/user/:id）
+     * @param handler 请求处理器
+     * @param options 路由选项（如执行模式）
+     */
+    public void patch(String pattern, Handler handler, RouteOptions options) {
+        router.addRoute(HttpMethod.PATCH, pattern, handler, options);
+    }
+
+    /**
+     * 注册HEAD请求路由
+     * 
+     * 未注册时HEAD请求由同一路径的GET路由处理，框架只发送响应头。
+     * 
+     * @param pattern URL匹配模式，支持动态参数（如：/user/:id）
+     * @param handler 请求处理器
+     */
+    public void head(String pattern, Handler handler) {
+        router.addRoute(HttpMethod.HEAD, pattern, handler);
+    }
+
+    /**
+     * 注册带选项的HEAD请求路由
+     * 
+     * @param pattern URL匹配模式，支持动态参数（如：/user/:id）
+     * @param handler 请求处理器
+     * @param options 路由选项（如执行模式）
+     */
+    public void head(String pattern, Handler handler, RouteOptions options) {
+        router.addRoute(HttpMethod.HEAD, pattern, handler, options);
+    }
+
+    /**
+     * 注册OPTIONS请求路由
+     * 
+     * 未注册时框架根据同一路径上注册的方法自动回复Allow头。
+     * 
+     * @param pattern URL匹配模式，支持动态参数（如：/user/:id）
+     * @param handler 请求处理器
+     */
+    public void options(String pattern, Handler handler) {
+        router.addRoute(HttpMethod.OPTIONS, pattern, handler);
+    }
+
+    /**
+     * 注册带选项的OPTIONS请求路由
+     * 
+     * @param pattern URL匹配模式，支持动态参数（如：/user/:id）
+     * @param handler 请求处理器
+     * @param options 路由选项（如执行模式）
+     */
+    public void options(String pattern, Handler handler, RouteOptions options) {
+        router.addRoute(HttpMethod.OPTIONS, pattern, handler, options);
+    }
+
+    /**
+     * 为所有常用方法注册同一个处理器
+     * 
+     * 包括GET、HEAD、POST、PUT、DELETE、PATCH和OPTIONS，不包括TRACE和CONNECT。
+     * 同一路径上单独注册的方法会覆盖该处理器（反之亦然，以后注册的为准）。
+     * 
+     * @param pattern URL匹配模式，支持动态参数（如：/user/:id）
+     * @param handler 请求处理器
+     */
+    public void any(String pattern, Handler handler) {
+        any(pattern, handler, RouteOptions.create());
+    }
+
+    /**
+     * 为所有常用方法注册带选项的同一个处理器
+     * 
+     * @param pattern URL匹配模式，支持动态参数（如：/user/:id）
+     * @param handler 请求处理器
+     * @param options 路由选项（如执行模式）
+     */
+    public void any(String pattern, Handler handler, RouteOptions options) {
+        for (HttpMethod method : ANY_METHODS) {
+            router.addRoute(method, pattern, handler, options);
+        }
+    }
+
+    /**
+     * 注册任意HTTP方法的路由
+     * 
+     * 用于非标准方法（如WebDAV的PROPFIND）。
+     * 
+     * @param method HTTP请求方法
+     * @param pattern URL匹配模式，支持动态参数（如：/user/:id）
+     * @param handler 请求处理器
+     * @param options 路由选项（如执行模式）
+     */
+    public void handle(HttpMethod method, String pattern, Handler handler, RouteOptions options) {
+        router.addRoute(method, pattern, handler, options);
+    }
+
+    /**
+     * 注册静态文件目录
+     * 
+     * 路由模式以通配符结尾时，通配符捕获的路径映射到目录中的文件，例如：
+     * engine.staticDir("/assets/*", Paths.get("public"))
+     * 将 /assets/css/app.css 映射到 public/css/app.css。
+     * 模式不含通配符时自动追加。文件通过 {@link StaticFileHandler} 发送。
+     * 
+     * @param pattern URL匹配模式（如：/assets/*）
+     * @param directory 静态文件根目录
+     */
+    public void staticDir(String pattern, Path directory) {
+        String param = "filepath";
+        int star = pattern.lastIndexOf('*');
+        if (star < 0) {
+            pattern = (pattern.endsWith("/") ? pattern : pattern + "/") + "*" + param;
+        } else if (star == pattern.length() - 1) {
+            pattern = pattern + param;
+        } else {
+            param = pattern.substring(star + 1);
+        }
+        get(pattern, new StaticFileHandler(directory, param));
+    }
+
+    /**
+     * 启用运行指标并注册指标端点
+     * 
+     * 启用后按路由模式统计请求数、状态码、正在处理的请求数和延迟直方图，
+     * 并统计连接上收发的字节数和事件循环中等待执行的任务数，
+     * 在指定路径上以Prometheus文本格式输出（见 {@link Metrics}）。需要在启动前调用。
+     * 
+     * @param path 指标端点的路径（如：/metrics）
+     * @return 运行指标
+     * @throws IllegalStateException 已经启用时抛出
+     */
+    public Metrics enableMetrics(String path) {
+        if (metrics != null) {
+            throw new IllegalStateException("Metrics are already enabled");
+        }
+        Metrics created = new Metrics(router);
+        get(path, created.endpoint());
+        this.metrics = created;
+        return created;
+    }
+
+    /**
+     * 获取运行指标
+     * 
+     * @return 运行指标，未启用时返回null
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * 启动HTTP服务器
      * 
      * 该方法会：
-     * 1. 创建事件循环组
-     * 2. 配置服务器引导程序
-     * 3. 设置通道处理器
-     * 4. 绑定端口并启动服务器
+     * 1. 编译路由表，启用时预编译模板
+     * 2. 选择传输层并创建事件循环组
+     * 3. 配置服务器引导程序
+     * 4. 设置通道处理器
+     * 5. 绑定端口并启动服务器
      * 
      * @throws Exception 当服务器启动失败时抛出
      * @throws IllegalStateException 当服务器已经在运行时抛出
@@ -130,32 +774,51 @@ public class Engine {
         if (running) {
             throw new IllegalStateException("Server is already running");
         }
-        
+
+        // 冻结路由表，编译为只读的压缩前缀树并组合各路由的处理链
+        router.compile();
+
+        // 预编译模板，模板有语法错误时在绑定端口前失败
+        if (precompileTemplates) {
+            int count = templateEngine.precompileAll();
+            logger.info("Precompiled {} templates from {}", count, templateEngine.getTemplatePath());
+        }
+
+        // 选择传输层
+        if (transport != null && !transport.isAvailable()) {
+            logger.warn("Transport {} is not available on this platform, falling back", transport);
+        }
+        Transport selected = getTransport();
+
+        // 压缩结果缓存由所有连接共享
+        CompressionOptions compressionOptions = compression;
+        if (compressionOptions != null && compressionOptions.getCacheSize() > 0) {
+            this.compressionCache = new CompressionCache(compressionOptions.getCacheSize());
+        }
+
         // 创建主事件循环组（用于接收连接）
-        this.bossGroup = new NioEventLoopGroup(1);
+        this.bossGroup = selected.newEventLoopGroup(1);
         // 创建工作事件循环组（用于处理连接）
-        this.workerGroup = new NioEventLoopGroup();
+        this.workerGroup = selected.newEventLoopGroup(0);
         
         try {
             ServerBootstrap b = new ServerBootstrap();
             b.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
-                    .childHandler(new ChannelInitializer<SocketChannel>() {
-                        @Override
-                        protected void initChannel(SocketChannel ch) {
-                            ch.pipeline()
-                                    .addLast(new HttpServerCodec())  // HTTP编解码器
-                                    .addLast(new HttpObjectAggregator(65536))  // HTTP消息聚合器
-                                    .addLast(new HttpHandler(Engine.this));  // 自定义HTTP处理器
-                        }
-                    })
+                    .channel(selected.serverChannelClass())
+                    .childHandler(new ServerInitializer(this, sslContext, http2, compressionOptions, compressionCache, metrics))  // 按协议构建连接管道
                     .option(ChannelOption.SO_BACKLOG, 128)  // 设置连接队列大小
-                    .childOption(ChannelOption.SO_KEEPALIVE, true);  // 启用TCP keepalive
+                    .childOption(ChannelOption.SO_KEEPALIVE, true)  // 启用TCP keepalive
+                    .childOption(ChannelOption.ALLOCATOR, allocator);  // 池化缓冲区分配器
+            applyNativeOptions(b, selected);
 
             // 绑定端口并启动服务器
-            b.bind(port).sync();
+            Channel serverChannel = b.bind(port).sync().channel();
+            this.port = ((InetSocketAddress) serverChannel.localAddress()).getPort();
+            if (metrics != null) {
+                metrics.bind(workerGroup);
+            }
             this.running = true;
-            logger.info("Server started on port {}", port);
+            logger.info("Server started on port {} using {} transport", port, selected);
         } catch (Exception e) {
             logger.error("Server start failed", e);
             // 优雅关闭事件循环组
@@ -165,11 +828,33 @@ public class Engine {
             if (workerGroup != null) {
                 workerGroup.shutdownGracefully();
             }
+            releaseCompressionCache();
             this.running = false;
             throw e;
         }
     }
 
+    /**
+     * 设置原生传输层专有的套接字选项
+     * 
+     * @param b 服务器引导程序
+     * @param selected 选中的传输层
+     */
+    private void applyNativeOptions(ServerBootstrap b, Transport selected) {
+        if (!selected.isNative()) {
+            if (reusePort || tcpFastOpen > 0) {
+                logger.warn("SO_REUSEPORT and TCP_FASTOPEN require a native transport, ignored on {}", selected);
+            }
+            return;
+        }
+        if (reusePort) {
+            b.option(UnixChannelOption.SO_REUSEPORT, true);
+        }
+        if (tcpFastOpen > 0) {
+            b.option(ChannelOption.TCP_FASTOPEN, tcpFastOpen);
+        }
+    }
+
     /**
      * 停止HTTP服务器
      * 
@@ -196,6 +881,18 @@ public class Engine {
             if (workerGroup != null) {
                 workerGroup.shutdownGracefully().sync();
             }
+            // 关闭引擎自行创建的阻塞任务执行器
+            synchronized (this) {
+                if (ownsBlockingExecutor && blockingExecutor instanceof ExecutorService) {
+                    ((ExecutorService) blockingExecutor).shutdown();
+                    this.blockingExecutor = null;
+                    this.ownsBlockingExecutor = false;
+                }
+            }
+            releaseCompressionCache();
+            if (metrics != null) {
+                metrics.bind(null);
+            }
             
             this.running = false;
             logger.info("Server stopped successfully");
@@ -205,6 +902,16 @@ public class Engine {
         }
     }
 
+    /**
+     * 释放压缩结果缓存
+     */
+    private void releaseCompressionCache() {
+        if (compressionCache != null) {
+            compressionCache.clear();
+            compressionCache = null;
+        }
+    }
+
     /**
      * 检查服务器是否正在运行
      * 
@@ -223,6 +930,48 @@ public class Engine {
         return router;
     }
 
+    /**
+     * 设置是否在启动时预编译全部模板
+     * 
+     * 启用后 {@link #start()} 在绑定端口前调用 {@link TemplateEngine#precompileAll()}，
+     * 首个请求不再承担解析开销，模板无法读取或有语法错误时启动失败。
+     * 模板位置和缓存大小需要在启动前配置好，预编译的模板数不应超过强引用缓存的大小。
+     * 
+     * @param precompileTemplates 是否启用，默认为false
+     */
+    public void setPrecompileTemplates(boolean precompileTemplates) {
+        this.precompileTemplates = precompileTemplates;
+    }
+
+    /**
+     * 是否在启动时预编译全部模板
+     * 
+     * @return 启用时返回true
+     */
+    public boolean isPrecompileTemplates() {
+        return precompileTemplates;
+    }
+
+    /**
+     * 获取模板引擎
+     * 
+     * 处理器通过 {@link Context#render} 使用该模板引擎渲染页面。
+     * 
+     * @return 该引擎持有的模板引擎
+     */
+    public TemplateEngine getTemplateEngine() {
+        return templateEngine;
+    }
+
+    /**
+     * 获取注册的响应缓存
+     * 
+     * @return 全局或路由组注册的响应缓存，未注册时返回null
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
     /**
      * 获取中间件列表
      * 
@@ -0,0 +1,27 @@
+package com.jinitamy.core;
+
+/**
+ * 处理链执行模式
+ *
+ * 决定中间件和处理器在哪个线程上运行：
+ * 1. EVENT_LOOP：直接在Netty的I/O线程上执行，适合纯计算、不阻塞的处理器
+ * 2. BLOCKING：派发到阻塞任务执行器上执行（Java 21+ 使用虚拟线程，否则使用有界线程池），
+ *    适合访问数据库、渲染模板等可能阻塞的处理器，避免拖慢同一事件循环上的其他连接
+ *
+ * 无论使用哪种模式，响应总是在通道所属的事件循环上写出。
+ *
+ * 使用示例：
+ * <pre>
+ * // 全局设置
+ * engine.setExecutionMode(ExecutionMode.BLOCKING);
+ *
+ * // 单个路由设置
+ * engine.get("/report", ctx -> { ... }, RouteOptions.create().executionMode(ExecutionMode.BLOCKING));
+ * </pre>
+ */
+public enum ExecutionMode {
+    /** 在事件循环线程上执行 */
+    EVENT_LOOP,
+    /** 在阻塞任务执行器上执行 */
+    BLOCKING
+}
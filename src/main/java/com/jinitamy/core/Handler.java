@@ -9,9 +9,7 @@ package com.jinitamy.core;
  * 使用示例：
  * <pre>
  * // 使用Lambda表达式
- * engine.get("/", ctx -> {
- *     ctx.getResponse().content().writeBytes("Hello World".getBytes());
- * });
+ * engine.get("/", ctx -> ctx.text("Hello World"));
  * 
  * // 使用匿名类
  * engine.get("/user", new Handler() {
@@ -0,0 +1,605 @@
+package com.jinitamy.core;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.FileRegion;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * HTTP响应压缩处理器
+ *
+ * 位于 HttpServerCodec 和 HttpHandler 之间，由 {@link Engine#start()} 在启用压缩时加入管道。
+ * 读取请求时记录协商出的编码，写出响应时按以下方式处理：
+ * 1. 完整响应：整体压缩后替换响应体
+ * 2. 已知长度的流式响应（包括静态文件的FileRegion）：不超过 {@value #MAX_BUFFERED_SIZE} 字节时
+ *    缓冲后整体压缩，更大的响应原样发送以保留零拷贝
+ * 3. 分块的流式响应：逐块压缩，每块压缩后立即可被客户端解压
+ *
+ * 带有ETag的响应压缩结果放入 {@link CompressionCache}，相同内容的后续请求直接发送缓存，
+ * 连文件都不再读取。压缩后的ETag改为弱校验，与未压缩的表示区分。
+ *
+ * 以下响应不压缩：HEAD请求、1xx/204/206/304状态、已有Content-Encoding、
+ * Content-Type不在允许列表中、响应体小于最小压缩字节数。
+ *
+ * 每个连接一个实例，所有方法都在该连接的事件循环线程上执行。
+ */
+final class HttpCompressionHandler extends ChannelDuplexHandler {
+    /** gzip编码 */
+    static final String GZIP = "gzip";
+    /** deflate（zlib）编码 */
+    static final String DEFLATE = "deflate";
+    /** 缓冲后整体压缩的已知长度响应体的最大字节数 */
+    static final int MAX_BUFFERED_SIZE = 1024 * 1024;
+    /** 流式压缩时每次从文件读取的字节数 */
+    private static final int REGION_CHUNK_SIZE = 64 * 1024;
+
+    /** 当前响应的处理状态 */
+    private enum State {
+        /** 等待下一个响应 */
+        IDLE,
+        /** 原样发送直到响应结束 */
+        PASS,
+        /** 缓冲已知长度的响应体 */
+        BUFFER,
+        /** 逐块压缩 */
+        STREAM,
+        /** 已发送缓存的压缩结果，丢弃剩余的响应体 */
+        SKIP
+    }
+
+    /** 压缩选项 */
+    private final CompressionOptions options;
+    /** 压缩结果缓存，为null时不缓存 */
+    private final CompressionCache cache;
+    /** 等待响应的请求（按顺序对应流水线中的响应） */
+    private final ArrayDeque<RequestInfo> requests = new ArrayDeque<>();
+
+    /** 上一次解析的Accept-Encoding（同一连接上通常不变） */
+    private String lastAcceptEncoding;
+    /** 上一次协商出的编码 */
+    private String lastEncoding;
+
+    /** 当前响应的处理状态 */
+    private State state = State.IDLE;
+    /** 缓冲状态下等待发送的响应头 */
+    private HttpResponse head;
+    /** 当前响应使用的编码 */
+    private String encoding;
+    /** 当前响应的缓存键，为null时不缓存 */
+    private String cacheKey;
+    /** 缓冲状态下累积的响应体 */
+    private ByteBuf body;
+    /** 缓冲状态下等待完成的写入 */
+    private List<ChannelPromise> pending;
+    /** 流式状态下的压缩器 */
+    private ContentCompressor compressor;
+    /** 已发送的最后一次写入（SKIP状态下剩余写入随其完成） */
+    private ChannelFuture emitted;
+
+    /**
+     * 创建压缩处理器
+     *
+     * @param options 压缩选项
+     * @param cache 压缩结果缓存，为null时不缓存
+     */
+    HttpCompressionHandler(CompressionOptions options, CompressionCache cache) {
+        this.options = options;
+        this.cache = cache;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof HttpRequest) {
+            HttpRequest request = (HttpRequest) msg;
+            String encoding = null;
+            if (!HttpMethod.HEAD.equals(request.method())) {
+                encoding = negotiate(request.headers().get(HttpHeaderNames.ACCEPT_ENCODING));
+            }
+            requests.add(new RequestInfo(request.uri(), encoding));
+        }
+        super.channelRead(ctx, msg);
+    }
+
+    /**
+     * 根据Accept-Encoding选择编码
+     *
+     * @param acceptEncoding 请求的Accept-Encoding，可以为null
+     * @return "gzip"、"deflate"，或者在客户端不接受压缩时返回null
+     */
+    private String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        if (!acceptEncoding.equals(lastAcceptEncoding)) {
+            lastEncoding = selectEncoding(acceptEncoding);
+            lastAcceptEncoding = acceptEncoding;
+        }
+        return lastEncoding;
+    }
+
+    /**
+     * 解析Accept-Encoding并选择编码
+     *
+     * 按q值选择，相同时优先gzip；"*" 适用于未明确列出的编码，q=0表示拒绝。
+     *
+     * @param acceptEncoding 请求的Accept-Encoding
+     * @return 选择的编码，都不可接受时返回null
+     */
+    static String selectEncoding(String acceptEncoding) {
+        float gzip = -1;
+        float deflate = -1;
+        float any = -1;
+        for (String part : acceptEncoding.split(",")) {
+            String token = part.trim();
+            float q = 1;
+            int semicolon = token.indexOf(';');
+            if (semicolon >= 0) {
+                String param = token.substring(semicolon + 1).trim();
+                token = token.substring(0, semicolon).trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Float.parseFloat(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (GZIP.equalsIgnoreCase(token) || "x-gzip".equalsIgnoreCase(token)) {
+                gzip = Math.max(gzip, q);
+            } else if (DEFLATE.equalsIgnoreCase(token)) {
+                deflate = q;
+            } else if ("*".equals(token)) {
+                any = q;
+            }
+        }
+        if (gzip < 0) {
+            gzip = any;
+        }
+        if (deflate < 0) {
+            deflate = any;
+        }
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : null;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        switch (state) {
+            case PASS:
+                if (msg instanceof LastHttpContent) {
+                    state = State.IDLE;
+                }
+                ctx.write(msg, promise);
+                return;
+            case SKIP:
+                if (msg instanceof LastHttpContent) {
+                    state = State.IDLE;
+                }
+                ReferenceCountUtil.release(msg);
+                chain(emitted, promise);
+                return;
+            case BUFFER:
+                buffer(ctx, msg, promise);
+                return;
+            case STREAM:
+                stream(ctx, msg, promise);
+                return;
+            default:
+                break;
+        }
+        if (!(msg instanceof HttpResponse)) {
+            ctx.write(msg, promise);
+            return;
+        }
+        HttpResponse response = (HttpResponse) msg;
+        if (response.status().codeClass() == HttpStatusClass.INFORMATIONAL) {
+            // 100 Continue等临时响应不对应请求的最终响应
+            ctx.write(msg, promise);
+            return;
+        }
+        RequestInfo request = requests.poll();
+        String selected = select(response, request);
+        if (response instanceof FullHttpResponse) {
+            writeFull(ctx, (FullHttpResponse) response, request, selected, promise);
+        } else {
+            writeHead(ctx, response, request, selected, promise);
+        }
+    }
+
+    /**
+     * 判断响应是否压缩
+     *
+     * Content-Type可压缩的响应都会加上 Vary: Accept-Encoding，
+     * 即使本次未压缩，共享缓存也需要按编码区分。
+     *
+     * @return 使用的编码，不压缩时返回null
+     */
+    private String select(HttpResponse response, RequestInfo request) {
+        int code = response.status().code();
+        if (code == 204 || code == 206 || code == 304) {
+            return null;
+        }
+        HttpHeaders headers = response.headers();
+        if (headers.contains(HttpHeaderNames.CONTENT_ENCODING)
+                || !options.isCompressible(headers.get(HttpHeaderNames.CONTENT_TYPE))) {
+            return null;
+        }
+        if (!headers.containsValue(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING, true)) {
+            headers.add(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+        }
+        return request != null ? request.encoding : null;
+    }
+
+    /**
+     * 生成缓存键，只有带ETag且允许存储的响应才会缓存
+     */
+    private String cacheKey(HttpResponse response, RequestInfo request, String encoding) {
+        if (cache == null) {
+            return null;
+        }
+        HttpHeaders headers = response.headers();
+        String etag = headers.get(HttpHeaderNames.ETAG);
+        if (etag == null || headers.containsValue(HttpHeaderNames.CACHE_CONTROL, HttpHeaderValues.NO_STORE, true)) {
+            return null;
+        }
+        return CompressionCache.key(request.uri, etag, encoding);
+    }
+
+    /**
+     * 在响应头中标记编码
+     *
+     * @param length 压缩后的长度，为-1时表示分块传输
+     */
+    private static void markEncoded(HttpResponse response, String encoding, long length) {
+        HttpHeaders headers = response.headers();
+        headers.set(HttpHeaderNames.CONTENT_ENCODING, encoding);
+        if (length >= 0) {
+            headers.set(HttpHeaderNames.CONTENT_LENGTH, length);
+        } else {
+            headers.remove(HttpHeaderNames.CONTENT_LENGTH);
+        }
+        String etag = headers.get(HttpHeaderNames.ETAG);
+        if (etag != null && !etag.startsWith("W/")) {
+            headers.set(HttpHeaderNames.ETAG, "W/" + etag);
+        }
+    }
+
+    /**
+     * 压缩完整响应
+     */
+    private void writeFull(ChannelHandlerContext ctx, FullHttpResponse response, RequestInfo request,
+                           String encoding, ChannelPromise promise) {
+        ByteBuf content = response.content();
+        if (encoding == null || content.readableBytes() < options.getMinSize()) {
+            ctx.write(response, promise);
+            return;
+        }
+        ByteBuf compressed;
+        try {
+            String key = cacheKey(response, request, encoding);
+            compressed = key != null ? cache.get(key) : null;
+            if (compressed == null) {
+                compressed = ContentCompressor.compress(ctx.alloc(), content, encoding, options.getLevel());
+                if (key != null) {
+                    cache.put(key, compressed);
+                }
+            }
+        } catch (Throwable t) {
+            response.release();
+            promise.setFailure(t);
+            return;
+        }
+        FullHttpResponse encoded = response.replace(compressed);
+        response.release();
+        markEncoded(encoded, encoding, compressed.readableBytes());
+        ctx.write(encoded, promise);
+    }
+
+    /**
+     * 处理流式响应的响应头，决定后续内容的处理方式
+     */
+    private void writeHead(ChannelHandlerContext ctx, HttpResponse response, RequestInfo request,
+                           String encoding, ChannelPromise promise) {
+        if (encoding == null) {
+            state = State.PASS;
+            ctx.write(response, promise);
+            return;
+        }
+        long length = HttpUtil.getContentLength(response, -1L);
+        if (length < 0) {
+            // 长度未知：逐块压缩
+            compressor = ContentCompressor.streaming(encoding, options.getLevel());
+            markEncoded(response, encoding, -1);
+            state = State.STREAM;
+            ctx.write(response, promise);
+            return;
+        }
+        if (length < options.getMinSize() || length > MAX_BUFFERED_SIZE) {
+            state = State.PASS;
+            ctx.write(response, promise);
+            return;
+        }
+        String key = cacheKey(response, request, encoding);
+        ByteBuf cached = key != null ? cache.get(key) : null;
+        if (cached != null) {
+            // 直接发送缓存的压缩结果，丢弃随后写入的原始内容
+            markEncoded(response, encoding, cached.readableBytes());
+            ctx.write(response, promise);
+            emitted = ctx.write(new DefaultLastHttpContent(cached));
+            state = State.SKIP;
+            return;
+        }
+        this.head = response;
+        this.encoding = encoding;
+        this.cacheKey = key;
+        this.body = ctx.alloc().ioBuffer((int) length);
+        this.pending = new ArrayList<>();
+        pending.add(promise);
+        state = State.BUFFER;
+    }
+
+    /**
+     * 缓冲已知长度的响应体，收到最后一块后整体压缩发送
+     */
+    private void buffer(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        pending.add(promise);
+        try {
+            append(msg, body);
+        } catch (Throwable t) {
+            reset(t);
+            ctx.close();
+            return;
+        } finally {
+            ReferenceCountUtil.release(msg);
+        }
+        if (!(msg instanceof LastHttpContent)) {
+            return;
+        }
+        ByteBuf compressed;
+        try {
+            compressed = ContentCompressor.compress(ctx.alloc(), body, encoding, options.getLevel());
+        } catch (Throwable t) {
+            reset(t);
+            ctx.close();
+            return;
+        }
+        if (cacheKey != null) {
+            cache.put(cacheKey, compressed);
+        }
+        HttpResponse response = head;
+        List<ChannelPromise> promises = pending;
+        markEncoded(response, encoding, compressed.readableBytes());
+        reset(null);
+        ctx.write(response);
+        ChannelFuture future = ctx.write(new DefaultLastHttpContent(compressed));
+        for (ChannelPromise p : promises) {
+            chain(future, p);
+        }
+    }
+
+    /**
+     * 逐块压缩长度未知的响应体
+     */
+    private void stream(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        boolean last = msg instanceof LastHttpContent;
+        try {
+            if (msg instanceof FileRegion) {
+                streamRegion(ctx, (FileRegion) msg, promise);
+                return;
+            }
+            ByteBuf in = content(msg);
+            if (in == null) {
+                ctx.write(ReferenceCountUtil.retain(msg), promise);
+                return;
+            }
+            if (last) {
+                ByteBuf out = compressor.finish(ctx.alloc(), in);
+                compressor = null;
+                state = State.IDLE;
+                LastHttpContent encoded = new DefaultLastHttpContent(out);
+                encoded.trailingHeaders().set(((LastHttpContent) msg).trailingHeaders());
+                ctx.write(encoded, promise);
+            } else {
+                ctx.write(new DefaultHttpContent(compressor.encode(ctx.alloc(), in)), promise);
+            }
+        } catch (Throwable t) {
+            reset(t);
+            promise.tryFailure(t);
+            ctx.close();
+        } finally {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    /**
+     * 分段读取文件内容并压缩，避免把整个文件读入内存
+     */
+    private void streamRegion(ChannelHandlerContext ctx, FileRegion region, ChannelPromise promise) throws IOException {
+        ByteBuf chunk = ctx.alloc().ioBuffer(REGION_CHUNK_SIZE);
+        try {
+            ChannelFuture future = null;
+            while (region.transferred() < region.count()) {
+                chunk.clear();
+                transfer(region, chunk, REGION_CHUNK_SIZE);
+                future = ctx.write(new DefaultHttpContent(compressor.encode(ctx.alloc(), chunk)));
+            }
+            if (future != null) {
+                chain(future, promise);
+            } else {
+                promise.trySuccess();
+            }
+        } finally {
+            chunk.release();
+        }
+    }
+
+    /**
+     * 把一条消息的内容追加到缓冲区
+     */
+    private static void append(Object msg, ByteBuf target) throws IOException {
+        if (msg instanceof FileRegion) {
+            FileRegion region = (FileRegion) msg;
+            transfer(region, target, region.count() - region.transferred());
+        } else {
+            ByteBuf in = content(msg);
+            if (in != null) {
+                target.writeBytes(in, in.readerIndex(), in.readableBytes());
+            }
+        }
+    }
+
+    /**
+     * 从FileRegion读取最多limit字节到缓冲区
+     */
+    private static void transfer(FileRegion region, ByteBuf target, long limit) throws IOException {
+        long end = Math.min(region.count(), region.transferred() + limit);
+        BoundedChannel channel = new BoundedChannel(target, end - region.transferred());
+        while (region.transferred() < end) {
+            if (region.transferTo(channel, region.transferred()) <= 0) {
+                throw new IOException("File is shorter than the declared region");
+            }
+        }
+    }
+
+    /**
+     * 获取消息中的字节内容
+     */
+    private static ByteBuf content(Object msg) {
+        if (msg instanceof ByteBuf) {
+            return (ByteBuf) msg;
+        }
+        if (msg instanceof ByteBufHolder) {
+            return ((ByteBufHolder) msg).content();
+        }
+        return null;
+    }
+
+    /**
+     * 源写入完成时完成目标promise
+     */
+    private static void chain(ChannelFuture source, ChannelPromise target) {
+        source.addListener(f -> {
+            if (f.isSuccess()) {
+                target.trySuccess();
+            } else {
+                target.tryFailure(f.cause());
+            }
+        });
+    }
+
+    /**
+     * 丢弃当前响应的处理状态
+     *
+     * @param cause 不为null时以该异常结束等待中的写入
+     */
+    private void reset(Throwable cause) {
+        if (body != null) {
+            body.release();
+            body = null;
+        }
+        if (compressor != null) {
+            compressor.end();
+            compressor = null;
+        }
+        if (pending != null && cause != null) {
+            for (ChannelPromise p : pending) {
+                p.tryFailure(cause);
+            }
+        }
+        if (head != null) {
+            ReferenceCountUtil.release(head);
+            head = null;
+        }
+        pending = null;
+        encoding = null;
+        cacheKey = null;
+        emitted = null;
+        state = State.IDLE;
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        reset(new IOException("Compression handler removed"));
+        requests.clear();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        reset(new IOException("Channel closed"));
+        requests.clear();
+        super.channelInactive(ctx);
+    }
+
+    /**
+     * 请求中与压缩相关的信息
+     */
+    private static final class RequestInfo {
+        /** 请求URI（缓存键的一部分） */
+        final String uri;
+        /** 协商出的编码，不压缩时为null */
+        final String encoding;
+
+        RequestInfo(String uri, String encoding) {
+            this.uri = uri;
+            this.encoding = encoding;
+        }
+    }
+
+    /**
+     * 把FileRegion的输出写入ByteBuf的通道，最多接受指定字节数
+     */
+    private static final class BoundedChannel implements WritableByteChannel {
+        private final ByteBuf target;
+        private long remaining;
+
+        BoundedChannel(ByteBuf target, long limit) {
+            this.target = target;
+            this.remaining = limit;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            int n = (int) Math.min(src.remaining(), remaining);
+            ByteBuffer slice = src.duplicate();
+            slice.limit(slice.position() + n);
+            target.writeBytes(slice);
+            src.position(src.position() + n);
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
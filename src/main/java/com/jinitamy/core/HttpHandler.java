@@ -1,37 +1,74 @@
 package com.jinitamy.core;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.*;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ScheduledFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.charset.StandardCharsets;
+import java.nio.channels.ClosedChannelException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * HTTP请求处理器
  * 
  * 该类是Netty的ChannelHandler实现，负责：
- * 1. 接收HTTP请求
+ * 1. 接收HTTP请求头和请求体
  * 2. 路由匹配
  * 3. 中间件链执行
  * 4. 响应发送
  * 5. 异常处理
  * 
  * 处理流程：
- * 1. 接收HTTP请求
- * 2. 创建请求上下文
- * 3. 查找匹配的路由处理器
- * 4. 构建中间件链
- * 5. 执行处理链
- * 6. 发送响应
+ * 1. 收到请求头后创建请求上下文并查找匹配的路由
+ * 2. 聚合模式（默认）：按路由的大小限制缓存请求体，超出限制返回413，
+ *    接收完毕后按执行模式在事件循环或阻塞任务执行器上执行路由预组合的处理链
+ * 3. 流式模式：立即执行处理链，请求体逐块交给处理器注册的 {@link BodyListener}，
+ *    接收完毕后发送响应
+ * 4. 补全Content-Length和Connection头，在通道所属的事件循环上发送响应；
+ *    处理器调用了 {@link Context#stream()} 时响应由 {@link ResponseStream} 分块发送，
+ *    交出了异步处理（{@link AsyncHandler}）时在其完成后发送
+ * 5. 根据keep-alive语义决定是否关闭连接
+ * 
+ * 每个连接对应一个实例，同一时刻只有一个请求在接收请求体。
+ * 响应需要在channelRead返回后才能发出时（阻塞模式、未结束的流式响应、异步处理），该连接暂停读取，
+ * 已经解码的后续流水线请求进入队列，响应发出后按到达顺序重放，保证响应顺序与请求顺序一致。
  */
-public class HttpHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+public class HttpHandler extends SimpleChannelInboundHandler<HttpObject> {
     /** 日志记录器 */
     private static final Logger logger = LoggerFactory.getLogger(HttpHandler.class);
+    /** 聚合请求体时组合缓冲区的最大分段数 */
+    private static final int MAX_BODY_COMPONENTS = 1024;
     /** Web引擎实例 */
     private final Engine engine;
+    /** 运行指标，未启用时为null */
+    private final Metrics metrics;
+    /** 准入控制，未启用时为null */
+    private final AdmissionControl admission;
+    /** 是否回收请求上下文 */
+    private final boolean recycleContext;
+    /** 正在接收请求体的请求，为null时等待下一个请求头 */
+    private InboundRequest inbound;
+    /** 等待异步处理完成的请求，为null时没有（后续请求在其完成前排队，同一时刻最多一个） */
+    private PendingRequest pending;
+    /** 当前请求的响应是否尚未发出，为true时后续的请求进入队列 */
+    private boolean suspended;
+    /** 是否正在重放队列中的消息 */
+    private boolean draining;
+    /** 响应发出前到达的后续请求的消息，按到达顺序保存 */
+    private final ArrayDeque<HttpObject> queued = new ArrayDeque<>();
 
     /**
      * 创建HTTP处理器
@@ -40,73 +77,582 @@ public class HttpHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
      */
     public HttpHandler(Engine engine) {
         this.engine = engine;
+        this.metrics = engine.getMetrics();
+        this.admission = engine.getAdmissionControl();
+        this.recycleContext = engine.isContextRecycling();
     }
 
     /**
-     * 处理接收到的HTTP请求
+     * 处理接收到的HTTP消息
      * 
-     * 该方法实现了完整的请求处理流程：
-     * 1. 创建响应对象
-     * 2. 创建请求上下文
-     * 3. 查找路由处理器
-     * 4. 构建中间件链
-     * 5. 执行处理链
-     * 6. 发送响应
+     * 完整的请求（FullHttpRequest）按请求头和最后一块请求体依次处理。
+     * 当前请求的响应尚未发出时，消息保留引用后进入队列，等待响应发出后重放。
      * 
      * @param ctx Netty通道上下文
-     * @param request HTTP请求对象
+     * @param msg HTTP请求头或请求体数据块
      */
     @Override
-    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
-        // 创建响应对象
+    protected void channelRead0(ChannelHandlerContext ctx, HttpObject msg) {
+        if (suspended || draining || !queued.isEmpty()) {
+            queued.add(ReferenceCountUtil.retain(msg));
+            return;
+        }
+        read(ctx, msg);
+    }
+
+    /**
+     * 处理一个HTTP消息
+     * 
+     * @param ctx Netty通道上下文
+     * @param msg HTTP请求头或请求体数据块
+     */
+    private void read(ChannelHandlerContext ctx, HttpObject msg) {
+        if (msg.decoderResult().isFailure()) {
+            discardInbound();
+            if (msg instanceof HttpRequest) {
+                sendErrorAndClose(ctx, (HttpRequest) msg, HttpResponseStatus.BAD_REQUEST);
+            } else {
+                ctx.close();
+            }
+            return;
+        }
+        if (msg instanceof HttpRequest) {
+            discardInbound();
+            onRequestHead(ctx, (HttpRequest) msg);
+        }
+        if (msg instanceof HttpContent && inbound != null) {
+            onContent(ctx, (HttpContent) msg);
+        }
+    }
+
+    /**
+     * 暂停处理后续的请求，直到 {@link #resume} 被调用
+     * 
+     * @param ctx Netty通道上下文
+     */
+    private void suspend(ChannelHandlerContext ctx) {
+        suspended = true;
+        ctx.channel().config().setAutoRead(false);
+    }
+
+    /**
+     * 当前请求的响应已经发出，按顺序重放队列中的消息并恢复读取
+     * 
+     * 重放的请求可能再次暂停处理，剩余的消息继续留在队列中。
+     * 
+     * @param ctx Netty通道上下文
+     */
+    private void resume(ChannelHandlerContext ctx) {
+        suspended = false;
+        if (draining) {
+            // 在重放过程中结束的请求，由外层的循环继续重放
+            return;
+        }
+        draining = true;
+        try {
+            HttpObject msg;
+            while (!suspended && ctx.channel().isActive() && (msg = queued.poll()) != null) {
+                try {
+                    read(ctx, msg);
+                } catch (Exception e) {
+                    exceptionCaught(ctx, e);
+                } finally {
+                    ReferenceCountUtil.release(msg);
+                }
+            }
+        } finally {
+            draining = false;
+        }
+        if (!suspended) {
+            ctx.channel().config().setAutoRead(true);
+        }
+    }
+
+    /**
+     * 处理请求头
+     * 
+     * 1. 创建响应对象和请求上下文
+     * 2. 查找路由，未找到时按路径上注册的其他方法返回405或自动回复OPTIONS，都没有时返回404，并丢弃请求体
+     * 3. 申请准入许可，达到全局或路由的并发上限时返回503并丢弃请求体
+     * 4. 流式路由立即执行处理链
+     * 5. 聚合路由检查声明的Content-Length是否超出限制
+     * 6. 需要时回复 100 Continue
+     * 
+     * @param ctx Netty通道上下文
+     * @param head HTTP请求头
+     */
+    private void onRequestHead(ChannelHandlerContext ctx, HttpRequest head) {
+        // 在请求体到达前，处理器看到的是只包含请求头的请求对象
+        FullHttpRequest request = head instanceof FullHttpRequest
+                ? (FullHttpRequest) head
+                : new DefaultFullHttpRequest(head.protocolVersion(), head.method(), head.uri(),
+                        Unpooled.EMPTY_BUFFER, head.headers(), EmptyHttpHeaders.INSTANCE);
+
+        // 创建响应对象，响应体使用通道的池化直接内存，写出时无需再拷贝
         FullHttpResponse response = new DefaultFullHttpResponse(
                 HttpVersion.HTTP_1_1,
                 HttpResponseStatus.OK,
-                Unpooled.buffer()
+                ctx.alloc().ioBuffer()
         );
 
-        // 创建上下文
-        Context context = new Context(request, response);
+        // 创建上下文（启用回收时从事件循环的对象池获取）
+        Context context = recycleContext ? Context.newInstance(request, response) : new Context(request, response);
+        context.attach(ctx);
+        context.setTemplateEngine(engine.getTemplateEngine());
 
-        try {
-            // 查找路由处理器
-            Handler handler = engine.getRouter().getRoute(request.method(), request.uri(), context);
-            
-            if (handler == null) {
-                sendError(ctx, HttpResponseStatus.NOT_FOUND);
+        // 查找路由
+        Route route = engine.getRouter().match(head.method(), context.getPath(), context);
+        context.setRoute(route);
+        beginMetrics(context, route);
+        InboundRequest in = new InboundRequest(head, context, route);
+        inbound = in;
+
+        if (route == null) {
+            String allow = engine.getRouter().allowedMethods(context.getPath());
+            if (allow == null) {
+                reject(ctx, in, HttpResponseStatus.NOT_FOUND);
+            } else if (HttpMethod.OPTIONS.equals(head.method())) {
+                replyOptions(ctx, in, allow);
+            } else {
+                reject(ctx, in, HttpResponseStatus.METHOD_NOT_ALLOWED, allow);
+            }
+            return;
+        }
+        if (!admit(context, route)) {
+            reject(ctx, in, HttpResponseStatus.SERVICE_UNAVAILABLE);
+            return;
+        }
+
+        if (route.getOptions().isStreaming()) {
+            in.streaming = true;
+            sendContinueIfExpected(ctx, head);
+            try {
+                route.getPipeline().handle(context);
+            } catch (Exception e) {
+                logger.error("Request processing error", e);
+                reject(ctx, in, HttpResponseStatus.INTERNAL_SERVER_ERROR);
                 return;
             }
+            // 未注册监听器：处理器不需要请求体，立即响应
+            if (context.getBodyListener() == null) {
+                in.discard = true;
+                in.responded = true;
+                complete(ctx, head, context);
+            }
+            return;
+        }
+
+        in.maxContentLength = resolveMaxContentLength(route);
+        if (HttpUtil.getContentLength(head, -1L) > in.maxContentLength) {
+            reject(ctx, in, HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE);
+            return;
+        }
+        sendContinueIfExpected(ctx, head);
+    }
+
+    /**
+     * 处理请求体数据块
+     * 
+     * @param ctx Netty通道上下文
+     * @param content 请求体数据块
+     */
+    private void onContent(ChannelHandlerContext ctx, HttpContent content) {
+        InboundRequest in = inbound;
+        boolean last = content instanceof LastHttpContent;
+        if (last) {
+            inbound = null;
+        }
+        if (in.discard) {
+            return;
+        }
+        if (in.streaming) {
+            onStreamingContent(ctx, in, content, last);
+            return;
+        }
 
-            // 构建中间件链
-            Handler finalHandler = (Context c) -> {
-                handler.handle(c);
-                writeResponse(ctx, c.getResponse());
-            };
+        ByteBuf chunk = content.content();
+        // 一次性到达的完整请求无需再聚合
+        if (content == in.head) {
+            if (chunk.readableBytes() > in.maxContentLength) {
+                reject(ctx, in, HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE);
+            } else {
+                in.responded = true;
+                dispatch(ctx, in.route, in.context, (FullHttpRequest) content);
+            }
+            return;
+        }
 
-            // 从后往前包装中间件
-            for (int i = engine.getMiddlewares().size() - 1; i >= 0; i--) {
-                Middleware m = engine.getMiddlewares().get(i);
-                Handler next = finalHandler;
-                finalHandler = (Context c) -> m.handle(c, next);
+        in.received += chunk.readableBytes();
+        if (in.received > in.maxContentLength) {
+            // 分块传输时无法预知长度，剩余的请求体可能很大，直接关闭连接
+            in.discard = true;
+            in.release();
+            finish(in.context, HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE.code());
+            sendErrorAndClose(ctx, in.head, HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE);
+            return;
+        }
+        if (chunk.isReadable()) {
+            if (in.body == null) {
+                in.body = ctx.alloc().compositeBuffer(MAX_BODY_COMPONENTS);
             }
+            in.body.addComponent(true, chunk.retain());
+        }
+        if (!last) {
+            return;
+        }
 
-            // 执行处理链
-            finalHandler.handle(context);
+        HttpRequest head = in.head;
+        ByteBuf body = in.body != null ? in.body : Unpooled.EMPTY_BUFFER;
+        in.body = null;
+        FullHttpRequest request = new DefaultFullHttpRequest(head.protocolVersion(), head.method(), head.uri(),
+                body, head.headers(), ((LastHttpContent) content).trailingHeaders());
+        if (HttpUtil.isTransferEncodingChunked(request)) {
+            HttpUtil.setTransferEncodingChunked(request, false);
+            HttpUtil.setContentLength(request, body.readableBytes());
+        }
+        in.context.setRequest(request);
+        in.responded = true;
+        try {
+            dispatch(ctx, in.route, in.context, request);
+        } finally {
+            request.release();
+        }
+    }
+
+    /**
+     * 将请求体数据块交给流式路由的监听器
+     * 
+     * @param ctx Netty通道上下文
+     * @param in 正在接收的请求
+     * @param content 请求体数据块
+     * @param last 是否为最后一块
+     */
+    private void onStreamingContent(ChannelHandlerContext ctx, InboundRequest in, HttpContent content, boolean last) {
+        Context context = in.context;
+        BodyListener listener = context.getBodyListener();
+        try {
+            ByteBuf chunk = content.content();
+            if (chunk.isReadable()) {
+                listener.onData(context, chunk);
+            }
+            if (last) {
+                listener.onComplete(context);
+                ctx.channel().config().setAutoRead(true);
+                in.responded = true;
+                complete(ctx, in.head, context);
+            }
+        } catch (Exception e) {
+            logger.error("Request body processing error", e);
+            ctx.channel().config().setAutoRead(true);
+            reject(ctx, in, HttpResponseStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * 执行处理链并发送响应
+     * 
+     * @param ctx Netty通道上下文
+     * @param route 匹配的路由
+     * @param context 请求上下文
+     * @param request 完整的HTTP请求对象
+     */
+    private void dispatch(ChannelHandlerContext ctx, Route route, Context context, FullHttpRequest request) {
+        try {
+            // 阻塞模式：派发到阻塞任务执行器，避免占用事件循环
+            if (resolveExecutionMode(route) == ExecutionMode.BLOCKING) {
+                dispatchBlocking(ctx, route, context, request);
+                return;
+            }
+
+            // 执行预组合的处理链（中间件未调用next时同样发送其设置的响应）
+            route.getPipeline().handle(context);
+            complete(ctx, request, context);
 
         } catch (Exception e) {
             logger.error("Request processing error", e);
-            sendError(ctx, HttpResponseStatus.INTERNAL_SERVER_ERROR);
+            fail(ctx, request, context, HttpResponseStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * 发送处理链设置的响应
+     * 
+     * 已开始流式发送时响应由 {@link ResponseStream} 负责发送，
+     * 流式响应结束前暂停处理该连接的后续请求，避免其响应混入分块响应中。
+     * 处理器交出了异步处理时先等待其完成。
+     * 
+     * @param ctx Netty通道上下文
+     * @param request HTTP请求对象
+     * @param context 请求上下文
+     */
+    private void complete(ChannelHandlerContext ctx, HttpRequest request, Context context) {
+        CompletionStage<?> deferred = context.takeDeferred();
+        if (deferred != null) {
+            awaitDeferred(ctx, request, context, deferred);
+            return;
+        }
+        ResponseStream stream = context.getResponseStream();
+        if (stream == null) {
+            finish(context, context.getResponse().status().code());
+            writeResponse(ctx, request, context.getResponse());
+            recycle(context);
+        } else if (!stream.isClosed()) {
+            suspend(ctx);
+            // closeFuture是通道的Promise，监听器在通道的事件循环上执行
+            stream.closeFuture().addListener(future -> {
+                finish(context, context.getResponse().status().code());
+                resume(ctx);
+            });
+        } else {
+            finish(context, context.getResponse().status().code());
+        }
+    }
+
+    /**
+     * 处理链执行失败时发送错误响应
+     * 
+     * 已开始流式发送时响应头已经发出，只能中止响应并关闭连接。
+     * 
+     * @param ctx Netty通道上下文
+     * @param request HTTP请求对象
+     * @param context 请求上下文
+     * @param status HTTP错误状态码
+     */
+    private void fail(ChannelHandlerContext ctx, HttpRequest request, Context context, HttpResponseStatus status) {
+        finish(context, status.code());
+        ResponseStream stream = context.getResponseStream();
+        if (stream != null) {
+            stream.abort();
+            return;
+        }
+        releaseResponse(context);
+        sendError(ctx, request, status);
+        recycle(context);
+    }
+
+    /**
+     * 拒绝请求并丢弃剩余的请求体
+     * 
+     * 客户端在等待 100 Continue 时不会发送请求体，此时关闭连接以免后续数据错位。
+     * 
+     * @param ctx Netty通道上下文
+     * @param in 正在接收的请求
+     * @param status HTTP错误状态码
+     */
+    private void reject(ChannelHandlerContext ctx, InboundRequest in, HttpResponseStatus status) {
+        reject(ctx, in, status, null);
+    }
+
+    /**
+     * 拒绝请求并在错误响应中附带Allow头
+     * 
+     * @param ctx Netty通道上下文
+     * @param in 正在接收的请求
+     * @param status HTTP错误状态码
+     * @param allow Allow头的值，为null时不设置
+     */
+    private void reject(ChannelHandlerContext ctx, InboundRequest in, HttpResponseStatus status, String allow) {
+        finish(in.context, status.code());
+        in.discard = true;
+        in.release();
+        ResponseStream stream = in.context.getResponseStream();
+        if (stream != null) {
+            stream.abort();
+            return;
+        }
+        FullHttpResponse response = errorResponse(ctx, status);
+        if (allow != null) {
+            response.headers().set(HttpHeaderNames.ALLOW, allow);
+        }
+        if (!(in.head instanceof LastHttpContent) && HttpUtil.is100ContinueExpected(in.head)) {
+            response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+        }
+        writeResponse(ctx, in.head, response);
+        recycle(in.context);
+    }
+
+    /**
+     * 自动回复没有注册处理器的OPTIONS请求
+     * 
+     * @param ctx Netty通道上下文
+     * @param in 正在接收的请求
+     * @param allow 路径上注册的方法
+     */
+    private void replyOptions(ChannelHandlerContext ctx, InboundRequest in, String allow) {
+        finish(in.context, HttpResponseStatus.OK.code());
+        in.discard = true;
+        in.release();
+        FullHttpResponse response = new DefaultFullHttpResponse(
+                HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.EMPTY_BUFFER);
+        response.headers().set(HttpHeaderNames.ALLOW, allow);
+        if (!(in.head instanceof LastHttpContent) && HttpUtil.is100ContinueExpected(in.head)) {
+            response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+        }
+        writeResponse(ctx, in.head, response);
+        recycle(in.context);
+    }
+
+    /**
+     * 客户端携带 Expect: 100-continue 时回复 100 Continue
+     * 
+     * @param ctx Netty通道上下文
+     * @param head HTTP请求头
+     */
+    private static void sendContinueIfExpected(ChannelHandlerContext ctx, HttpRequest head) {
+        if (!(head instanceof LastHttpContent) && HttpUtil.is100ContinueExpected(head)) {
+            ctx.writeAndFlush(new DefaultFullHttpResponse(
+                    HttpVersion.HTTP_1_1, HttpResponseStatus.CONTINUE, Unpooled.EMPTY_BUFFER));
+            head.headers().remove(HttpHeaderNames.EXPECT);
+        }
+    }
+
+    /**
+     * 获取路由的请求体大小限制
+     * 
+     * @param route 匹配的路由
+     * @return 路由单独指定的限制，未指定时为全局限制
+     */
+    private long resolveMaxContentLength(Route route) {
+        long limit = route.getOptions().getMaxContentLength();
+        return limit >= 0 ? limit : engine.getMaxContentLength();
+    }
+
+    /**
+     * 确定路由的执行模式
+     * 
+     * @param route 匹配的路由
+     * @return 路由单独指定的执行模式，未指定时为全局执行模式
+     */
+    private ExecutionMode resolveExecutionMode(Route route) {
+        ExecutionMode mode = route.getOptions().getExecutionMode();
+        return mode != null ? mode : engine.getExecutionMode();
+    }
+
+    /**
+     * 在阻塞任务执行器上执行处理链
+     * 
+     * 处理期间暂停处理该连接的后续请求（已解码的请求进入队列），保证响应顺序；
+     * 处理完成后回到通道的事件循环上发送响应，再处理排队的请求。
+     * 执行器拒绝任务，或任务开始执行时已超过准入控制的排队期限时返回503。
+     * 
+     * @param ctx Netty通道上下文
+     * @param route 匹配的路由
+     * @param context 请求上下文
+     * @param request HTTP请求对象
+     */
+    private void dispatchBlocking(ChannelHandlerContext ctx, Route route, Context context, FullHttpRequest request) {
+        // 请求在channelRead0返回后会被释放，跨线程使用前需要保留引用
+        request.retain();
+        suspend(ctx);
+        long queuedNanos = System.nanoTime();
+        try {
+            engine.getBlockingExecutor().execute(() -> {
+                // 排队超过期限的请求不再执行处理器
+                boolean expired = admission != null && admission.isExpired(queuedNanos);
+                Exception failure = null;
+                if (!expired) {
+                    try {
+                        route.getPipeline().handle(context);
+                    } catch (Exception e) {
+                        failure = e;
+                    }
+                }
+                Exception error = failure;
+                try {
+                    ctx.executor().execute(() -> {
+                        // 处理链已经返回，流式响应会在complete中重新暂停
+                        suspended = false;
+                        try {
+                            if (expired) {
+                                releaseResponse(context);
+                                finish(context, HttpResponseStatus.SERVICE_UNAVAILABLE.code());
+                                sendError(ctx, request, HttpResponseStatus.SERVICE_UNAVAILABLE);
+                                recycle(context);
+                            } else if (error != null) {
+                                logger.error("Request processing error", error);
+                                fail(ctx, request, context, HttpResponseStatus.INTERNAL_SERVER_ERROR);
+                            } else {
+                                complete(ctx, request, context);
+                            }
+                        } finally {
+                            request.release();
+                            // 未结束的流式响应和异步处理在结束时才恢复读取
+                            if (!suspended) {
+                                resume(ctx);
+                            }
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // 事件循环已经关闭，连接随之关闭，在工作线程上释放请求和响应
+                    logger.warn("Event loop rejected the result of request {}", request.uri());
+                    request.release();
+                    releaseResponse(context);
+                    finish(context, 0);
+                    recycle(context);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Blocking executor rejected request {}", request.uri());
+            request.release();
+            releaseResponse(context);
+            finish(context, HttpResponseStatus.SERVICE_UNAVAILABLE.code());
+            sendError(ctx, request, HttpResponseStatus.SERVICE_UNAVAILABLE);
+            recycle(context);
+            resume(ctx);
         }
     }
 
     /**
      * 发送HTTP响应
      * 
+     * 发送前统一补全响应头：
+     * 1. 根据响应体计算Content-Length（覆盖处理器手动设置的值），
+     *    HEAD请求保留Content-Length但丢弃响应体
+     * 2. 根据请求的HTTP版本和Connection头判断是否保持连接，
+     *    处理器也可以通过设置 Connection: close 强制关闭连接
+     * 3. HTTP/1.0 的keep-alive请求需要显式返回 Connection: keep-alive
+     * 
      * @param ctx Netty通道上下文
+     * @param request HTTP请求对象
      * @param response HTTP响应对象
      */
-    private void writeResponse(ChannelHandlerContext ctx, FullHttpResponse response) {
-        ctx.writeAndFlush(response);
+    private void writeResponse(ChannelHandlerContext ctx, HttpRequest request, FullHttpResponse response) {
+        HttpHeaders headers = response.headers();
+        if (!HttpUtil.isTransferEncodingChunked(response)) {
+            HttpUtil.setContentLength(response, response.content().readableBytes());
+        }
+        if (HttpMethod.HEAD.equals(request.method()) && response.content().isReadable()) {
+            FullHttpResponse empty = response.replace(Unpooled.EMPTY_BUFFER);
+            response.release();
+            response = empty;
+        }
+
+        boolean keepAlive = prepareKeepAlive(request, response);
+        ChannelFuture future = ctx.writeAndFlush(response);
+        if (!keepAlive) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    /**
+     * 根据keep-alive语义设置响应的Connection头
+     * 
+     * @param request HTTP请求对象
+     * @param response HTTP响应头
+     * @return 发送响应后是否保持连接
+     */
+    static boolean prepareKeepAlive(HttpRequest request, HttpResponse response) {
+        HttpHeaders headers = response.headers();
+        boolean keepAlive = HttpUtil.isKeepAlive(request)
+                && !headers.containsValue(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE, true);
+        if (keepAlive) {
+            if (!request.protocolVersion().isKeepAliveDefault()) {
+                headers.set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+            }
+        } else {
+            headers.set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+        }
+        return keepAlive;
     }
 
     /**
@@ -116,15 +662,276 @@ public class HttpHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
      * 发送带有错误状态码的响应。
      * 
      * @param ctx Netty通道上下文
+     * @param request HTTP请求对象
+     * @param status HTTP错误状态码
+     */
+    private void sendError(ChannelHandlerContext ctx, HttpRequest request, HttpResponseStatus status) {
+        writeResponse(ctx, request, errorResponse(ctx, status));
+    }
+
+    /**
+     * 发送错误响应并关闭连接
+     * 
+     * @param ctx Netty通道上下文
+     * @param request HTTP请求对象
+     * @param status HTTP错误状态码
+     */
+    private void sendErrorAndClose(ChannelHandlerContext ctx, HttpRequest request, HttpResponseStatus status) {
+        FullHttpResponse response = errorResponse(ctx, status);
+        response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+        writeResponse(ctx, request, response);
+    }
+
+    /**
+     * 创建错误响应
+     * 
+     * 503只在过载时发送（准入控制拒绝、排队超时或阻塞任务执行器拒绝），
+     * 附带Retry-After提示客户端稍后重试。
+     * 
+     * @param ctx Netty通道上下文
      * @param status HTTP错误状态码
+     * @return 以状态描述为响应体的纯文本响应
      */
-    private void sendError(ChannelHandlerContext ctx, HttpResponseStatus status) {
+    private FullHttpResponse errorResponse(ChannelHandlerContext ctx, HttpResponseStatus status) {
         FullHttpResponse response = new DefaultFullHttpResponse(
                 HttpVersion.HTTP_1_1,
                 status,
-                Unpooled.copiedBuffer(status.toString(), StandardCharsets.UTF_8)
+                ByteBufUtil.writeUtf8(ctx.alloc(), status.toString())
         );
-        ctx.writeAndFlush(response);
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain; charset=UTF-8");
+        if (status.code() == HttpResponseStatus.SERVICE_UNAVAILABLE.code()) {
+            response.headers().set(HttpHeaderNames.RETRY_AFTER, admission != null ? admission.getRetryAfter() : "1");
+        }
+        return response;
+    }
+
+    /**
+     * 释放未发送的响应
+     * 
+     * 响应体来自池化分配器，未写出的响应必须显式释放，否则会造成内存泄漏。
+     * 
+     * @param context 请求上下文
+     */
+    private static void releaseResponse(Context context) {
+        FullHttpResponse response = context.getResponse();
+        if (response != null && response.refCnt() > 0) {
+            response.release();
+        }
+    }
+
+    /**
+     * 请求结束后回收上下文
+     * 
+     * 只回收同步完成的请求：开始了流式响应或交出过异步处理的上下文
+     * 可能仍被其他线程上的回调引用，交给垃圾回收器处理。
+     * 调用前响应必须已经交出（已发送或已释放），之后不能再使用该上下文。
+     * 
+     * @param context 请求上下文
+     */
+    private void recycle(Context context) {
+        if (recycleContext && context.getResponseStream() == null && context.getDeferredOrigin() == null) {
+            context.recycle();
+        }
+    }
+
+    /**
+     * 丢弃尚未接收完的请求
+     */
+    private void discardInbound() {
+        InboundRequest in = inbound;
+        if (in != null) {
+            inbound = null;
+            if (!in.responded) {
+                // 请求体未接收完就被中止，只结束正在处理的计数并归还许可
+                finish(in.context, 0);
+            }
+            in.release();
+        }
+    }
+
+    /**
+     * 记录请求开始处理
+     * 
+     * @param context 请求上下文
+     * @param route 匹配的路由，未找到时为null
+     */
+    private void beginMetrics(Context context, Route route) {
+        if (metrics != null) {
+            context.setStartNanos(System.nanoTime());
+            metrics.of(route).begin();
+        }
+    }
+
+    /**
+     * 等待异步处理完成后发送响应
+     * 
+     * 等待期间暂停处理该连接的后续请求，并保留请求对象供处理器在回调中使用。
+     * 完成回调切换回通道的事件循环执行；超时时间到达时返回503并取消异步处理。
+     * 
+     * @param ctx Netty通道上下文
+     * @param request HTTP请求对象
+     * @param context 请求上下文
+     * @param stage 异步处理
+     */
+    private void awaitDeferred(ChannelHandlerContext ctx, HttpRequest request, Context context, CompletionStage<?> stage) {
+        suspend(ctx);
+        PendingRequest p = new PendingRequest(ReferenceCountUtil.retain(request), context, stage);
+        pending = p;
+        long timeout = resolveAsyncTimeout(context.getRoute());
+        if (timeout > 0) {
+            p.timeout = ctx.executor().schedule(() -> onDeferredDone(ctx, p, null, true), timeout, TimeUnit.NANOSECONDS);
+        }
+        stage.whenComplete((result, error) -> {
+            if (ctx.executor().inEventLoop()) {
+                onDeferredDone(ctx, p, error, false);
+            } else {
+                ctx.executor().execute(() -> onDeferredDone(ctx, p, error, false));
+            }
+        });
+    }
+
+    /**
+     * 异步处理完成或超时
+     * 
+     * @param ctx Netty通道上下文
+     * @param p 等待中的请求
+     * @param error 异步处理的异常，正常完成时为null
+     * @param timedOut 是否因超时触发
+     */
+    private void onDeferredDone(ChannelHandlerContext ctx, PendingRequest p, Throwable error, boolean timedOut) {
+        if (p.done) {
+            return;
+        }
+        p.done();
+        pending = null;
+        // 处理器可能在完成前交出了新的异步处理或开始了流式响应，complete会重新暂停
+        suspended = false;
+        Context context = p.context;
+        try {
+            if (timedOut) {
+                logger.warn("Async handler timed out: {}", p.request.uri());
+                p.cancel();
+                fail(ctx, p.request, context, HttpResponseStatus.SERVICE_UNAVAILABLE);
+            } else if (error != null) {
+                logger.error("Async request processing error", error);
+                fail(ctx, p.request, context, HttpResponseStatus.INTERNAL_SERVER_ERROR);
+            } else {
+                complete(ctx, p.request, context);
+            }
+        } finally {
+            ReferenceCountUtil.release(p.request);
+            if (!suspended) {
+                resume(ctx);
+            }
+        }
+    }
+
+    /**
+     * 确定路由的异步处理超时时间
+     * 
+     * @param route 匹配的路由
+     * @return 超时时间（纳秒），为0时不限制
+     */
+    private long resolveAsyncTimeout(Route route) {
+        Duration timeout = route != null ? route.getOptions().getAsyncTimeout() : null;
+        return (timeout != null ? timeout : engine.getAsyncTimeout()).toNanos();
+    }
+
+    /**
+     * 申请准入许可
+     * 
+     * 先申请路由的许可，再申请全局许可，全局许可不足时归还已申请的路由许可。
+     * 
+     * @param context 请求上下文
+     * @param route 匹配的路由
+     * @return 准入时返回true，达到任一上限时返回false
+     */
+    private boolean admit(Context context, Route route) {
+        int routeLimit = route.getOptions().getMaxInFlight();
+        if (routeLimit == 0 && admission == null) {
+            return true;
+        }
+        if (routeLimit > 0 && !route.getMetrics().tryAdmit(routeLimit)) {
+            if (admission != null) {
+                admission.recordShed();
+            }
+            return false;
+        }
+        if (admission != null && !admission.tryAcquire()) {
+            if (routeLimit > 0) {
+                route.getMetrics().releaseAdmit();
+            }
+            admission.recordShed();
+            return false;
+        }
+        context.setAdmittedNanos(System.nanoTime());
+        return true;
+    }
+
+    /**
+     * 记录请求处理结束并归还准入许可，同一请求只记录一次
+     * 
+     * @param context 请求上下文
+     * @param status 响应状态码，为0表示请求被中止
+     */
+    private void finish(Context context, int status) {
+        if (context == null) {
+            return;
+        }
+        long admitted = context.getAdmittedNanos();
+        if (admitted != 0) {
+            context.setAdmittedNanos(0);
+            if (context.getRoute().getOptions().getMaxInFlight() > 0) {
+                context.getRoute().getMetrics().releaseAdmit();
+            }
+            if (admission != null) {
+                admission.release(admitted, status != 0);
+            }
+        }
+        long start = context.getStartNanos();
+        if (metrics != null && start != 0) {
+            context.setStartNanos(0);
+            metrics.of(context.getRoute()).end(status, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 连接关闭时释放未完成的请求
+     * 
+     * 流式路由的监听器会收到 {@link BodyListener#onError} 回调，等待中的异步处理会被取消，
+     * 排队中的后续请求被丢弃。
+     * 
+     * @param ctx Netty通道上下文
+     */
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        PendingRequest p = pending;
+        if (p != null) {
+            // 连接已关闭，取消异步处理并释放响应
+            pending = null;
+            p.done();
+            p.cancel();
+            finish(p.context, 0);
+            releaseResponse(p.context);
+            ReferenceCountUtil.release(p.request);
+        }
+        InboundRequest in = inbound;
+        if (in != null && in.streaming && !in.discard) {
+            BodyListener listener = in.context.getBodyListener();
+            if (listener != null) {
+                try {
+                    listener.onError(in.context, new ClosedChannelException());
+                } catch (Exception e) {
+                    logger.warn("Body listener failed", e);
+                }
+            }
+        }
+        discardInbound();
+        HttpObject msg;
+        while ((msg = queued.poll()) != null) {
+            ReferenceCountUtil.release(msg);
+        }
+        super.channelInactive(ctx);
     }
 
     /**
@@ -140,4 +947,99 @@ public class HttpHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
         logger.error("Channel exception", cause);
         ctx.close();
     }
-} 
\ No newline at end of file
+
+    /**
+     * 等待异步处理完成的请求
+     */
+    private static final class PendingRequest {
+        /** HTTP请求对象（等待期间保留引用） */
+        final HttpRequest request;
+        /** 请求上下文 */
+        final Context context;
+        /** 等待的异步处理 */
+        final CompletionStage<?> stage;
+        /** 超时任务，不限制时为null */
+        ScheduledFuture<?> timeout;
+        /** 是否已经完成、超时或被取消 */
+        boolean done;
+
+        PendingRequest(HttpRequest request, Context context, CompletionStage<?> stage) {
+            this.request = request;
+            this.context = context;
+            this.stage = stage;
+        }
+
+        /**
+         * 标记为已结束并取消超时任务
+         */
+        void done() {
+            done = true;
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+        }
+
+        /**
+         * 取消异步处理，包括中间件包装前处理器交出的Stage
+         */
+        void cancel() {
+            cancel(stage);
+            cancel(context.getDeferredOrigin());
+        }
+
+        private static void cancel(CompletionStage<?> stage) {
+            if (stage == null) {
+                return;
+            }
+            try {
+                stage.toCompletableFuture().cancel(true);
+            } catch (UnsupportedOperationException e) {
+                // 不支持转换为CompletableFuture的实现无法取消
+            }
+        }
+    }
+
+    /**
+     * 正在接收请求体的请求状态
+     */
+    private static final class InboundRequest {
+        /** HTTP请求头 */
+        final HttpRequest head;
+        /** 请求上下文 */
+        final Context context;
+        /** 匹配的路由，未找到时为null */
+        final Route route;
+        /** 是否以流式方式接收 */
+        boolean streaming;
+        /** 是否丢弃剩余的请求体（请求已被拒绝或已响应） */
+        boolean discard;
+        /** 聚合模式下请求体的最大字节数 */
+        long maxContentLength;
+        /** 已接收的字节数 */
+        long received;
+        /** 聚合中的请求体 */
+        CompositeByteBuf body;
+        /** 上下文中的响应是否已交出（已发送或已释放） */
+        boolean responded;
+
+        InboundRequest(HttpRequest head, Context context, Route route) {
+            this.head = head;
+            this.context = context;
+            this.route = route;
+        }
+
+        /**
+         * 释放聚合中的请求体和未发送的响应
+         */
+        void release() {
+            if (body != null) {
+                body.release();
+                body = null;
+            }
+            if (!responded) {
+                responded = true;
+                releaseResponse(context);
+            }
+        }
+    }
+}
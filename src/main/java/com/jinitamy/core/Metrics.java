@@ -0,0 +1,265 @@
+package com.jinitamy.core;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.FileRegion;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 服务器运行指标
+ *
+ * 通过 {@link Engine#enableMetrics(String)} 启用，以Prometheus文本格式输出：
+ * 1. jinitamy_requests_total：按方法、路由模式和状态码统计的请求数
+ * 2. jinitamy_requests_in_flight：按路由统计的正在处理的请求数
+ * 3. jinitamy_request_duration_seconds：按路由统计的延迟直方图（微秒精度）
+ * 4. jinitamy_received_bytes_total / jinitamy_sent_bytes_total：连接上收发的字节数（包括协议开销）
+ * 5. jinitamy_event_loop_pending_tasks：每个工作事件循环中等待执行的任务数
+ *
+ * 路由统计按注册时的路由模式（如 /user/:id）而不是原始路径汇总，
+ * 未匹配任何路由的请求计入 route="(unmatched)"。
+ *
+ * 请求路径上的记录只是对LongAdder的累加，不加锁、不分配内存；
+ * 汇总和格式化只在抓取时进行。
+ */
+public final class Metrics {
+    /** Prometheus文本格式的Content-Type */
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /** 路由器（用于枚举已注册的路由） */
+    private final Router router;
+    /** 未匹配路由的请求统计 */
+    final RouteMetrics unmatched = new RouteMetrics("", "(unmatched)");
+    /** 接收的字节数 */
+    private final LongAdder bytesIn = new LongAdder();
+    /** 发送的字节数 */
+    private final LongAdder bytesOut = new LongAdder();
+    /** 统计收发字节数的连接处理器 */
+    private final ChannelHandler trafficHandler = new TrafficHandler();
+    /** 工作事件循环组，服务器未运行时为null */
+    private volatile EventLoopGroup eventLoops;
+
+    /**
+     * 创建运行指标
+     *
+     * @param router 路由器
+     */
+    Metrics(Router router) {
+        this.router = router;
+    }
+
+    /**
+     * 获取路由的统计，未匹配路由时返回unmatched
+     *
+     * @param route 匹配的路由
+     * @return 路由统计
+     */
+    RouteMetrics of(Route route) {
+        return route != null ? route.getMetrics() : unmatched;
+    }
+
+    /**
+     * 绑定工作事件循环组
+     *
+     * @param eventLoops 工作事件循环组，服务器停止时为null
+     */
+    void bind(EventLoopGroup eventLoops) {
+        this.eventLoops = eventLoops;
+    }
+
+    /**
+     * 获取统计收发字节数的连接处理器（无状态，所有连接共享）
+     *
+     * @return 连接处理器
+     */
+    ChannelHandler trafficHandler() {
+        return trafficHandler;
+    }
+
+    /**
+     * 获取接收的总字节数
+     *
+     * @return 所有连接上接收的字节数
+     */
+    public long getBytesReceived() {
+        return bytesIn.sum();
+    }
+
+    /**
+     * 获取发送的总字节数
+     *
+     * @return 所有连接上发送的字节数
+     */
+    public long getBytesSent() {
+        return bytesOut.sum();
+    }
+
+    /**
+     * 以Prometheus文本格式输出所有指标
+     *
+     * @return 指标文本
+     */
+    public String scrape() {
+        StringBuilder sb = new StringBuilder(4096);
+        RouteMetrics[] routes = collectRoutes();
+
+        header(sb, "jinitamy_requests_total", "counter", "Total HTTP requests by route and status.");
+        for (RouteMetrics m : routes) {
+            for (RouteMetrics.StatusCounter status : m.statuses()) {
+                sb.append("jinitamy_requests_total");
+                labels(sb, m).append(",status=\"").append(status.code).append("\"} ")
+                        .append(status.count.sum()).append('\n');
+            }
+        }
+
+        header(sb, "jinitamy_requests_in_flight", "gauge", "HTTP requests currently being processed by route.");
+        for (RouteMetrics m : routes) {
+            sb.append("jinitamy_requests_in_flight");
+            labels(sb, m).append("} ").append(m.inFlight.sum()).append('\n');
+        }
+
+        header(sb, "jinitamy_request_duration_seconds", "histogram", "HTTP request latency by route.");
+        for (RouteMetrics m : routes) {
+            long cumulative = 0;
+            for (int i = 0; i < m.buckets.length; i++) {
+                cumulative += m.buckets[i].sum();
+                sb.append("jinitamy_request_duration_seconds_bucket");
+                labels(sb, m).append(",le=\"");
+                if (i < RouteMetrics.BUCKET_BOUNDS.length) {
+                    seconds(sb, RouteMetrics.BUCKET_BOUNDS[i]);
+                } else {
+                    sb.append("+Inf");
+                }
+                sb.append("\"} ").append(cumulative).append('\n');
+            }
+            sb.append("jinitamy_request_duration_seconds_sum");
+            seconds(labels(sb, m).append("} "), m.sumMicros.sum()).append('\n');
+            sb.append("jinitamy_request_duration_seconds_count");
+            labels(sb, m).append("} ").append(cumulative).append('\n');
+        }
+
+        header(sb, "jinitamy_received_bytes_total", "counter", "Bytes received on all connections.");
+        sb.append("jinitamy_received_bytes_total ").append(bytesIn.sum()).append('\n');
+        header(sb, "jinitamy_sent_bytes_total", "counter", "Bytes sent on all connections.");
+        sb.append("jinitamy_sent_bytes_total ").append(bytesOut.sum()).append('\n');
+
+        EventLoopGroup group = eventLoops;
+        if (group != null) {
+            header(sb, "jinitamy_event_loop_pending_tasks", "gauge", "Tasks waiting in each worker event loop.");
+            int index = 0;
+            for (EventExecutor executor : group) {
+                if (executor instanceof SingleThreadEventExecutor) {
+                    sb.append("jinitamy_event_loop_pending_tasks{loop=\"").append(index).append("\"} ")
+                            .append(((SingleThreadEventExecutor) executor).pendingTasks()).append('\n');
+                }
+                index++;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 收集有过请求的路由统计
+     */
+    private RouteMetrics[] collectRoutes() {
+        List<RouteMetrics> result = new ArrayList<>();
+        for (Route route : router.routes()) {
+            addIfActive(result, route.getMetrics());
+        }
+        addIfActive(result, unmatched);
+        return result.toArray(new RouteMetrics[0]);
+    }
+
+    private static void addIfActive(List<RouteMetrics> result, RouteMetrics m) {
+        if (m.statuses().length > 0 || m.inFlight.sum() != 0) {
+            result.add(m);
+        }
+    }
+
+    private static void header(StringBuilder sb, String name, String type, String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * 输出路由标签（不含右花括号）
+     */
+    private static StringBuilder labels(StringBuilder sb, RouteMetrics m) {
+        sb.append("{method=\"").append(m.method).append("\",route=\"");
+        for (int i = 0; i < m.route.length(); i++) {
+            char c = m.route.charAt(i);
+            if (c == '\\' || c == '"') {
+                sb.append('\\').append(c);
+            } else if (c == '\n') {
+                sb.append("\\n");
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"');
+    }
+
+    /**
+     * 将微秒输出为秒（保留6位小数）
+     */
+    private static StringBuilder seconds(StringBuilder sb, long micros) {
+        sb.append(micros / 1_000_000).append('.');
+        String fraction = Long.toString(micros % 1_000_000);
+        for (int i = fraction.length(); i < 6; i++) {
+            sb.append('0');
+        }
+        return sb.append(fraction);
+    }
+
+    /**
+     * 指标端点的处理器
+     *
+     * @return 以Prometheus文本格式输出指标的处理器
+     */
+    Handler endpoint() {
+        return ctx -> {
+            ctx.getResponse().headers().set(HttpHeaderNames.CONTENT_TYPE, CONTENT_TYPE);
+            ctx.write(scrape(), StandardCharsets.UTF_8);
+        };
+    }
+
+    /**
+     * 统计连接上收发的字节数
+     *
+     * 位于连接管道的最前端，统计的是套接字上的字节（TLS连接为加密后的字节）。
+     */
+    @ChannelHandler.Sharable
+    private final class TrafficHandler extends ChannelDuplexHandler {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            if (msg instanceof ByteBuf) {
+                bytesIn.add(((ByteBuf) msg).readableBytes());
+            }
+            ctx.fireChannelRead(msg);
+        }
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            if (msg instanceof ByteBuf) {
+                bytesOut.add(((ByteBuf) msg).readableBytes());
+            } else if (msg instanceof ByteBufHolder) {
+                bytesOut.add(((ByteBufHolder) msg).content().readableBytes());
+            } else if (msg instanceof FileRegion) {
+                FileRegion region = (FileRegion) msg;
+                bytesOut.add(region.count() - region.transferred());
+            }
+            ctx.write(msg, promise);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.jinitamy.core;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 路由参数的类型约束
+ *
+ * 在路由模式中以 :name&lt;约束&gt; 的形式声明，注册路由时解析，匹配时检查：
+ * 1. int：可带负号的十进制整数，且在int范围内
+ * 2. long：可带负号的十进制整数，且在long范围内
+ * 3. uuid：8-4-4-4-12格式的十六进制UUID（不区分大小写）
+ * 4. 其他：作为正则表达式，必须匹配整个片段（不能包含/）
+ *
+ * 约束检查的是请求路径中未解码的片段，不合法的片段使该候选路由匹配失败，
+ * 路由器继续尝试下一个参数子节点或通配符子节点。
+ * int、long和uuid直接检查路径中的字符，不分配内存。
+ */
+final class ParamConstraint {
+    /** int约束 */
+    private static final int INT = 0;
+    /** long约束 */
+    private static final int LONG = 1;
+    /** uuid约束 */
+    private static final int UUID = 2;
+    /** 正则表达式约束 */
+    private static final int REGEX = 3;
+
+    /** 约束的种类 */
+    private final int kind;
+    /** 正则表达式约束，其他种类为null */
+    private final Pattern pattern;
+    /** 声明时的约束文本 */
+    private final String spec;
+
+    private ParamConstraint(int kind, Pattern pattern, String spec) {
+        this.kind = kind;
+        this.pattern = pattern;
+        this.spec = spec;
+    }
+
+    /**
+     * 解析约束
+     *
+     * @param spec 尖括号中的约束文本
+     * @return 约束
+     * @throws IllegalArgumentException 约束为空或正则表达式不合法时抛出
+     */
+    static ParamConstraint parse(String spec) {
+        switch (spec) {
+            case "int":
+                return new ParamConstraint(INT, null, spec);
+            case "long":
+                return new ParamConstraint(LONG, null, spec);
+            case "uuid":
+                return new ParamConstraint(UUID, null, spec);
+            case "":
+                throw new IllegalArgumentException("Empty route parameter constraint");
+            default:
+                try {
+                    return new ParamConstraint(REGEX, Pattern.compile(spec), spec);
+                } catch (PatternSyntaxException e) {
+                    throw new IllegalArgumentException("Invalid route parameter constraint: " + spec, e);
+                }
+        }
+    }
+
+    /**
+     * 检查路径片段是否满足约束
+     *
+     * @param path 请求路径
+     * @param start 片段的起始偏移
+     * @param end 片段的结束偏移（不含）
+     * @return 满足约束时返回true
+     */
+    boolean matches(String path, int start, int end) {
+        switch (kind) {
+            case INT:
+                return isInteger(path, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            case LONG:
+                return isInteger(path, start, end, Long.MIN_VALUE, Long.MAX_VALUE);
+            case UUID:
+                return isUuid(path, start, end);
+            default:
+                Matcher matcher = pattern.matcher(path);
+                matcher.region(start, end);
+                return matcher.matches();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+
+    /**
+     * 检查字符区间是否为指定范围内的十进制整数
+     */
+    private static boolean isInteger(CharSequence s, int start, int end, long min, long max) {
+        boolean negative = start < end && s.charAt(start) == '-';
+        int i = negative ? start + 1 : start;
+        if (i >= end) {
+            return false;
+        }
+        // 以负数累加，避免Long.MIN_VALUE溢出
+        long limit = negative ? min : -max;
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result < (limit + digit) / 10) {
+                return false;
+            }
+            result = result * 10 - digit;
+        }
+        return true;
+    }
+
+    /**
+     * 直接从字符区间解析十进制整数，不创建中间的String
+     *
+     * @param s 字符序列
+     * @param start 起始偏移
+     * @param end 结束偏移（不含）
+     * @param min 允许的最小值
+     * @param max 允许的最大值
+     * @return 解析结果
+     * @throws NumberFormatException 不是整数或超出范围时抛出
+     */
+    static long parseLong(CharSequence s, int start, int end, long min, long max) {
+        if (!isInteger(s, start, end, min, max)) {
+            throw new NumberFormatException("Not an integer in range: " + s.subSequence(start, end));
+        }
+        boolean negative = s.charAt(start) == '-';
+        long result = 0;
+        for (int i = negative ? start + 1 : start; i < end; i++) {
+            result = result * 10 - (s.charAt(i) - '0');
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * 检查字符区间是否为8-4-4-4-12格式的UUID
+     */
+    private static boolean isUuid(String s, int start, int end) {
+        if (end - start != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = s.charAt(start + i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (Character.digit(c, 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
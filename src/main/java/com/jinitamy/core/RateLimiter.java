@@ -0,0 +1,266 @@
+package com.jinitamy.core;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 限流中间件
+ *
+ * 按客户端限制请求速率，超出限制的请求直接返回429和Retry-After，不执行后续的中间件和处理器。
+ * 应该作为第一个中间件注册，被拒绝的请求才不会产生其他开销。
+ *
+ * 每个键对应一个令牌桶：以固定速率补充令牌，最多积累burst个，每个请求消耗一个。
+ * 键默认为客户端IP地址，也可以按请求头或路由限流：
+ * <pre>
+ * // 每个IP每秒100个请求，允许200个的突发
+ * engine.use(new RateLimiter(100, 200));
+ *
+ * // 按API Key限流，未携带的请求不限制
+ * engine.use(new RateLimiter(10, 20).keyBy(RateLimiter.header("X-Api-Key")));
+ *
+ * // 每个路由合计每秒1000个请求
+ * engine.use(new RateLimiter(1000, 1000).keyBy(RateLimiter.route()));
+ * </pre>
+ *
+ * 实现说明：
+ * 1. 令牌桶以GCRA（理论到达时间）表示，每个键只保存一个long，判断和扣减是一次CAS，
+ *    不加锁、不同的键之间没有竞争，已知键的判断路径不分配内存
+ * 2. 键保存在ConcurrentHashMap中，只有新的键第一次出现时才分配桶
+ * 3. 理论到达时间早于当前时间的桶已经补满，与不存在没有区别；新键出现时顺带检查固定数量的桶并清理其中
+ *    补满的，一轮检查完所有桶后至少间隔一秒才开始下一轮。请求线程上的清理开销与键的总数无关，
+ *    每个新键检查的桶数多于它带来的桶数，内存占用只与最近一个补满周期内活跃的键数有关
+ *
+ * 键解析器返回null时不限制该请求。经过反向代理时所有请求的地址相同，应该按代理设置的请求头限流。
+ */
+public class RateLimiter implements Middleware {
+    /** 两轮清理之间的最小间隔（纳秒） */
+    private static final long SWEEP_INTERVAL_NANOS = 1_000_000_000L;
+    /** 每个新键最多检查的桶数 */
+    static final int SWEEP_BATCH = 64;
+    /** 预先生成的Retry-After值（秒） */
+    private static final String[] RETRY_AFTER = new String[61];
+
+    static {
+        for (int i = 0; i < RETRY_AFTER.length; i++) {
+            RETRY_AFTER[i] = Integer.toString(i);
+        }
+    }
+
+    /** 按客户端IP地址限流（默认） */
+    private static final Function<Context, Object> REMOTE_ADDRESS = ctx -> {
+        SocketAddress address = ctx.getRemoteAddress();
+        return address instanceof InetSocketAddress ? ((InetSocketAddress) address).getAddress() : address;
+    };
+
+    /** 各键的令牌桶 */
+    private final ConcurrentHashMap<Object, Bucket> buckets = new ConcurrentHashMap<>();
+    /** 补充一个令牌的间隔（纳秒） */
+    private final long intervalNanos;
+    /** 允许的突发量对应的时间（纳秒） */
+    private final long burstNanos;
+    /** 是否有线程正在清理，同时保护sweeper和nextSweep */
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    /** 本轮清理的进度，没有进行中的一轮时为null */
+    private Iterator<Bucket> sweeper;
+    /** 下一轮清理允许开始的时间（纳秒） */
+    private long nextSweep = System.nanoTime();
+    /** 被拒绝的请求数 */
+    private final LongAdder rejected = new LongAdder();
+    /** 键解析器 */
+    private volatile Function<Context, ?> keyResolver = REMOTE_ADDRESS;
+
+    /**
+     * 创建限流中间件
+     *
+     * @param permitsPerSecond 每个键每秒允许的请求数
+     * @param burst 每个键允许的突发请求数（令牌桶容量）
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+        if (!(permitsPerSecond > 0) || burst < 1) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+        this.burstNanos = intervalNanos * burst;
+    }
+
+    /**
+     * 设置键解析器
+     *
+     * 解析器在每个请求上调用，应该直接返回已有的对象（如请求头的值、路由），
+     * 避免拼接字符串等分配；返回的对象必须正确实现equals和hashCode。
+     *
+     * @param keyResolver 从请求上下文中提取限流键，返回null时不限制该请求
+     * @return 当前限流中间件实例（支持链式调用）
+     */
+    public RateLimiter keyBy(Function<Context, ?> keyResolver) {
+        if (keyResolver == null) {
+            throw new IllegalArgumentException("Key resolver cannot be null");
+        }
+        this.keyResolver = keyResolver;
+        return this;
+    }
+
+    /**
+     * 按客户端IP地址限流的键解析器（默认）
+     *
+     * @return 键解析器
+     */
+    public static Function<Context, Object> remoteAddress() {
+        return REMOTE_ADDRESS;
+    }
+
+    /**
+     * 按请求头的值限流的键解析器，未携带该请求头的请求不限制
+     *
+     * @param name 请求头名称
+     * @return 键解析器
+     */
+    public static Function<Context, Object> header(String name) {
+        return ctx -> ctx.getHeaders().get(name);
+    }
+
+    /**
+     * 按路由模式限流的键解析器，同一路由的所有请求共享限额，未匹配路由的请求不限制
+     *
+     * @return 键解析器
+     */
+    public static Function<Context, Object> route() {
+        return Context::getRoute;
+    }
+
+    /**
+     * 限额内的请求继续执行处理链，超出限额时返回429
+     *
+     * @param ctx 请求上下文
+     * @param next 下一个处理器
+     * @throws Exception 处理过程中可能抛出的异常
+     */
+    @Override
+    public void handle(Context ctx, Handler next) throws Exception {
+        Object key = keyResolver.apply(ctx);
+        long wait = key != null ? acquire(key, System.nanoTime()) : 0;
+        if (wait == 0) {
+            next.handle(ctx);
+            return;
+        }
+        rejected.increment();
+        long seconds = (wait + 999_999_999L) / 1_000_000_000L;
+        ctx.status(HttpResponseStatus.TOO_MANY_REQUESTS.code());
+        ctx.getResponse().headers().set(HttpHeaderNames.RETRY_AFTER,
+                seconds < RETRY_AFTER.length ? RETRY_AFTER[(int) seconds] : Long.toString(seconds));
+        ctx.text(HttpResponseStatus.TOO_MANY_REQUESTS.toString());
+    }
+
+    /**
+     * 为键获取一个令牌
+     *
+     * @param key 限流键
+     * @param now 当前时间（纳秒）
+     * @return 获取成功时返回0，否则返回需要等待的时间（纳秒）
+     */
+    long acquire(Object key, long now) {
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            sweep(now);
+            bucket = buckets.computeIfAbsent(key, k -> new Bucket(now));
+        }
+        return bucket.acquire(now, intervalNanos, burstNanos);
+    }
+
+    /**
+     * 继续本轮清理，检查最多 {@link #SWEEP_BATCH} 个桶并移除已经补满的
+     *
+     * 由新键触发，同一时间只有一个线程执行，其他线程直接跳过。没有进行中的一轮时，
+     * 距上一轮开始不足一秒则不清理。清理与扣减并发时最多少算被清理的桶上的一个请求。
+     *
+     * @param now 当前时间（纳秒）
+     */
+    private void sweep(long now) {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Iterator<Bucket> it = sweeper;
+            if (it == null) {
+                if (now - nextSweep < 0) {
+                    return;
+                }
+                nextSweep = now + SWEEP_INTERVAL_NANOS;
+                it = buckets.values().iterator();
+            }
+            for (int i = 0; i < SWEEP_BATCH && it.hasNext(); i++) {
+                if (it.next().tat - now <= 0) {
+                    it.remove();
+                }
+            }
+            sweeper = it.hasNext() ? it : null;
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    /**
+     * 获取被拒绝的请求数
+     *
+     * @return 返回429的请求数
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * 获取当前跟踪的键数
+     *
+     * @return 尚未清理的令牌桶数量
+     */
+    public int getKeyCount() {
+        return buckets.size();
+    }
+
+    /**
+     * 令牌桶
+     *
+     * 只保存理论到达时间（TAT）：桶中令牌数为 (now - tat + burst) / interval，
+     * TAT不晚于当前时间时桶是满的。
+     */
+    private static final class Bucket {
+        private static final AtomicLongFieldUpdater<Bucket> TAT =
+                AtomicLongFieldUpdater.newUpdater(Bucket.class, "tat");
+
+        /** 理论到达时间（纳秒） */
+        volatile long tat;
+
+        Bucket(long now) {
+            this.tat = now;
+        }
+
+        /**
+         * 获取一个令牌
+         *
+         * @return 获取成功时返回0，否则返回需要等待的时间（纳秒）
+         */
+        long acquire(long now, long interval, long burst) {
+            while (true) {
+                long current = tat;
+                long next = (current - now > 0 ? current : now) + interval;
+                long excess = next - now - burst;
+                if (excess > 0) {
+                    return excess;
+                }
+                if (TAT.compareAndSet(this, current, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,488 @@
+package com.jinitamy.core;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.EmptyHttpHeaders;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.IllegalReferenceCountException;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 响应缓存中间件
+ *
+ * 缓存GET/HEAD请求的完整响应，键由请求方法、路径、查询字符串和指定的请求头组成。
+ * 通过 {@link Engine#use(Middleware)} 或 {@link RouteGroup#use(Middleware)} 注册后，
+ * 在处理链中该中间件所在的位置查找缓存：
+ * 1. 命中：发送缓存的响应，不再执行之后的中间件和处理器
+ * 2. 未命中：继续执行处理链，处理器返回后由该中间件保存响应
+ *
+ * 在它之前注册的中间件（全局中间件和外层路由组的中间件）对命中的请求同样执行，
+ * 因此认证等中间件应注册在响应缓存之前。
+ *
+ * 只有设置了有效期的路由才会被缓存，有效期通过 {@link RouteOptions#cacheTtl(Duration)}
+ * 按路由指定，未指定时使用 {@link #defaultTtl(Duration)}（默认为0，即不缓存）。
+ * 未设置有效期的路由直接执行处理链，不生成缓存键，也不计入未命中次数。
+ * 以下请求和响应不会被缓存：
+ * 1. 携带Authorization的请求，以及携带Cookie而Cookie不在 {@link #varyBy} 中的请求
+ * 2. 状态码不是200的响应、流式响应
+ * 3. 带有Set-Cookie、Cache-Control: no-store/private，或按未指定的请求头区分（Vary）的响应
+ *
+ * 缓存键不区分用户，命中的响应会发送给所有通过了前置中间件的请求，只应对公开内容启用缓存。
+ *
+ * 该类是线程安全的，由所有连接共享：
+ * 1. 响应体保存为大小恰好的只读缓冲区（默认使用堆外内存），命中时发送其retainedDuplicate，
+ *    条目被淘汰后正在发送的副本仍然有效
+ * 2. 总字节数超过上限时，抽样若干条目优先淘汰已过期的、其次是最久未访问的条目
+ * 3. 单个条目超过上限的1/8时不缓存，避免少数大响应挤掉所有条目
+ *
+ * 使用示例：
+ * <pre>
+ * ResponseCache cache = new ResponseCache(64 * 1024 * 1024).varyBy("Accept-Language");
+ * engine.use(cache);
+ * engine.get("/hello/:name", handler, RouteOptions.create().cacheTtl(Duration.ofMinutes(5)));
+ *
+ * // 数据变化后使缓存失效
+ * cache.invalidate("/hello/world");
+ * </pre>
+ */
+public class ResponseCache implements Middleware {
+    /** 每次淘汰时抽样的条目数 */
+    private static final int EVICTION_SAMPLES = 8;
+
+    /** 缓存条目 */
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    /** 缓存的总字节数上限 */
+    private final long maxBytes;
+    /** 当前缓存的总字节数 */
+    private final AtomicLong bytes = new AtomicLong();
+    /** 命中次数 */
+    private final LongAdder hits = new LongAdder();
+    /** 未命中次数 */
+    private final LongAdder misses = new LongAdder();
+    /** 淘汰次数（不包括过期和主动失效） */
+    private final LongAdder evictions = new LongAdder();
+    /** 参与缓存键的请求头 */
+    private volatile String[] varyHeaders = new String[0];
+    /** 未按路由指定时的有效期（纳秒），0表示不缓存 */
+    private volatile long defaultTtlNanos;
+    /** 是否使用堆外内存保存响应体 */
+    private volatile boolean offHeap = true;
+
+    /**
+     * 创建响应缓存
+     *
+     * @param maxBytes 缓存的总字节数上限
+     */
+    public ResponseCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 设置参与缓存键的请求头
+     *
+     * 这些请求头的值不同的请求分别缓存（如 Accept-Language）。
+     *
+     * @param headers 请求头名称
+     * @return 当前缓存实例（支持链式调用）
+     */
+    public ResponseCache varyBy(String... headers) {
+        this.varyHeaders = headers.clone();
+        return this;
+    }
+
+    /**
+     * 设置未按路由指定时的有效期
+     *
+     * @param ttl 有效期，为0时只缓存单独指定了有效期的路由（默认）
+     * @return 当前缓存实例（支持链式调用）
+     */
+    public ResponseCache defaultTtl(Duration ttl) {
+        if (ttl.isNegative()) {
+            throw new IllegalArgumentException("TTL cannot be negative");
+        }
+        this.defaultTtlNanos = ttl.toNanos();
+        return this;
+    }
+
+    /**
+     * 设置是否使用堆外内存保存响应体
+     *
+     * @param offHeap 为true时使用直接内存（默认），为false时使用堆内存
+     * @return 当前缓存实例（支持链式调用）
+     */
+    public ResponseCache offHeap(boolean offHeap) {
+        this.offHeap = offHeap;
+        return this;
+    }
+
+    /**
+     * 查找缓存，命中时发送缓存的响应，未命中时在处理链执行完毕（异步处理器完成）后保存响应
+     *
+     * @param ctx 请求上下文
+     * @param next 下一个处理器
+     * @throws Exception 处理过程中可能抛出的异常
+     */
+    @Override
+    public void handle(Context ctx, Handler next) throws Exception {
+        long ttl = ttlNanos(ctx.getRoute());
+        FullHttpRequest request = ctx.getRequest();
+        if (ttl == 0 || !isCacheable(request)) {
+            next.handle(ctx);
+            return;
+        }
+        String path = ctx.getPath();
+        String key = key(request, path);
+        FullHttpResponse cached = lookup(key);
+        if (cached != null) {
+            ctx.setResponse(cached);
+            return;
+        }
+        next.handle(ctx);
+        // 异步处理器完成后再保存，异常完成的响应不缓存
+        ctx.whenComplete((c, error) -> {
+            if (error == null && c.getResponseStream() == null) {
+                put(key, path, c.getResponse(), ttl);
+            }
+        });
+    }
+
+    /**
+     * 确定路由的有效期
+     *
+     * @param route 匹配的路由
+     * @return 有效期（纳秒），不缓存时为0
+     */
+    private long ttlNanos(Route route) {
+        Duration ttl = route != null ? route.getOptions().getCacheTtl() : null;
+        return ttl != null ? ttl.toNanos() : defaultTtlNanos;
+    }
+
+    /**
+     * 判断请求是否可以使用缓存
+     *
+     * 带有请求体的请求不使用缓存；携带Cookie的请求可能依赖会话，只有按Cookie区分缓存键时才使用缓存。
+     *
+     * @param request HTTP请求
+     * @return 可以使用缓存时返回true
+     */
+    private boolean isCacheable(HttpRequest request) {
+        HttpMethod method = request.method();
+        HttpHeaders headers = request.headers();
+        return (HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method))
+                && !headers.contains(HttpHeaderNames.AUTHORIZATION)
+                && (!headers.contains(HttpHeaderNames.COOKIE) || isVaryHeader(HttpHeaderNames.COOKIE.toString()))
+                && HttpUtil.getContentLength(request, 0L) == 0
+                && !HttpUtil.isTransferEncodingChunked(request);
+    }
+
+    /**
+     * 生成缓存键
+     *
+     * 使用规范化后的路径和原始的查询字符串，"//hello/world"、"/hello/./world"等写法与"/hello/world"共用条目。
+     *
+     * @param request HTTP请求
+     * @param path 规范化后的请求路径
+     * @return 缓存键
+     */
+    private String key(HttpRequest request, String path) {
+        String[] vary = varyHeaders;
+        String base = request.method().name() + ' ' + path + query(request.uri());
+        if (vary.length == 0) {
+            return base;
+        }
+        StringBuilder sb = new StringBuilder(base);
+        HttpHeaders headers = request.headers();
+        for (String name : vary) {
+            String value = headers.get(name);
+            sb.append('\n').append(value != null ? value : "");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 查找缓存的响应
+     *
+     * @param key 缓存键
+     * @return 新的响应对象（响应体为共享缓冲区的retainedDuplicate，由调用方发送或释放），未命中时返回null
+     */
+    private FullHttpResponse lookup(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            long now = System.nanoTime();
+            if (now - entry.expiresAt >= 0) {
+                remove(key, entry);
+            } else {
+                try {
+                    ByteBuf content = entry.content.retainedDuplicate();
+                    entry.lastAccess = now;
+                    hits.increment();
+                    return new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, entry.status, content,
+                            entry.headers.copy(), EmptyHttpHeaders.INSTANCE);
+                } catch (IllegalReferenceCountException e) {
+                    // 条目刚被其他线程淘汰并释放
+                }
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * 保存响应
+     *
+     * @param key 缓存键
+     * @param path 规范化后的请求路径（用于按路径失效）
+     * @param response 处理链生成的响应，缓存保存响应体的副本，不持有池化缓冲区
+     * @param ttl 有效期（纳秒）
+     */
+    private void put(String key, String path, FullHttpResponse response, long ttl) {
+        HttpHeaders headers = response.headers();
+        if (!HttpResponseStatus.OK.equals(response.status())
+                || headers.contains(HttpHeaderNames.SET_COOKIE)
+                || headers.containsValue(HttpHeaderNames.CACHE_CONTROL, HttpHeaderValues.NO_STORE, true)
+                || headers.containsValue(HttpHeaderNames.CACHE_CONTROL, HttpHeaderValues.PRIVATE, true)
+                || !isVaryCovered(headers)) {
+            return;
+        }
+        ByteBuf content = response.content();
+        int size = content.readableBytes();
+        HttpHeaders copy = headers.copy().remove(HttpHeaderNames.CONNECTION);
+        long entrySize = size + headerBytes(copy);
+        if (entrySize > maxBytes >>> 3) {
+            return;
+        }
+        ByteBuf body = offHeap ? Unpooled.directBuffer(size, size) : Unpooled.buffer(size, size);
+        body.writeBytes(content, content.readerIndex(), size);
+        Entry entry = new Entry(path, response.status(), copy, body.asReadOnly(),
+                entrySize, System.nanoTime() + ttl);
+
+        Entry previous = entries.put(key, entry);
+        bytes.addAndGet(entrySize);
+        if (previous != null) {
+            release(previous);
+        }
+        while (bytes.get() > maxBytes && !entries.isEmpty()) {
+            evictOne();
+        }
+    }
+
+    /**
+     * 检查响应的Vary头是否都在参与缓存键的请求头之内
+     *
+     * @param headers 响应头
+     * @return 可以按当前的缓存键保存时返回true
+     */
+    private boolean isVaryCovered(HttpHeaders headers) {
+        for (String value : headers.getAll(HttpHeaderNames.VARY)) {
+            for (String name : value.split(",")) {
+                name = name.trim();
+                if (!name.isEmpty() && !isVaryHeader(name)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean isVaryHeader(String name) {
+        for (String header : varyHeaders) {
+            if (header.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long headerBytes(HttpHeaders headers) {
+        long size = 0;
+        for (Map.Entry<String, String> header : headers) {
+            size += header.getKey().length() + header.getValue().length();
+        }
+        return size;
+    }
+
+    /**
+     * 取出URI中的查询字符串（含'?'，不含片段）
+     */
+    private static String query(String uri) {
+        int start = uri.indexOf('?');
+        if (start < 0) {
+            return "";
+        }
+        int end = uri.indexOf('#', start);
+        return end < 0 ? uri.substring(start) : uri.substring(start, end);
+    }
+
+    /**
+     * 抽样淘汰一个条目：优先淘汰已过期的条目，否则淘汰最久未访问的条目
+     */
+    private void evictOne() {
+        long now = System.nanoTime();
+        Map.Entry<String, Entry> victim = null;
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        for (int i = 0; i < EVICTION_SAMPLES && it.hasNext(); i++) {
+            Map.Entry<String, Entry> candidate = it.next();
+            if (now - candidate.getValue().expiresAt >= 0) {
+                victim = candidate;
+                break;
+            }
+            if (victim == null || candidate.getValue().lastAccess < victim.getValue().lastAccess) {
+                victim = candidate;
+            }
+        }
+        if (victim != null && remove(victim.getKey(), victim.getValue())) {
+            evictions.increment();
+        }
+    }
+
+    private boolean remove(String key, Entry entry) {
+        if (entries.remove(key, entry)) {
+            release(entry);
+            return true;
+        }
+        return false;
+    }
+
+    private void release(Entry entry) {
+        bytes.addAndGet(-entry.size);
+        entry.content.release();
+    }
+
+    /**
+     * 使指定路径的所有缓存失效
+     *
+     * 包括该路径所有方法、查询字符串和请求头组合的条目。条目按规范化后的路径保存，
+     * 通过"//hello/world"等写法请求产生的条目同样按"/hello/world"失效。
+     *
+     * @param path 请求路径（如：/hello/world），不含查询字符串
+     * @return 失效的条目数
+     */
+    public int invalidate(String path) {
+        path = Router.normalizePath(path);
+        int count = 0;
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (entry.getValue().path.equals(path) && remove(entry.getKey(), entry.getValue())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 使路径以指定前缀开头的所有缓存失效
+     *
+     * @param prefix 路径前缀（如：/hello/）
+     * @return 失效的条目数
+     */
+    public int invalidatePrefix(String prefix) {
+        int count = 0;
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (entry.getValue().path.startsWith(prefix) && remove(entry.getKey(), entry.getValue())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 清空缓存并释放所有响应体
+     */
+    public void invalidateAll() {
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * 获取命中次数
+     *
+     * @return 命中的次数
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * 获取未命中次数
+     *
+     * @return 设置了有效期的路由上可缓存的请求未命中（包括已过期）的次数
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * 获取因容量不足被淘汰的条目数
+     *
+     * @return 淘汰次数，不包括主动失效的条目
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * 获取当前缓存的条目数
+     *
+     * @return 条目数（包括尚未清理的过期条目）
+     */
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * 获取当前缓存的总字节数
+     *
+     * @return 响应体和响应头的总字节数
+     */
+    public long getSize() {
+        return bytes.get();
+    }
+
+    /**
+     * 缓存条目
+     */
+    private static final class Entry {
+        /** 请求路径（用于失效） */
+        final String path;
+        /** 响应状态码 */
+        final HttpResponseStatus status;
+        /** 响应头（每次命中时复制） */
+        final HttpHeaders headers;
+        /** 只读的响应体 */
+        final ByteBuf content;
+        /** 计入上限的字节数 */
+        final long size;
+        /** 过期时间 */
+        final long expiresAt;
+        /** 最近访问时间 */
+        volatile long lastAccess = System.nanoTime();
+
+        Entry(String path, HttpResponseStatus status, HttpHeaders headers, ByteBuf content, long size, long expiresAt) {
+            this.path = path;
+            this.status = status;
+            this.headers = headers;
+            this.content = content;
+            this.size = size;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package com.jinitamy.core;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedInput;
+import io.netty.handler.stream.ChunkedNioFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 流式响应
+ *
+ * 由 {@link Context#stream()} 创建，创建时立即发送响应头，之后写入的内容以
+ * {@code Transfer-Encoding: chunked} 分块发送，{@link #close()} 发送结束块。
+ * HTTP/1.0 请求不支持分块传输，响应体直接写出并在结束时关闭连接。
+ * 通过 {@link Context#stream(long)} 预先声明长度时使用 Content-Length 发送，不再分块。
+ *
+ * 文件内容通过 {@link #transferFile(File, long, long)} 发送，明文连接上使用
+ * {@link DefaultFileRegion}（内核sendfile，不经过用户态内存），TLS连接和HTTP/2流上按块读取。
+ *
+ * 写入规则：
+ * 1. 小块写入先合并到缓冲区，达到 {@value #CHUNK_SIZE} 字节或调用 {@link #flush()} 时作为一个分块发送
+ * 2. 在阻塞线程上写入时，通道不可写（客户端读取过慢）会阻塞当前线程直到积压的数据发送完毕
+ * 3. 在事件循环上写入时不能阻塞，应检查 {@link #isWritable()} 并通过 {@link #onWritable(Runnable)} 继续生产
+ * 4. 同一时刻只允许一个线程写入
+ *
+ * 使用示例：
+ * <pre>
+ * engine.get("/export.csv", ctx -> {
+ *     ctx.getResponse().headers().set("Content-Type", "text/csv");
+ *     ResponseStream out = ctx.stream();
+ *     for (Order order : orders) {
+ *         out.write(order.toCsvLine());
+ *     }
+ *     out.close();
+ * }, RouteOptions.create().executionMode(ExecutionMode.BLOCKING));
+ * </pre>
+ */
+public final class ResponseStream {
+    /** 合并小块写入的缓冲区大小 */
+    static final int CHUNK_SIZE = 8192;
+
+    /** Netty通道上下文 */
+    private final ChannelHandlerContext ctx;
+    /** 是否使用分块传输 */
+    private final boolean chunked;
+    /** 响应结束后是否保持连接 */
+    private final boolean keepAlive;
+    /** 响应结束（或中止）时完成 */
+    private final ChannelPromise closeFuture;
+    /** 尚未发送的小块数据 */
+    private ByteBuf buffer;
+    /** 最近一次写出的结果，用于等待积压数据发送完毕 */
+    private ChannelFuture lastWrite;
+    /** 是否已结束 */
+    private volatile boolean closed;
+
+    /**
+     * 创建流式响应并发送响应头
+     *
+     * 响应的状态码和响应头取自已有的响应对象，已写入的响应体作为第一个分块发送。
+     *
+     * @param ctx Netty通道上下文
+     * @param request HTTP请求对象
+     * @param response 已有的响应对象，其响应体的所有权转移给流式响应
+     * @param contentLength 响应体总长度，为负数时分块发送
+     */
+    ResponseStream(ChannelHandlerContext ctx, HttpRequest request, FullHttpResponse response, long contentLength) {
+        this.ctx = ctx;
+        this.closeFuture = ctx.newPromise();
+
+        HttpResponse head = new DefaultHttpResponse(response.protocolVersion(), response.status(), response.headers());
+        boolean chunked = false;
+        if (contentLength >= 0) {
+            HttpUtil.setContentLength(head, contentLength);
+        } else {
+            head.headers().remove(HttpHeaderNames.CONTENT_LENGTH);
+            chunked = !HttpVersion.HTTP_1_0.equals(request.protocolVersion());
+        }
+        HttpUtil.setTransferEncodingChunked(head, chunked);
+        this.chunked = chunked;
+        if (!chunked && contentLength < 0) {
+            // HTTP/1.0 只能以关闭连接表示响应结束
+            head.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+        }
+        this.keepAlive = HttpHandler.prepareKeepAlive(request, head);
+        this.lastWrite = ctx.write(head);
+
+        // 已写入的响应体直接作为缓冲区继续使用
+        ByteBuf content = response.content();
+        if (content.isReadable()) {
+            buffer = content;
+        } else {
+            content.release();
+        }
+        // 长度已知时响应头随第一块内容一起发送，减少一次系统调用
+        if (contentLength < 0) {
+            flush();
+        }
+    }
+
+    /**
+     * 以UTF-8编码写入文本
+     *
+     * @param text 文本内容
+     * @return 当前流式响应实例（支持链式调用）
+     */
+    public ResponseStream write(CharSequence text) {
+        return write(text, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 按指定字符集写入文本
+     *
+     * @param text 文本内容
+     * @param charset 字符集
+     * @return 当前流式响应实例（支持链式调用）
+     */
+    public ResponseStream write(CharSequence text, Charset charset) {
+        ByteBuf buf = buffer();
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            ByteBufUtil.reserveAndWriteUtf8(buf, text, ByteBufUtil.utf8MaxBytes(text));
+        } else {
+            buf.writeCharSequence(text, charset);
+        }
+        return flushIfFull();
+    }
+
+    /**
+     * 写入字节数组
+     *
+     * @param bytes 字节内容
+     * @return 当前流式响应实例（支持链式调用）
+     */
+    public ResponseStream write(byte[] bytes) {
+        buffer().writeBytes(bytes);
+        return flushIfFull();
+    }
+
+    /**
+     * 写入已有的缓冲区
+     *
+     * 该方法会接管缓冲区的所有权（调用方不应再释放它）。
+     * 不小于 {@value #CHUNK_SIZE} 字节的缓冲区直接作为一个分块发送，不再拷贝。
+     *
+     * @param buf 要写入的缓冲区
+     * @return 当前流式响应实例（支持链式调用）
+     */
+    public ResponseStream write(ByteBuf buf) {
+        if (buf.readableBytes() < CHUNK_SIZE) {
+            try {
+                buffer().writeBytes(buf);
+            } finally {
+                buf.release();
+            }
+            return flushIfFull();
+        }
+        ensureOpen(buf);
+        writeBuffered();
+        lastWrite = ctx.write(new DefaultHttpContent(buf));
+        return flush();
+    }
+
+    /**
+     * 发送文件的一部分
+     *
+     * 明文HTTP/1.1连接上使用 {@link DefaultFileRegion} 由内核直接从页缓存发送；
+     * 连接上有TLS等需要处理字节的处理器，或者响应属于HTTP/2流时，按 {@value #CHUNK_SIZE} 字节分块读取后发送。
+     * 文件在发送时才打开，发送完毕后关闭。
+     *
+     * @param file 要发送的文件
+     * @param position 起始偏移
+     * @param count 发送的字节数
+     * @return 当前流式响应实例（支持链式调用）
+     * @throws IOException 文件无法打开时抛出
+     */
+    public ResponseStream transferFile(File file, long position, long count) throws IOException {
+        ensureOpen(null);
+        writeBuffered();
+        if (!(ctx.channel() instanceof Http2StreamChannel) && ctx.pipeline().get(SslHandler.class) == null) {
+            lastWrite = ctx.write(new DefaultFileRegion(file, position, count));
+        } else {
+            // ServerInitializer已经在这些管道中添加了ChunkedWriteHandler
+            ChunkedNioFile input = new ChunkedNioFile(FileChannel.open(file.toPath()), position, count, CHUNK_SIZE);
+            lastWrite = ctx.write(new ContentInput(input));
+        }
+        return flush();
+    }
+
+    /**
+     * 发送缓冲区中的数据
+     *
+     * 在阻塞线程上调用且通道不可写时，等待积压的数据发送完毕后返回。
+     *
+     * @return 当前流式响应实例（支持链式调用）
+     */
+    public ResponseStream flush() {
+        writeBuffered();
+        ctx.flush();
+        if (!ctx.channel().isWritable() && !ctx.executor().inEventLoop()) {
+            lastWrite.awaitUninterruptibly();
+        }
+        return this;
+    }
+
+    /**
+     * 通道当前是否可写
+     *
+     * @return 发送缓冲区低于高水位时返回true
+     */
+    public boolean isWritable() {
+        Channel channel = ctx.channel();
+        return channel.isActive() && channel.isWritable();
+    }
+
+    /**
+     * 通道可写时执行任务
+     *
+     * 当前可写时立即执行，否则在积压的数据发送完毕后于事件循环上执行。
+     * 用于事件循环上的生产者实现背压。
+     *
+     * @param task 要执行的任务
+     */
+    public void onWritable(Runnable task) {
+        if (ctx.channel().isWritable()) {
+            task.run();
+        } else {
+            lastWrite.addListener(future -> {
+                if (future.isSuccess()) {
+                    task.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * 结束响应
+     *
+     * 发送剩余的数据和结束块，非keep-alive连接在发送后关闭。
+     *
+     * @return 结束块的写出结果
+     */
+    public ChannelFuture close() {
+        if (closed) {
+            return closeFuture;
+        }
+        closed = true;
+        writeBuffered();
+        ChannelFuture future = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+        if (!keepAlive) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+        future.addListener(f -> {
+            if (f.isSuccess()) {
+                closeFuture.trySuccess();
+            } else {
+                closeFuture.tryFailure(f.cause());
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 是否已结束
+     *
+     * @return 已调用 {@link #close()} 或已中止时返回true
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 获取响应结束的通知
+     *
+     * @return 响应结束或中止时完成的Future
+     */
+    ChannelFuture closeFuture() {
+        return closeFuture;
+    }
+
+    /**
+     * 中止响应
+     *
+     * 响应头已经发出，无法再返回错误状态码，只能关闭连接让客户端感知到响应不完整。
+     */
+    void abort() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (buffer != null) {
+            buffer.release();
+            buffer = null;
+        }
+        ctx.close();
+        closeFuture.tryFailure(new ClosedChannelException());
+    }
+
+    /**
+     * 获取合并小块写入的缓冲区
+     */
+    private ByteBuf buffer() {
+        ensureOpen(null);
+        if (buffer == null) {
+            buffer = ctx.alloc().ioBuffer(CHUNK_SIZE);
+        }
+        return buffer;
+    }
+
+    /**
+     * 缓冲区已满时作为一个分块发送
+     */
+    private ResponseStream flushIfFull() {
+        if (buffer.readableBytes() >= CHUNK_SIZE) {
+            flush();
+        }
+        return this;
+    }
+
+    /**
+     * 将缓冲区中的数据作为一个分块写出（不刷新）
+     */
+    private void writeBuffered() {
+        ByteBuf buf = buffer;
+        if (buf != null) {
+            buffer = null;
+            lastWrite = ctx.write(new DefaultHttpContent(buf));
+        }
+    }
+
+    /**
+     * 检查流式响应是否仍可写入
+     *
+     * @param pending 检查失败时需要释放的缓冲区
+     */
+    private void ensureOpen(ByteBuf pending) {
+        if (closed) {
+            release(pending);
+            throw new IllegalStateException("Response stream is closed");
+        }
+        if (!ctx.channel().isActive()) {
+            release(pending);
+            throw new UncheckedIOException(new ClosedChannelException());
+        }
+    }
+
+    private static void release(ByteBuf buf) {
+        if (buf != null) {
+            buf.release();
+        }
+    }
+
+    /**
+     * 把文件分块包装为HttpContent
+     *
+     * 与 HttpChunkedInput 不同，结束时不产生LastHttpContent，响应由 {@link #close()} 结束。
+     * HTTP/2流只接受HTTP消息对象，不能直接写入ByteBuf。
+     */
+    private static final class ContentInput implements ChunkedInput<HttpContent> {
+        private final ChunkedNioFile input;
+
+        ContentInput(ChunkedNioFile input) {
+            this.input = input;
+        }
+
+        @Override
+        public boolean isEndOfInput() throws Exception {
+            return input.isEndOfInput();
+        }
+
+        @Override
+        public void close() throws Exception {
+            input.close();
+        }
+
+        @Deprecated
+        @Override
+        public HttpContent readChunk(ChannelHandlerContext ctx) throws Exception {
+            return readChunk(ctx.alloc());
+        }
+
+        @Override
+        public HttpContent readChunk(ByteBufAllocator allocator) throws Exception {
+            ByteBuf buf = input.readChunk(allocator);
+            return buf == null ? null : new DefaultHttpContent(buf);
+        }
+
+        @Override
+        public long length() {
+            return input.length();
+        }
+
+        @Override
+        public long progress() {
+            return input.progress();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.jinitamy.core;
+
+import io.netty.handler.codec.http.HttpMethod;
+
+import java.util.List;
+
+/**
+ * 路由条目
+ *
+ * 路由表编译时生成的只读对象，包含：
+ * 1. HTTP方法和URL匹配模式
+ * 2. 注册的请求处理器及路由选项
+ * 3. 预先组合好的处理链（中间件 + 处理器）
+ *
+ * 处理链在编译时一次性构建，所有请求共享同一条链，
+ * 每个请求唯一的状态只有 {@link Context}。
+ */
+public final class Route {
+    /** HTTP请求方法 */
+    private final HttpMethod method;
+    /** URL匹配模式 */
+    private final String pattern;
+    /** 请求处理器 */
+    private final Handler handler;
+    /** 路由选项 */
+    private final RouteOptions options;
+    /** 预组合的处理链 */
+    private final Handler pipeline;
+    /** 请求统计（路由表重新编译后沿用） */
+    private final RouteMetrics metrics;
+
+    /**
+     * 创建路由条目
+     *
+     * @param method HTTP请求方法
+     * @param pattern URL匹配模式
+     * @param handler 请求处理器
+     * @param options 路由选项
+     * @param middlewares 作用于该路由的中间件（按执行顺序）
+     * @param metrics 请求统计
+     */
+    Route(HttpMethod method, String pattern, Handler handler, RouteOptions options, List<Middleware> middlewares,
+          RouteMetrics metrics) {
+        this.method = method;
+        this.pattern = pattern;
+        this.handler = handler;
+        this.options = options;
+        this.pipeline = compose(middlewares, handler);
+        this.metrics = metrics;
+    }
+
+    /**
+     * 将中间件从后往前包装到处理器外层
+     *
+     * @param middlewares 中间件列表
+     * @param handler 最内层的处理器
+     * @return 组合后的处理链
+     */
+    static Handler compose(List<Middleware> middlewares, Handler handler) {
+        Handler chain = handler;
+        for (int i = middlewares.size() - 1; i >= 0; i--) {
+            chain = new MiddlewareHandler(middlewares.get(i), chain);
+        }
+        return chain;
+    }
+
+    /**
+     * 获取HTTP请求方法
+     *
+     * @return HTTP请求方法
+     */
+    public HttpMethod getMethod() {
+        return method;
+    }
+
+    /**
+     * 获取URL匹配模式
+     *
+     * @return 注册时的URL匹配模式（如：/user/:id）
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * 获取请求处理器
+     *
+     * @return 注册的请求处理器
+     */
+    public Handler getHandler() {
+        return handler;
+    }
+
+    /**
+     * 获取路由选项
+     *
+     * @return 注册时指定的路由选项
+     */
+    public RouteOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * 获取预组合的处理链
+     *
+     * @return 依次执行中间件和处理器的处理链
+     */
+    public Handler getPipeline() {
+        return pipeline;
+    }
+
+    /**
+     * 获取请求统计
+     *
+     * @return 该路由的请求统计
+     */
+    RouteMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 处理链节点：执行一个中间件，并将下一个节点作为next传入
+     */
+    private static final class MiddlewareHandler implements Handler {
+        private final Middleware middleware;
+        private final Handler next;
+
+        MiddlewareHandler(Middleware middleware, Handler next) {
+            this.middleware = middleware;
+            this.next = next;
+        }
+
+        @Override
+        public void handle(Context ctx) throws Exception {
+            middleware.handle(ctx, next);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.jinitamy.core;
+
+import io.netty.handler.codec.http.HttpMethod;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 路由组
+ *
+ * 通过 {@link Engine#group(String, Middleware...)} 创建，组内注册的路由共享路径前缀和中间件，
+ * 组可以继续嵌套。每个路由的处理链为：全局中间件 → 外层组的中间件 → 内层组的中间件 → 处理器，
+ * 组外的路由（如健康检查、静态文件）不执行组的中间件。
+ *
+ * 组的中间件在注册路由时确定：
+ * 1. 注册路由时对组当前的中间件列表做快照，之后通过 {@link #use(Middleware)} 添加的中间件只作用于后续注册的路由
+ * 2. 创建子组时继承父组当前的中间件
+ * 3. 路由表编译时与全局中间件一起组合为该路由的处理链，请求处理时不再查找或过滤中间件
+ *
+ * 使用示例：
+ * <pre>
+ * RouteGroup api = engine.group("/api", cors, auth);
+ * api.get("/users/:id", getUser);                  // /api/users/:id
+ *
+ * RouteGroup admin = api.group("/admin", requireAdmin);
+ * admin.delete("/users/:id", deleteUser);          // /api/admin/users/:id
+ *
+ * engine.get("/health", ctx -> ctx.text("ok"));   // 不执行cors、auth
+ * </pre>
+ *
+ * 路由组只用于注册路由，应在启动前完成配置，不是线程安全的。
+ */
+public class RouteGroup {
+    /** 所属的引擎 */
+    private final Engine engine;
+    /** 规范化的路径前缀（不以/结尾，根组为空字符串） */
+    private final String prefix;
+    /** 组的中间件（包括继承自外层组的中间件） */
+    private final List<Middleware> middlewares;
+
+    /**
+     * 创建路由组
+     *
+     * @param engine 所属的引擎
+     * @param prefix 规范化的路径前缀
+     * @param middlewares 组的中间件
+     */
+    RouteGroup(Engine engine, String prefix, List<Middleware> middlewares) {
+        this.engine = engine;
+        this.prefix = prefix;
+        this.middlewares = new ArrayList<>(middlewares);
+        for (Middleware middleware : middlewares) {
+            engine.registerResponseCache(middleware);
+        }
+    }
+
+    /**
+     * 创建嵌套的路由组
+     *
+     * @param prefix 相对于当前组前缀的路径前缀
+     * @param middlewares 子组追加的中间件（在当前组的中间件之后执行）
+     * @return 新的路由组
+     */
+    public RouteGroup group(String prefix, Middleware... middlewares) {
+        List<Middleware> inherited = new ArrayList<>(this.middlewares);
+        Collections.addAll(inherited, middlewares);
+        String joined = join(prefix);
+        return new RouteGroup(engine, joined.equals("/") ? "" : joined, inherited);
+    }
+
+    /**
+     * 添加组的中间件
+     *
+     * 只作用于之后在该组（及之后创建的子组）中注册的路由。
+     *
+     * @param middleware 要添加的中间件
+     * @return 当前路由组（支持链式调用）
+     * @throws IllegalStateException 注册响应缓存而引擎已经注册了其他响应缓存时抛出
+     */
+    public RouteGroup use(Middleware middleware) {
+        engine.registerResponseCache(middleware);
+        middlewares.add(middleware);
+        return this;
+    }
+
+    /**
+     * 在组内注册GET请求路由
+     *
+     * @param pattern 相对于组前缀的URL匹配模式
+     * @param handler 请求处理器
+     * @return 当前路由组（支持链式调用）
+     */
+    public RouteGroup get(String pattern, Handler handler) {
+        return handle(HttpMethod.GET, pattern, handler, RouteOptions.create());
+    }
+
+    /**
+     * 在组内注册带选项的GET请求路由
+     *
+     * @param pattern 相对于组前缀的URL匹配模式
+     * @param handler 请求处理器
+     * @param options 路由选项
+     * @return 当前路由组（支持链式调用）
+     */
+    public RouteGroup get(String pattern, Handler handler, RouteOptions options) {
+        return handle(HttpMethod.GET, pattern, handler, options);
+    }
+
+    /**
+     * 在组内注册POST请求路由
+     *
+     * @param pattern 相对于组前缀的URL匹配模式
+     * @param handler 请求处理器
+     * @return 当前路由组（支持链式调用）
+     */
+    public RouteGroup post(String pattern, Handler handler) {
+        return handle(HttpMethod.POST, pattern, handler, RouteOptions.create());
+    }
+
+    /**
+     * 在组内注册带选项的POST请求路由
+     *
+     * @param pattern 相对于组前缀的URL匹配模式
+     * @param handler 请求处理器
+     * @param options 路由选项
+     * @return 当前路由组（支持链式调用）
+     */
+    public RouteGroup post(String pattern, Handler handler, RouteOptions options) {
+        return handle(HttpMethod.POST, pattern, handler, options);
+    }
+
+    /**
+     * 在组内注册PUT请求路由
+     *
+     * @param pattern 相对于组前缀的URL匹配模式
+     * @param handler 请求处理器
+     * @return 当前路由组（支持链式调用）
+     */
+    public RouteGroup put(String pattern, Handler handler) {
+        return handle(HttpMethod.PUT, pattern, handler, RouteOptions.create());
+    }
+
+    /**
+     * 在组内注册带选项的PUT请求路由
+     *
+     * @param pattern 相对于组前缀的URL匹配模式
+     * @param handler 请求处理器
+     * @param options 路由选项
+     * @return 当前路由组（支持链式调用）
+     */
+    public RouteGroup put(String pattern, Handler handler, RouteOptions options) {
+        return handle(HttpMethod.PUT, pattern, handler, options);
+    }
+
+    /**
+     * 在组内注册DELETE请求路由
+     *
+     * @param pattern 相对于组前缀的URL匹配模式
+     * @param handler 请求处理器
+     * @return 当前路由组（支持链式调用）
+     */
+    public RouteGroup delete(String pattern, Handler handler) {
+        return handle(HttpMethod.DELETE, pattern, handler, RouteOptions.create());
+    }
+
+    /**
+     * 在组内注册带选项的DELETE请求路由
+     *
+     * @param pattern 相对于组前缀的URL匹配模式
+     * @param handler 请求处理器
+     * @param options 路由选项
+     * @return 当前路由组（支持链式调用）
+     */
+    public RouteGroup delete(String pattern, Handler handler, RouteOptions options) {
+        return handle(HttpMethod.DELETE, pattern, handler, options);
+    }
+
+    /**
+     * 在组内注册PATCH请求路由
+     *
+     * @param pattern 相对于组前缀的URL匹配模式
+     * @param handler 请求处理器
+     * @return 当前路由组（支持链式调用）
+     */
+    public RouteGroup patch(String pattern, Handler handler) {
+        return handle(HttpMethod.PATCH, pattern, handler, RouteOptions.create());
+    }
+
+    /**
+     * 在组内注册带选项的PATCH请求路由
+     *
+     * @param pattern 相对于组前缀的URL匹配模式
+     * @param handler 请求处理器
+     * @param options 路由选项
+     * @return 当前路由组（支持链式调用）
+     */
+    public RouteGroup patch(String pattern, Handler handler, RouteOptions options) {
+        return handle(HttpMethod.PATCH, pattern, handler, options);
+    }
+
+    /**
+     * 在组内注册HEAD请求路由
+     *
+     * @param pattern 相对于组前缀的URL匹配模式
+     * @param handler 请求处理器
+     * @return 当前路由组（支持链式调用）
+     */
+    public RouteGroup head(String pattern, Handler handler) {
+        return handle(HttpMethod.HEAD, pattern, handler, RouteOptions.create());
+    }
+
+    /**
+     * 在组内注册带选项的HEAD请求路由
+     *
+     * @param pattern 相对于组前缀的URL匹配模式
+     * @param handler 请求处理器
+     * @param options 路由选项
+     * @return 当前路由组（支持链式调用）
+     */
+    public RouteGroup head(String pattern, Handler handler, RouteOptions options) {
+        return handle(HttpMethod.HEAD, pattern, handler, options);
+    }
+
+    /**
+     * 在组内注册OPTIONS请求路由
+     *
+     * @param pattern 相对于组前缀的URL匹配模式
+     * @param handler 请求处理器
+     * @return 当前路由组（支持链式调用）
+     */
+    public RouteGroup options(String pattern, Handler handler) {
+        return handle(HttpMethod.OPTIONS, pattern, handler, RouteOptions.create());
+    }
+
+    /**
+     * 在组内注册带选项的OPTIONS请求路由
+     *
+     * @param pattern 相对于组前缀的URL匹配模式
+     * @param handler 请求处理器
+     * @param options 路由选项
+     * @return 当前路由组（支持链式调用）
+     */
+    public RouteGroup options(String pattern, Handler handler, RouteOptions options) {
+        return handle(HttpMethod.OPTIONS, pattern, handler, options);
+    }
+
+    /**
+     * 在组内为所有常用方法注册同一个处理器
+     *
+     * 方法范围与 {@link Engine#any(String, Handler)} 相同。
+     *
+     * @param pattern 相对于组前缀的URL匹配模式
+     * @param handler 请求处理器
+     * @return 当前路由组（支持链式调用）
+     */
+    public RouteGroup any(String pattern, Handler handler) {
+        for (HttpMethod method : Engine.ANY_METHODS) {
+            handle(method, pattern, handler, RouteOptions.create());
+        }
+        return this;
+    }
+
+    /**
+     * 在组内注册任意HTTP方法的路由
+     *
+     * @param method HTTP请求方法
+     * @param pattern 相对于组前缀的URL匹配模式
+     * @param handler 请求处理器
+     * @param options 路由选项
+     * @return 当前路由组（支持链式调用）
+     */
+    public RouteGroup handle(HttpMethod method, String pattern, Handler handler, RouteOptions options) {
+        List<Middleware> snapshot = middlewares.isEmpty()
+                ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(middlewares));
+        engine.getRouter().addRoute(method, join(pattern), handler, options, snapshot);
+        return this;
+    }
+
+    /**
+     * 获取组的路径前缀
+     *
+     * @return 路径前缀，根组返回空字符串
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * 将相对路径拼接到组前缀之后
+     *
+     * @param pattern 相对路径（如：/users/:id，空字符串或/表示前缀本身）
+     * @return 完整的URL匹配模式
+     */
+    private String join(String pattern) {
+        String path = pattern;
+        while (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        if (path.isEmpty()) {
+            return prefix.isEmpty() ? "/" : prefix;
+        }
+        return prefix + (path.startsWith("/") ? path : "/" + path);
+    }
+}
@@ -0,0 +1,179 @@
+package com.jinitamy.core;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个路由的请求统计
+ *
+ * 在注册路由时创建并保存在路由树节点上，路由表重新编译后仍然沿用同一实例，
+ * 统计不会因为新增路由或中间件而清零。
+ *
+ * 记录路径上只有LongAdder的累加，不加锁、不分配内存：
+ * 1. 请求数按状态码分别计数，新的状态码第一次出现时才复制一次计数器数组
+ * 2. 延迟按微秒记录到固定边界的直方图桶中（非累积计数，输出时再累加）
+ * 3. 正在处理的请求数在开始和结束时分别加减
+ *
+ * 路由单独设置了 {@link RouteOptions#maxInFlight(int)} 时，准入计数同样保存在这里，
+ * 重新编译时仍在处理的请求归还的是同一个计数器。
+ */
+final class RouteMetrics {
+    /** 直方图桶的上界（微秒），超过最后一个上界的请求只计入+Inf */
+    static final long[] BUCKET_BOUNDS = {
+            50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000,
+            100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000
+    };
+
+    /** HTTP方法标签 */
+    final String method;
+    /** 路由模式标签 */
+    final String route;
+    /** 正在处理的请求数 */
+    final LongAdder inFlight = new LongAdder();
+    /** 各桶的请求数，最后一个元素为超出所有上界的请求数 */
+    final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS.length + 1];
+    /** 延迟总和（微秒） */
+    final LongAdder sumMicros = new LongAdder();
+    /** 已准入的请求数（仅在路由设置了并发上限时维护，与是否启用指标无关） */
+    private final AtomicInteger admitted = new AtomicInteger();
+    /** 各状态码的计数器（写时复制） */
+    private volatile StatusCounter[] statuses = new StatusCounter[0];
+
+    /**
+     * 创建路由统计
+     *
+     * @param method HTTP方法标签
+     * @param route 路由模式标签
+     */
+    RouteMetrics(String method, String route) {
+        this.method = method;
+        this.route = route;
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录请求开始
+     */
+    void begin() {
+        inFlight.increment();
+    }
+
+    /**
+     * 记录请求结束
+     *
+     * @param status 响应状态码，为0时只减少正在处理的请求数（请求被中止）
+     * @param nanos 请求耗时（纳秒）
+     */
+    void end(int status, long nanos) {
+        inFlight.decrement();
+        if (status == 0) {
+            return;
+        }
+        status(status).increment();
+        long micros = nanos / 1_000;
+        sumMicros.add(micros);
+        buckets[bucket(micros)].increment();
+    }
+
+    /**
+     * 申请路由的准入许可
+     *
+     * @param limit 路由的并发上限
+     * @return 未达到上限时返回true
+     */
+    boolean tryAdmit(int limit) {
+        while (true) {
+            int current = admitted.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (admitted.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 归还路由的准入许可
+     */
+    void releaseAdmit() {
+        admitted.decrementAndGet();
+    }
+
+    /**
+     * 查找延迟所在的桶
+     */
+    private static int bucket(long micros) {
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            if (micros <= BUCKET_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS.length;
+    }
+
+    /**
+     * 获取状态码的计数器，不存在时创建
+     */
+    private LongAdder status(int code) {
+        StatusCounter[] current = statuses;
+        for (StatusCounter counter : current) {
+            if (counter.code == code) {
+                return counter.count;
+            }
+        }
+        return addStatus(code);
+    }
+
+    private synchronized LongAdder addStatus(int code) {
+        StatusCounter[] current = statuses;
+        for (StatusCounter counter : current) {
+            if (counter.code == code) {
+                return counter.count;
+            }
+        }
+        StatusCounter[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = new StatusCounter(code);
+        statuses = grown;
+        return grown[current.length].count;
+    }
+
+    /**
+     * 获取已出现的状态码计数器
+     *
+     * @return 计数器快照
+     */
+    StatusCounter[] statuses() {
+        return statuses;
+    }
+
+    /**
+     * 获取已完成的请求数
+     *
+     * @return 所有状态码的请求数之和
+     */
+    long count() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * 单个状态码的计数器
+     */
+    static final class StatusCounter {
+        /** 状态码 */
+        final int code;
+        /** 请求数 */
+        final LongAdder count = new LongAdder();
+
+        StatusCounter(int code) {
+            this.code = code;
+        }
+    }
+}
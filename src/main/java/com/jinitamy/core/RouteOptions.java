@@ -0,0 +1,192 @@
+package com.jinitamy.core;
+
+import java.time.Duration;
+
+/**
+ * 路由选项
+ *
+ * 注册路由时可选的附加配置，未设置的选项使用Engine的全局配置。
+ * 所有设置方法都返回当前实例，支持链式调用。
+ *
+ * 使用示例：
+ * <pre>
+ * engine.get("/report", handler, RouteOptions.create()
+ *         .executionMode(ExecutionMode.BLOCKING));
+ *
+ * engine.post("/upload", handler, RouteOptions.create()
+ *         .streaming(true));
+ *
+ * engine.get("/hello/:name", handler, RouteOptions.create()
+ *         .cacheTtl(Duration.ofMinutes(5)));
+ * </pre>
+ */
+public class RouteOptions {
+    /** 执行模式，为null时使用Engine的全局执行模式 */
+    private ExecutionMode executionMode;
+    /** 聚合模式下请求体的最大字节数，为负数时使用Engine的全局限制 */
+    private long maxContentLength = -1;
+    /** 是否以流式方式接收请求体 */
+    private boolean streaming;
+    /** 响应缓存的有效期，为null时使用ResponseCache的默认有效期 */
+    private Duration cacheTtl;
+    /** 该路由允许同时处理的最大请求数，为0时不限制 */
+    private int maxInFlight;
+    /** 异步处理的超时时间，为null时使用Engine的全局超时时间 */
+    private Duration asyncTimeout;
+
+    /**
+     * 创建空的路由选项
+     *
+     * @return 新的路由选项实例
+     */
+    public static RouteOptions create() {
+        return new RouteOptions();
+    }
+
+    /**
+     * 设置处理链的执行模式
+     *
+     * @param executionMode 执行模式
+     * @return 当前路由选项实例（支持链式调用）
+     */
+    public RouteOptions executionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+        return this;
+    }
+
+    /**
+     * 获取处理链的执行模式
+     *
+     * @return 执行模式，未设置时返回null
+     */
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * 设置请求体的最大字节数
+     *
+     * 仅对聚合模式生效，超出限制的请求返回413。
+     *
+     * @param maxContentLength 最大字节数
+     * @return 当前路由选项实例（支持链式调用）
+     */
+    public RouteOptions maxContentLength(long maxContentLength) {
+        if (maxContentLength < 0) {
+            throw new IllegalArgumentException("Max content length cannot be negative");
+        }
+        this.maxContentLength = maxContentLength;
+        return this;
+    }
+
+    /**
+     * 获取请求体的最大字节数
+     *
+     * @return 最大字节数，未设置时返回-1
+     */
+    public long getMaxContentLength() {
+        return maxContentLength;
+    }
+
+    /**
+     * 设置是否以流式方式接收请求体
+     *
+     * 流式路由在收到请求头后立即执行处理链，处理器通过
+     * {@link Context#onBody(BodyListener)} 逐块接收请求体，不受请求体大小限制。
+     * 流式路由的处理链和回调始终在事件循环上执行，执行模式选项对其无效。
+     *
+     * @param streaming 是否流式接收
+     * @return 当前路由选项实例（支持链式调用）
+     */
+    public RouteOptions streaming(boolean streaming) {
+        this.streaming = streaming;
+        return this;
+    }
+
+    /**
+     * 是否以流式方式接收请求体
+     *
+     * @return 流式接收时返回true
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * 设置响应缓存的有效期
+     *
+     * 仅在引擎注册了 {@link ResponseCache} 时生效，为0时该路由不缓存。
+     *
+     * @param ttl 有效期
+     * @return 当前路由选项实例（支持链式调用）
+     */
+    public RouteOptions cacheTtl(Duration ttl) {
+        if (ttl.isNegative()) {
+            throw new IllegalArgumentException("Cache TTL cannot be negative");
+        }
+        this.cacheTtl = ttl;
+        return this;
+    }
+
+    /**
+     * 获取响应缓存的有效期
+     *
+     * @return 有效期，未设置时返回null
+     */
+    public Duration getCacheTtl() {
+        return cacheTtl;
+    }
+
+    /**
+     * 设置该路由允许同时处理的最大请求数
+     *
+     * 达到上限时新的请求立即返回503，不接收请求体也不执行处理链，
+     * 用于防止慢路由（如报表导出）占满全局的 {@link AdmissionControl} 许可或阻塞任务线程。
+     * 不依赖全局准入控制，单独设置即可生效。
+     *
+     * @param maxInFlight 最大请求数，为0时不限制（默认）
+     * @return 当前路由选项实例（支持链式调用）
+     */
+    public RouteOptions maxInFlight(int maxInFlight) {
+        if (maxInFlight < 0) {
+            throw new IllegalArgumentException("Max in-flight requests cannot be negative");
+        }
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    /**
+     * 获取该路由允许同时处理的最大请求数
+     *
+     * @return 最大请求数，为0时不限制
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * 设置异步处理的超时时间
+     *
+     * 处理器通过 {@link AsyncHandler} 或 {@link Context#defer} 返回的Stage
+     * 超过该时间未完成时返回503并取消该Stage。
+     *
+     * @param timeout 超时时间，为0时不限制
+     * @return 当前路由选项实例（支持链式调用）
+     */
+    public RouteOptions asyncTimeout(Duration timeout) {
+        if (timeout.isNegative()) {
+            throw new IllegalArgumentException("Async timeout cannot be negative");
+        }
+        this.asyncTimeout = timeout;
+        return this;
+    }
+
+    /**
+     * 获取异步处理的超时时间
+     *
+     * @return 超时时间，未设置时返回null
+     */
+    public Duration getAsyncTimeout() {
+        return asyncTimeout;
+    }
+}
@@ -1,21 +1,36 @@
 package com.jinitamy.core;
 
 import io.netty.handler.codec.http.HttpMethod;
+import io.netty.util.concurrent.FastThreadLocal;
 
 import java.util.*;
 
 /**
  * 路由器类
- * 
+ *
  * 实现了基于前缀树的路由匹配系统，支持：
  * 1. 静态路由匹配
  * 2. 动态参数路由（如：/user/:id）
- * 3. 通配符路由（如：/files/*）
- * 
+ * 3. 带类型约束的参数路由（如：/user/:id&lt;int&gt;、/order/:ref&lt;uuid&gt;、/tag/:slug&lt;[a-z-]+&gt;，见 {@link ParamConstraint}）
+ * 4. 通配符路由（如：/files/* 或 /files/*filepath）
+ *
  * 路由匹配优先级：
  * 1. 静态路由
- * 2. 动态参数路由
- * 3. 通配符路由
+ * 2. 带约束的参数路由（约束不满足时继续尝试下一个候选）
+ * 3. 不带约束的参数路由
+ * 4. 通配符路由
+ *
+ * 注册阶段使用可变的前缀树（{@link Node}）；在 {@link #compile()} 时（由 Engine.start() 调用，
+ * 或首次查找时自动触发）冻结为只读的压缩前缀树（{@link CompiledNode}）：
+ * 1. 只有一个静态子节点且自身无处理器的链路会被合并为一个多片段节点
+ * 2. 静态、参数、通配符子节点分别存放在独立的槽位中
+ * 3. 查找时按字符偏移直接遍历原始URI，不创建中间数组、不使用Stream、不递归
+ * 4. 每个路由的中间件处理链在编译时预先组合（见 {@link Route}）
+ * 5. 各标准HTTP方法的根节点按方法序号存放在数组中，查找时不经过哈希表
+ *
+ * 方法相关的约定：
+ * 1. HEAD请求没有单独注册的路由时使用GET路由（响应体由HttpHandler丢弃）
+ * 2. {@link #allowedMethods(String)} 返回路径上注册的所有方法，用于405和自动OPTIONS响应的Allow头
  */
 public class Router {
     /**
@@ -27,156 +42,848 @@ public class Router {
         String part;
         /** 参数名（如果是动态参数） */
         String param;
+        /** 参数的类型约束，没有约束时为null */
+        ParamConstraint constraint;
         /** 是否为通配符节点 */
         boolean isWild;
         /** 子节点映射 */
         Map<String, Node> children;
         /** 请求处理器 */
         Handler handler;
+        /** 注册时的URL匹配模式 */
+        String pattern;
+        /** 路由选项 */
+        RouteOptions options;
+        /** 请求统计 */
+        RouteMetrics metrics;
+        /** 路由组的中间件（在全局中间件之后执行） */
+        List<Middleware> middlewares = Collections.emptyList();
 
         /**
          * 创建路由节点
-         * 
+         *
          * @param part 路径片段
          */
         Node(String part) {
             this.part = part;
-            // 判断是否为动态参数（以:开头）或通配符（*）
-            this.isWild = part.startsWith(":") || part.equals("*");
-            // 提取参数名（去掉:前缀）
+            // 判断是否为动态参数（以:开头）或通配符（以*开头）
+            this.isWild = part.startsWith(":") || part.startsWith("*");
+            // 提取参数名（去掉:或*前缀）和尖括号中的约束
             this.param = isWild ? part.substring(1) : "";
-            this.children = new HashMap<>();
+            int open = param.indexOf('<');
+            if (isParam() && open >= 0) {
+                if (open == 0 || !param.endsWith(">")) {
+                    throw new IllegalArgumentException("Invalid route parameter: " + part);
+                }
+                this.constraint = ParamConstraint.parse(param.substring(open + 1, param.length() - 1));
+                this.param = param.substring(0, open);
+            }
+            this.children = new LinkedHashMap<>();
+        }
+
+        boolean isParam() {
+            return isWild && part.charAt(0) == ':';
+        }
+
+        boolean isCatchAll() {
+            return isWild && part.charAt(0) == '*';
         }
     }
 
+    /**
+     * 编译后的只读路由节点
+     */
+    private static final class CompiledNode {
+        /** 节点标签：压缩后的一个或多个静态片段（参数、通配符及根节点为空数组） */
+        final String[] label;
+        /** 路由条目，无处理器时为null */
+        final Route route;
+        /** 静态子节点的首片段，与staticChildren一一对应 */
+        String[] staticKeys;
+        /** 静态子节点 */
+        CompiledNode[] staticChildren;
+        /** 静态子节点较多时使用的开放寻址哈希表，长度为2的幂；为null时线性查找 */
+        CompiledNode[] staticTable;
+        /** 参数子节点（按注册顺序尝试） */
+        CompiledNode[] paramChildren;
+        /** 参数子节点对应的参数名 */
+        String[] paramNames;
+        /** 参数子节点的类型约束，没有约束的为null */
+        ParamConstraint[] paramConstraints;
+        /** 通配符子节点 */
+        CompiledNode wildChild;
+        /** 通配符参数名，为空字符串时不保存 */
+        String wildName;
+
+        CompiledNode(String[] label, Route route) {
+            this.label = label;
+            this.route = route;
+        }
+    }
+
+    /**
+     * 编译结果：各HTTP方法的根节点及匹配所需的最大深度
+     */
+    private static final class Compiled {
+        /** 标准方法的根节点，下标为 {@link #ordinal(HttpMethod)} */
+        final CompiledNode[] roots;
+        /** 非标准方法（如WebDAV的PROPFIND）的根节点 */
+        final Map<HttpMethod, CompiledNode> customRoots;
+        final int maxDepth;
+
+        Compiled(CompiledNode[] roots, Map<HttpMethod, CompiledNode> customRoots, int maxDepth) {
+            this.roots = roots;
+            this.customRoots = customRoots;
+            this.maxDepth = maxDepth;
+        }
+    }
+
+    /**
+     * 匹配过程使用的线程私有暂存区，避免每次查找分配内存
+     */
+    private static final class Scratch {
+        CompiledNode[] nodes = new CompiledNode[16];
+        int[] positions = new int[16];
+        int[] stages = new int[16];
+        int[] paramBases = new int[16];
+        String[] paramNames = new String[16];
+        int[] paramStarts = new int[16];
+        int[] paramEnds = new int[16];
+
+        void ensureCapacity(int depth) {
+            if (depth <= nodes.length) {
+                return;
+            }
+            int size = Integer.highestOneBit(depth - 1) << 1;
+            nodes = Arrays.copyOf(nodes, size);
+            positions = Arrays.copyOf(positions, size);
+            stages = Arrays.copyOf(stages, size);
+            paramBases = Arrays.copyOf(paramBases, size);
+            paramNames = Arrays.copyOf(paramNames, size);
+            paramStarts = Arrays.copyOf(paramStarts, size);
+            paramEnds = Arrays.copyOf(paramEnds, size);
+        }
+    }
+
+    /** 静态子节点数超过该值时建立哈希表 */
+    private static final int HASH_THRESHOLD = 8;
+
+    /** 标准HTTP方法，下标即方法序号（按常用程度排列，查找时依次比较引用） */
+    private static final HttpMethod[] METHODS = {
+            HttpMethod.GET, HttpMethod.POST, HttpMethod.HEAD, HttpMethod.PUT, HttpMethod.DELETE,
+            HttpMethod.PATCH, HttpMethod.OPTIONS, HttpMethod.TRACE, HttpMethod.CONNECT
+    };
+    /** GET的方法序号 */
+    private static final int GET = 0;
+    /** HEAD的方法序号 */
+    private static final int HEAD = 2;
+    /** OPTIONS的方法序号 */
+    private static final int OPTIONS = 6;
+    /** Allow头中方法的输出顺序 */
+    private static final int[] ALLOW_ORDER = {GET, HEAD, 1, 3, 4, 5, OPTIONS, 7, 8};
+
+    private static final String[] EMPTY_LABEL = new String[0];
+
+    private static final FastThreadLocal<Scratch> SCRATCH = new FastThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
     /** 路由树根节点映射，按HTTP方法分类 */
     private final Map<HttpMethod, Node> roots;
+    /** 作用于所有路由的中间件列表 */
+    private final List<Middleware> middlewares;
+    /** 编译后的路由树，路由变更后置为null，下次查找时重新编译 */
+    private volatile Compiled compiled;
 
     /**
      * 构造函数
      * 初始化路由树根节点映射
      */
     public Router() {
+        this(Collections.emptyList());
+    }
+
+    /**
+     * 创建使用指定中间件列表的路由器
+     *
+     * 中间件列表由Engine持有，编译时会对其做快照并组合进每个路由的处理链。
+     *
+     * @param middlewares 中间件列表
+     */
+    Router(List<Middleware> middlewares) {
         this.roots = new HashMap<>();
+        this.middlewares = middlewares;
     }
 
     /**
      * 添加路由规则
-     * 
+     *
      * 将路由规则添加到路由树中，支持动态参数和通配符。
      * 例如：
      * - /user/:id
      * - /files/*
+     * - /assets/*filepath
      * - /static/css
-     * 
+     *
      * @param method HTTP请求方法
      * @param pattern URL匹配模式
      * @param handler 请求处理器
      */
     public void addRoute(HttpMethod method, String pattern, Handler handler) {
+        addRoute(method, pattern, handler, RouteOptions.create());
+    }
+
+    /**
+     * 添加带选项的路由规则
+     *
+     * @param method HTTP请求方法
+     * @param pattern URL匹配模式
+     * @param handler 请求处理器
+     * @param options 路由选项
+     */
+    public void addRoute(HttpMethod method, String pattern, Handler handler, RouteOptions options) {
+        addRoute(method, pattern, handler, options, Collections.emptyList());
+    }
+
+    /**
+     * 添加属于路由组的路由规则
+     *
+     * @param method HTTP请求方法
+     * @param pattern URL匹配模式
+     * @param handler 请求处理器
+     * @param options 路由选项
+     * @param middlewares 路由组的中间件（注册时的快照），编译时接在全局中间件之后
+     */
+    synchronized void addRoute(HttpMethod method, String pattern, Handler handler, RouteOptions options,
+                               List<Middleware> middlewares) {
         // 解析路径为片段数组
         String[] parts = parsePath(pattern);
-        
+
         // 获取或创建对应HTTP方法的路由树根节点
         Node root = roots.computeIfAbsent(method, k -> new Node(""));
-        
+
         // 构建路由树
         Node node = root;
         for (String part : parts) {
             node = node.children.computeIfAbsent(part, Node::new);
         }
         node.handler = handler;
+        node.pattern = pattern;
+        node.options = options != null ? options : RouteOptions.create();
+        node.middlewares = middlewares;
+        if (node.metrics == null) {
+            node.metrics = new RouteMetrics(method.name(), pattern);
+        }
+        // 路由表已变更，丢弃旧的编译结果
+        this.compiled = null;
+    }
+
+    /**
+     * 使编译结果失效
+     *
+     * 中间件列表变更后由Engine调用，下次查找时会重新组合处理链。
+     */
+    synchronized void invalidate() {
+        this.compiled = null;
+    }
+
+    /**
+     * 编译路由树
+     *
+     * 将当前注册的路由冻结为只读的压缩前缀树，并为每个路由组合好中间件处理链。
+     * Engine.start() 会主动调用该方法，之后新增路由或中间件会使编译结果失效，
+     * 并在下次查找时重新编译。
+     */
+    public synchronized void compile() {
+        if (compiled != null) {
+            return;
+        }
+        List<Middleware> chain = new ArrayList<>(middlewares);
+        CompiledNode[] compiledRoots = new CompiledNode[METHODS.length];
+        Map<HttpMethod, CompiledNode> customRoots = new HashMap<>();
+        int maxDepth = 1;
+        for (Map.Entry<HttpMethod, Node> entry : roots.entrySet()) {
+            CompiledNode root = compileNode(entry.getKey(), entry.getValue(), EMPTY_LABEL, chain);
+            int index = ordinal(entry.getKey());
+            if (index >= 0) {
+                compiledRoots[index] = root;
+            } else {
+                customRoots.put(entry.getKey(), root);
+            }
+            maxDepth = Math.max(maxDepth, depth(entry.getValue()));
+        }
+        this.compiled = new Compiled(compiledRoots, customRoots.isEmpty() ? Collections.emptyMap() : customRoots,
+                maxDepth + 1);
+    }
+
+    /**
+     * 获取所有已注册的路由
+     *
+     * @return 编译后的路由条目
+     */
+    List<Route> routes() {
+        Compiled c = compiled;
+        if (c == null) {
+            compile();
+            c = compiled;
+        }
+        List<Route> routes = new ArrayList<>();
+        for (CompiledNode root : c.roots) {
+            if (root != null) {
+                collectRoutes(root, routes);
+            }
+        }
+        for (CompiledNode root : c.customRoots.values()) {
+            collectRoutes(root, routes);
+        }
+        return routes;
+    }
+
+    private static void collectRoutes(CompiledNode node, List<Route> routes) {
+        if (node.route != null) {
+            routes.add(node.route);
+        }
+        if (node.staticChildren != null) {
+            for (CompiledNode child : node.staticChildren) {
+                collectRoutes(child, routes);
+            }
+        }
+        if (node.paramChildren != null) {
+            for (CompiledNode child : node.paramChildren) {
+                collectRoutes(child, routes);
+            }
+        }
+        if (node.wildChild != null) {
+            collectRoutes(node.wildChild, routes);
+        }
+    }
+
+    /**
+     * 规范化请求路径
+     *
+     * 1. 合并连续的斜杠：/api//users 规范化为 /api/users
+     * 2. 去掉 . 片段，.. 片段回退到上一级（不会超出根路径）
+     * 3. 按百分号编码的点（%2e）同样视为 . 和 .. 片段
+     *
+     * 不需要规范化的路径原样返回，不分配内存；不以斜杠开头的路径（如OPTIONS的 *）不处理。
+     *
+     * @param path 不含查询字符串的请求路径
+     * @return 规范化的路径
+     */
+    static String normalizePath(String path) {
+        int length = path.length();
+        if (length == 0 || path.charAt(0) != '/' || isNormalized(path)) {
+            return path;
+        }
+        StringBuilder sb = new StringBuilder(length);
+        // 最后一个片段是否为目录（空片段、. 或 ..），是时保留末尾的斜杠
+        boolean directory = false;
+        for (int start = 1; start <= length; ) {
+            int end = segmentEnd(path, start, length);
+            int dots = dotSegment(path, start, end);
+            if (dots == 2) {
+                sb.setLength(Math.max(sb.lastIndexOf("/"), 0));
+                directory = true;
+            } else if (dots == 1 || end == start) {
+                directory = true;
+            } else {
+                sb.append('/').append(path, start, end);
+                directory = false;
+            }
+            start = end + 1;
+        }
+        if (directory || sb.length() == 0) {
+            sb.append('/');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 检查路径中是否没有连续的斜杠和 . / .. 片段
+     */
+    private static boolean isNormalized(String path) {
+        int length = path.length();
+        for (int start = 1; start < length; ) {
+            int end = segmentEnd(path, start, length);
+            if (end == start || dotSegment(path, start, end) != 0) {
+                return false;
+            }
+            start = end + 1;
+        }
+        return true;
+    }
+
+    /**
+     * 判断片段是否为 . 或 ..（包括百分号编码的点）
+     *
+     * @return 1表示 .，2表示 ..，其他片段为0
+     */
+    private static int dotSegment(String path, int start, int end) {
+        int dots = 0;
+        int i = start;
+        while (i < end && dots <= 2) {
+            if (path.charAt(i) == '.') {
+                i++;
+            } else if (i + 3 <= end && path.charAt(i) == '%' && path.charAt(i + 1) == '2'
+                    && (path.charAt(i + 2) == 'e' || path.charAt(i + 2) == 'E')) {
+                i += 3;
+            } else {
+                return 0;
+            }
+            dots++;
+        }
+        return dots <= 2 ? dots : 0;
     }
 
     /**
      * 查找匹配的路由处理器
-     * 
+     *
      * 根据HTTP方法和请求路径查找匹配的路由规则，
      * 如果匹配到动态参数，会将其值保存到上下文中。
-     * 
+     *
      * @param method HTTP请求方法
      * @param path 请求路径
      * @param ctx 请求上下文
      * @return 匹配的处理器，如果没有匹配则返回null
      */
     public Handler getRoute(HttpMethod method, String path, Context ctx) {
-        String[] parts = parsePath(path);
-        Node root = roots.get(method);
-        if (root == null) {
+        Route route = match(method, path, ctx);
+        return route != null ? route.getHandler() : null;
+    }
+
+    /**
+     * 查找匹配的路由条目
+     *
+     * 与 {@link #getRoute} 相同，但返回包含预组合处理链的路由条目。
+     * HEAD请求没有匹配的HEAD路由时匹配GET路由。
+     *
+     * 路径应该已经去掉查询字符串（见 {@link Context#getPath()}），
+     * 参数值中的百分号编码在写入上下文时解码，按编码后的路径匹配，因此%2F不会被当作路径分隔符。
+     *
+     * @param method HTTP请求方法
+     * @param path 请求路径
+     * @param ctx 请求上下文
+     * @return 匹配的路由条目，如果没有匹配则返回null
+     */
+    public Route match(HttpMethod method, String path, Context ctx) {
+        Compiled c = compiled;
+        if (c == null) {
+            compile();
+            c = compiled;
+        }
+        if (path == null) {
             return null;
         }
+        int index = ordinal(method);
+        CompiledNode root = index >= 0 ? c.roots[index] : c.customRoots.get(method);
+        Route route = root != null ? match(root, c.maxDepth, path, ctx) : null;
+        if (route == null && index == HEAD && c.roots[GET] != null) {
+            route = match(c.roots[GET], c.maxDepth, path, ctx);
+        }
+        return route;
+    }
 
-        return searchNode(root, parts, 0, ctx);
+    /**
+     * 获取路径上注册的所有方法
+     *
+     * 用于没有匹配的路由时区分404和405，以及自动回复OPTIONS请求。
+     * 注册了GET时包含HEAD，有任何方法时包含OPTIONS；路径为 * 时返回所有注册过的方法。
+     *
+     * @param path 请求路径
+     * @return 逗号分隔的方法列表（如 "GET, HEAD, OPTIONS"），路径上没有任何路由时返回null
+     */
+    public String allowedMethods(String path) {
+        Compiled c = compiled;
+        if (c == null) {
+            compile();
+            c = compiled;
+        }
+        if (path == null) {
+            return null;
+        }
+        boolean any = "*".equals(path);
+        boolean[] allowed = new boolean[METHODS.length];
+        boolean found = false;
+        for (int i = 0; i < METHODS.length; i++) {
+            CompiledNode root = c.roots[i];
+            if (root != null && (any || match(root, c.maxDepth, path, null) != null)) {
+                allowed[i] = true;
+                found = true;
+            }
+        }
+        StringBuilder custom = new StringBuilder();
+        for (Map.Entry<HttpMethod, CompiledNode> entry : c.customRoots.entrySet()) {
+            if (any || match(entry.getValue(), c.maxDepth, path, null) != null) {
+                custom.append(", ").append(entry.getKey().name());
+                found = true;
+            }
+        }
+        if (!found) {
+            return null;
+        }
+        allowed[HEAD] |= allowed[GET];
+        allowed[OPTIONS] = true;
+        StringBuilder sb = new StringBuilder();
+        for (int i : ALLOW_ORDER) {
+            if (allowed[i]) {
+                if (sb.length() > 0) {
+                    sb.append(", ");
+                }
+                sb.append(METHODS[i].name());
+            }
+        }
+        return sb.append(custom).toString();
+    }
+
+    /**
+     * 获取标准HTTP方法的序号
+     *
+     * 请求解码器对标准方法返回HttpMethod中的常量，先按引用比较，再按名称比较。
+     *
+     * @param method HTTP请求方法
+     * @return 方法序号，非标准方法返回-1
+     */
+    static int ordinal(HttpMethod method) {
+        for (int i = 0; i < METHODS.length; i++) {
+            if (METHODS[i] == method) {
+                return i;
+            }
+        }
+        for (int i = 0; i < METHODS.length; i++) {
+            if (METHODS[i].equals(method)) {
+                return i;
+            }
+        }
+        return -1;
     }
-    
+
     /**
-     * 递归搜索路由节点
-     * 
-     * @param node 当前节点
-     * @param parts 路径片段数组
-     * @param index 当前处理的片段索引
+     * 在编译后的路由树上进行匹配
+     *
+     * 使用显式栈代替递归，实现与原前缀树相同的回溯语义：
+     * 每个节点依次尝试静态子节点、参数子节点和通配符子节点，失败后回退到父节点。
+     * 带约束的参数子节点在片段不满足约束时直接跳过。
+     * 参数只记录起止偏移，匹配成功后才写入上下文（上下文为null时不写入）。
+     *
+     * @param root 根节点
+     * @param maxDepth 最大匹配深度
+     * @param path 请求路径
      * @param ctx 请求上下文
-     * @return 匹配的处理器，如果没有匹配则返回null
+     * @return 匹配的路由条目，如果没有匹配则返回null
+     */
+    private static Route match(CompiledNode root, int maxDepth, String path, Context ctx) {
+        // 忽略末尾的斜杠
+        int end = path.length();
+        while (end > 0 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+
+        Scratch s = SCRATCH.get();
+        s.ensureCapacity(maxDepth);
+        CompiledNode[] nodes = s.nodes;
+        int[] positions = s.positions;
+        int[] stages = s.stages;
+        int[] paramBases = s.paramBases;
+
+        int top = 0;
+        nodes[0] = root;
+        positions[0] = skipSlashes(path, 0, end);
+        stages[0] = 0;
+        paramBases[0] = 0;
+
+        while (top >= 0) {
+            CompiledNode node = nodes[top];
+            int pos = positions[top];
+            int paramCount = paramBases[top];
+
+            // 已经处理完所有路径片段
+            if (pos >= end) {
+                if (node.route != null) {
+                    publishParams(s, paramCount, path, ctx);
+                    return node.route;
+                }
+                top--;
+                continue;
+            }
+
+            int segEnd = segmentEnd(path, pos, end);
+            // 阶段0：静态子节点；阶段1..n：第n个参数子节点；阶段n+1：通配符子节点
+            int stage = stages[top]++;
+
+            // 1. 优先匹配静态路由
+            if (stage == 0) {
+                CompiledNode child = findStatic(node, path, pos, segEnd);
+                if (child != null) {
+                    int next = matchLabel(child.label, path, segEnd, end);
+                    if (next >= 0) {
+                        top++;
+                        nodes[top] = child;
+                        positions[top] = next;
+                        stages[top] = 0;
+                        paramBases[top] = paramCount;
+                    }
+                }
+                continue;
+            }
+
+            // 2. 匹配动态参数路由
+            CompiledNode[] params = node.paramChildren;
+            int paramSlots = params == null ? 0 : params.length;
+            if (stage <= paramSlots) {
+                int index = stage - 1;
+                ParamConstraint constraint = node.paramConstraints[index];
+                if (constraint != null && !constraint.matches(path, pos, segEnd)) {
+                    continue;
+                }
+                s.paramNames[paramCount] = node.paramNames[index];
+                s.paramStarts[paramCount] = pos;
+                s.paramEnds[paramCount] = segEnd;
+                top++;
+                nodes[top] = params[index];
+                positions[top] = skipSlashes(path, segEnd, end);
+                stages[top] = 0;
+                paramBases[top] = paramCount + 1;
+                continue;
+            }
+
+            // 3. 匹配通配符路由（*匹配剩余所有路径）
+            CompiledNode wild = node.wildChild;
+            if (stage == paramSlots + 1 && wild != null && wild.route != null) {
+                if (!node.wildName.isEmpty()) {
+                    s.paramNames[paramCount] = node.wildName;
+                    s.paramStarts[paramCount] = pos;
+                    s.paramEnds[paramCount] = end;
+                    paramCount++;
+                }
+                publishParams(s, paramCount, path, ctx);
+                return wild.route;
+            }
+
+            // 所有候选均失败，回退到父节点
+            top--;
+        }
+        return null;
+    }
+
+    /**
+     * 匹配成功后将记录的参数写入上下文
      */
-    private Handler searchNode(Node node, String[] parts, int index, Context ctx) {
-        // 如果已经处理完所有路径片段
-        if (index == parts.length) {
-            return node.handler;
+    private static void publishParams(Scratch s, int paramCount, String path, Context ctx) {
+        if (ctx != null && paramCount > 0) {
+            ctx.reserveParams(paramCount);
         }
-        
-        String part = parts[index];
-        
-        // 1. 优先匹配静态路由
-        Node staticChild = node.children.get(part);
-        if (staticChild != null && !staticChild.isWild) {
-            Handler result = searchNode(staticChild, parts, index + 1, ctx);
-            if (result != null) {
-                return result;
+        for (int i = 0; i < paramCount; i++) {
+            if (ctx != null) {
+                // 只记录参数在路径中的位置，读取时才创建（并解码）字符串
+                ctx.setParamRange(s.paramNames[i], path, s.paramStarts[i], s.paramEnds[i]);
             }
+            s.paramNames[i] = null;
         }
-        
-        // 2. 匹配动态参数路由
-        for (Node child : node.children.values()) {
-            if (child.isWild && child.part.startsWith(":")) {
-                // 保存参数值
-                ctx.setParam(child.param, part);
-                Handler result = searchNode(child, parts, index + 1, ctx);
-                if (result != null) {
-                    return result;
+    }
+
+    /**
+     * 跳过连续的斜杠
+     */
+    private static int skipSlashes(String path, int pos, int end) {
+        while (pos < end && path.charAt(pos) == '/') {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * 查找当前片段的结束位置（下一个斜杠或路径末尾）
+     */
+    private static int segmentEnd(String path, int pos, int end) {
+        while (pos < end && path.charAt(pos) != '/') {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * 按片段首字符串查找静态子节点
+     */
+    private static CompiledNode findStatic(CompiledNode node, String path, int start, int end) {
+        CompiledNode[] table = node.staticTable;
+        int len = end - start;
+        if (table != null) {
+            int mask = table.length - 1;
+            for (int i = spread(hash(path, start, end)) & mask; ; i = (i + 1) & mask) {
+                CompiledNode candidate = table[i];
+                if (candidate == null) {
+                    return null;
+                }
+                String key = candidate.label[0];
+                if (key.length() == len && path.regionMatches(start, key, 0, len)) {
+                    return candidate;
                 }
-                // 如果没有匹配，移除参数
-                ctx.removeParam(child.param);
             }
         }
-        
-        // 3. 匹配通配符路由（*匹配剩余所有路径）
+        String[] keys = node.staticKeys;
+        if (keys == null) {
+            return null;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            String key = keys[i];
+            if (key.length() == len && path.regionMatches(start, key, 0, len)) {
+                return node.staticChildren[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 匹配压缩标签中除首片段外的剩余片段
+     *
+     * @return 匹配成功后下一个片段的起始位置，失败返回-1
+     */
+    private static int matchLabel(String[] label, String path, int pos, int end) {
+        for (int i = 1; i < label.length; i++) {
+            pos = skipSlashes(path, pos, end);
+            if (pos >= end) {
+                return -1;
+            }
+            int segEnd = segmentEnd(path, pos, end);
+            String segment = label[i];
+            int len = segEnd - pos;
+            if (segment.length() != len || !path.regionMatches(pos, segment, 0, len)) {
+                return -1;
+            }
+            pos = segEnd;
+        }
+        return skipSlashes(path, pos, end);
+    }
+
+    /**
+     * 计算字符区间的哈希值，与 String.hashCode() 一致
+     */
+    private static int hash(String s, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + s.charAt(i);
+        }
+        return h;
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 将可变节点编译为只读节点
+     *
+     * @param method HTTP请求方法
+     * @param node 可变节点
+     * @param label 编译后节点的标签
+     * @param chain 全局中间件快照
+     * @return 编译后的节点
+     */
+    private static CompiledNode compileNode(HttpMethod method, Node node, String[] label, List<Middleware> chain) {
+        Route route = null;
+        if (node.handler != null) {
+            List<Middleware> routeChain = chain;
+            if (!node.middlewares.isEmpty()) {
+                routeChain = new ArrayList<>(chain.size() + node.middlewares.size());
+                routeChain.addAll(chain);
+                routeChain.addAll(node.middlewares);
+            }
+            route = new Route(method, node.pattern, node.handler, node.options, routeChain, node.metrics);
+        }
+        CompiledNode compiledNode = new CompiledNode(label, route);
+
+        List<String> staticKeys = new ArrayList<>();
+        List<CompiledNode> staticChildren = new ArrayList<>();
+        List<String> paramNames = new ArrayList<>();
+        List<ParamConstraint> paramConstraints = new ArrayList<>();
+        List<CompiledNode> paramChildren = new ArrayList<>();
+        // 带约束的参数子节点排在不带约束的之前，与注册顺序无关
+        int constrained = 0;
+
         for (Node child : node.children.values()) {
-            if (child.isWild && "*".equals(child.part)) {
-                // 通配符匹配剩余所有路径
-                StringBuilder wildcardValue = new StringBuilder();
-                for (int i = index; i < parts.length; i++) {
-                    if (i > index) {
-                        wildcardValue.append("/");
-                    }
-                    wildcardValue.append(parts[i]);
+            if (child.isParam()) {
+                int index = child.constraint != null ? constrained++ : paramChildren.size();
+                paramNames.add(index, child.param);
+                paramConstraints.add(index, child.constraint);
+                paramChildren.add(index, compileNode(method, child, EMPTY_LABEL, chain));
+            } else if (child.isCatchAll()) {
+                // 与原实现一致，只保留第一个通配符子节点
+                if (compiledNode.wildChild == null) {
+                    compiledNode.wildChild = compileNode(method, child, EMPTY_LABEL, chain);
+                    compiledNode.wildName = child.param;
                 }
-                if (!child.param.isEmpty()) {
-                    ctx.setParam(child.param, wildcardValue.toString());
+            } else {
+                // 合并只有一个静态子节点的路径链
+                List<String> segments = new ArrayList<>();
+                segments.add(child.part);
+                Node tail = child;
+                while (tail.handler == null && tail.children.size() == 1) {
+                    Node only = tail.children.values().iterator().next();
+                    if (only.isWild) {
+                        break;
+                    }
+                    segments.add(only.part);
+                    tail = only;
                 }
-                return child.handler;
+                staticKeys.add(child.part);
+                staticChildren.add(compileNode(method, tail, segments.toArray(new String[0]), chain));
             }
         }
-        
-        return null;
+
+        if (!staticChildren.isEmpty()) {
+            compiledNode.staticKeys = staticKeys.toArray(new String[0]);
+            compiledNode.staticChildren = staticChildren.toArray(new CompiledNode[0]);
+            if (staticChildren.size() > HASH_THRESHOLD) {
+                compiledNode.staticTable = buildTable(compiledNode.staticChildren);
+            }
+        }
+        if (!paramChildren.isEmpty()) {
+            compiledNode.paramNames = paramNames.toArray(new String[0]);
+            compiledNode.paramConstraints = paramConstraints.toArray(new ParamConstraint[0]);
+            compiledNode.paramChildren = paramChildren.toArray(new CompiledNode[0]);
+        }
+        return compiledNode;
+    }
+
+    /**
+     * 为静态子节点建立开放寻址哈希表（负载因子不超过0.5）
+     */
+    private static CompiledNode[] buildTable(CompiledNode[] children) {
+        CompiledNode[] table = new CompiledNode[Integer.highestOneBit(children.length * 2 - 1) << 1];
+        int mask = table.length - 1;
+        for (CompiledNode child : children) {
+            String key = child.label[0];
+            int i = spread(key.hashCode()) & mask;
+            while (table[i] != null) {
+                i = (i + 1) & mask;
+            }
+            table[i] = child;
+        }
+        return table;
+    }
+
+    /**
+     * 计算路由树深度（节点层数）
+     */
+    private static int depth(Node node) {
+        int max = 0;
+        for (Node child : node.children.values()) {
+            max = Math.max(max, depth(child));
+        }
+        return max + 1;
     }
 
     /**
      * 解析URL路径
-     * 
-     * 将URL路径分割为片段数组，过滤掉空片段。
+     *
+     * 将URL路径分割为片段数组，过滤掉空片段。仅在注册路由时使用。
+     * 参数约束中的正则表达式因此不能包含/。
      * 例如："/user/123" -> ["user", "123"]
      * 特殊处理根路径"/" -> []
-     * 
+     *
      * @param path URL路径
      * @return 路径片段数组
      */
@@ -184,14 +891,14 @@ public class Router {
         if (path == null || path.isEmpty()) {
             return new String[0];
         }
-        
+
         // 处理根路径
         if ("/".equals(path)) {
             return new String[0];
         }
-        
+
         return Arrays.stream(path.split("/"))
                 .filter(p -> !p.isEmpty())
                 .toArray(String[]::new);
     }
-}
\ No newline at end of file
+}
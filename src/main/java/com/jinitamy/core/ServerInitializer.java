@@ -0,0 +1,204 @@
+package com.jinitamy.core;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler;
+import io.netty.handler.codec.http2.CleartextHttp2ServerUpgradeHandler;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2FrameCodec;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2ServerUpgradeCodec;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.ApplicationProtocolNegotiationHandler;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.util.AsciiString;
+
+/**
+ * 连接管道初始化器
+ *
+ * 由 {@link Engine#start()} 创建，根据引擎配置为每个新连接构建管道：
+ * 1. HTTP/1.1：HttpServerCodec → [HttpCompressionHandler] → HttpHandler，
+ *    TLS连接在HttpHandler之前还有ChunkedWriteHandler，用于分块发送文件
+ * 2. 明文HTTP/2（h2c）：根据连接前言识别直接使用HTTP/2的客户端（prior knowledge），
+ *    或者响应 Upgrade: h2c 升级请求；其他连接仍按HTTP/1.1处理
+ * 3. TLS：SslHandler之后按ALPN协商结果选择h2或http/1.1
+ * 启用运行指标时，管道最前端还有统计收发字节数的处理器。
+ *
+ * HTTP/2的每个流是一个子通道，管道为 Http2StreamFrameToHttpObjectCodec → [HttpCompressionHandler] → ChunkedWriteHandler → HttpHandler。
+ * 帧在子通道内转换为HTTP/1.1消息对象，现有的Context、路由、中间件和处理器无需修改即可处理HTTP/2请求，
+ * 同一连接上的多个流互不阻塞。
+ */
+final class ServerInitializer extends ChannelInitializer<Channel> {
+    /** 单个连接允许的最大并发流数 */
+    static final int MAX_CONCURRENT_STREAMS = 256;
+    /** 压缩处理器在管道中的名称 */
+    private static final String COMPRESSION = "compression";
+    /** 分块发送文件的处理器在管道中的名称 */
+    private static final String CHUNKED = "chunked";
+    /** HTTP处理器在管道中的名称 */
+    private static final String HANDLER = "handler";
+    /** 帧与HTTP/1.1消息对象之间的转换器（无状态，所有流共享） */
+    private static final Http2StreamFrameToHttpObjectCodec STREAM_CODEC = new Http2StreamFrameToHttpObjectCodec(true);
+
+    /** Web引擎 */
+    private final Engine engine;
+    /** TLS上下文，为null时使用明文连接 */
+    private final SslContext sslContext;
+    /** 是否启用HTTP/2 */
+    private final boolean http2;
+    /** 压缩选项，为null时不压缩 */
+    private final CompressionOptions compression;
+    /** 压缩结果缓存 */
+    private final CompressionCache compressionCache;
+    /** 运行指标，为null时不统计收发字节数 */
+    private final Metrics metrics;
+    /** HTTP/2流子通道的初始化器 */
+    private final ChannelHandler streamInitializer = new ChannelInitializer<Http2StreamChannel>() {
+        @Override
+        protected void initChannel(Http2StreamChannel ch) {
+            ch.pipeline().addLast(STREAM_CODEC);
+            addHttpHandlers(ch.pipeline(), true);
+        }
+    };
+
+    /**
+     * 创建初始化器
+     *
+     * @param engine Web引擎
+     * @param sslContext TLS上下文，为null时使用明文连接
+     * @param http2 是否启用HTTP/2
+     * @param compression 压缩选项，为null时不压缩
+     * @param compressionCache 压缩结果缓存，可以为null
+     * @param metrics 运行指标，可以为null
+     */
+    ServerInitializer(Engine engine, SslContext sslContext, boolean http2,
+                      CompressionOptions compression, CompressionCache compressionCache, Metrics metrics) {
+        this.engine = engine;
+        this.sslContext = sslContext;
+        this.http2 = http2;
+        this.compression = compression;
+        this.compressionCache = compressionCache;
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void initChannel(Channel ch) {
+        ChannelPipeline pipeline = ch.pipeline();
+        if (metrics != null) {
+            pipeline.addLast(metrics.trafficHandler());
+        }
+        if (sslContext != null) {
+            pipeline.addLast(sslContext.newHandler(ch.alloc()));
+            if (http2) {
+                pipeline.addLast(new AlpnHandler());
+                return;
+            }
+        } else if (http2) {
+            HttpServerCodec codec = new HttpServerCodec();
+            HttpServerUpgradeHandler upgradeHandler = new HttpServerUpgradeHandler(codec, protocol ->
+                    AsciiString.contentEquals(Http2CodecUtil.HTTP_UPGRADE_PROTOCOL_NAME, protocol)
+                            ? new Http2ServerUpgradeCodec(newFrameCodec(), newMultiplexHandler(), new Http1Remover())
+                            : null,
+                    (int) Math.min(Integer.MAX_VALUE, engine.getMaxContentLength()));
+            // 编解码器和升级处理器由该处理器在其后添加；识别出HTTP/2连接前言时整体替换为HTTP/2处理器
+            pipeline.addLast(new CleartextHttp2ServerUpgradeHandler(codec, upgradeHandler, new PriorKnowledgeInitializer()));
+            addHttpHandlers(pipeline, false);
+            return;
+        }
+        pipeline.addLast(new HttpServerCodec());
+        addHttpHandlers(pipeline, sslContext != null);
+    }
+
+    /**
+     * 添加处理HTTP消息对象的处理器（HTTP/1.1连接和HTTP/2流共用）
+     *
+     * 明文HTTP/1.1连接通过FileRegion由内核发送文件，不需要ChunkedWriteHandler；
+     * TLS连接和HTTP/2流需要它分块读取文件（见 {@link ResponseStream#transferFile}），在建立管道时一次性添加。
+     *
+     * @param pipeline 连接或流的管道
+     * @param chunked 是否添加分块发送文件的处理器
+     */
+    private void addHttpHandlers(ChannelPipeline pipeline, boolean chunked) {
+        if (compression != null) {
+            pipeline.addLast(COMPRESSION, new HttpCompressionHandler(compression, compressionCache));
+        }
+        if (chunked) {
+            pipeline.addLast(CHUNKED, new ChunkedWriteHandler());
+        }
+        pipeline.addLast(HANDLER, new HttpHandler(engine));
+    }
+
+    /**
+     * 移除连接级的HTTP/1.1处理器（切换到HTTP/2后由各个流自己的处理器处理请求）
+     */
+    private static void removeHttpHandlers(ChannelPipeline pipeline) {
+        if (pipeline.get(COMPRESSION) != null) {
+            pipeline.remove(COMPRESSION);
+        }
+        if (pipeline.get(CHUNKED) != null) {
+            pipeline.remove(CHUNKED);
+        }
+        if (pipeline.get(HANDLER) != null) {
+            pipeline.remove(HANDLER);
+        }
+    }
+
+    private static Http2FrameCodec newFrameCodec() {
+        return Http2FrameCodecBuilder.forServer()
+                .initialSettings(Http2Settings.defaultSettings().maxConcurrentStreams(MAX_CONCURRENT_STREAMS))
+                .build();
+    }
+
+    private Http2MultiplexHandler newMultiplexHandler() {
+        return new Http2MultiplexHandler(streamInitializer);
+    }
+
+    /**
+     * 客户端直接发送HTTP/2连接前言时安装HTTP/2处理器
+     */
+    private final class PriorKnowledgeInitializer extends ChannelInitializer<Channel> {
+        @Override
+        protected void initChannel(Channel ch) {
+            removeHttpHandlers(ch.pipeline());
+            ch.pipeline().addLast(newFrameCodec(), newMultiplexHandler());
+        }
+    }
+
+    /**
+     * h2c升级完成后移除HTTP/1.1处理器，升级请求本身作为流1交给子通道处理
+     */
+    private static final class Http1Remover extends ChannelInitializer<Channel> {
+        @Override
+        protected void initChannel(Channel ch) {
+            removeHttpHandlers(ch.pipeline());
+        }
+    }
+
+    /**
+     * TLS握手完成后按ALPN协商的协议构建管道，客户端不支持ALPN时使用HTTP/1.1
+     */
+    private final class AlpnHandler extends ApplicationProtocolNegotiationHandler {
+        AlpnHandler() {
+            super(ApplicationProtocolNames.HTTP_1_1);
+        }
+
+        @Override
+        protected void configurePipeline(ChannelHandlerContext ctx, String protocol) {
+            if (ApplicationProtocolNames.HTTP_2.equals(protocol)) {
+                ctx.pipeline().addLast(newFrameCodec(), newMultiplexHandler());
+            } else {
+                ctx.pipeline().addLast(new HttpServerCodec());
+                addHttpHandlers(ctx.pipeline(), true);
+            }
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.jinitamy.core;
+
+import io.netty.handler.codec.DateFormatter;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 静态文件处理器
+ *
+ * 由 {@link Engine#staticDir(String, Path)} 注册到通配符路由上，将通配符捕获的路径映射到目录中的文件：
+ * 1. 明文连接上通过 {@link ResponseStream#transferFile} 使用内核sendfile发送，文件内容不经过堆内存
+ * 2. 支持 Last-Modified / If-Modified-Since 和 ETag / If-None-Match 条件请求，未修改时返回304
+ * 3. 支持单个区间的 Range 请求（含 If-Range），返回206或416
+ * 4. 缓存文件的元数据（长度、修改时间、ETag、Content-Type），
+ *    每个条目最多 {@value #REVALIDATE_MILLIS} 毫秒重新检查一次文件
+ *
+ * 请求路径经过解码和规范化，解析到根目录之外（包括通过符号链接）的请求返回404。
+ */
+public class StaticFileHandler implements Handler {
+    /** 元数据缓存的最大条目数 */
+    static final int MAX_CACHED_FILES = 4096;
+    /** 缓存的元数据重新检查文件的间隔 */
+    static final long REVALIDATE_MILLIS = 1000;
+    /** 区间无法满足 */
+    private static final long[] UNSATISFIABLE = new long[0];
+    /** 默认的Content-Type */
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+    /** 按扩展名映射的Content-Type */
+    private static final Map<String, String> CONTENT_TYPES = Map.ofEntries(
+            Map.entry("html", "text/html; charset=UTF-8"),
+            Map.entry("htm", "text/html; charset=UTF-8"),
+            Map.entry("css", "text/css; charset=UTF-8"),
+            Map.entry("js", "text/javascript; charset=UTF-8"),
+            Map.entry("mjs", "text/javascript; charset=UTF-8"),
+            Map.entry("json", "application/json"),
+            Map.entry("map", "application/json"),
+            Map.entry("txt", "text/plain; charset=UTF-8"),
+            Map.entry("csv", "text/csv; charset=UTF-8"),
+            Map.entry("xml", "application/xml"),
+            Map.entry("svg", "image/svg+xml"),
+            Map.entry("png", "image/png"),
+            Map.entry("jpg", "image/jpeg"),
+            Map.entry("jpeg", "image/jpeg"),
+            Map.entry("gif", "image/gif"),
+            Map.entry("webp", "image/webp"),
+            Map.entry("ico", "image/x-icon"),
+            Map.entry("woff", "font/woff"),
+            Map.entry("woff2", "font/woff2"),
+            Map.entry("ttf", "font/ttf"),
+            Map.entry("pdf", "application/pdf"),
+            Map.entry("wasm", "application/wasm"),
+            Map.entry("mp3", "audio/mpeg"),
+            Map.entry("mp4", "video/mp4"),
+            Map.entry("webm", "video/webm"));
+
+    /** 根目录 */
+    private final Path root;
+    /** 根目录的真实路径（解析符号链接），第一次找到文件时解析，之后不再访问文件系统 */
+    private volatile Path realRoot;
+    /** 通配符参数名 */
+    private final String param;
+    /** 文件元数据缓存（键为请求中的相对路径） */
+    private final Map<String, FileInfo> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 创建静态文件处理器
+     *
+     * @param root 根目录
+     * @param param 捕获相对路径的通配符参数名
+     */
+    public StaticFileHandler(Path root, String param) {
+        this.root = root.toAbsolutePath().normalize();
+        this.param = param;
+    }
+
+    /**
+     * 发送请求的文件
+     *
+     * @param ctx 请求上下文
+     * @throws Exception 发送文件失败时抛出
+     */
+    @Override
+    public void handle(Context ctx) throws Exception {
+        String relative = ctx.getParam(param);
+        FileInfo file = relative != null ? lookup(relative) : null;
+        if (file == null) {
+            ctx.status(HttpResponseStatus.NOT_FOUND.code()).text(HttpResponseStatus.NOT_FOUND.toString());
+            return;
+        }
+
+        HttpHeaders requestHeaders = ctx.getHeaders();
+        HttpHeaders headers = ctx.getResponse().headers();
+        headers.set(HttpHeaderNames.LAST_MODIFIED, file.lastModifiedHeader)
+                .set(HttpHeaderNames.ETAG, file.etag)
+                .set(HttpHeaderNames.ACCEPT_RANGES, HttpHeaderValues.BYTES);
+
+        if (isNotModified(requestHeaders, file)) {
+            ctx.status(HttpResponseStatus.NOT_MODIFIED.code());
+            return;
+        }
+
+        long start = 0;
+        long end = file.length - 1;
+        String range = requestHeaders.get(HttpHeaderNames.RANGE);
+        if (range != null && isRangeApplicable(requestHeaders, file)) {
+            long[] bounds = parseRange(range, file.length);
+            if (bounds == UNSATISFIABLE) {
+                headers.set(HttpHeaderNames.CONTENT_RANGE, "bytes */" + file.length);
+                ctx.status(HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE.code());
+                return;
+            }
+            if (bounds != null) {
+                start = bounds[0];
+                end = bounds[1];
+                headers.set(HttpHeaderNames.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + file.length);
+                ctx.status(HttpResponseStatus.PARTIAL_CONTENT.code());
+            }
+        }
+
+        headers.set(HttpHeaderNames.CONTENT_TYPE, file.contentType);
+        long count = end - start + 1;
+        ResponseStream out = ctx.stream(count);
+        if (count > 0 && !HttpMethod.HEAD.equals(ctx.getMethod())) {
+            out.transferFile(file.file, start, count);
+        }
+        out.close();
+    }
+
+    /**
+     * 查找文件元数据，缓存过期时重新检查文件
+     *
+     * @param relative 请求中的相对路径（路由匹配时已解码）
+     * @return 文件元数据，文件不存在或不可访问时返回null
+     */
+    private FileInfo lookup(String relative) {
+        int query = relative.indexOf('?');
+        if (query >= 0) {
+            relative = relative.substring(0, query);
+        }
+
+        long now = System.currentTimeMillis();
+        FileInfo cached = cache.get(relative);
+        if (cached != null && now - cached.checkedAt < REVALIDATE_MILLIS) {
+            return cached;
+        }
+
+        FileInfo info = load(relative, cached, now);
+        if (info == null) {
+            cache.remove(relative);
+            return null;
+        }
+        if (info != cached) {
+            if (cached == null && cache.size() >= MAX_CACHED_FILES) {
+                // 超出容量时随机淘汰一个条目
+                Iterator<String> it = cache.keySet().iterator();
+                if (it.hasNext()) {
+                    it.next();
+                    it.remove();
+                }
+            }
+            cache.put(relative, info);
+        }
+        return info;
+    }
+
+    /**
+     * 读取文件元数据
+     *
+     * @param relative 请求中的相对路径（路由匹配时已解码）
+     * @param cached 过期的缓存条目，文件未变化时直接复用
+     * @param now 当前时间
+     * @return 文件元数据，文件不存在、不是普通文件或位于根目录之外时返回null
+     */
+    private FileInfo load(String relative, FileInfo cached, long now) {
+        if (relative.isEmpty() || relative.indexOf('\0') >= 0) {
+            return null;
+        }
+        try {
+            Path path = root.resolve(relative).normalize();
+            if (!path.startsWith(root)) {
+                return null;
+            }
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!attrs.isRegularFile() || !path.toRealPath().startsWith(realRoot())) {
+                return null;
+            }
+            long length = attrs.size();
+            long lastModified = attrs.lastModifiedTime().toMillis();
+            if (cached != null && cached.length == length && cached.lastModified == lastModified) {
+                cached.checkedAt = now;
+                return cached;
+            }
+            return new FileInfo(path.toFile(), length, lastModified, now);
+        } catch (IOException | InvalidPathException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 获取根目录的真实路径
+     *
+     * 创建处理器时根目录可能还不存在，因此在第一次使用时解析并保存。
+     *
+     * @return 根目录的真实路径
+     * @throws IOException 根目录不存在时抛出
+     */
+    private Path realRoot() throws IOException {
+        Path real = realRoot;
+        if (real == null) {
+            real = root.toRealPath();
+            realRoot = real;
+        }
+        return real;
+    }
+
+    /**
+     * 判断条件请求是否命中（文件未修改）
+     *
+     * If-None-Match 优先于 If-Modified-Since。
+     */
+    private static boolean isNotModified(HttpHeaders headers, FileInfo file) {
+        String ifNoneMatch = headers.get(HttpHeaderNames.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(file.etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        String ifModifiedSince = headers.get(HttpHeaderNames.IF_MODIFIED_SINCE);
+        if (ifModifiedSince != null) {
+            Date since = DateFormatter.parseHttpDate(ifModifiedSince);
+            // HTTP日期精确到秒
+            return since != null && file.lastModified / 1000 <= since.getTime() / 1000;
+        }
+        return false;
+    }
+
+    /**
+     * 判断 If-Range 条件是否允许按区间响应
+     */
+    private static boolean isRangeApplicable(HttpHeaders headers, FileInfo file) {
+        String ifRange = headers.get(HttpHeaderNames.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(file.etag);
+        }
+        Date date = DateFormatter.parseHttpDate(ifRange);
+        return date != null && date.getTime() / 1000 == file.lastModified / 1000;
+    }
+
+    /**
+     * 解析 Range 请求头
+     *
+     * 只支持单个字节区间：{@code bytes=start-end}、{@code bytes=start-} 和 {@code bytes=-suffix}。
+     * 多个区间或格式错误的请求头按规范忽略，返回完整文件。
+     *
+     * @param range Range请求头
+     * @param length 文件长度
+     * @return 闭区间 [start, end]；忽略时返回null；无法满足时返回 {@link #UNSATISFIABLE}
+     */
+    static long[] parseRange(String range, long length) {
+        if (!range.regionMatches(true, 0, "bytes=", 0, 6) || range.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = range.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0 || length == 0) {
+                    return UNSATISFIABLE;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1 ? Long.MAX_VALUE : Long.parseLong(spec.substring(dash + 1));
+                if (end < start) {
+                    return null;
+                }
+                if (start >= length) {
+                    return UNSATISFIABLE;
+                }
+                end = Math.min(end, length - 1);
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 根据扩展名确定Content-Type
+     */
+    private static String contentType(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0) {
+            return DEFAULT_CONTENT_TYPE;
+        }
+        String type = CONTENT_TYPES.get(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+        return type != null ? type : DEFAULT_CONTENT_TYPE;
+    }
+
+    /**
+     * 缓存的文件元数据，响应头的值预先格式化
+     */
+    private static final class FileInfo {
+        final File file;
+        final long length;
+        final long lastModified;
+        final String lastModifiedHeader;
+        final String etag;
+        final String contentType;
+        /** 最近一次检查文件的时间 */
+        volatile long checkedAt;
+
+        FileInfo(File file, long length, long lastModified, long checkedAt) {
+            this.file = file;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.lastModifiedHeader = DateFormatter.format(new Date(lastModified));
+            this.etag = "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(length) + "\"";
+            this.contentType = contentType(file.getName());
+            this.checkedAt = checkedAt;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.jinitamy.core;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.IoHandlerFactory;
+import io.netty.channel.MultiThreadIoEventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollIoHandler;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.kqueue.KQueue;
+import io.netty.channel.kqueue.KQueueIoHandler;
+import io.netty.channel.kqueue.KQueueServerSocketChannel;
+import io.netty.channel.nio.NioIoHandler;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.uring.IoUring;
+import io.netty.channel.uring.IoUringIoHandler;
+import io.netty.channel.uring.IoUringServerSocketChannel;
+
+/**
+ * 网络传输层实现
+ *
+ * 封装Netty的各种I/O实现，{@link #detect()} 按以下优先级选择当前平台可用的最佳实现：
+ * 1. EPOLL：Linux 原生 epoll（边缘触发）
+ * 2. IO_URING：Linux 5.x+ 内核的 io_uring（需要显式指定才会优先于epoll使用）
+ * 3. KQUEUE：macOS / BSD 原生 kqueue
+ * 4. NIO：JDK NIO，所有平台均可用
+ *
+ * 原生传输层支持 SO_REUSEPORT、TCP_FASTOPEN 等NIO不支持的套接字选项。
+ *
+ * 使用示例：
+ * <pre>
+ * engine.setTransport(Transport.IO_URING);
+ * engine.setReusePort(true);
+ * </pre>
+ */
+public enum Transport {
+    /** Linux epoll */
+    EPOLL {
+        @Override
+        boolean checkAvailable() {
+            return Epoll.isAvailable();
+        }
+
+        @Override
+        IoHandlerFactory ioHandlerFactory() {
+            return EpollIoHandler.newFactory();
+        }
+
+        @Override
+        public Class<? extends ServerChannel> serverChannelClass() {
+            return EpollServerSocketChannel.class;
+        }
+    },
+    /** Linux io_uring */
+    IO_URING {
+        @Override
+        boolean checkAvailable() {
+            return IoUring.isAvailable();
+        }
+
+        @Override
+        IoHandlerFactory ioHandlerFactory() {
+            return IoUringIoHandler.newFactory();
+        }
+
+        @Override
+        public Class<? extends ServerChannel> serverChannelClass() {
+            return IoUringServerSocketChannel.class;
+        }
+    },
+    /** macOS / BSD kqueue */
+    KQUEUE {
+        @Override
+        boolean checkAvailable() {
+            return KQueue.isAvailable();
+        }
+
+        @Override
+        IoHandlerFactory ioHandlerFactory() {
+            return KQueueIoHandler.newFactory();
+        }
+
+        @Override
+        public Class<? extends ServerChannel> serverChannelClass() {
+            return KQueueServerSocketChannel.class;
+        }
+    },
+    /** JDK NIO */
+    NIO {
+        @Override
+        boolean checkAvailable() {
+            return true;
+        }
+
+        @Override
+        IoHandlerFactory ioHandlerFactory() {
+            return NioIoHandler.newFactory();
+        }
+
+        @Override
+        public Class<? extends ServerChannel> serverChannelClass() {
+            return NioServerSocketChannel.class;
+        }
+    };
+
+    /**
+     * 检查原生库是否可加载
+     */
+    abstract boolean checkAvailable();
+
+    /**
+     * 获取对应的I/O处理器工厂
+     */
+    abstract IoHandlerFactory ioHandlerFactory();
+
+    /**
+     * 获取服务端通道类型
+     *
+     * @return 服务端通道类型
+     */
+    public abstract Class<? extends ServerChannel> serverChannelClass();
+
+    /**
+     * 检查当前平台是否支持该传输层
+     *
+     * @return 原生库可加载时返回true
+     */
+    public boolean isAvailable() {
+        try {
+            return checkAvailable();
+        } catch (Throwable t) {
+            // 缺少原生库或类时视为不可用
+            return false;
+        }
+    }
+
+    /**
+     * 是否为原生传输层（支持 SO_REUSEPORT、TCP_FASTOPEN 等选项）
+     *
+     * @return 除NIO外均返回true
+     */
+    public boolean isNative() {
+        return this != NIO;
+    }
+
+    /**
+     * 创建事件循环组
+     *
+     * @param threads 线程数，0表示使用Netty默认值（CPU核数 * 2）
+     * @return 事件循环组
+     */
+    public EventLoopGroup newEventLoopGroup(int threads) {
+        return new MultiThreadIoEventLoopGroup(threads, ioHandlerFactory());
+    }
+
+    /**
+     * 选择当前平台可用的最佳传输层
+     *
+     * @return 最佳可用传输层，原生传输层都不可用时返回NIO
+     */
+    public static Transport detect() {
+        for (Transport transport : values()) {
+            if (transport.isAvailable()) {
+                return transport;
+            }
+        }
+        return NIO;
+    }
+}
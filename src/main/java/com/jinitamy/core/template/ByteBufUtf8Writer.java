@@ -0,0 +1,133 @@
+package com.jinitamy.core.template;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * 以UTF-8编码直接写入ByteBuf的Writer
+ *
+ * 模板输出不经过StringWriter和中间的byte[]，字符直接编码到目标缓冲区（通常是池化的响应缓冲区）。
+ * 跨两次写入被拆开的代理对会被暂存并正确合并，孤立的代理字符编码为'?'。
+ *
+ * 该类不是线程安全的，也不会释放目标缓冲区。
+ */
+public final class ByteBufUtf8Writer extends Writer {
+    /** 目标缓冲区 */
+    private final ByteBuf buf;
+    /** 上一次写入末尾未配对的高代理字符，为0时表示没有 */
+    private char pendingHighSurrogate;
+
+    /**
+     * 创建写入器
+     *
+     * @param buf 目标缓冲区，从当前写索引开始追加
+     */
+    public ByteBufUtf8Writer(ByteBuf buf) {
+        this.buf = buf;
+    }
+
+    /**
+     * 获取目标缓冲区
+     *
+     * @return 目标缓冲区
+     */
+    public ByteBuf buffer() {
+        return buf;
+    }
+
+    @Override
+    public void write(int c) {
+        char ch = (char) c;
+        if (pendingHighSurrogate != 0 || Character.isSurrogate(ch)) {
+            writeChars(String.valueOf(ch), 0, 1);
+        } else if (ch < 0x80) {
+            buf.writeByte(ch);
+        } else if (ch < 0x800) {
+            buf.writeShort(((0xc0 | (ch >> 6)) << 8) | (0x80 | (ch & 0x3f)));
+        } else {
+            buf.writeMedium(((0xe0 | (ch >> 12)) << 16) | ((0x80 | ((ch >> 6) & 0x3f)) << 8) | (0x80 | (ch & 0x3f)));
+        }
+    }
+
+    @Override
+    public void write(char[] cbuf) {
+        writeChars(CharBuffer.wrap(cbuf), 0, cbuf.length);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+        writeChars(CharBuffer.wrap(cbuf), off, off + len);
+    }
+
+    @Override
+    public void write(String str) {
+        writeChars(str, 0, str.length());
+    }
+
+    @Override
+    public void write(String str, int off, int len) {
+        writeChars(str, off, off + len);
+    }
+
+    @Override
+    public Writer append(CharSequence csq) {
+        CharSequence seq = csq != null ? csq : "null";
+        writeChars(seq, 0, seq.length());
+        return this;
+    }
+
+    @Override
+    public Writer append(CharSequence csq, int start, int end) {
+        writeChars(csq != null ? csq : "null", start, end);
+        return this;
+    }
+
+    /**
+     * 编码字符序列的一段
+     */
+    private void writeChars(CharSequence seq, int start, int end) {
+        if (start >= end) {
+            return;
+        }
+        if (pendingHighSurrogate != 0) {
+            char high = pendingHighSurrogate;
+            pendingHighSurrogate = 0;
+            char first = seq.charAt(start);
+            if (Character.isLowSurrogate(first)) {
+                ByteBufUtil.writeUtf8(buf, new String(new char[]{high, first}));
+                start++;
+            } else {
+                buf.writeByte('?');
+            }
+            if (start >= end) {
+                return;
+            }
+        }
+        char last = seq.charAt(end - 1);
+        if (Character.isHighSurrogate(last)) {
+            pendingHighSurrogate = last;
+            end--;
+        }
+        if (start < end) {
+            ByteBufUtil.reserveAndWriteUtf8(buf, seq, start, end, ByteBufUtil.utf8MaxBytes(end - start));
+        }
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * 结束写入，末尾未配对的高代理字符编码为'?'
+     */
+    @Override
+    public void close() {
+        if (pendingHighSurrogate != 0) {
+            pendingHighSurrogate = 0;
+            buf.writeByte('?');
+        }
+    }
+}
@@ -1,126 +1,334 @@
 package com.jinitamy.core.template;
 
+import freemarker.cache.ClassTemplateLoader;
+import freemarker.cache.FileTemplateLoader;
+import freemarker.cache.MruCacheStorage;
+import freemarker.cache.TemplateLoader;
 import freemarker.template.Configuration;
 import freemarker.template.Template;
 import freemarker.template.TemplateException;
+import freemarker.template.TemplateExceptionHandler;
+import io.netty.buffer.ByteBuf;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
 
 /**
  * FreeMarker模板引擎封装类
- * 
- * 该类提供了对FreeMarker模板引擎的简单封装，用于处理服务端渲染。
- * 支持从指定目录加载模板文件，并使用UTF-8编码进行渲染。
- * 
+ *
+ * 每个 {@link com.jinitamy.core.Engine} 持有一个实例（{@code engine.getTemplateEngine()}），
+ * 处理器通过 {@code ctx.render(name, model)} 使用。该类负责：
+ * 1. 从类路径（默认 templates/，打包为jar后同样可用）或文件系统目录加载模板
+ * 2. 有界的模板缓存（MRU，强引用 + 软引用两级）和可调的模板更新检查间隔
+ * 3. 启动时预编译全部模板（{@code engine.setPrecompileTemplates(true)}），首个请求不再承担解析开销
+ * 4. 将模板直接渲染为UTF-8写入ByteBuf
+ *
+ * 重新配置时构建新的FreeMarker Configuration后原子替换，
+ * 正在进行的渲染继续使用旧配置，不会被阻塞。
+ *
  * 使用示例：
  * <pre>
- * // 使用默认模板路径
- * Map<String, Object> model = new HashMap<>();
- * model.put("title", "页面标题");
- * model.put("content", "页面内容");
- * String html = TemplateEngine.render("index.ftl", model);
- * 
- * // 配置自定义模板路径
- * TemplateEngine.setTemplatePath("/custom/templates");
- * String html2 = TemplateEngine.render("custom.ftl", model);
+ * TemplateEngine templates = engine.getTemplateEngine();
+ *
+ * // 开发环境：从源码目录加载，修改后1秒内生效
+ * templates.setTemplatePath("src/main/resources/templates");
+ * templates.setUpdateDelay(Duration.ofSeconds(1));
+ *
+ * // 生产环境：从类路径加载，启动时预编译，不再检查更新
+ * templates.setClasspath("templates");
+ * templates.setUpdateDelay(null);
+ * engine.setPrecompileTemplates(true);
+ *
+ * // 渲染
+ * ctx.render("index.ftl", model);
  * </pre>
- * 
+ *
  * 注意事项：
- * 1. 默认模板路径为 src/main/resources/templates，可通过setTemplatePath方法修改
- * 2. 模板文件建议使用.ftl后缀
- * 3. 模板文件必须使用UTF-8编码
- * 4. 模板变量使用${变量名}的形式
+ * 1. 模板文件建议使用.ftl后缀，预编译只处理 .ftl / .ftlh / .ftlx 文件
+ * 2. 模板文件必须使用UTF-8编码
+ * 3. 模板变量使用${变量名}的形式
+ * 4. 模板错误直接抛出，由框架返回500，不会把错误信息输出到页面中
  */
 public class TemplateEngine {
-    /** 默认模板路径 */
-    private static final String DEFAULT_TEMPLATE_PATH = "src/main/resources/templates";
-    
+    /** 默认的类路径模板目录 */
+    public static final String DEFAULT_CLASSPATH = "templates";
+    /** 默认强引用缓存的模板数 */
+    public static final int DEFAULT_STRONG_CACHE_SIZE = 256;
+    /** 默认软引用缓存的模板数 */
+    public static final int DEFAULT_SOFT_CACHE_SIZE = 1024;
+    /** 默认的模板更新检查间隔（FreeMarker的默认值） */
+    public static final Duration DEFAULT_UPDATE_DELAY = Duration.ofSeconds(5);
+    /** 预编译处理的模板后缀 */
+    private static final String[] TEMPLATE_SUFFIXES = {".ftl", ".ftlh", ".ftlx"};
+
+    /** 当前生效的FreeMarker配置，重新配置时整体替换 */
+    private final AtomicReference<Configuration> configuration = new AtomicReference<>();
+    /** 各模板最近一次的输出字节数，用于预先分配缓冲区，避免渲染大页面时反复扩容 */
+    private final Map<String, Integer> sizeHints = new ConcurrentHashMap<>();
+
+    /** 类路径模板目录，为null时使用文件系统目录 */
+    private String classpath = DEFAULT_CLASSPATH;
+    /** 文件系统模板目录 */
+    private File directory;
+    /** 强引用缓存的模板数 */
+    private int strongCacheSize = DEFAULT_STRONG_CACHE_SIZE;
+    /** 软引用缓存的模板数 */
+    private int softCacheSize = DEFAULT_SOFT_CACHE_SIZE;
+    /** 模板更新检查间隔（毫秒） */
+    private long updateDelayMillis = DEFAULT_UPDATE_DELAY.toMillis();
+
     /**
-     * FreeMarker配置对象
-     * 使用静态初始化确保全局单例
+     * 创建模板引擎，从类路径的 templates/ 目录加载模板
      */
-    private static Configuration configuration;
-    
-    /** 当前模板路径 */
-    private static String currentTemplatePath = DEFAULT_TEMPLATE_PATH;
+    public TemplateEngine() {
+        reconfigure();
+    }
 
     /**
-     * 静态初始化块
-     * 使用默认配置初始化模板引擎
+     * 从类路径加载模板
+     *
+     * 适用于打包为jar运行的应用，模板位于 src/main/resources/ 下的对应目录。
+     *
+     * @param basePath 类路径中的模板目录（例如："templates"）
      */
-    static {
-        initializeConfiguration(DEFAULT_TEMPLATE_PATH);
+    public synchronized void setClasspath(String basePath) {
+        if (basePath == null || basePath.trim().isEmpty()) {
+            throw new IllegalArgumentException("Template classpath cannot be null or empty");
+        }
+        this.classpath = trimSlashes(basePath.trim());
+        this.directory = null;
+        reconfigure();
     }
-    
+
     /**
-     * 初始化FreeMarker配置
-     * 
-     * @param templatePath 模板文件路径
-     * @throws RuntimeException 当模板引擎初始化失败时抛出
+     * 从文件系统目录加载模板
+     *
+     * @param templatePath 模板文件目录
+     * @throws IllegalArgumentException 当路径为空时抛出
+     * @throws RuntimeException 当目录不存在或不可读时抛出
      */
-    private static synchronized void initializeConfiguration(String templatePath) {
-        configuration = new Configuration(Configuration.VERSION_2_3_32);
+    public synchronized void setTemplatePath(String templatePath) {
+        if (templatePath == null || templatePath.trim().isEmpty()) {
+            throw new IllegalArgumentException("Template path cannot be null or empty");
+        }
+        File dir = new File(templatePath.trim());
+        if (!dir.isDirectory()) {
+            throw new RuntimeException("Failed to initialize template engine with path: " + templatePath);
+        }
+        this.directory = dir;
+        this.classpath = null;
+        reconfigure();
+    }
+
+    /**
+     * 获取当前模板位置
+     *
+     * @return 文件系统目录，或 "classpath:" 前缀的类路径目录
+     */
+    public synchronized String getTemplatePath() {
+        return directory != null ? directory.getPath() : "classpath:" + classpath;
+    }
+
+    /**
+     * 设置模板缓存大小
+     *
+     * 最近使用的 strongSize 个模板以强引用缓存，其后的 softSize 个以软引用缓存（内存紧张时可被回收）。
+     * 需要预编译全部模板时，strongSize 应不小于模板总数。
+     *
+     * @param strongSize 强引用缓存的模板数
+     * @param softSize 软引用缓存的模板数
+     */
+    public synchronized void setCacheSize(int strongSize, int softSize) {
+        if (strongSize < 0 || softSize < 0) {
+            throw new IllegalArgumentException("Cache size cannot be negative");
+        }
+        this.strongCacheSize = strongSize;
+        this.softCacheSize = softSize;
+        reconfigure();
+    }
+
+    /**
+     * 设置模板更新检查间隔
+     *
+     * 缓存的模板超过该间隔后，下次使用时检查源文件是否修改。
+     *
+     * @param delay 检查间隔，为null时不再检查（适用于生产环境）
+     */
+    public synchronized void setUpdateDelay(Duration delay) {
+        this.updateDelayMillis = delay != null ? delay.toMillis() : Long.MAX_VALUE;
+        reconfigure();
+    }
+
+    /**
+     * 按当前设置构建新的FreeMarker配置并原子替换
+     *
+     * 调用方持有当前实例的锁；渲染只读取配置引用，不受影响。
+     * 模板位置或配置变化后旧的输出大小不再可靠，一并清空。
+     */
+    private void reconfigure() {
+        Configuration config = new Configuration(Configuration.VERSION_2_3_32);
         try {
-            // 设置模板文件所在目录
-            configuration.setDirectoryForTemplateLoading(new File(templatePath));
-            // 设置模板文件编码
-            configuration.setDefaultEncoding("UTF-8");
-            currentTemplatePath = templatePath;
+            config.setTemplateLoader(newTemplateLoader());
         } catch (IOException e) {
-            throw new RuntimeException("Failed to initialize template engine with path: " + templatePath, e);
+            throw new RuntimeException("Failed to initialize template engine with path: " + getTemplatePath(), e);
         }
+        // 设置模板文件编码
+        config.setDefaultEncoding("UTF-8");
+        config.setOutputEncoding("UTF-8");
+        config.setCacheStorage(new MruCacheStorage(strongCacheSize, softCacheSize));
+        config.setTemplateUpdateDelayMilliseconds(updateDelayMillis);
+        // 错误交给调用方处理，不输出到页面中
+        config.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
+        config.setLogTemplateExceptions(false);
+        configuration.set(config);
+        sizeHints.clear();
     }
-    
+
     /**
-     * 设置模板文件路径
-     * 
-     * 重新配置模板引擎使用新的模板路径。
-     * 注意：此操作会重新初始化整个模板引擎配置。
-     * 
-     * @param templatePath 新的模板文件路径
-     * @throws RuntimeException 当路径无效或初始化失败时抛出
+     * 创建当前设置对应的模板加载器
      */
-    public static void setTemplatePath(String templatePath) {
-        if (templatePath == null || templatePath.trim().isEmpty()) {
-            throw new IllegalArgumentException("Template path cannot be null or empty");
+    private TemplateLoader newTemplateLoader() throws IOException {
+        if (directory != null) {
+            return new FileTemplateLoader(directory);
         }
-        initializeConfiguration(templatePath.trim());
+        return new ClassTemplateLoader(classLoader(), classpath);
     }
-    
+
     /**
-     * 获取当前模板文件路径
-     * 
-     * @return 当前使用的模板文件路径
+     * 预编译全部模板
+     *
+     * 解析模板目录下的所有模板并放入缓存，模板有语法错误时立即失败。
+     * 启用 {@code engine.setPrecompileTemplates(true)} 时由启动服务器时调用，也可以自行调用；
+     * 重新配置后缓存随旧配置一起丢弃，需要再次调用。
+     *
+     * @return 预编译的模板数
+     * @throws IOException 当模板无法读取或存在语法错误时抛出
      */
-    public static String getTemplatePath() {
-        return currentTemplatePath;
+    public int precompileAll() throws IOException {
+        Configuration config = configuration.get();
+        List<String> names = listTemplates();
+        for (String name : names) {
+            config.getTemplate(name);
+        }
+        return names.size();
     }
-    
+
     /**
-     * 重置模板路径为默认值
+     * 列出模板目录下的全部模板
+     *
+     * @return 相对于模板目录的模板名
+     * @throws IOException 当目录无法读取时抛出
      */
-    public static void resetToDefaultPath() {
-        initializeConfiguration(DEFAULT_TEMPLATE_PATH);
+    synchronized List<String> listTemplates() throws IOException {
+        List<String> names = new ArrayList<>();
+        if (directory != null) {
+            collectFiles(directory.toPath(), names);
+            return names;
+        }
+        Enumeration<URL> roots = classLoader().getResources(classpath);
+        while (roots.hasMoreElements()) {
+            URL root = roots.nextElement();
+            if ("file".equals(root.getProtocol())) {
+                try {
+                    collectFiles(Paths.get(root.toURI()), names);
+                } catch (URISyntaxException e) {
+                    throw new IOException("Invalid template directory: " + root, e);
+                }
+            } else if ("jar".equals(root.getProtocol())) {
+                collectJarEntries(root, names);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * 收集文件系统目录下的模板
+     */
+    private static void collectFiles(Path dir, List<String> names) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.filter(Files::isRegularFile)
+                    .map(file -> dir.relativize(file).toString().replace(File.separatorChar, '/'))
+                    .filter(TemplateEngine::isTemplate)
+                    .forEach(names::add);
+        }
+    }
+
+    /**
+     * 收集jar包中模板目录下的模板
+     */
+    private static void collectJarEntries(URL root, List<String> names) throws IOException {
+        JarURLConnection connection = (JarURLConnection) root.openConnection();
+        connection.setUseCaches(false);
+        String prefix = trimSlashes(connection.getEntryName()) + "/";
+        try (JarFile jar = connection.getJarFile()) {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (!entry.isDirectory() && name.startsWith(prefix) && isTemplate(name)) {
+                    names.add(name.substring(prefix.length()));
+                }
+            }
+        }
+    }
+
+    private static boolean isTemplate(String name) {
+        for (String suffix : TEMPLATE_SUFFIXES) {
+            if (name.endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String trimSlashes(String path) {
+        int start = 0;
+        int end = path.length();
+        while (start < end && path.charAt(start) == '/') {
+            start++;
+        }
+        while (end > start && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return path.substring(start, end);
+    }
+
+    private static ClassLoader classLoader() {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        return loader != null ? loader : TemplateEngine.class.getClassLoader();
     }
 
     /**
      * 渲染模板文件
-     * 
+     *
      * 根据模板名称和数据模型，渲染对应的模板文件。
-     * 模板文件将从配置的目录中加载，并使用UTF-8编码处理。
-     * 
-     * @param templateName 模板文件名（不含路径，例如："index.ftl"）
+     *
+     * @param templateName 模板文件名（相对于模板目录，例如："index.ftl"）
      * @param model 数据模型，包含模板中使用的变量
      * @return 渲染后的HTML内容
      * @throws RuntimeException 当模板文件不存在或渲染过程发生错误时抛出
      */
-    public static String render(String templateName, Map<String, Object> model) {
+    public String render(String templateName, Map<String, Object> model) {
         try {
-            // 加载模板文件
-            Template template = configuration.getTemplate(templateName);
+            // 加载模板文件（已缓存时直接返回）
+            Template template = configuration.get().getTemplate(templateName);
             // 创建输出写入器
             StringWriter writer = new StringWriter();
             // 处理模板并输出结果
@@ -130,4 +338,39 @@ public class TemplateEngine {
             throw new RuntimeException("Template rendering failed", e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 渲染模板到缓冲区
+     *
+     * 模板输出通过 {@link ByteBufUtf8Writer} 直接以UTF-8编码追加到缓冲区，
+     * 不创建中间的String和byte[]。缓冲区按该模板上一次的输出大小预先扩容。
+     * 渲染失败时缓冲区的写索引恢复到渲染前的位置。
+     *
+     * @param templateName 模板文件名（相对于模板目录，例如："index.ftl"）
+     * @param model 数据模型，包含模板中使用的变量
+     * @param out 目标缓冲区
+     * @return 写入的字节数
+     * @throws RuntimeException 当模板文件不存在或渲染过程发生错误时抛出
+     */
+    public int render(String templateName, Map<String, Object> model, ByteBuf out) {
+        int start = out.writerIndex();
+        try {
+            Template template = configuration.get().getTemplate(templateName);
+            Integer hint = sizeHints.get(templateName);
+            if (hint != null) {
+                out.ensureWritable(hint);
+            }
+            ByteBufUtf8Writer writer = new ByteBufUtf8Writer(out);
+            template.process(model, writer);
+            writer.close();
+            int written = out.writerIndex() - start;
+            if (hint == null || hint != written) {
+                sizeHints.put(templateName, written);
+            }
+            return written;
+        } catch (IOException | TemplateException e) {
+            out.writerIndex(start);
+            throw new RuntimeException("Template rendering failed", e);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.jinitamy.core;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlTest {
+    private Engine engine;
+    private final AtomicInteger calls = new AtomicInteger();
+    private final ResponseStream[] open = new ResponseStream[1];
+    private final List<EmbeddedChannel> channels = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        engine = new Engine();
+        engine.get("/stream", ctx -> {
+            calls.incrementAndGet();
+            open[0] = ctx.stream();
+        });
+        engine.get("/fast", ctx -> {
+            calls.incrementAndGet();
+            ctx.text("ok");
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (EmbeddedChannel channel : channels) {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    /**
+     * 在新的连接上发送请求，返回第一个出站消息
+     */
+    private HttpObject get(String uri) {
+        EmbeddedChannel channel = HttpTestSupport.channel(engine);
+        channels.add(channel);
+        return HttpTestSupport.exchange(channel, HttpTestSupport.get(uri));
+    }
+
+    private int status(String uri) {
+        return HttpTestSupport.status(get(uri));
+    }
+
+    @Test
+    void testGlobalLimit() {
+        AdmissionControl admission = new AdmissionControl(1).retryAfter(Duration.ofSeconds(3));
+        engine.setAdmissionControl(admission);
+
+        assertEquals(200, status("/stream"));
+        assertEquals(1, admission.getInFlight(), "未结束的流式响应应该占用许可");
+        FullHttpResponse response = (FullHttpResponse) get("/fast");
+        assertEquals(HttpResponseStatus.SERVICE_UNAVAILABLE, response.status(), "达到上限时应该立即返回503");
+        assertEquals("3", response.headers().get(HttpHeaderNames.RETRY_AFTER));
+        response.release();
+        assertEquals(1, calls.get(), "被拒绝的请求不应该执行处理器");
+        assertEquals(1, admission.getShedCount());
+
+        open[0].close();
+        assertEquals(0, admission.getInFlight(), "流式响应结束时应该归还许可");
+        assertEquals(200, status("/fast"));
+        assertEquals(0, admission.getInFlight());
+    }
+
+    @Test
+    void testRouteLimit() {
+        engine.get("/report", ctx -> {
+            calls.incrementAndGet();
+            open[0] = ctx.stream();
+        }, RouteOptions.create().maxInFlight(1));
+
+        assertEquals(200, status("/report"));
+        assertEquals(503, status("/report"), "路由的并发上限不依赖全局准入控制");
+        assertEquals(200, status("/fast"), "其他路由不受影响");
+        open[0].close();
+        assertEquals(200, status("/report"));
+    }
+
+    @Test
+    void testQueueTimeout() throws Exception {
+        AdmissionControl admission = new AdmissionControl(100).queueTimeout(Duration.ofMillis(10));
+        engine.setAdmissionControl(admission);
+        List<Runnable> queue = new ArrayList<>();
+        engine.setBlockingExecutor(queue::add);
+        engine.setExecutionMode(ExecutionMode.BLOCKING);
+
+        EmbeddedChannel channel = HttpTestSupport.channel(engine);
+        channels.add(channel);
+        channel.writeInbound(HttpTestSupport.get("/fast"));
+        Thread.sleep(30);
+        queue.remove(0).run();
+        channel.runPendingTasks();
+
+        FullHttpResponse response = channel.readOutbound();
+        assertEquals(HttpResponseStatus.SERVICE_UNAVAILABLE, response.status(), "排队超过期限的请求应该返回503");
+        assertNotNull(response.headers().get(HttpHeaderNames.RETRY_AFTER));
+        response.release();
+        assertEquals(0, calls.get(), "排队超过期限的请求不应该执行处理器");
+        assertEquals(1, admission.getExpiredCount());
+        assertEquals(0, admission.getInFlight());
+    }
+
+    @Test
+    void testAdaptiveLimit() {
+        AdmissionControl admission = new AdmissionControl(100).adaptive(80, Duration.ofMillis(100));
+        long now = System.nanoTime() + 1_000_000_000L;
+        long slow = 200_000_000L;
+
+        admission.adjust(now, slow, 50);
+        assertEquals(90, admission.getLimit(), "延迟超过阈值时应该按比例下调");
+        admission.adjust(now + 1_000_000L, slow, 50);
+        assertEquals(90, admission.getLimit(), "同一个阈值周期内只下调一次");
+        admission.adjust(now + slow, slow, 50);
+        assertEquals(81, admission.getLimit());
+        admission.adjust(now + 2 * slow, slow, 50);
+        assertEquals(80, admission.getLimit(), "不应该低于最小值");
+
+        admission.adjust(now, 1_000_000L, 10);
+        assertEquals(80, admission.getLimit(), "许可使用率低时不应该上调");
+        for (int i = 0; i < 79; i++) {
+            admission.adjust(now, 1_000_000L, 40);
+        }
+        assertEquals(80, admission.getLimit(), "完成一轮许可之前不应该上调");
+        admission.adjust(now, 1_000_000L, 40);
+        assertEquals(81, admission.getLimit(), "延迟正常且使用了一半以上的许可时，每轮许可应该加1");
+    }
+
+    @Test
+    void testAdaptiveLimitStaysLowered() {
+        AdmissionControl admission = new AdmissionControl(100).adaptive(10, Duration.ofMillis(100));
+        long now = System.nanoTime() + 1_000_000_000L;
+        long window = 100_000_000L;
+
+        // 每个阈值周期内有一个慢请求和大量快请求（高请求速率下的常见情况）
+        for (int w = 0; w < 5; w++) {
+            admission.adjust(now + w * window, 2 * window, 60);
+            for (int i = 0; i < 50; i++) {
+                admission.adjust(now + w * window + i, 1_000_000L, 60);
+            }
+        }
+        assertEquals(57, admission.getLimit(), "延迟持续超过阈值时上限应该保持下调，而不是被快请求立即加回");
+    }
+}
@@ -0,0 +1,150 @@
+package com.jinitamy.core;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.*;
+import io.netty.util.CharsetUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncHandlerTest {
+    private Engine engine;
+    private EmbeddedChannel channel;
+    private CompletableFuture<String> downstream;
+
+    @BeforeEach
+    void setUp() {
+        engine = new Engine();
+        downstream = new CompletableFuture<>();
+        engine.get("/profile/:id", AsyncHandler.of(ctx ->
+                downstream.thenAccept(name -> ctx.text(ctx.getParam("id") + ":" + name))));
+        channel = HttpTestSupport.channel(engine);
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    private void request(String uri) {
+        channel.writeInbound(HttpTestSupport.get(uri));
+    }
+
+    @Test
+    void testRespondsOnCompletion() throws Exception {
+        AtomicReference<Throwable> observed = new AtomicReference<>(new IllegalStateException("未执行"));
+        engine.use((ctx, next) -> {
+            next.handle(ctx);
+            ctx.whenComplete((c, error) -> {
+                observed.set(error);
+                c.getResponse().headers().set("X-After", "done");
+            });
+        });
+        request("/profile/7");
+        assertNull(channel.readOutbound(), "异步处理完成前不应该发送响应");
+
+        Thread completer = new Thread(() -> downstream.complete("alice"));
+        completer.start();
+        completer.join();
+        channel.runPendingTasks();
+
+        FullHttpResponse response = channel.readOutbound();
+        assertEquals("7:alice", response.content().toString(CharsetUtil.UTF_8));
+        assertEquals("done", response.headers().get("X-After"), "中间件应该能在异步处理完成后修改响应");
+        assertNull(observed.get());
+        response.release();
+    }
+
+    @Test
+    void testExceptionalCompletion() {
+        request("/profile/7");
+        downstream.completeExceptionally(new IllegalStateException("downstream failed"));
+        channel.runPendingTasks();
+
+        FullHttpResponse response = channel.readOutbound();
+        assertEquals(HttpResponseStatus.INTERNAL_SERVER_ERROR, response.status(), "异常完成时应该返回500");
+        response.release();
+    }
+
+    @Test
+    void testTimeoutCancels() throws Exception {
+        CompletableFuture<Void> slow = new CompletableFuture<>();
+        engine.get("/slow", AsyncHandler.of(ctx -> slow),
+                RouteOptions.create().asyncTimeout(Duration.ofMillis(20)));
+        request("/slow");
+        Thread.sleep(50);
+        channel.runScheduledPendingTasks();
+
+        FullHttpResponse response = channel.readOutbound();
+        assertEquals(HttpResponseStatus.SERVICE_UNAVAILABLE, response.status(), "超时应该返回503");
+        response.release();
+        assertTrue(slow.isCancelled(), "超时后应该取消异步处理");
+
+        // 超时后才完成不应该再发送响应
+        channel.runPendingTasks();
+        assertNull(channel.readOutbound());
+    }
+
+    @Test
+    void testCancelOnClose() {
+        CompletableFuture<Void> call = new CompletableFuture<>();
+        engine.get("/call", AsyncHandler.of(ctx -> call));
+        request("/call");
+        channel.close();
+        assertTrue(call.isCancelled(), "连接关闭时应该取消处理器返回的Stage");
+        assertNull(channel.readOutbound());
+    }
+
+    @Test
+    void testPipelinedInOrder() {
+        engine.get("/fast", ctx -> ctx.text("fast"));
+        HttpTestSupport.pipeline(channel,
+                HttpTestSupport.get("/profile/7"), HttpTestSupport.get("/fast"), HttpTestSupport.get("/profile/8"));
+        assertNull(channel.readOutbound(), "异步处理完成前不应该发送后续请求的响应");
+
+        downstream.complete("alice");
+        channel.runPendingTasks();
+        assertEquals("7:alice", HttpTestSupport.body(channel.readOutbound()), "应该按请求顺序发送响应");
+        assertEquals("fast", HttpTestSupport.body(channel.readOutbound()));
+        assertEquals("8:alice", HttpTestSupport.body(channel.readOutbound()));
+        assertTrue(channel.config().isAutoRead());
+    }
+
+    @Test
+    void testPipelinedCancelOnClose() {
+        AtomicInteger started = new AtomicInteger();
+        CompletableFuture<Void> call = new CompletableFuture<>();
+        engine.get("/call", AsyncHandler.of(ctx -> {
+            started.incrementAndGet();
+            return call;
+        }));
+        FullHttpRequest second = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/call", Unpooled.buffer());
+        HttpTestSupport.pipeline(channel, HttpTestSupport.get("/call"), second);
+        assertEquals(1, started.get(), "前一个异步处理完成前不应该开始后续请求");
+
+        channel.close();
+        assertTrue(call.isCancelled(), "连接关闭时应该取消等待中的异步处理");
+        assertEquals(0, second.refCnt(), "连接关闭时应该释放排队的请求");
+        assertEquals(1, started.get());
+    }
+
+    @Test
+    void testAlreadyCompleted() {
+        engine.get("/now", AsyncHandler.of(ctx -> {
+            ctx.text("now");
+            return CompletableFuture.completedFuture(null);
+        }));
+        request("/now");
+        FullHttpResponse response = channel.readOutbound();
+        assertEquals("now", response.content().toString(CharsetUtil.UTF_8), "已完成的Stage应该立即发送响应");
+        response.release();
+    }
+}
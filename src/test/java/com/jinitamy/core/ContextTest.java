@@ -1,9 +1,14 @@
 package com.jinitamy.core;
 
+import com.jinitamy.core.template.TemplateEngine;
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.http.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
 
 class ContextTest {
@@ -54,6 +59,116 @@ class ContextTest {
         assertNull(context.getParam("non-existent"), "不存在的参数应该返回null");
     }
 
+    @Test
+    void testParamsOverwriteAndRemove() {
+        context.reserveParams(2);
+        context.setParam("id", "1");
+        context.setParam("postId", "2");
+        context.setParam("tag", "3");
+        context.setParam("id", "4");
+        assertEquals("4", context.getParam("id"), "重复设置应该覆盖原值");
+        assertEquals("3", context.getParam("tag"), "超出预留容量时应该扩容");
+
+        assertEquals("2", context.removeParam("postId"));
+        assertNull(context.getParam("postId"));
+        assertEquals("3", context.getParam("tag"), "移除参数不应该影响其他参数");
+        assertNull(context.removeParam("postId"));
+    }
+
+    @Test
+    void testNumericParams() {
+        String path = "/orders/-17/9223372036854775807/2147483648/%31";
+        context.setParamRange("small", path, 8, 11);
+        context.setParamRange("max", path, 12, 31);
+        context.setParamRange("big", path, 32, 42);
+        context.setParamRange("escaped", path, 43, 46);
+        context.setParam("text", "12");
+
+        assertEquals(-17, context.getIntParam("small"), "应该直接解析路径中的字符");
+        assertEquals(Long.MAX_VALUE, context.getLongParam("max"));
+        assertEquals(2147483648L, context.getLongParam("big"));
+        assertThrows(NumberFormatException.class, () -> context.getIntParam("big"), "超出int范围应该抛出异常");
+        assertEquals(1, context.getIntParam("escaped"), "包含百分号编码时应该先解码");
+        assertEquals(12, context.getIntParam("text"), "通过setParam设置的参数同样可以解析");
+        assertThrows(NumberFormatException.class, () -> context.getIntParam("missing"));
+        assertEquals("-17", context.getParam("small"), "读取字符串时才创建参数值");
+    }
+
+    @Test
+    void testRecycleResetsState() {
+        Context pooled = Context.newInstance(request, response);
+        pooled.setParam("id", "1");
+        pooled.setAttribute("user", "alice");
+        pooled.setAdmittedNanos(1);
+        pooled.recycle();
+
+        assertNull(pooled.getParam("id"), "回收后不应该保留路由参数");
+        assertNull(pooled.getAttribute("user"), "回收后不应该保留属性");
+        assertNull(pooled.getRequest());
+        assertNull(pooled.getResponse());
+        assertEquals(0, pooled.getAdmittedNanos());
+    }
+
+    @Test
+    void testQuery() {
+        Context ctx = new Context(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET,
+                "/search?q=hello+world&tag=a&tag=b%20c&empty=", Unpooled.EMPTY_BUFFER), response);
+        assertEquals("/search", ctx.getPath(), "路径不应该包含查询字符串");
+        assertEquals("hello world", ctx.query("q"), "应该解码查询参数");
+        assertEquals(List.of("a", "b c"), ctx.queryAll("tag"));
+        assertEquals("", ctx.query("empty"));
+        assertNull(ctx.query("missing"));
+        assertTrue(ctx.queryAll("missing").isEmpty());
+        assertNull(context.query("q"), "没有查询字符串时应该返回null");
+    }
+
+    @Test
+    void testUrlEncodedForm() {
+        FullHttpRequest post = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/login",
+                Unpooled.copiedBuffer("user=alice&role=a&role=b&note=%E4%BD%A0%E5%A5%BD", StandardCharsets.UTF_8));
+        post.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/x-www-form-urlencoded; charset=UTF-8");
+        Context ctx = new Context(post, response);
+
+        assertEquals("alice", ctx.form("user"), "应该解析表单字段");
+        assertEquals(List.of("a", "b"), ctx.formAll("role"));
+        assertEquals("你好", ctx.form("note"), "应该按UTF-8解码表单字段");
+        assertEquals(48, post.content().readableBytes(), "解析表单不应该消费请求体");
+        assertEquals(1, post.refCnt(), "解析表单不应该改变请求体的引用计数");
+        assertNull(ctx.query("user"), "表单字段不是查询参数");
+        post.release();
+    }
+
+    @Test
+    void testMultipartForm() {
+        String body = "--b\r\n"
+                + "Content-Disposition: form-data; name=\"title\"\r\n\r\n"
+                + "report\r\n"
+                + "--b\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"a.txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n"
+                + "data\r\n"
+                + "--b--\r\n";
+        FullHttpRequest post = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload",
+                Unpooled.copiedBuffer(body, StandardCharsets.UTF_8));
+        post.headers().set(HttpHeaderNames.CONTENT_TYPE, "multipart/form-data; boundary=b");
+        HttpUtil.setContentLength(post, post.content().readableBytes());
+        Context ctx = new Context(post, response);
+
+        assertEquals("report", ctx.form("title"), "应该解析multipart中的字段");
+        assertNull(ctx.form("file"), "文件字段不是表单参数");
+        assertEquals(1, post.refCnt());
+        post.release();
+    }
+
+    @Test
+    void testFormIgnoresOtherContentTypes() {
+        FullHttpRequest post = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/api",
+                Unpooled.copiedBuffer("user=alice", StandardCharsets.UTF_8));
+        post.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json");
+        assertNull(new Context(post, response).form("user"), "非表单请求体不应该解析");
+        post.release();
+    }
+
     @Test
     void testAttributes() {
         Object value = new Object();
@@ -84,4 +199,106 @@ class ContextTest {
         // 不应抛出异常
         nullContext.status(200);
     }
-} 
\ No newline at end of file
+
+    @Test
+    void testTextWriter() {
+        Context writable = new Context(request, new DefaultFullHttpResponse(
+            HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.buffer()));
+        writable.text("你好").text("!");
+
+        FullHttpResponse resp = writable.getResponse();
+        assertEquals("你好!", resp.content().toString(StandardCharsets.UTF_8), "应该按UTF-8追加文本");
+        assertEquals("text/plain; charset=UTF-8", resp.headers().get(HttpHeaderNames.CONTENT_TYPE), "应该设置文本类型");
+        assertEquals(7, HttpUtil.getContentLength(resp), "Content-Length应该为字节数");
+        resp.release();
+
+        Context csv = new Context(request, new DefaultFullHttpResponse(
+            HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.buffer()));
+        csv.getResponse().headers().set(HttpHeaderNames.CONTENT_TYPE, "text/csv");
+        csv.text("id,name\n");
+        assertEquals("text/csv", csv.getResponse().headers().get(HttpHeaderNames.CONTENT_TYPE), "不应该覆盖已设置的Content-Type");
+        csv.getResponse().release();
+    }
+
+    @Test
+    void testBytesAndCharsetWriter() {
+        Context writable = new Context(request, new DefaultFullHttpResponse(
+            HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.buffer()));
+        writable.bytes(new byte[]{1, 2, 3});
+        assertEquals("application/octet-stream", writable.getResponse().headers().get(HttpHeaderNames.CONTENT_TYPE),
+            "未设置类型时应该使用二进制类型");
+
+        Context latin = new Context(request, new DefaultFullHttpResponse(
+            HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.buffer()));
+        latin.write("caf\u00e9", StandardCharsets.ISO_8859_1);
+        assertEquals(4, latin.getResponse().content().readableBytes(), "应该按指定字符集编码");
+        assertEquals("text/plain; charset=ISO-8859-1", latin.getResponse().headers().get(HttpHeaderNames.CONTENT_TYPE));
+
+        writable.getResponse().release();
+        latin.getResponse().release();
+
+        Context buffered = new Context(request, new DefaultFullHttpResponse(
+            HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.buffer()));
+        buffered.write(Unpooled.wrappedBuffer(new byte[]{1, 2, 3}));
+        assertEquals("application/octet-stream", buffered.getResponse().headers().get(HttpHeaderNames.CONTENT_TYPE),
+            "写入缓冲区且未设置类型时应该使用二进制类型");
+        buffered.getResponse().release();
+
+        Context png = new Context(request, new DefaultFullHttpResponse(
+            HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.buffer()));
+        png.getResponse().headers().set(HttpHeaderNames.CONTENT_TYPE, "image/png");
+        png.write(Unpooled.wrappedBuffer(new byte[]{1, 2, 3}));
+        assertEquals("image/png", png.getResponse().headers().get(HttpHeaderNames.CONTENT_TYPE), "不应该覆盖已设置的Content-Type");
+        assertEquals(3, HttpUtil.getContentLength(png.getResponse()));
+        png.getResponse().release();
+    }
+
+    @Test
+    void testByteBufWriter() {
+        Context writable = new Context(request, new DefaultFullHttpResponse(
+            HttpVersion.HTTP_1_1, HttpResponseStatus.CREATED, Unpooled.buffer()));
+        writable.getResponse().headers().set("X-Test", "1");
+
+        ByteBuf body = Unpooled.copiedBuffer("body", StandardCharsets.UTF_8);
+        writable.write(body);
+
+        FullHttpResponse resp = writable.getResponse();
+        assertSame(body, resp.content(), "空响应体应该直接替换为写入的缓冲区");
+        assertEquals(HttpResponseStatus.CREATED, resp.status(), "替换后应该保留状态码");
+        assertEquals("1", resp.headers().get("X-Test"), "替换后应该保留响应头");
+
+        ByteBuf tail = Unpooled.copiedBuffer("!", StandardCharsets.UTF_8);
+        writable.write(tail);
+        assertEquals("body!", writable.getResponse().content().toString(StandardCharsets.UTF_8), "非空响应体应该追加内容");
+        assertEquals(0, tail.refCnt(), "追加后应该释放传入的缓冲区");
+        assertEquals(5, HttpUtil.getContentLength(writable.getResponse()));
+        writable.getResponse().release();
+    }
+
+    @Test
+    void testStreamRequiresChannel() {
+        Context detached = new Context(request, new DefaultFullHttpResponse(
+            HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.buffer()));
+
+        assertThrows(IllegalStateException.class, detached::stream, "未绑定通道的上下文不能流式发送");
+        detached.getResponse().release();
+    }
+
+    @Test
+    void testRender() {
+        Context writable = new Context(request, new DefaultFullHttpResponse(
+            HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.buffer()));
+        writable.setTemplateEngine(new TemplateEngine());
+        java.util.Map<String, Object> model = new java.util.HashMap<>();
+        model.put("title", "标题");
+        model.put("content", "内容");
+
+        writable.render("index.ftl", model);
+
+        FullHttpResponse resp = writable.getResponse();
+        assertEquals("text/html; charset=UTF-8", resp.headers().get(HttpHeaderNames.CONTENT_TYPE), "应该设置HTML的Content-Type");
+        assertEquals(resp.content().readableBytes(), HttpUtil.getContentLength(resp), "应该按渲染结果设置Content-Length");
+        assertTrue(resp.content().toString(StandardCharsets.UTF_8).contains("<title>标题</title>"), "应该渲染模型中的变量");
+        resp.release();
+    }
+}
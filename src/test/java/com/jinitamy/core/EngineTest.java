@@ -3,6 +3,13 @@ package com.jinitamy.core;
 import io.netty.handler.codec.http.HttpMethod;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class EngineTest {
@@ -109,4 +116,79 @@ class EngineTest {
         assertNotNull(engine.getMiddlewares(), "应该能够访问中间件列表");
         assertTrue(engine.getMiddlewares().isEmpty(), "初始中间件列表应该为空");
     }
-} 
\ No newline at end of file
+
+    @Test
+    void testPipelinePrecomposed() throws Exception {
+        StringBuilder order = new StringBuilder();
+        engine.use((ctx, next) -> {
+            order.append("1");
+            next.handle(ctx);
+        });
+        engine.get("/test", ctx -> order.append("H"));
+        engine.getRouter().compile();
+
+        Route first = engine.getRouter().match(HttpMethod.GET, "/test", new Context(null, null));
+        Route second = engine.getRouter().match(HttpMethod.GET, "/test", new Context(null, null));
+        assertSame(first.getPipeline(), second.getPipeline(), "处理链应该在请求之间共享");
+
+        // 新增中间件后处理链应该重新组合
+        engine.use((ctx, next) -> {
+            order.append("2");
+            next.handle(ctx);
+        });
+        Route third = engine.getRouter().match(HttpMethod.GET, "/test", new Context(null, null));
+        third.getPipeline().handle(new Context(null, null));
+        assertEquals("12H", order.toString(), "重新组合的处理链应该包含新增的中间件");
+    }
+
+    @Test
+    void testExecutionMode() {
+        assertEquals(ExecutionMode.EVENT_LOOP, engine.getExecutionMode(), "默认应该在事件循环上执行");
+
+        engine.setExecutionMode(ExecutionMode.BLOCKING);
+        assertEquals(ExecutionMode.BLOCKING, engine.getExecutionMode(), "应该能够设置全局执行模式");
+        assertNotNull(engine.getBlockingExecutor(), "应该创建默认的阻塞任务执行器");
+        assertThrows(IllegalArgumentException.class, () -> engine.setExecutionMode(null));
+    }
+
+    @Test
+    void testTransportSelection() {
+        assertTrue(Transport.NIO.isAvailable(), "NIO应该在所有平台上可用");
+        assertTrue(Transport.detect().isAvailable(), "自动选择的传输层应该可用");
+
+        engine.setTransport(Transport.NIO);
+        assertEquals(Transport.NIO, engine.getTransport(), "应该使用指定的传输层");
+
+        for (Transport transport : Transport.values()) {
+            if (!transport.isAvailable()) {
+                engine.setTransport(transport);
+                assertTrue(engine.getTransport().isAvailable(), "不可用的传输层应该回退到可用的实现");
+            }
+        }
+    }
+
+    @Test
+    void testStartOnRandomPort() throws Exception {
+        engine.setPort(0);
+        engine.setTransport(Transport.NIO);
+        engine.start();
+        try {
+            assertTrue(engine.isRunning(), "服务器应该处于运行状态");
+            assertTrue(engine.getPort() > 0, "启动后应该返回实际绑定的端口");
+        } finally {
+            engine.stop();
+        }
+    }
+
+    @Test
+    void testPrecompileTemplatesOnStart(@TempDir Path dir) throws Exception {
+        Files.writeString(dir.resolve("broken.ftl"), "<#if>", StandardCharsets.UTF_8);
+        engine.getTemplateEngine().setTemplatePath(dir.toString());
+        engine.setPrecompileTemplates(true);
+        engine.setPort(0);
+        engine.setTransport(Transport.NIO);
+
+        assertThrows(IOException.class, engine::start, "模板有语法错误时应该启动失败");
+        assertFalse(engine.isRunning());
+    }
+}
@@ -0,0 +1,230 @@
+package com.jinitamy.core;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.*;
+import io.netty.util.CharsetUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpCompressionHandlerTest {
+    @TempDir
+    Path dir;
+
+    private Engine engine;
+    private CompressionCache cache;
+    private EmbeddedChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        engine = new Engine();
+        cache = new CompressionCache(1024 * 1024);
+        channel = new EmbeddedChannel(
+                new HttpCompressionHandler(CompressionOptions.create().minSize(256), cache),
+                new HttpHandler(engine));
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.finishAndReleaseAll();
+        cache.clear();
+    }
+
+    private static String text(int lines) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            sb.append("line ").append(i).append(" of compressible text\n");
+        }
+        return sb.toString();
+    }
+
+    private void request(HttpMethod method, String uri, String... headers) {
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, method, uri, Unpooled.EMPTY_BUFFER);
+        for (int i = 0; i < headers.length; i += 2) {
+            request.headers().set(headers[i], headers[i + 1]);
+        }
+        channel.writeInbound(request);
+    }
+
+    private static String decode(ByteBuf content, String encoding) throws IOException {
+        byte[] bytes = ByteBufUtil.getBytes(content);
+        InputStream in = "gzip".equals(encoding)
+                ? new GZIPInputStream(new ByteArrayInputStream(bytes))
+                : new InflaterInputStream(new ByteArrayInputStream(bytes));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        in.transferTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testSelectEncoding() {
+        assertEquals("gzip", HttpCompressionHandler.selectEncoding("gzip, deflate, br"));
+        assertEquals("deflate", HttpCompressionHandler.selectEncoding("deflate"));
+        assertEquals("deflate", HttpCompressionHandler.selectEncoding("gzip;q=0.5, deflate"), "应该选择q值较高的编码");
+        assertEquals("gzip", HttpCompressionHandler.selectEncoding("*"), "通配符应该匹配gzip");
+        assertNull(HttpCompressionHandler.selectEncoding("gzip;q=0, *;q=0"), "q=0表示拒绝");
+        assertNull(HttpCompressionHandler.selectEncoding("identity, br"), "不支持的编码应该忽略");
+    }
+
+    @Test
+    void testCompressFullResponse() throws IOException {
+        String body = text(100);
+        engine.get("/text", ctx -> ctx.text(body));
+
+        request(HttpMethod.GET, "/text", "Accept-Encoding", "gzip, deflate");
+        FullHttpResponse gzip = channel.readOutbound();
+        assertEquals("gzip", gzip.headers().get(HttpHeaderNames.CONTENT_ENCODING), "应该使用gzip压缩");
+        assertEquals("accept-encoding", gzip.headers().get(HttpHeaderNames.VARY).toLowerCase());
+        assertEquals(gzip.content().readableBytes(), HttpUtil.getContentLength(gzip), "Content-Length应该是压缩后的长度");
+        assertTrue(gzip.content().readableBytes() < body.length() / 2, "文本应该被明显压缩");
+        assertEquals(body, decode(gzip.content(), "gzip"), "解压后应该与原始内容一致");
+        gzip.release();
+
+        request(HttpMethod.GET, "/text", "Accept-Encoding", "deflate");
+        FullHttpResponse deflate = channel.readOutbound();
+        assertEquals("deflate", deflate.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+        assertEquals(body, decode(deflate.content(), "deflate"), "解压后应该与原始内容一致");
+        deflate.release();
+    }
+
+    @Test
+    void testSkipUncompressibleResponses() {
+        engine.get("/small", ctx -> ctx.text("tiny"));
+        engine.get("/image", ctx -> {
+            ctx.getResponse().headers().set(HttpHeaderNames.CONTENT_TYPE, "image/png");
+            ctx.bytes(new byte[4096]);
+        });
+        engine.get("/text", ctx -> ctx.text(text(100)));
+
+        request(HttpMethod.GET, "/small", "Accept-Encoding", "gzip");
+        FullHttpResponse small = channel.readOutbound();
+        assertNull(small.headers().get(HttpHeaderNames.CONTENT_ENCODING), "小于最小字节数的响应不应该压缩");
+        assertNotNull(small.headers().get(HttpHeaderNames.VARY), "可压缩类型的响应应该带Vary");
+        small.release();
+
+        request(HttpMethod.GET, "/image", "Accept-Encoding", "gzip");
+        FullHttpResponse image = channel.readOutbound();
+        assertNull(image.headers().get(HttpHeaderNames.CONTENT_ENCODING), "不在允许列表中的类型不应该压缩");
+        assertNull(image.headers().get(HttpHeaderNames.VARY));
+        image.release();
+
+        request(HttpMethod.GET, "/text");
+        FullHttpResponse identity = channel.readOutbound();
+        assertNull(identity.headers().get(HttpHeaderNames.CONTENT_ENCODING), "客户端未声明Accept-Encoding时不应该压缩");
+        assertNotNull(identity.headers().get(HttpHeaderNames.VARY), "未压缩的响应也应该带Vary");
+        identity.release();
+
+        request(HttpMethod.HEAD, "/text", "Accept-Encoding", "gzip");
+        FullHttpResponse head = channel.readOutbound();
+        assertNull(head.headers().get(HttpHeaderNames.CONTENT_ENCODING), "HEAD请求不应该压缩");
+        head.release();
+    }
+
+    @Test
+    void testCompressStreamingResponse() throws IOException {
+        engine.get("/export", ctx -> {
+            ctx.getResponse().headers().set(HttpHeaderNames.CONTENT_TYPE, "text/csv");
+            ResponseStream out = ctx.stream();
+            for (int i = 0; i < 2000; i++) {
+                out.write(i + ",item" + i + "\n");
+            }
+            out.close();
+        });
+
+        request(HttpMethod.GET, "/export", "Accept-Encoding", "gzip");
+        HttpResponse head = channel.readOutbound();
+        assertEquals("gzip", head.headers().get(HttpHeaderNames.CONTENT_ENCODING), "分块响应应该逐块压缩");
+        assertTrue(HttpUtil.isTransferEncodingChunked(head), "应该保持分块传输");
+
+        ByteBuf compressed = Unpooled.buffer();
+        int chunks = 0;
+        Object msg;
+        while ((msg = channel.readOutbound()) != null) {
+            HttpContent content = (HttpContent) msg;
+            compressed.writeBytes(content.content());
+            content.release();
+            chunks++;
+            if (msg instanceof LastHttpContent) {
+                break;
+            }
+        }
+        assertTrue(msg instanceof LastHttpContent, "应该以LastHttpContent结束");
+        assertTrue(chunks > 2, "每个分块应该单独压缩发送");
+        String body = decode(compressed, "gzip");
+        assertTrue(body.startsWith("0,item0\n") && body.endsWith("1999,item1999\n"), "解压后应该得到全部内容");
+        compressed.release();
+    }
+
+    @Test
+    void testCompressAndCacheStaticFile() throws IOException {
+        String css = text(200);
+        Files.writeString(dir.resolve("app.css"), css, StandardCharsets.UTF_8);
+        engine.staticDir("/assets/*", dir);
+
+        String etag = null;
+        for (int i = 0; i < 2; i++) {
+            request(HttpMethod.GET, "/assets/app.css", "Accept-Encoding", "gzip");
+            HttpResponse head = channel.readOutbound();
+            assertEquals("gzip", head.headers().get(HttpHeaderNames.CONTENT_ENCODING), "静态文件应该被压缩");
+            etag = head.headers().get(HttpHeaderNames.ETAG);
+            assertTrue(etag.startsWith("W/"), "压缩后的ETag应该是弱校验");
+            LastHttpContent content = channel.readOutbound();
+            assertEquals(content.content().readableBytes(), HttpUtil.getContentLength(head), "Content-Length应该是压缩后的长度");
+            assertEquals(css, decode(content.content(), "gzip"), "解压后应该与文件内容一致");
+            content.release();
+            assertNull(channel.readOutbound(), "原始文件内容不应该被发送");
+        }
+        assertEquals(1, cache.misses(), "第一次请求应该压缩文件");
+        assertEquals(1, cache.hits(), "第二次请求应该使用缓存的压缩结果");
+
+        request(HttpMethod.GET, "/assets/app.css", "Accept-Encoding", "gzip", "If-None-Match", etag);
+        FullHttpResponse notModified = channel.readOutbound();
+        assertEquals(HttpResponseStatus.NOT_MODIFIED, notModified.status(), "弱ETag也应该命中条件请求");
+        notModified.release();
+
+        request(HttpMethod.GET, "/assets/app.css", "Accept-Encoding", "gzip", "Range", "bytes=0-9");
+        HttpResponse partial = channel.readOutbound();
+        assertEquals(HttpResponseStatus.PARTIAL_CONTENT, partial.status());
+        assertNull(partial.headers().get(HttpHeaderNames.CONTENT_ENCODING), "区间响应不应该压缩");
+        DefaultFileRegion region = channel.readOutbound();
+        assertEquals(10, region.count(), "区间内容应该零拷贝发送");
+        region.release();
+    }
+
+    @Test
+    void testCacheEviction() {
+        CompressionCache small = new CompressionCache(8 * 1024);
+        ByteBuf content = Unpooled.wrappedBuffer(new byte[1000]);
+        for (int i = 0; i < 20; i++) {
+            small.put(CompressionCache.key("/file" + i, "\"1\"", "gzip"), content);
+        }
+        assertTrue(small.size() <= 8 * 1024, "缓存总字节数不应该超过上限");
+        ByteBuf cached = small.get(CompressionCache.key("/file19", "\"1\"", "gzip"));
+        assertNotNull(cached, "最近放入的条目应该保留");
+        cached.release();
+
+        small.put("large", Unpooled.wrappedBuffer(new byte[2048]));
+        assertNull(small.get("large"), "超过上限1/8的条目不应该缓存");
+        assertEquals(1, content.refCnt(), "缓存不应该持有传入的缓冲区");
+        small.clear();
+        assertEquals(0, small.size());
+        content.release();
+    }
+}
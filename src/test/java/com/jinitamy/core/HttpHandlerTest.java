@@ -1,10 +1,21 @@
 package com.jinitamy.core;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.http.*;
+import io.netty.util.CharsetUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import static org.junit.jupiter.api.Assertions.*;
 
 class HttpHandlerTest {
@@ -180,4 +191,556 @@ class HttpHandlerTest {
         assertNotNull(response, "应该返回响应");
         assertEquals(HttpResponseStatus.OK, response.status(), "应该返回200状态码");
     }
-} 
\ No newline at end of file
+
+    @Test
+    void testMiddlewareShortCircuit() {
+        // 中间件不调用next时，应该直接发送中间件设置的响应
+        engine.use((ctx, next) -> ctx.status(401));
+        engine.get("/secure", ctx -> ctx.status(200));
+
+        FullHttpRequest request = new DefaultFullHttpRequest(
+            HttpVersion.HTTP_1_1,
+            HttpMethod.GET,
+            "/secure",
+            Unpooled.EMPTY_BUFFER
+        );
+
+        channel.writeInbound(request);
+
+        FullHttpResponse response = channel.readOutbound();
+
+        assertNotNull(response, "应该返回响应");
+        assertEquals(HttpResponseStatus.UNAUTHORIZED, response.status(), "应该返回中间件设置的状态码");
+    }
+
+    @Test
+    void testBlockingExecutionMode() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            engine.setBlockingExecutor(executor);
+            Thread testThread = Thread.currentThread();
+            CountDownLatch paused = new CountDownLatch(1);
+            engine.get("/blocking", ctx -> {
+                // 等待测试线程检查完读取状态，避免处理过快导致读取已经恢复
+                paused.await();
+                // 处理器应该运行在阻塞任务执行器上
+                ctx.status(Thread.currentThread() == testThread ? 500 : 200);
+            }, RouteOptions.create().executionMode(ExecutionMode.BLOCKING));
+
+            FullHttpRequest request = new DefaultFullHttpRequest(
+                HttpVersion.HTTP_1_1,
+                HttpMethod.GET,
+                "/blocking",
+                Unpooled.buffer()
+            );
+
+            channel.writeInbound(request);
+            assertFalse(channel.config().isAutoRead(), "处理期间应该暂停读取");
+            paused.countDown();
+
+            // 等待执行器处理完成后，在事件循环上执行写响应的任务
+            FullHttpResponse response = null;
+            for (int i = 0; i < 200 && response == null; i++) {
+                Thread.sleep(10);
+                channel.runPendingTasks();
+                response = channel.readOutbound();
+            }
+
+            assertNotNull(response, "应该返回响应");
+            assertEquals(HttpResponseStatus.OK, response.status(), "处理器不应该在事件循环线程上执行");
+            assertTrue(channel.config().isAutoRead(), "响应发送后应该恢复读取");
+            assertEquals(0, request.refCnt(), "请求应该在响应发送后释放");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testBlockingPipelinedInOrder() {
+        List<Runnable> tasks = new ArrayList<>();
+        engine.setBlockingExecutor(tasks::add);
+        engine.get("/slow", ctx -> ctx.text("slow"), RouteOptions.create().executionMode(ExecutionMode.BLOCKING));
+        engine.get("/fast", ctx -> ctx.text("fast"));
+
+        FullHttpRequest fast = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/fast", Unpooled.buffer());
+        HttpTestSupport.pipeline(channel, HttpTestSupport.get("/slow"), fast);
+        assertNull(channel.readOutbound(), "阻塞处理完成前不应该发送后续请求的响应");
+        assertEquals(1, fast.refCnt(), "排队的请求应该保留引用");
+
+        tasks.remove(0).run();
+        channel.runPendingTasks();
+        assertEquals("slow", HttpTestSupport.body(channel.readOutbound()), "应该按请求顺序发送响应");
+        assertEquals("fast", HttpTestSupport.body(channel.readOutbound()));
+        assertEquals(0, fast.refCnt(), "重放后应该释放排队的请求");
+        assertTrue(channel.config().isAutoRead(), "队列处理完后应该恢复读取");
+    }
+
+    @Test
+    void testBlockingPipelinedThroughCodec() {
+        List<Runnable> tasks = new ArrayList<>();
+        engine.setBlockingExecutor(tasks::add);
+        engine.get("/slow", ctx -> ctx.text("slow"), RouteOptions.create().executionMode(ExecutionMode.BLOCKING));
+        engine.get("/fast", ctx -> ctx.text("fast"));
+        channel = new EmbeddedChannel(new HttpServerCodec(), new HttpHandler(engine));
+
+        // 两个请求在同一个缓冲区中到达，HEAD响应需要与HttpServerCodec记录的请求方法一一对应
+        channel.writeInbound(Unpooled.copiedBuffer(
+                "GET /slow HTTP/1.1\r\nHost: a\r\n\r\nHEAD /fast HTTP/1.1\r\nHost: a\r\n\r\n", CharsetUtil.US_ASCII));
+        tasks.remove(0).run();
+        channel.runPendingTasks();
+
+        StringBuilder raw = new StringBuilder();
+        ByteBuf out;
+        while ((out = channel.readOutbound()) != null) {
+            raw.append(out.toString(CharsetUtil.US_ASCII));
+            out.release();
+        }
+        String text = raw.toString();
+        assertTrue(text.startsWith("HTTP/1.1 200 OK"), text);
+        assertTrue(text.indexOf("slow") > 0, "GET的响应应该先发出");
+        assertFalse(text.contains("fast"), "HEAD响应不应该包含响应体");
+        assertEquals(2, text.split("HTTP/1.1 200 OK", -1).length - 1, "应该发出两个响应");
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void testContentLengthAndKeepAlive() {
+        engine.get("/text", ctx -> ctx.getResponse().content().writeBytes("你好".getBytes(java.nio.charset.StandardCharsets.UTF_8)));
+
+        FullHttpRequest request = new DefaultFullHttpRequest(
+            HttpVersion.HTTP_1_1,
+            HttpMethod.GET,
+            "/text",
+            Unpooled.EMPTY_BUFFER
+        );
+
+        channel.writeInbound(request);
+
+        FullHttpResponse response = channel.readOutbound();
+
+        assertNotNull(response, "应该返回响应");
+        assertEquals(6, HttpUtil.getContentLength(response), "Content-Length应该按字节数自动计算");
+        assertFalse(response.headers().contains(HttpHeaderNames.CONNECTION), "HTTP/1.1默认保持连接，不需要Connection头");
+        assertTrue(channel.isOpen(), "keep-alive请求不应该关闭连接");
+    }
+
+    @Test
+    void testHttp10KeepAlive() {
+        engine.get("/test", ctx -> ctx.status(200));
+
+        FullHttpRequest request = new DefaultFullHttpRequest(
+            HttpVersion.HTTP_1_0,
+            HttpMethod.GET,
+            "/test",
+            Unpooled.EMPTY_BUFFER
+        );
+        request.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+
+        channel.writeInbound(request);
+
+        FullHttpResponse response = channel.readOutbound();
+
+        assertNotNull(response, "应该返回响应");
+        assertEquals("keep-alive", response.headers().get(HttpHeaderNames.CONNECTION), "HTTP/1.0需要显式返回keep-alive");
+        assertEquals(0, HttpUtil.getContentLength(response), "空响应也应该设置Content-Length");
+        assertTrue(channel.isOpen(), "keep-alive请求不应该关闭连接");
+    }
+
+    @Test
+    void testConnectionClose() {
+        engine.get("/test", ctx -> ctx.status(200));
+
+        FullHttpRequest request = new DefaultFullHttpRequest(
+            HttpVersion.HTTP_1_1,
+            HttpMethod.GET,
+            "/test",
+            Unpooled.EMPTY_BUFFER
+        );
+        request.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+
+        channel.writeInbound(request);
+
+        FullHttpResponse response = channel.readOutbound();
+
+        assertNotNull(response, "应该返回响应");
+        assertEquals("close", response.headers().get(HttpHeaderNames.CONNECTION), "应该返回Connection: close");
+        assertFalse(channel.isOpen(), "Connection: close请求应该在响应后关闭连接");
+    }
+
+    @Test
+    void testAggregateChunkedBody() {
+        engine.post("/echo", ctx -> ctx.text(String.valueOf(ctx.getRequest().content().readableBytes())));
+
+        HttpRequest head = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/echo");
+        HttpUtil.setTransferEncodingChunked(head, true);
+        channel.writeInbound(head);
+        channel.writeInbound(new DefaultHttpContent(Unpooled.copiedBuffer("hello ", CharsetUtil.UTF_8)));
+        assertNull(channel.readOutbound(), "请求体接收完毕前不应该响应");
+        channel.writeInbound(new DefaultLastHttpContent(Unpooled.copiedBuffer("world", CharsetUtil.UTF_8)));
+
+        FullHttpResponse response = channel.readOutbound();
+
+        assertNotNull(response, "应该返回响应");
+        assertEquals("11", response.content().toString(CharsetUtil.UTF_8), "处理器应该看到完整的请求体");
+        response.release();
+    }
+
+    @Test
+    void testRejectDeclaredContentLengthOverLimit() {
+        engine.post("/upload", ctx -> ctx.status(201), RouteOptions.create().maxContentLength(4));
+        engine.get("/test", ctx -> ctx.status(200));
+
+        HttpRequest head = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+        HttpUtil.setContentLength(head, 10);
+        channel.writeInbound(head);
+
+        FullHttpResponse response = channel.readOutbound();
+        assertNotNull(response, "超出限制时应该在收到请求头后立即响应");
+        assertEquals(HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE, response.status(), "超出限制应该返回413");
+        response.release();
+
+        // 剩余的请求体被丢弃，连接可以继续处理下一个请求
+        channel.writeInbound(new DefaultLastHttpContent(Unpooled.copiedBuffer("0123456789", CharsetUtil.UTF_8)));
+        assertNull(channel.readOutbound(), "丢弃的请求体不应该产生响应");
+        channel.writeInbound(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/test", Unpooled.EMPTY_BUFFER));
+        response = channel.readOutbound();
+        assertEquals(HttpResponseStatus.OK, response.status(), "后续请求应该正常处理");
+    }
+
+    @Test
+    void testRejectChunkedBodyOverLimit() {
+        engine.setMaxContentLength(4);
+        engine.post("/upload", ctx -> ctx.status(201));
+
+        HttpRequest head = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+        HttpUtil.setTransferEncodingChunked(head, true);
+        channel.writeInbound(head);
+        ByteBuf chunk = Unpooled.copiedBuffer("0123456789", CharsetUtil.UTF_8);
+        channel.writeInbound(new DefaultHttpContent(chunk));
+
+        FullHttpResponse response = channel.readOutbound();
+
+        assertNotNull(response, "应该返回响应");
+        assertEquals(HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE, response.status(), "超出全局限制应该返回413");
+        assertEquals(0, chunk.refCnt(), "已聚合的请求体应该被释放");
+        assertFalse(channel.isOpen(), "无法预知剩余长度时应该关闭连接");
+    }
+
+    @Test
+    void testExpectContinue() {
+        engine.post("/upload", ctx -> ctx.status(201));
+
+        HttpRequest head = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+        HttpUtil.setContentLength(head, 3);
+        HttpUtil.set100ContinueExpected(head, true);
+        channel.writeInbound(head);
+
+        FullHttpResponse interim = channel.readOutbound();
+        assertEquals(HttpResponseStatus.CONTINUE, interim.status(), "应该先回复100 Continue");
+
+        channel.writeInbound(new DefaultLastHttpContent(Unpooled.copiedBuffer("abc", CharsetUtil.UTF_8)));
+        FullHttpResponse response = channel.readOutbound();
+        assertEquals(HttpResponseStatus.CREATED, response.status(), "请求体接收完毕后应该执行处理器");
+    }
+
+    @Test
+    void testStreamingBody() {
+        List<String> events = new ArrayList<>();
+        List<ByteBuf> received = new ArrayList<>();
+        engine.post("/upload", ctx -> {
+            events.add("handler");
+            ctx.onBody(new BodyListener() {
+                long total;
+
+                @Override
+                public void onData(Context ctx, ByteBuf chunk) {
+                    events.add("data");
+                    received.add(chunk);
+                    total += chunk.readableBytes();
+                    ctx.pauseBody();
+                }
+
+                @Override
+                public void onComplete(Context ctx) {
+                    events.add("complete");
+                    ctx.text(String.valueOf(total));
+                }
+            });
+        }, RouteOptions.create().streaming(true).maxContentLength(1));
+
+        HttpRequest head = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+        HttpUtil.setTransferEncodingChunked(head, true);
+        channel.writeInbound(head);
+        assertEquals(List.of("handler"), events, "流式路由应该在收到请求头后立即执行处理链");
+
+        channel.writeInbound(new DefaultHttpContent(Unpooled.copiedBuffer("hello ", CharsetUtil.UTF_8)));
+        assertFalse(channel.config().isAutoRead(), "pauseBody应该关闭自动读取");
+        channel.writeInbound(new DefaultLastHttpContent(Unpooled.copiedBuffer("world", CharsetUtil.UTF_8)));
+
+        FullHttpResponse response = channel.readOutbound();
+
+        assertEquals(List.of("handler", "data", "data", "complete"), events, "应该按到达顺序回调监听器");
+        assertEquals("11", response.content().toString(CharsetUtil.UTF_8), "流式路由不受请求体大小限制");
+        assertTrue(received.stream().allMatch(buf -> buf.refCnt() == 0), "数据块应该在回调后释放");
+        assertTrue(channel.config().isAutoRead(), "请求结束后应该恢复自动读取");
+        response.release();
+    }
+
+    @Test
+    void testStreamingWithoutListener() {
+        engine.post("/upload", ctx -> ctx.status(401), RouteOptions.create().streaming(true));
+
+        HttpRequest head = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+        HttpUtil.setContentLength(head, 5);
+        channel.writeInbound(head);
+
+        FullHttpResponse response = channel.readOutbound();
+        assertNotNull(response, "未注册监听器时应该立即响应");
+        assertEquals(HttpResponseStatus.UNAUTHORIZED, response.status(), "应该返回处理器设置的状态码");
+
+        channel.writeInbound(new DefaultLastHttpContent(Unpooled.copiedBuffer("abcde", CharsetUtil.UTF_8)));
+        assertNull(channel.readOutbound(), "剩余的请求体应该被丢弃");
+    }
+
+    @Test
+    void testStreamingConnectionClosed() {
+        List<Throwable> errors = new ArrayList<>();
+        engine.post("/upload", ctx -> ctx.onBody(new BodyListener() {
+            @Override
+            public void onData(Context ctx, ByteBuf chunk) {
+            }
+
+            @Override
+            public void onError(Context ctx, Throwable cause) {
+                errors.add(cause);
+            }
+        }), RouteOptions.create().streaming(true));
+
+        HttpRequest head = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+        HttpUtil.setTransferEncodingChunked(head, true);
+        channel.writeInbound(head);
+        channel.close();
+
+        assertEquals(1, errors.size(), "连接提前关闭时应该通知监听器");
+    }
+
+    @Test
+    void testStreamingResponse() {
+        engine.get("/export", ctx -> {
+            ctx.getResponse().headers().set(HttpHeaderNames.CONTENT_TYPE, "text/csv");
+            ctx.write("id,name\n", CharsetUtil.UTF_8);
+            ResponseStream out = ctx.stream();
+            for (int i = 0; i < 2000; i++) {
+                out.write(i + ",item" + i + "\n");
+            }
+            out.close();
+        });
+
+        channel.writeInbound(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/export", Unpooled.EMPTY_BUFFER));
+
+        HttpResponse head = channel.readOutbound();
+        assertFalse(head instanceof FullHttpResponse, "应该先单独发送响应头");
+        assertTrue(HttpUtil.isTransferEncodingChunked(head), "应该使用分块传输");
+        assertFalse(head.headers().contains(HttpHeaderNames.CONTENT_LENGTH), "分块传输不应该设置Content-Length");
+        assertEquals("text/csv", head.headers().get(HttpHeaderNames.CONTENT_TYPE), "应该保留处理器设置的响应头");
+
+        StringBuilder body = new StringBuilder();
+        int chunks = 0;
+        Object msg;
+        while ((msg = channel.readOutbound()) != null) {
+            HttpContent content = (HttpContent) msg;
+            body.append(content.content().toString(CharsetUtil.UTF_8));
+            content.release();
+            chunks++;
+            if (msg instanceof LastHttpContent) {
+                break;
+            }
+        }
+        assertTrue(msg instanceof LastHttpContent, "应该以LastHttpContent结束");
+        assertTrue(chunks > 2, "大响应应该拆分为多个分块");
+        assertTrue(body.toString().startsWith("id,name\n0,item0\n"), "流式发送前写入的内容应该作为第一个分块");
+        assertTrue(body.toString().endsWith("1999,item1999\n"), "应该发送全部内容");
+        assertTrue(channel.isOpen(), "分块响应结束后应该保持连接");
+    }
+
+    @Test
+    void testStreamingResponseHttp10() {
+        engine.get("/export", ctx -> ctx.stream().write("data").close());
+
+        channel.writeInbound(new DefaultFullHttpRequest(HttpVersion.HTTP_1_0, HttpMethod.GET, "/export", Unpooled.EMPTY_BUFFER));
+
+        HttpResponse head = channel.readOutbound();
+        assertFalse(HttpUtil.isTransferEncodingChunked(head), "HTTP/1.0不支持分块传输");
+        assertEquals("close", head.headers().get(HttpHeaderNames.CONNECTION), "HTTP/1.0应该以关闭连接结束响应");
+        assertFalse(channel.isOpen(), "响应结束后应该关闭连接");
+    }
+
+    @Test
+    void testStreamingResponseLeftOpen() {
+        ResponseStream[] holder = new ResponseStream[1];
+        engine.get("/events", ctx -> holder[0] = ctx.stream());
+
+        channel.writeInbound(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/events", Unpooled.EMPTY_BUFFER));
+        assertFalse(channel.config().isAutoRead(), "流式响应结束前不应该读取后续请求");
+
+        holder[0].write("tick").close();
+        assertTrue(channel.config().isAutoRead(), "流式响应结束后应该恢复读取");
+        assertThrows(IllegalStateException.class, () -> holder[0].write("late"), "结束后不能再写入");
+    }
+
+    @Test
+    void testStreamingResponsePipelined() {
+        ResponseStream[] holder = new ResponseStream[1];
+        engine.get("/events", ctx -> holder[0] = ctx.stream());
+        engine.get("/fast", ctx -> ctx.text("fast"));
+
+        HttpTestSupport.pipeline(channel, HttpTestSupport.get("/events"), HttpTestSupport.get("/fast"));
+        HttpResponse head = channel.readOutbound();
+        assertTrue(HttpUtil.isTransferEncodingChunked(head));
+        assertNull(channel.readOutbound(), "流式响应结束前不应该处理后续请求");
+
+        holder[0].write("tick").close();
+        StringBuilder body = new StringBuilder();
+        Object msg;
+        while (!((msg = channel.readOutbound()) instanceof LastHttpContent)) {
+            body.append(((HttpContent) msg).content().toString(CharsetUtil.UTF_8));
+            ((HttpContent) msg).release();
+        }
+        body.append(((HttpContent) msg).content().toString(CharsetUtil.UTF_8));
+        ((HttpContent) msg).release();
+        assertEquals("tick", body.toString());
+        assertEquals("fast", HttpTestSupport.body(channel.readOutbound()), "后续请求应该在分块响应结束后响应");
+        assertTrue(channel.config().isAutoRead());
+    }
+
+    @Test
+    void testStreamingResponseError() {
+        engine.get("/export", ctx -> {
+            ctx.stream().write("partial").flush();
+            throw new RuntimeException("Test error");
+        });
+
+        channel.writeInbound(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/export", Unpooled.EMPTY_BUFFER));
+
+        HttpResponse head = channel.readOutbound();
+        assertEquals(HttpResponseStatus.OK, head.status(), "响应头已经发出");
+        assertFalse(channel.isOpen(), "响应头发出后出错只能关闭连接");
+    }
+
+    private FullHttpResponse send(HttpMethod method, String uri) {
+        channel.writeInbound(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, method, uri, Unpooled.EMPTY_BUFFER));
+        return channel.readOutbound();
+    }
+
+    @Test
+    void testMethodNotAllowed() {
+        engine.get("/users/:id", ctx -> ctx.text("user"));
+        engine.delete("/users/:id", ctx -> ctx.status(204));
+
+        FullHttpResponse response = send(HttpMethod.POST, "/users/7");
+        assertEquals(HttpResponseStatus.METHOD_NOT_ALLOWED, response.status(), "路径存在但方法不匹配时应该返回405");
+        assertEquals("GET, HEAD, DELETE, OPTIONS", response.headers().get(HttpHeaderNames.ALLOW));
+        response.release();
+
+        response = send(HttpMethod.POST, "/orders/7");
+        assertEquals(HttpResponseStatus.NOT_FOUND, response.status(), "路径不存在时仍然返回404");
+        response.release();
+    }
+
+    @Test
+    void testAutomaticOptions() {
+        engine.put("/items/:id", ctx -> ctx.status(204));
+        engine.patch("/items/:id", ctx -> ctx.status(204));
+
+        FullHttpResponse response = send(HttpMethod.OPTIONS, "/items/1");
+        assertEquals(HttpResponseStatus.OK, response.status(), "未注册OPTIONS时应该自动回复");
+        assertEquals("PUT, PATCH, OPTIONS", response.headers().get(HttpHeaderNames.ALLOW));
+        assertEquals(0, response.content().readableBytes());
+        response.release();
+
+        engine.options("/items/:id", ctx -> {
+            ctx.status(204);
+            ctx.getResponse().headers().set("Access-Control-Allow-Methods", "PUT");
+        });
+        response = send(HttpMethod.OPTIONS, "/items/1");
+        assertEquals("PUT", response.headers().get("Access-Control-Allow-Methods"), "显式注册的OPTIONS处理器优先");
+        response.release();
+    }
+
+    @Test
+    void testHeadRequest() {
+        engine.get("/hello", ctx -> ctx.text("hello"));
+
+        FullHttpResponse response = send(HttpMethod.HEAD, "/hello");
+        assertEquals(HttpResponseStatus.OK, response.status(), "HEAD请求应该由GET处理器处理");
+        assertEquals("5", response.headers().get(HttpHeaderNames.CONTENT_LENGTH), "应该保留GET响应的Content-Length");
+        assertEquals(0, response.content().readableBytes(), "HEAD响应不应该包含响应体");
+        response.release();
+    }
+
+    @Test
+    void testAnyMethod() {
+        engine.any("/echo", ctx -> ctx.text(ctx.getRequest().method().name()));
+
+        for (HttpMethod method : new HttpMethod[]{HttpMethod.POST, HttpMethod.PUT, HttpMethod.DELETE, HttpMethod.PATCH}) {
+            FullHttpResponse response = send(method, "/echo");
+            assertEquals(method.name(), response.content().toString(CharsetUtil.UTF_8), "any应该注册所有常用方法");
+            response.release();
+        }
+        FullHttpResponse response = send(HttpMethod.TRACE, "/echo");
+        assertEquals(HttpResponseStatus.METHOD_NOT_ALLOWED, response.status(), "any不应该注册TRACE");
+        response.release();
+    }
+
+    @Test
+    void testContextRecycled() {
+        Set<Context> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        engine.get("/users/:id", ctx -> {
+            seen.add(ctx);
+            assertNull(ctx.getAttribute("user"), "复用的上下文不应该带有上一个请求的属性");
+            assertNull(ctx.getParam("name"), "复用的上下文不应该带有上一个请求的参数");
+            ctx.setAttribute("user", ctx.getParam("id"));
+            ctx.text(ctx.getParam("id"));
+        });
+        engine.get("/hello/:name", ctx -> ctx.text(ctx.getParam("name")));
+
+        for (int i = 0; i < 32; i++) {
+            FullHttpResponse response = send(HttpMethod.GET, "/users/" + i);
+            assertEquals(String.valueOf(i), response.content().toString(CharsetUtil.UTF_8));
+            response.release();
+            send(HttpMethod.GET, "/hello/n" + i).release();
+        }
+        assertTrue(seen.size() < 32, "同步完成的请求应该复用上下文");
+    }
+
+    @Test
+    void testContextRecyclingDisabled() {
+        engine.setContextRecycling(false);
+        channel = new EmbeddedChannel(new HttpHandler(engine));
+        Context[] holder = new Context[1];
+        engine.get("/users/:id", ctx -> {
+            holder[0] = ctx;
+            ctx.text("ok");
+        });
+        send(HttpMethod.GET, "/users/7").release();
+        assertEquals("7", holder[0].getParam("id"), "关闭回收后请求结束仍可以读取上下文");
+    }
+
+    @Test
+    void testPathNormalized() {
+        engine.get("/api/users/:id", ctx -> ctx.text(ctx.getPath() + " " + ctx.getParam("id")));
+
+        assertEquals("/api/users/1 1", HttpTestSupport.body(send(HttpMethod.GET, "/api//users/1")), "连续的斜杠应该合并");
+        assertEquals("/api/users/1 1", HttpTestSupport.body(send(HttpMethod.GET, "/api/./users/1?x=1")), ".片段应该去掉");
+        assertEquals("/api/users/2 2", HttpTestSupport.body(send(HttpMethod.GET, "/api/admin/../users/2")), "..片段应该回退到上一级");
+    }
+
+    @Test
+    void testQueryStringNotRouted() {
+        engine.get("/hello/:name", ctx -> ctx.text(ctx.getParam("name") + "," + ctx.query("x")));
+
+        FullHttpResponse response = send(HttpMethod.GET, "/hello/bob?x=1");
+        assertEquals("bob,1", response.content().toString(CharsetUtil.UTF_8), "查询字符串不应该参与路由匹配");
+        response.release();
+    }
+}
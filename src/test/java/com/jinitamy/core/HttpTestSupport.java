@@ -0,0 +1,101 @@
+package com.jinitamy.core;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.*;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * 通过EmbeddedChannel向HttpHandler发送请求的测试工具
+ *
+ * 请求以FullHttpRequest的形式直接写入HttpHandler，相当于HttpServerCodec解码后的结果；
+ * 一次写入多个请求时，相当于客户端在同一个缓冲区中流水线发送。
+ */
+final class HttpTestSupport {
+    private HttpTestSupport() {
+    }
+
+    /**
+     * 创建只包含HttpHandler的测试通道
+     *
+     * @param engine Web引擎实例
+     * @return 测试通道
+     */
+    static EmbeddedChannel channel(Engine engine) {
+        return new EmbeddedChannel(new HttpHandler(engine));
+    }
+
+    /**
+     * 创建没有请求体的请求
+     *
+     * @param method 请求方法
+     * @param uri 请求URI
+     * @param headers 请求头，按名称、值交替排列
+     * @return HTTP/1.1请求
+     */
+    static FullHttpRequest request(HttpMethod method, String uri, String... headers) {
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, method, uri, Unpooled.EMPTY_BUFFER);
+        for (int i = 0; i < headers.length; i += 2) {
+            request.headers().set(headers[i], headers[i + 1]);
+        }
+        return request;
+    }
+
+    /**
+     * 创建GET请求
+     *
+     * @param uri 请求URI
+     * @param headers 请求头，按名称、值交替排列
+     * @return HTTP/1.1 GET请求
+     */
+    static FullHttpRequest get(String uri, String... headers) {
+        return request(HttpMethod.GET, uri, headers);
+    }
+
+    /**
+     * 发送请求并读取第一个出站消息
+     *
+     * @param channel 测试通道
+     * @param request 请求
+     * @return 第一个出站消息，没有时返回null
+     */
+    static <T> T exchange(EmbeddedChannel channel, HttpRequest request) {
+        channel.writeInbound(request);
+        return channel.readOutbound();
+    }
+
+    /**
+     * 在同一次读取中发送多个请求（流水线）
+     *
+     * @param channel 测试通道
+     * @param requests 依次发送的请求
+     */
+    static void pipeline(EmbeddedChannel channel, HttpRequest... requests) {
+        channel.writeInbound((Object[]) requests);
+    }
+
+    /**
+     * 读取响应体并释放响应
+     *
+     * @param response 完整的响应
+     * @return UTF-8解码的响应体
+     */
+    static String body(FullHttpResponse response) {
+        String body = response.content().toString(CharsetUtil.UTF_8);
+        response.release();
+        return body;
+    }
+
+    /**
+     * 读取状态码并释放响应
+     *
+     * @param response 响应或响应头
+     * @return 状态码
+     */
+    static int status(HttpObject response) {
+        int code = ((HttpResponse) response).status().code();
+        ReferenceCountUtil.release(response);
+        return code;
+    }
+}
@@ -0,0 +1,116 @@
+package com.jinitamy.core;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.*;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+    private Engine engine;
+    private Metrics metrics;
+    private EmbeddedChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        engine = new Engine();
+        metrics = engine.enableMetrics("/metrics");
+        engine.get("/user/:id", ctx -> ctx.text("user " + ctx.getParam("id")));
+        engine.get("/fail", ctx -> {
+            throw new IllegalStateException("boom");
+        });
+        channel = HttpTestSupport.channel(engine);
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.finishAndReleaseAll();
+        if (engine.isRunning()) {
+            engine.stop();
+        }
+    }
+
+    private FullHttpResponse get(String uri) {
+        return HttpTestSupport.exchange(channel, HttpTestSupport.get(uri));
+    }
+
+    private String scrape() {
+        FullHttpResponse response = get("/metrics");
+        assertEquals(Metrics.CONTENT_TYPE, response.headers().get(HttpHeaderNames.CONTENT_TYPE));
+        return HttpTestSupport.body(response);
+    }
+
+    @Test
+    void testRouteCounters() {
+        for (int i = 0; i < 3; i++) {
+            get("/user/" + i).release();
+        }
+        get("/fail").release();
+        get("/missing").release();
+
+        String text = scrape();
+        assertTrue(text.contains("jinitamy_requests_total{method=\"GET\",route=\"/user/:id\",status=\"200\"} 3"),
+                "应该按路由模式而不是原始路径统计");
+        assertTrue(text.contains("jinitamy_requests_total{method=\"GET\",route=\"/fail\",status=\"500\"} 1"),
+                "处理器异常应该记录为500");
+        assertTrue(text.contains("route=\"(unmatched)\",status=\"404\"} 1"), "未匹配的请求应该单独统计");
+        assertTrue(text.contains("jinitamy_requests_in_flight{method=\"GET\",route=\"/user/:id\"} 0"),
+                "请求完成后正在处理的请求数应该归零");
+        assertTrue(text.contains("jinitamy_request_duration_seconds_bucket{method=\"GET\",route=\"/user/:id\",le=\"+Inf\"} 3"));
+        assertTrue(text.contains("jinitamy_request_duration_seconds_count{method=\"GET\",route=\"/user/:id\"} 3"));
+        assertTrue(text.contains("le=\"0.000050\""), "直方图边界应该以秒为单位输出");
+    }
+
+    @Test
+    void testInFlightDuringStreaming() throws Exception {
+        ResponseStream[] open = new ResponseStream[1];
+        engine.get("/export", ctx -> open[0] = ctx.stream());
+
+        channel.writeInbound(HttpTestSupport.get("/export"));
+        assertTrue(scrapeWhileStreaming().contains("jinitamy_requests_in_flight{method=\"GET\",route=\"/export\"} 1"),
+                "未结束的流式响应应该计入正在处理的请求");
+        open[0].close();
+        Object msg;
+        while ((msg = channel.readOutbound()) != null) {
+            ReferenceCountUtil.release(msg);
+        }
+        assertTrue(scrape().contains("jinitamy_requests_total{method=\"GET\",route=\"/export\",status=\"200\"} 1"),
+                "流式响应结束时应该记录请求");
+    }
+
+    /**
+     * 流式响应未结束时连接暂停读取，通过另一个连接抓取指标
+     */
+    private String scrapeWhileStreaming() {
+        EmbeddedChannel other = HttpTestSupport.channel(engine);
+        String body = HttpTestSupport.body(HttpTestSupport.exchange(other, HttpTestSupport.get("/metrics")));
+        other.finishAndReleaseAll();
+        return body;
+    }
+
+    @Test
+    void testServerMetrics() throws Exception {
+        engine.setPort(0);
+        engine.start();
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        client.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + engine.getPort() + "/user/1")).build(),
+                BodyHandlers.ofString());
+        String text = client.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + engine.getPort() + "/metrics")).build(),
+                BodyHandlers.ofString()).body();
+
+        assertTrue(metrics.getBytesReceived() > 0, "应该统计接收的字节数");
+        assertTrue(metrics.getBytesSent() > 0, "应该统计发送的字节数");
+        assertTrue(text.contains("jinitamy_event_loop_pending_tasks{loop=\"0\"}"), "应该输出事件循环的待执行任务数");
+        assertTrue(text.contains("jinitamy_received_bytes_total "));
+        assertThrows(IllegalStateException.class, () -> engine.enableMetrics("/other"), "不能重复启用");
+    }
+}
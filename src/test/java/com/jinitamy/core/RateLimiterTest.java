@@ -0,0 +1,103 @@
+package com.jinitamy.core;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+    private final AtomicInteger calls = new AtomicInteger();
+    private EmbeddedChannel channel;
+
+    @AfterEach
+    void tearDown() {
+        if (channel != null) {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    private void setUp(RateLimiter limiter) {
+        Engine engine = new Engine();
+        engine.use(limiter);
+        engine.get("/api", ctx -> {
+            calls.incrementAndGet();
+            ctx.text("ok");
+        });
+        channel = HttpTestSupport.channel(engine);
+    }
+
+    private FullHttpResponse get(String... headers) {
+        return HttpTestSupport.exchange(channel, HttpTestSupport.get("/api", headers));
+    }
+
+    private int status(String... headers) {
+        return HttpTestSupport.status(get(headers));
+    }
+
+    @Test
+    void testRejectsBeyondBurst() {
+        RateLimiter limiter = new RateLimiter(0.5, 3);
+        setUp(limiter);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, status(), "突发量以内的请求应该通过");
+        }
+        FullHttpResponse response = get();
+        assertEquals(HttpResponseStatus.TOO_MANY_REQUESTS, response.status());
+        assertEquals("2", response.headers().get(HttpHeaderNames.RETRY_AFTER), "应该按补充一个令牌的时间设置Retry-After");
+        response.release();
+        assertEquals(3, calls.get(), "被拒绝的请求不应该执行处理器");
+        assertEquals(1, limiter.getRejectedCount());
+    }
+
+    @Test
+    void testHeaderKey() {
+        setUp(new RateLimiter(1, 1).keyBy(RateLimiter.header("X-Api-Key")));
+        assertEquals(200, status("X-Api-Key", "a"));
+        assertEquals(429, status("X-Api-Key", "a"));
+        assertEquals(200, status("X-Api-Key", "b"), "不同的键应该分别限流");
+        assertEquals(200, status());
+        assertEquals(200, status(), "没有键的请求不应该限流");
+    }
+
+    @Test
+    void testRefill() {
+        RateLimiter limiter = new RateLimiter(10, 2);
+        long now = System.nanoTime();
+        assertEquals(0, limiter.acquire("k", now));
+        assertEquals(0, limiter.acquire("k", now));
+        assertEquals(100_000_000L, limiter.acquire("k", now), "桶空时应该返回补充一个令牌的等待时间");
+        assertEquals(0, limiter.acquire("k", now + 100_000_000L), "等待后应该补充一个令牌");
+        assertNotEquals(0, limiter.acquire("k", now + 100_000_000L));
+        assertEquals(0, limiter.acquire("k", now + 10_000_000_000L));
+        assertEquals(0, limiter.acquire("k", now + 10_000_000_000L), "长时间空闲后最多积累burst个令牌");
+        assertNotEquals(0, limiter.acquire("k", now + 10_000_000_000L));
+    }
+
+    @Test
+    void testIdleKeysExpire() {
+        RateLimiter limiter = new RateLimiter(10, 2);
+        long now = System.nanoTime() + 2_000_000_000L;
+        for (int i = 0; i < 1000; i++) {
+            limiter.acquire(i, now);
+        }
+        assertEquals(1000, limiter.getKeyCount());
+
+        limiter.acquire("busy", now + 3_000_000_000L);
+        assertEquals(0, limiter.acquire("busy", now + 3_000_000_000L));
+        assertTrue(limiter.getKeyCount() > 1000 - RateLimiter.SWEEP_BATCH, "每个新键只应该检查有限数量的桶");
+
+        int added = 1000 / RateLimiter.SWEEP_BATCH + 1;
+        for (int i = 0; i < added; i++) {
+            limiter.acquire("new" + i, now + 3_000_000_000L);
+        }
+        assertEquals(1 + added, limiter.getKeyCount(), "已补满的桶应该在之后的新键出现时被逐步清理");
+        assertNotEquals(0, limiter.acquire("busy", now + 3_000_000_000L), "清理不应该影响未补满的桶");
+
+        limiter.acquire("late", now + 3_500_000_000L);
+        assertEquals(2 + added, limiter.getKeyCount(), "一轮结束后未到清理间隔时不应该开始下一轮");
+    }
+}
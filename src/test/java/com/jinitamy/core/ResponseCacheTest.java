@@ -0,0 +1,174 @@
+package com.jinitamy.core;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+    private Engine engine;
+    private ResponseCache cache;
+    private EmbeddedChannel channel;
+    private AtomicInteger calls;
+
+    @BeforeEach
+    void setUp() {
+        engine = new Engine();
+        cache = new ResponseCache(1024 * 1024).varyBy("Accept-Language");
+        engine.use(cache);
+        calls = new AtomicInteger();
+        engine.get("/hello/:name", ctx -> {
+            calls.incrementAndGet();
+            String lang = ctx.getHeaders().get("Accept-Language");
+            ctx.text(("zh".equals(lang) ? "你好 " : "hello ") + ctx.getParam("name"));
+        }, RouteOptions.create().cacheTtl(Duration.ofMinutes(5)));
+        channel = HttpTestSupport.channel(engine);
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.finishAndReleaseAll();
+        cache.invalidateAll();
+    }
+
+    private String get(String uri, String... headers) {
+        FullHttpResponse response = HttpTestSupport.exchange(channel, HttpTestSupport.get(uri, headers));
+        assertEquals(HttpResponseStatus.OK, response.status());
+        assertEquals(response.content().readableBytes(), HttpUtil.getContentLength(response));
+        return HttpTestSupport.body(response);
+    }
+
+    @Test
+    void testHitSkipsHandler() {
+        assertEquals("hello world", get("/hello/world"));
+        assertEquals("hello world", get("/hello/world"));
+        assertEquals(1, calls.get(), "命中时不应该执行处理器");
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        get("/hello/world?page=2");
+        assertEquals(2, calls.get(), "查询字符串不同的请求应该分别缓存");
+        assertEquals("你好 world", get("/hello/world", "Accept-Language", "zh"), "指定的请求头不同的请求应该分别缓存");
+        assertEquals("你好 world", get("/hello/world", "Accept-Language", "zh"));
+        assertEquals(3, calls.get());
+        assertEquals(3, cache.getEntryCount());
+
+        get("/hello/world", "Authorization", "Bearer token");
+        assertEquals(4, calls.get(), "携带Authorization的请求不应该使用缓存");
+    }
+
+    @Test
+    void testUncacheableResponses() {
+        engine.get("/plain", ctx -> {
+            calls.incrementAndGet();
+            ctx.text("no ttl");
+        });
+        engine.get("/cookie", ctx -> {
+            calls.incrementAndGet();
+            ctx.getResponse().headers().set(HttpHeaderNames.SET_COOKIE, "session=1");
+            ctx.text("cookie");
+        }, RouteOptions.create().cacheTtl(Duration.ofMinutes(5)));
+
+        get("/plain");
+        get("/plain");
+        assertEquals(0, cache.getMissCount(), "未设置有效期的路由不应该查找缓存");
+        get("/cookie");
+        get("/cookie");
+        assertEquals(4, calls.get(), "未设置有效期的路由和带Set-Cookie的响应不应该缓存");
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    void testCookieBypass() {
+        get("/hello/world", "Cookie", "session=alice");
+        get("/hello/world", "Cookie", "session=bob");
+        assertEquals(2, calls.get(), "携带Cookie的请求不应该使用缓存");
+        assertEquals(0, cache.getEntryCount());
+
+        cache.varyBy("Accept-Language", "Cookie");
+        assertEquals("hello world", get("/hello/world", "Cookie", "session=alice"));
+        assertEquals("hello world", get("/hello/world", "Cookie", "session=alice"));
+        get("/hello/world", "Cookie", "session=bob");
+        assertEquals(4, calls.get(), "按Cookie区分缓存键时应该按会话分别缓存");
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    void testExpiryAndInvalidation() throws InterruptedException {
+        engine.get("/short", ctx -> {
+            calls.incrementAndGet();
+            ctx.text("short");
+        }, RouteOptions.create().cacheTtl(Duration.ofMillis(50)));
+
+        get("/short");
+        Thread.sleep(100);
+        get("/short");
+        assertEquals(2, calls.get(), "过期的条目不应该命中");
+
+        get("/hello/a");
+        get("/hello/b");
+        get("/hello/b?x=1");
+        assertEquals(2, cache.invalidate("/hello/b"), "应该使该路径所有查询字符串的条目失效");
+        get("/hello/a");
+        get("/hello/b");
+        assertEquals(6, calls.get(), "失效的路径应该重新执行处理器");
+
+        assertEquals(2, cache.invalidatePrefix("/hello/"));
+        cache.invalidateAll();
+        assertEquals(0, cache.getSize(), "清空后不应该再占用内存");
+    }
+
+    @Test
+    void testNonNormalizedPath() {
+        assertEquals("hello world", get("/hello/world"));
+        assertEquals("hello world", get("//hello/world"));
+        assertEquals("hello world", get("/hello/./world"));
+        assertEquals(1, calls.get(), "不同写法的同一路径应该共用缓存条目");
+        assertEquals(1, cache.getEntryCount());
+
+        cache.invalidateAll();
+        get("//hello/world");
+        get("/hello/./world?x=1");
+        assertEquals(2, cache.invalidate("/hello/world"), "应该按规范化后的路径失效");
+        get("/hello/world");
+        assertEquals(4, calls.get(), "失效后应该重新执行处理器");
+    }
+
+    @Test
+    void testByteBudget() {
+        ResponseCache small = new ResponseCache(8 * 1024);
+        Engine other = new Engine();
+        other.use(small);
+        other.get("/page/:id", ctx -> ctx.bytes(new byte[900]), RouteOptions.create().cacheTtl(Duration.ofMinutes(1)));
+        EmbeddedChannel ch = HttpTestSupport.channel(other);
+        for (int i = 0; i < 30; i++) {
+            ch.writeInbound(HttpTestSupport.get("/page/" + i));
+            FullHttpResponse response = ch.readOutbound();
+            response.release();
+        }
+        assertTrue(small.getSize() <= 8 * 1024, "缓存总字节数不应该超过上限");
+        assertTrue(small.getEvictionCount() > 0, "超过上限时应该淘汰条目");
+
+        // 淘汰后正在发送的副本仍然有效
+        ch.writeInbound(HttpTestSupport.get("/page/29"));
+        FullHttpResponse hit = ch.readOutbound();
+        assertEquals(1, small.getHitCount(), "最近放入的条目应该保留");
+        small.invalidateAll();
+        assertEquals(900, hit.content().readableBytes());
+        assertTrue(hit.content().isReadOnly(), "缓存的响应体应该是只读的");
+        hit.release();
+        ch.finishAndReleaseAll();
+    }
+
+    @Test
+    void testSingleCachePerEngine() {
+        assertThrows(IllegalStateException.class, () -> engine.use(new ResponseCache(1024)),
+                "一个引擎只能注册一个响应缓存");
+    }
+}
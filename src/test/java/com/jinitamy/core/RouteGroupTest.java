@@ -0,0 +1,112 @@
+package com.jinitamy.core;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteGroupTest {
+    private Engine engine;
+    private EmbeddedChannel channel;
+    private final List<String> trace = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        engine = new Engine();
+        channel = HttpTestSupport.channel(engine);
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    private Middleware mark(String name) {
+        return (ctx, next) -> {
+            trace.add(name);
+            next.handle(ctx);
+        };
+    }
+
+    private String get(String uri) {
+        trace.clear();
+        FullHttpResponse response = HttpTestSupport.exchange(channel, HttpTestSupport.get(uri));
+        return response.status().code() + " " + HttpTestSupport.body(response);
+    }
+
+    @Test
+    void testGroupMiddlewareScope() {
+        engine.use(mark("global"));
+        RouteGroup api = engine.group("/api", mark("auth"));
+        api.get("/users/:id", ctx -> ctx.text(ctx.getParam("id")));
+        engine.get("/health", ctx -> ctx.text("ok"));
+
+        assertEquals("200 7", get("/api/users/7"));
+        assertEquals(List.of("global", "auth"), trace, "组内路由应该在全局中间件之后执行组的中间件");
+        assertEquals("200 ok", get("/health"));
+        assertEquals(List.of("global"), trace, "组外的路由不应该执行组的中间件");
+    }
+
+    @Test
+    void testNestedGroups() {
+        RouteGroup api = engine.group("/api/", mark("api"));
+        RouteGroup admin = api.group("admin", mark("admin"));
+        admin.get("/", ctx -> ctx.text("admin"));
+        admin.delete("/users/:id", ctx -> ctx.status(204));
+        api.get("/ping", ctx -> ctx.text("pong"));
+
+        assertEquals("200 admin", get("/api/admin"));
+        assertEquals(List.of("api", "admin"), trace, "嵌套组应该先执行外层组的中间件");
+        assertEquals("200 pong", get("/api/ping"));
+        assertEquals(List.of("api"), trace, "外层组的路由不应该执行子组的中间件");
+        assertEquals("/api/admin", admin.getPrefix());
+    }
+
+    @Test
+    void testUseAppliesToLaterRoutes() {
+        RouteGroup api = engine.group("/api");
+        api.get("/before", ctx -> ctx.text("before"));
+        api.use(mark("late"));
+        api.get("/after", ctx -> ctx.text("after"));
+
+        get("/api/before");
+        assertTrue(trace.isEmpty(), "组的中间件在注册路由时确定，不影响已注册的路由");
+        get("/api/after");
+        assertEquals(List.of("late"), trace);
+    }
+
+    @Test
+    void testGroupResponseCache() {
+        ResponseCache cache = new ResponseCache(1024 * 1024);
+        engine.group("/public").use(cache);
+        assertSame(cache, engine.getResponseCache(), "路由组注册的响应缓存也应该登记到引擎");
+        assertThrows(IllegalStateException.class, () -> engine.group("/other", new ResponseCache(1024 * 1024)));
+    }
+
+    @Test
+    void testGroupCacheAfterAuth() {
+        Middleware auth = (ctx, next) -> {
+            if ("secret".equals(ctx.getHeaders().get("X-Token"))) {
+                next.handle(ctx);
+            } else {
+                ctx.status(401);
+            }
+        };
+        RouteGroup api = engine.group("/api", auth, new ResponseCache(1024 * 1024));
+        api.get("/private", ctx -> ctx.text("private data"), RouteOptions.create().cacheTtl(Duration.ofMinutes(5)));
+
+        FullHttpResponse response = HttpTestSupport.exchange(channel, HttpTestSupport.get("/api/private", "X-Token", "secret"));
+        assertEquals("200 private data", response.status().code() + " " + HttpTestSupport.body(response));
+        assertEquals("401 ", get("/api/private"), "未通过认证的请求不应该命中组中的缓存");
+        response = HttpTestSupport.exchange(channel, HttpTestSupport.get("/api/private", "X-Token", "secret"));
+        assertEquals("private data", HttpTestSupport.body(response));
+        assertEquals(1, engine.getResponseCache().getHitCount(), "通过认证的请求应该命中缓存");
+    }
+}
@@ -121,4 +121,204 @@ class RouterTest {
         assertEquals("users", ctx.getParam("resource"), "应该正确解析resource参数");
         assertEquals("123", ctx.getParam("id"), "应该正确解析id参数");
     }
-} 
\ No newline at end of file
+
+    @Test
+    void testStaticFallbackToParam() {
+        Handler staticHandler = ctx -> ctx.status(200);
+        Handler paramHandler = ctx -> ctx.status(201);
+        router.addRoute(HttpMethod.GET, "/users/new/profile", staticHandler);
+        router.addRoute(HttpMethod.GET, "/users/:id/settings", paramHandler);
+
+        Context ctx = new Context(null, null);
+        Handler foundHandler = router.getRoute(HttpMethod.GET, "/users/new/settings", ctx);
+
+        assertEquals(paramHandler, foundHandler, "静态分支失败后应该回退到参数路由");
+        assertEquals("new", ctx.getParam("id"), "回退后应该正确解析参数");
+    }
+
+    @Test
+    void testFailedBranchDoesNotLeakParams() {
+        Handler handler = ctx -> ctx.status(200);
+        router.addRoute(HttpMethod.GET, "/:a/x", handler);
+        router.addRoute(HttpMethod.GET, "/:b/y", handler);
+
+        Context ctx = new Context(null, null);
+        Handler foundHandler = router.getRoute(HttpMethod.GET, "/v/y", ctx);
+
+        assertNotNull(foundHandler, "应该匹配第二个参数分支");
+        assertEquals("v", ctx.getParam("b"), "应该正确解析匹配分支的参数");
+        assertNull(ctx.getParam("a"), "失败分支的参数不应该写入上下文");
+    }
+
+    @Test
+    void testCompressedStaticChain() {
+        Handler deep = ctx -> ctx.status(200);
+        Handler shallow = ctx -> ctx.status(201);
+        router.addRoute(HttpMethod.GET, "/a/b/c/d", deep);
+        router.addRoute(HttpMethod.GET, "/a/b", shallow);
+        router.compile();
+
+        Context ctx = new Context(null, null);
+        assertEquals(deep, router.getRoute(HttpMethod.GET, "/a/b/c/d", ctx), "应该匹配合并后的静态链路");
+        assertEquals(shallow, router.getRoute(HttpMethod.GET, "/a/b/", ctx), "应该忽略末尾斜杠");
+        assertEquals(deep, router.getRoute(HttpMethod.GET, "//a/b//c/d", ctx), "应该忽略多余的斜杠");
+        assertNull(router.getRoute(HttpMethod.GET, "/a/b/c", ctx), "部分匹配不应该返回处理器");
+    }
+
+    @Test
+    void testManyStaticChildren() {
+        for (int i = 0; i < 50; i++) {
+            int status = 200 + i;
+            router.addRoute(HttpMethod.GET, "/res" + i + "/list", ctx -> ctx.status(status));
+        }
+        Handler handler = ctx -> ctx.status(200);
+        router.addRoute(HttpMethod.GET, "/res7/:id", handler);
+
+        Context ctx = new Context(null, null);
+        assertNotNull(router.getRoute(HttpMethod.GET, "/res42/list", ctx), "哈希表查找应该命中静态路由");
+        assertEquals(handler, router.getRoute(HttpMethod.GET, "/res7/9", ctx), "哈希表查找后应该继续匹配参数");
+        assertNull(router.getRoute(HttpMethod.GET, "/res99/list", ctx), "未注册的静态路由应该返回null");
+    }
+
+    @Test
+    void testNamedWildcardRoute() {
+        Handler handler = ctx -> ctx.status(200);
+        router.addRoute(HttpMethod.GET, "/assets/*filepath", handler);
+
+        Context ctx = new Context(null, null);
+        Handler foundHandler = router.getRoute(HttpMethod.GET, "/assets/css/site.css", ctx);
+
+        assertEquals(handler, foundHandler, "应该找到命名通配符路由处理器");
+        assertEquals("css/site.css", ctx.getParam("filepath"), "应该保存通配符匹配的剩余路径");
+    }
+
+    @Test
+    void testRouteAddedAfterCompile() {
+        router.addRoute(HttpMethod.GET, "/first", ctx -> ctx.status(200));
+        router.compile();
+        Handler handler = ctx -> ctx.status(201);
+        router.addRoute(HttpMethod.GET, "/second", handler);
+
+        Context ctx = new Context(null, null);
+        assertEquals(handler, router.getRoute(HttpMethod.GET, "/second", ctx), "编译后新增的路由也应该生效");
+    }
+
+    @Test
+    void testHeadFallsBackToGet() {
+        Handler get = ctx -> ctx.status(200);
+        router.addRoute(HttpMethod.GET, "/users/:id", get);
+
+        Context ctx = new Context(null, null);
+        assertEquals(get, router.getRoute(HttpMethod.HEAD, "/users/7", ctx), "HEAD请求应该回退到GET路由");
+        assertEquals("7", ctx.getParam("id"));
+
+        Handler head = ctx2 -> ctx2.status(204);
+        router.addRoute(HttpMethod.HEAD, "/users/:id", head);
+        assertEquals(head, router.getRoute(HttpMethod.HEAD, "/users/7", new Context(null, null)), "显式注册的HEAD路由优先");
+    }
+
+    @Test
+    void testAllowedMethods() {
+        Handler handler = ctx -> ctx.status(200);
+        router.addRoute(HttpMethod.POST, "/users/:id", handler);
+        router.addRoute(HttpMethod.GET, "/users/:id", handler);
+        router.addRoute(HttpMethod.DELETE, "/users/:id", handler);
+
+        assertEquals("GET, HEAD, POST, DELETE, OPTIONS", router.allowedMethods("/users/7"), "应该按固定顺序列出方法");
+        assertNull(router.allowedMethods("/orders/7"), "没有任何路由的路径应该返回null");
+        assertNotNull(router.allowedMethods("*"));
+    }
+
+    @Test
+    void testCustomMethod() {
+        HttpMethod purge = HttpMethod.valueOf("PURGE");
+        Handler handler = ctx -> ctx.status(200);
+        router.addRoute(purge, "/cache/*path", handler);
+
+        Context ctx = new Context(null, null);
+        assertEquals(handler, router.getRoute(HttpMethod.valueOf("PURGE"), "/cache/a/b", ctx), "应该支持自定义方法");
+        assertEquals("OPTIONS, PURGE", router.allowedMethods("/cache/a/b"), "自定义方法排在标准方法之后");
+    }
+
+    @Test
+    void testParamsDecoded() {
+        Handler handler = ctx -> ctx.status(200);
+        router.addRoute(HttpMethod.GET, "/files/:name/raw", handler);
+
+        Context ctx = new Context(null, null);
+        assertEquals(handler, router.getRoute(HttpMethod.GET, "/files/a%2Fb%20c+d/raw", ctx), "%2F不应该被当作路径分隔符");
+        assertEquals("a/b c+d", ctx.getParam("name"), "参数值应该按路径规则解码，+保持不变");
+
+        ctx = new Context(null, null);
+        router.getRoute(HttpMethod.GET, "/files/100%/raw", ctx);
+        assertEquals("100%", ctx.getParam("name"), "编码不合法时应该保留原值");
+    }
+
+    @Test
+    void testNormalizePath() {
+        assertEquals("/api/users/1", Router.normalizePath("/api//users/1"), "应该合并连续的斜杠");
+        assertEquals("/api/users/1", Router.normalizePath("/api/./users/1"), "应该去掉.片段");
+        assertEquals("/api/users/1", Router.normalizePath("/api/admin/../users/1"), "..片段应该回退到上一级");
+        assertEquals("/etc/passwd", Router.normalizePath("/files/../../etc/passwd"), "..不应该超出根路径");
+        assertEquals("/api/", Router.normalizePath("/api/users/%2e%2E"), "百分号编码的点同样视为..片段");
+        assertEquals("/", Router.normalizePath("//"));
+        assertEquals("/a/.../b", Router.normalizePath("/a/.../b"), "三个点是普通片段");
+        String clean = "/api/users/1";
+        assertSame(clean, Router.normalizePath(clean), "不需要规范化的路径应该原样返回");
+        assertEquals("*", Router.normalizePath("*"));
+
+        Handler handler = ctx -> ctx.status(200);
+        router.addRoute(HttpMethod.GET, "/api/users/:id", handler);
+        Context ctx = new Context(null, null);
+        assertEquals(handler, router.getRoute(HttpMethod.GET, Router.normalizePath("/api//users/./1"), ctx));
+        assertEquals("1", ctx.getParam("id"));
+    }
+
+    @Test
+    void testTypedParams() {
+        Handler byName = ctx -> ctx.status(200);
+        Handler byId = ctx -> ctx.status(200);
+        Handler byRef = ctx -> ctx.status(200);
+        // 不带约束的参数先注册，带约束的仍然优先尝试
+        router.addRoute(HttpMethod.GET, "/user/:name", byName);
+        router.addRoute(HttpMethod.GET, "/user/:id<int>", byId);
+        router.addRoute(HttpMethod.GET, "/user/:ref<uuid>", byRef);
+
+        Context ctx = new Context(null, null);
+        assertEquals(byId, router.getRoute(HttpMethod.GET, "/user/42", ctx), "整数应该匹配int约束的路由");
+        assertEquals(42, ctx.getIntParam("id"));
+        assertNull(ctx.getParam("name"), "约束不满足的候选不应该留下参数");
+
+        ctx = new Context(null, null);
+        assertEquals(byName, router.getRoute(HttpMethod.GET, "/user/bob", ctx), "约束不满足时应该回退到下一个候选");
+        assertEquals("bob", ctx.getParam("name"));
+        assertEquals(byName, router.getRoute(HttpMethod.GET, "/user/99999999999", new Context(null, null)), "超出int范围不满足约束");
+
+        ctx = new Context(null, null);
+        assertEquals(byRef, router.getRoute(HttpMethod.GET, "/user/123e4567-e89b-12d3-a456-426614174000", ctx));
+        assertEquals("123e4567-e89b-12d3-a456-426614174000", ctx.getParam("ref"));
+    }
+
+    @Test
+    void testRegexParam() {
+        Handler slug = ctx -> ctx.status(200);
+        Handler files = ctx -> ctx.status(200);
+        router.addRoute(HttpMethod.GET, "/tags/:slug<[a-z][a-z0-9-]*>", slug);
+        router.addRoute(HttpMethod.GET, "/tags/*rest", files);
+
+        Context ctx = new Context(null, null);
+        assertEquals(slug, router.getRoute(HttpMethod.GET, "/tags/java-17", ctx), "正则表达式应该匹配整个片段");
+        assertEquals("java-17", ctx.getParam("slug"));
+        assertEquals(files, router.getRoute(HttpMethod.GET, "/tags/Java", new Context(null, null)), "约束不满足时应该回退到通配符路由");
+        assertNull(router.allowedMethods("/nothing"));
+        assertEquals("GET, HEAD, OPTIONS", router.allowedMethods("/tags/1x"));
+    }
+
+    @Test
+    void testInvalidConstraint() {
+        Handler handler = ctx -> ctx.status(200);
+        assertThrows(IllegalArgumentException.class, () -> router.addRoute(HttpMethod.GET, "/a/:id<[>", handler), "不合法的正则表达式应该在注册时报错");
+        assertThrows(IllegalArgumentException.class, () -> router.addRoute(HttpMethod.GET, "/a/:id<int", handler));
+        assertThrows(IllegalArgumentException.class, () -> router.addRoute(HttpMethod.GET, "/a/:id<>", handler));
+    }
+}
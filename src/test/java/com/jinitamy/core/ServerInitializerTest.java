@@ -0,0 +1,221 @@
+package com.jinitamy.core;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultiThreadIoEventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioIoHandler;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.*;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamChannelBootstrap;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import io.netty.util.CharsetUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.net.ssl.SSLContext;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerInitializerTest {
+    @TempDir
+    Path dir;
+
+    private Engine engine;
+    private EventLoopGroup clientGroup;
+
+    @BeforeEach
+    void setUp() {
+        engine = new Engine();
+        engine.setPort(0);
+        engine.setHttp2(true);
+        engine.get("/users/:id", ctx -> ctx.text("user " + ctx.getParam("id")));
+        engine.get("/slow", ctx -> {
+            Thread.sleep(500);
+            ctx.text("slow");
+        }, RouteOptions.create().executionMode(ExecutionMode.BLOCKING));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (engine.isRunning()) {
+            engine.stop();
+        }
+        if (clientGroup != null) {
+            clientGroup.shutdownGracefully();
+        }
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + engine.getPort() + path;
+    }
+
+    @Test
+    void testH2cUpgrade() throws Exception {
+        engine.start();
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+
+        for (int i = 0; i < 2; i++) {
+            java.net.http.HttpResponse<String> response = client.send(
+                    java.net.http.HttpRequest.newBuilder(URI.create(url("/users/" + i))).build(), BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            assertEquals(HttpClient.Version.HTTP_2, response.version(), "应该通过Upgrade: h2c切换到HTTP/2");
+            assertEquals("user " + i, response.body(), "现有处理器应该不经修改地处理HTTP/2请求");
+        }
+    }
+
+    @Test
+    void testHttp11StillServed() throws Exception {
+        engine.start();
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        java.net.http.HttpResponse<String> response = client.send(
+                java.net.http.HttpRequest.newBuilder(URI.create(url("/users/7"))).build(), BodyHandlers.ofString());
+        assertEquals(HttpClient.Version.HTTP_1_1, response.version(), "未升级的连接应该继续使用HTTP/1.1");
+        assertEquals("user 7", response.body());
+    }
+
+    @Test
+    void testAlpn() throws Exception {
+        // Netty 4.2的替代品CertificateBuilder在单独的netty-pkitesting模块中，测试只需要一个临时的自签名证书
+        @SuppressWarnings("deprecation")
+        SelfSignedCertificate certificate = new SelfSignedCertificate("localhost");
+        String css = "body { color: red; }\n".repeat(2000);
+        Files.writeString(dir.resolve("app.css"), css, StandardCharsets.UTF_8);
+        engine.staticDir("/assets/*", dir);
+        try {
+            engine.setSslContext(SslContextBuilder.forServer(certificate.certificate(), certificate.privateKey())
+                    .applicationProtocolConfig(new ApplicationProtocolConfig(
+                            ApplicationProtocolConfig.Protocol.ALPN,
+                            ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+                            ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+                            ApplicationProtocolNames.HTTP_2, ApplicationProtocolNames.HTTP_1_1))
+                    .build());
+            engine.start();
+
+            SSLContext trustAll = SSLContext.getInstance("TLS");
+            trustAll.init(null, InsecureTrustManagerFactory.INSTANCE.getTrustManagers(), null);
+            String url = "https://localhost:" + engine.getPort() + "/users/1";
+
+            HttpClient h2 = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).sslContext(trustAll).build();
+            java.net.http.HttpResponse<String> response = h2.send(
+                    java.net.http.HttpRequest.newBuilder(URI.create(url)).build(), BodyHandlers.ofString());
+            assertEquals(HttpClient.Version.HTTP_2, response.version(), "应该通过ALPN协商h2");
+            assertEquals("user 1", response.body());
+            response = h2.send(java.net.http.HttpRequest.newBuilder(
+                    URI.create("https://localhost:" + engine.getPort() + "/assets/app.css")).build(), BodyHandlers.ofString());
+            assertEquals(css, response.body(), "HTTP/2流应该分块发送文件");
+
+            HttpClient h1 = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).sslContext(trustAll).build();
+            response = h1.send(java.net.http.HttpRequest.newBuilder(URI.create(url)).build(), BodyHandlers.ofString());
+            assertEquals(HttpClient.Version.HTTP_1_1, response.version(), "只支持http/1.1的客户端应该继续使用HTTP/1.1");
+            assertEquals("user 1", response.body());
+            response = h1.send(java.net.http.HttpRequest.newBuilder(
+                    URI.create("https://localhost:" + engine.getPort() + "/assets/app.css")).build(), BodyHandlers.ofString());
+            assertEquals(css, response.body(), "TLS连接应该分块发送文件");
+        } finally {
+            certificate.delete();
+        }
+    }
+
+    @Test
+    void testPriorKnowledgeMultiplexing() throws Exception {
+        String css = "body { color: red; }\n".repeat(2000);
+        Files.writeString(dir.resolve("app.css"), css, StandardCharsets.UTF_8);
+        engine.staticDir("/assets/*", dir);
+        engine.start();
+
+        clientGroup = new MultiThreadIoEventLoopGroup(1, NioIoHandler.newFactory());
+        Channel connection = new Bootstrap()
+                .group(clientGroup)
+                .channel(NioSocketChannel.class)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(Http2FrameCodecBuilder.forClient().build(),
+                                new Http2MultiplexHandler(new ChannelInboundHandlerAdapter()));
+                    }
+                })
+                .connect("127.0.0.1", engine.getPort()).sync().channel();
+
+        // 慢请求先发出，同一连接上的其他流不应该等待它完成
+        CompletableFuture<FullHttpResponse> slow = send(connection, "/slow");
+        List<CompletableFuture<FullHttpResponse>> fast = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            fast.add(send(connection, "/users/" + i));
+        }
+        for (int i = 0; i < fast.size(); i++) {
+            FullHttpResponse response = fast.get(i).get(5, TimeUnit.SECONDS);
+            assertEquals(HttpResponseStatus.OK, response.status());
+            assertEquals("user " + i, response.content().toString(CharsetUtil.UTF_8), "每个流应该得到自己的响应");
+            response.release();
+        }
+        assertFalse(slow.isDone(), "快速请求不应该被前面的慢请求阻塞");
+        FullHttpResponse slowResponse = slow.get(5, TimeUnit.SECONDS);
+        assertEquals("slow", slowResponse.content().toString(CharsetUtil.UTF_8));
+        slowResponse.release();
+
+        FullHttpResponse file = send(connection, "/assets/app.css").get(5, TimeUnit.SECONDS);
+        assertEquals(HttpResponseStatus.OK, file.status(), "静态文件应该可以通过HTTP/2发送");
+        assertEquals(css, file.content().toString(CharsetUtil.UTF_8), "文件内容应该完整");
+        file.release();
+
+        connection.close().sync();
+    }
+
+    /**
+     * 在新的HTTP/2流上发送GET请求
+     */
+    private static CompletableFuture<FullHttpResponse> send(Channel connection, String path) throws InterruptedException {
+        CompletableFuture<FullHttpResponse> result = new CompletableFuture<>();
+        Http2StreamChannel stream = new Http2StreamChannelBootstrap(connection)
+                .handler(new ChannelInitializer<Http2StreamChannel>() {
+                    @Override
+                    protected void initChannel(Http2StreamChannel ch) {
+                        ch.pipeline().addLast(new Http2StreamFrameToHttpObjectCodec(false),
+                                new HttpObjectAggregator(1024 * 1024),
+                                new SimpleChannelInboundHandler<FullHttpResponse>() {
+                                    @Override
+                                    protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse msg) {
+                                        result.complete(msg.retain());
+                                    }
+
+                                    @Override
+                                    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+                                        result.completeExceptionally(cause);
+                                    }
+                                });
+                    }
+                })
+                .open().sync().getNow();
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, path, Unpooled.EMPTY_BUFFER);
+        request.headers().set(HttpHeaderNames.HOST, "localhost");
+        stream.writeAndFlush(request);
+        return result;
+    }
+}
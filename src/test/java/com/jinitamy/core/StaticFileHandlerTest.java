@@ -0,0 +1,130 @@
+package com.jinitamy.core;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.handler.codec.http.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaticFileHandlerTest {
+    @TempDir
+    Path dir;
+
+    private EmbeddedChannel channel;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.createDirectories(dir.resolve("public/css"));
+        Files.writeString(dir.resolve("public/css/app.css"), "body { color: red; }", StandardCharsets.UTF_8);
+        Files.writeString(dir.resolve("secret.txt"), "secret", StandardCharsets.UTF_8);
+
+        Engine engine = new Engine();
+        engine.staticDir("/assets/*", dir.resolve("public"));
+        channel = new EmbeddedChannel(new HttpHandler(engine));
+    }
+
+    private HttpResponse request(String uri, String... headers) {
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri, Unpooled.EMPTY_BUFFER);
+        for (int i = 0; i < headers.length; i += 2) {
+            request.headers().set(headers[i], headers[i + 1]);
+        }
+        channel.writeInbound(request);
+        return channel.readOutbound();
+    }
+
+    private DefaultFileRegion readRegion() {
+        DefaultFileRegion region = channel.readOutbound();
+        assertNotNull(region, "文件内容应该通过FileRegion发送");
+        Object last = channel.readOutbound();
+        assertTrue(last instanceof LastHttpContent, "应该以LastHttpContent结束");
+        return region;
+    }
+
+    @Test
+    void testServeFile() {
+        HttpResponse response = request("/assets/css/app.css");
+
+        assertEquals(HttpResponseStatus.OK, response.status(), "应该返回200状态码");
+        assertEquals(20, HttpUtil.getContentLength(response), "Content-Length应该等于文件长度");
+        assertEquals("text/css; charset=UTF-8", response.headers().get(HttpHeaderNames.CONTENT_TYPE), "应该按扩展名设置Content-Type");
+        assertEquals("bytes", response.headers().get(HttpHeaderNames.ACCEPT_RANGES));
+        assertNotNull(response.headers().get(HttpHeaderNames.ETAG), "应该返回ETag");
+        assertNotNull(response.headers().get(HttpHeaderNames.LAST_MODIFIED), "应该返回Last-Modified");
+        assertFalse(HttpUtil.isTransferEncodingChunked(response), "长度已知时不应该分块传输");
+
+        DefaultFileRegion region = readRegion();
+        assertEquals(0, region.position());
+        assertEquals(20, region.count(), "应该发送整个文件");
+        region.release();
+        assertTrue(channel.isOpen(), "发送文件后应该保持连接");
+    }
+
+    @Test
+    void testRange() {
+        HttpResponse response = request("/assets/css/app.css", "Range", "bytes=5-9");
+
+        assertEquals(HttpResponseStatus.PARTIAL_CONTENT, response.status(), "区间请求应该返回206");
+        assertEquals("bytes 5-9/20", response.headers().get(HttpHeaderNames.CONTENT_RANGE));
+        assertEquals(5, HttpUtil.getContentLength(response));
+
+        DefaultFileRegion region = readRegion();
+        assertEquals(5, region.position(), "应该从区间起点发送");
+        assertEquals(5, region.count(), "应该只发送区间内的字节");
+        region.release();
+    }
+
+    @Test
+    void testRangeNotSatisfiable() {
+        HttpResponse response = request("/assets/css/app.css", "Range", "bytes=100-");
+
+        assertEquals(HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.status(), "超出文件长度的区间应该返回416");
+        assertEquals("bytes */20", response.headers().get(HttpHeaderNames.CONTENT_RANGE));
+    }
+
+    @Test
+    void testParseRange() {
+        assertArrayEquals(new long[]{10, 19}, StaticFileHandler.parseRange("bytes=-10", 20), "后缀区间");
+        assertArrayEquals(new long[]{0, 19}, StaticFileHandler.parseRange("bytes=0-100", 20), "终点超出文件长度时截断");
+        assertNull(StaticFileHandler.parseRange("bytes=0-1,5-6", 20), "多个区间应该忽略");
+        assertNull(StaticFileHandler.parseRange("items=0-1", 20), "未知单位应该忽略");
+        assertNull(StaticFileHandler.parseRange("bytes=abc", 20), "格式错误应该忽略");
+    }
+
+    @Test
+    void testConditionalRequests() {
+        HttpResponse first = request("/assets/css/app.css");
+        readRegion().release();
+        String etag = first.headers().get(HttpHeaderNames.ETAG);
+        String lastModified = first.headers().get(HttpHeaderNames.LAST_MODIFIED);
+
+        FullHttpResponse byEtag = (FullHttpResponse) request("/assets/css/app.css", "If-None-Match", etag);
+        assertEquals(HttpResponseStatus.NOT_MODIFIED, byEtag.status(), "ETag匹配时应该返回304");
+        assertEquals(0, byEtag.content().readableBytes(), "304响应不应该有响应体");
+
+        FullHttpResponse byDate = (FullHttpResponse) request("/assets/css/app.css", "If-Modified-Since", lastModified);
+        assertEquals(HttpResponseStatus.NOT_MODIFIED, byDate.status(), "未修改时应该返回304");
+
+        String older = DateFormatter.format(new Date(DateFormatter.parseHttpDate(lastModified).getTime() - 60_000));
+        HttpResponse modified = request("/assets/css/app.css", "If-Modified-Since", older);
+        assertEquals(HttpResponseStatus.OK, modified.status(), "已修改时应该返回完整文件");
+        readRegion().release();
+    }
+
+    @Test
+    void testNotFoundAndTraversal() {
+        assertEquals(HttpResponseStatus.NOT_FOUND, request("/assets/missing.js").status(), "文件不存在应该返回404");
+        assertEquals(HttpResponseStatus.NOT_FOUND, request("/assets/css").status(), "目录应该返回404");
+        assertEquals(HttpResponseStatus.NOT_FOUND, request("/assets/%2e%2e/secret.txt").status(), "不能访问根目录之外的文件");
+        assertEquals(HttpResponseStatus.NOT_FOUND, request("/assets/..%2fsecret.txt").status(), "不能访问根目录之外的文件");
+    }
+}
@@ -0,0 +1,163 @@
+package com.jinitamy.core.template;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateEngineTest {
+
+    @Test
+    void testWriterEncodesUtf8() {
+        ByteBuf buf = Unpooled.buffer();
+        ByteBufUtf8Writer writer = new ByteBufUtf8Writer(buf);
+
+        writer.write("a中");
+        writer.write('é');
+        writer.write('€');
+        writer.write(new char[]{'x', 'y', 'z'}, 1, 2);
+        writer.append("😀");
+        writer.close();
+
+        assertEquals("a中é€yz😀", buf.toString(StandardCharsets.UTF_8), "应该按UTF-8编码所有字符");
+        buf.release();
+    }
+
+    @Test
+    void testWriterJoinsSplitSurrogatePair() {
+        String emoji = "😀";
+        ByteBuf buf = Unpooled.buffer();
+        ByteBufUtf8Writer writer = new ByteBufUtf8Writer(buf);
+
+        writer.write("a" + emoji.charAt(0));
+        writer.write(emoji.charAt(1) + "b");
+        writer.write(emoji.charAt(0));
+        writer.close();
+
+        assertEquals("a😀b?", buf.toString(StandardCharsets.UTF_8), "拆开的代理对应该合并，孤立的代理字符编码为?");
+        buf.release();
+    }
+
+    @Test
+    void testRenderToBuffer() {
+        Map<String, Object> model = new HashMap<>();
+        model.put("title", "标题");
+        model.put("content", "内容");
+
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeByte('#');
+        TemplateEngine engine = new TemplateEngine();
+        int written = engine.render("index.ftl", model, buf);
+
+        assertEquals(buf.readableBytes() - 1, written, "返回值应该是写入的字节数");
+        assertEquals(engine.render("index.ftl", model), buf.toString(1, written, StandardCharsets.UTF_8),
+                "与渲染为字符串的结果一致");
+        buf.release();
+    }
+
+    @Test
+    void testRenderFailureRestoresBuffer() {
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeByte('#');
+
+        TemplateEngine engine = new TemplateEngine();
+        assertThrows(RuntimeException.class, () -> engine.render("missing.ftl", new HashMap<>(), buf));
+        assertEquals(1, buf.writerIndex(), "渲染失败时应该恢复写索引");
+        buf.release();
+    }
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testClasspathLoadingAndPrecompile() throws Exception {
+        TemplateEngine engine = new TemplateEngine();
+
+        assertEquals("classpath:templates", engine.getTemplatePath(), "默认应该从类路径加载");
+        assertTrue(engine.listTemplates().contains("index.ftl"), "应该找到类路径中的模板");
+        assertTrue(engine.precompileAll() >= 1, "应该预编译全部模板");
+    }
+
+    @Test
+    void testListTemplatesInJar() throws Exception {
+        Path jar = dir.resolve("views.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            // 与Maven打包的jar一样包含目录条目
+            writeEntry(out, "views/", null);
+            writeEntry(out, "views/mail/", null);
+            writeEntry(out, "views/home.ftl", "home");
+            writeEntry(out, "views/mail/welcome.ftlh", "welcome");
+            writeEntry(out, "views/logo.png", "png");
+            writeEntry(out, "other/skip.ftl", "skip");
+        }
+
+        ClassLoader previous = Thread.currentThread().getContextClassLoader();
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, null)) {
+            Thread.currentThread().setContextClassLoader(loader);
+            TemplateEngine engine = new TemplateEngine();
+            engine.setClasspath("/views/");
+
+            List<String> names = engine.listTemplates();
+            assertEquals(2, names.size(), "只应该列出模板目录下的模板文件");
+            assertTrue(names.contains("mail/welcome.ftlh"), "子目录中的模板应该使用相对路径");
+            assertEquals(2, engine.precompileAll());
+            assertEquals("home", engine.render("home.ftl", new HashMap<>()), "应该从jar包加载模板");
+        } finally {
+            Thread.currentThread().setContextClassLoader(previous);
+        }
+    }
+
+    private static void writeEntry(JarOutputStream out, String name, String content) throws Exception {
+        out.putNextEntry(new JarEntry(name));
+        if (content != null) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        out.closeEntry();
+    }
+
+    @Test
+    void testDirectoryLoadingAndUpdateDelay() throws Exception {
+        Path template = dir.resolve("page.ftl");
+        Files.writeString(template, "v1 ${name}", StandardCharsets.UTF_8);
+
+        TemplateEngine engine = new TemplateEngine();
+        engine.setTemplatePath(dir.toString());
+        engine.setUpdateDelay(Duration.ZERO);
+        Map<String, Object> model = Map.of("name", "a");
+        assertEquals("v1 a", engine.render("page.ftl", model));
+
+        Files.writeString(template, "v2 ${name}", StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(template, java.nio.file.attribute.FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        assertEquals("v2 a", engine.render("page.ftl", model), "更新检查间隔为0时应该立即加载修改后的模板");
+    }
+
+    @Test
+    void testReconfigureSwapsConfiguration() throws Exception {
+        Files.writeString(dir.resolve("index.ftl"), "from directory", StandardCharsets.UTF_8);
+        TemplateEngine engine = new TemplateEngine();
+
+        engine.setTemplatePath(dir.toString());
+        assertEquals("from directory", engine.render("index.ftl", new HashMap<>()), "重新配置后应该使用新的模板位置");
+
+        engine.setClasspath("templates");
+        engine.setCacheSize(8, 0);
+        assertNotEquals("from directory", engine.render("index.ftl", Map.of("title", "t", "content", "c")));
+        assertThrows(RuntimeException.class, () -> engine.setTemplatePath(dir.resolve("missing").toString()),
+                "目录不存在时应该抛出异常");
+        assertThrows(IllegalArgumentException.class, () -> engine.setCacheSize(-1, 0));
+    }
+}